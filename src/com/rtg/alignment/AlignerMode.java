@@ -21,4 +21,6 @@ public enum AlignerMode {
   , TABLE
   /** Use the general purpose aligner chain */
   , GENERAL
+  /** Use the general purpose aligner chain, restricting full alignments to a band around the expected diagonal */
+  , BANDED
 }
@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.alignment;
+
+import com.rtg.mode.DnaUtils;
+import com.rtg.ngs.NgsParams;
+import com.rtg.util.diagnostic.Diagnostic;
+
+/**
+ * The Gotoh affine gap alignment of <code>GotohEditDistance</code>, restricted to the diagonals
+ * that are at most <code>maxShift</code> from the expected diagonal.
+ *
+ * Rather than a matrix covering the whole template window, each row of the dynamic programming
+ * holds only the <code>2 * maxShift + 1</code> cells of the band, indexed by the offset of the
+ * template position from the expected diagonal. Scores are kept for the current and previous rows
+ * only, and the traceback is recorded as one byte per cell, so both time and memory are proportional
+ * to the read length times the band width.
+ *
+ * Each cell has three states, named by the last action of the alignments ending there:
+ * <ul>
+ *   <li><code>match</code> ends with a diagonal (a match or mismatch).</li>
+ *   <li><code>insert</code> ends with a read nucleotide that is not in the template (comes from the row above).</li>
+ *   <li><code>delete</code> ends with a template nucleotide that is not in the read (comes from the left).</li>
+ * </ul>
+ * The traceback byte for a cell holds, for each state, the state of the cell it came from.
+ * Alignments start from a match state in row zero.
+ */
+public class BandedGotohEditDistance implements UnidirectionalEditDistance {
+
+  private static final int MATCH = 0;
+  private static final int INSERT = 1;
+  private static final int DELETE = 2;
+
+  private static final int STATE_BITS = 2;
+  private static final int STATE_MASK = (1 << STATE_BITS) - 1;
+  private static final int MATCH_SHIFT = 0;
+  private static final int INSERT_SHIFT = STATE_BITS;
+  private static final int DELETE_SHIFT = 2 * STATE_BITS;
+
+  /** Larger than any real score, but safe to add penalties to. */
+  private static final int INFINITE = Integer.MAX_VALUE / 4;
+
+  private final int mGapOpenPenalty;
+  private final int mGapExtendPenalty;
+  private final int mSubstitutionPenalty;
+  private final int mUnknownsPenalty;
+  private final boolean mSupportsEarlyTermination;
+
+  private int[] mWorkspace = new int[ActionsHelper.ACTIONS_START_INDEX];
+
+  private int[] mMatch = new int[0];
+  private int[] mInsert = new int[0];
+  private int[] mDelete = new int[0];
+  private int[] mPrevMatch = new int[0];
+  private int[] mPrevInsert = new int[0];
+  private int[] mPrevDelete = new int[0];
+
+  /** Row-major traceback, <code>mWidth</code> cells per read position. */
+  private byte[] mTrace = new byte[0];
+  private int mWidth;
+
+  private long mAlignments = 0;
+  private long mEarlyTerminations = 0;
+
+  /**
+   * Create an edit distance object with given penalties.
+   * @param ngsParams {@link NgsParams} for current run
+   */
+  public BandedGotohEditDistance(NgsParams ngsParams) {
+    this(ngsParams.gapOpenPenalty(), ngsParams.gapExtendPenalty(), ngsParams.substitutionPenalty(), ngsParams.unknownsPenalty());
+  }
+
+  /**
+   * Create an edit distance object with given penalties.
+   *
+   * @param openPenalty gap open penalty.
+   * @param extendPenalty gap extend penalty.
+   * @param substitutionPenalty substitution penalty.
+   * @param unknownsPenalty unknowns (n nucleotides, off template alignment) penalty.
+   */
+  public BandedGotohEditDistance(int openPenalty, int extendPenalty, int substitutionPenalty, int unknownsPenalty) {
+    mGapOpenPenalty = openPenalty;
+    mGapExtendPenalty = extendPenalty;
+    mSubstitutionPenalty = substitutionPenalty;
+    mUnknownsPenalty = unknownsPenalty;
+    mSupportsEarlyTermination = !(mGapOpenPenalty < 0 || mGapExtendPenalty < 0 || mSubstitutionPenalty < 0 || mUnknownsPenalty < 0);
+  }
+
+  private void initWorkspace(int rlen, int width) {
+    if (mMatch.length < width) {
+      mMatch = new int[width];
+      mInsert = new int[width];
+      mDelete = new int[width];
+      mPrevMatch = new int[width];
+      mPrevInsert = new int[width];
+      mPrevDelete = new int[width];
+    }
+    final long traceSize = (rlen + 1L) * width;
+    if (mTrace.length < traceSize) {
+      mTrace = new byte[(int) traceSize];
+    }
+    mWidth = width;
+  }
+
+  private void swapRows() {
+    int[] t = mPrevMatch;
+    mPrevMatch = mMatch;
+    mMatch = t;
+    t = mPrevInsert;
+    mPrevInsert = mInsert;
+    mInsert = t;
+    t = mPrevDelete;
+    mPrevDelete = mDelete;
+    mDelete = t;
+  }
+
+  private static int cap(int score) {
+    return score > INFINITE ? INFINITE : score;
+  }
+
+  private int diagonalCost(byte templateResidue, byte readResidue) {
+    if (templateResidue == DnaUtils.UNKNOWN_RESIDUE || readResidue == DnaUtils.UNKNOWN_RESIDUE) {
+      return mUnknownsPenalty;
+    }
+    return templateResidue == readResidue ? 0 : mSubstitutionPenalty;
+  }
+
+  /**
+   * Fill in the delete states of the current row, which depend on the cell to the left.
+   * @param row offset of the row in the traceback
+   */
+  private void fillDeletes(int row) {
+    final int openExtend = mGapOpenPenalty + mGapExtendPenalty;
+    mDelete[0] = INFINITE;
+    for (int k = 1; k < mWidth; ++k) {
+      final int extend = mDelete[k - 1] + mGapExtendPenalty;
+      final int fromMatch = mMatch[k - 1] + openExtend;
+      final int fromInsert = mInsert[k - 1] + openExtend;
+      final int from;
+      final int score;
+      if (fromMatch <= extend && fromMatch <= fromInsert) {
+        from = MATCH;
+        score = fromMatch;
+      } else if (extend <= fromInsert) {
+        from = DELETE;
+        score = extend;
+      } else {
+        from = INSERT;
+        score = fromInsert;
+      }
+      mDelete[k] = cap(score);
+      mTrace[row + k] |= (byte) (from << DELETE_SHIFT);
+    }
+  }
+
+  /**
+   * Aligns <code>read[readStartPos..readEndPos-1]</code> against the template, keeping within
+   * <code>maxShift</code> of the diagonal that starts at <code>templateStart</code>.
+   *
+   * @param read the whole read sequence
+   * @param readStartPos the start of the read segment to match (inclusive).
+   * @param readEndPos the end of the read segment to match (exclusive).
+   * @param template the whole template sequence.
+   * @param templateStart the expected start of the template match.
+   * @param templateEnd the (exclusive) end of the template match, only used if <code>fixedEnd</code> is true.
+   * @param fixedStart true if the alignment must start at <code>templateStart</code>
+   * @param fixedEnd true if the alignment must end at <code>templateEnd</code>
+   * @param maxScore alignments worse than this are not returned.
+   * @param maxShift maximum allowed shift to either side
+   * @return a non-null actions array.
+   */
+  private int[] calculate(byte[] read, int readStartPos, int readEndPos, byte[] template, int templateStart, int templateEnd,
+      boolean fixedStart, boolean fixedEnd, int maxScore, int maxShift) {
+    ++mAlignments;
+    final int rlen = readEndPos - readStartPos;
+    final int band = Math.max(0, maxShift);
+    final int width = 2 * band + 1;
+    final int endColumn = fixedEnd ? templateEnd - templateStart - rlen + band : -1;
+    if (fixedEnd && (endColumn < 0 || endColumn >= width)) {
+      return failure(templateStart);
+    }
+    if ((rlen + 1L) * width > Integer.MAX_VALUE) {
+      Diagnostic.developerLog("Can not create banded DPM for parameters rlen=" + (rlen + 1) + " width=" + width);
+      return failure(templateStart);
+    }
+    initWorkspace(rlen, width);
+
+    // row zero: where the alignment may start
+    for (int k = 0; k < width; ++k) {
+      mMatch[k] = !fixedStart || k == band ? 0 : INFINITE;
+      mInsert[k] = INFINITE;
+      mTrace[k] = 0;
+    }
+    fillDeletes(0);
+
+    final int openExtend = mGapOpenPenalty + mGapExtendPenalty;
+    for (int readPos = 1; readPos <= rlen; ++readPos) {
+      swapRows();
+      final byte readResidue = read[readStartPos + readPos - 1];
+      final int row = readPos * width;
+      // template position of the diagonal move into column zero of this row
+      final int templateBase = templateStart + readPos - 1 - band;
+      int rowMin = INFINITE;
+      for (int k = 0; k < width; ++k) {
+        final int templatePos = templateBase + k;
+        final byte templateResidue = templatePos >= 0 && templatePos < template.length ? template[templatePos] : DnaUtils.UNKNOWN_RESIDUE;
+        final int dc = diagonalCost(templateResidue, readResidue);
+        final int pm = mPrevMatch[k];
+        final int pd = mPrevDelete[k];
+        final int pi = mPrevInsert[k];
+        final int matchFrom;
+        final int matchScore;
+        if (pm <= pd && pm <= pi) {
+          matchFrom = MATCH;
+          matchScore = pm;
+        } else if (pd <= pi) {
+          matchFrom = DELETE;
+          matchScore = pd;
+        } else {
+          matchFrom = INSERT;
+          matchScore = pi;
+        }
+        mMatch[k] = cap(matchScore + dc);
+        int insertFrom = INSERT;
+        int insertScore = INFINITE;
+        if (k + 1 < width) {
+          final int extend = mPrevInsert[k + 1] + mGapExtendPenalty;
+          final int fromMatch = mPrevMatch[k + 1] + openExtend;
+          final int fromDelete = mPrevDelete[k + 1] + openExtend;
+          if (fromMatch <= extend && fromMatch <= fromDelete) {
+            insertFrom = MATCH;
+            insertScore = fromMatch;
+          } else if (extend <= fromDelete) {
+            insertScore = extend;
+          } else {
+            insertFrom = DELETE;
+            insertScore = fromDelete;
+          }
+        }
+        mInsert[k] = cap(insertScore);
+        mTrace[row + k] = (byte) ((matchFrom << MATCH_SHIFT) | (insertFrom << INSERT_SHIFT));
+        rowMin = Math.min(rowMin, Math.min(mMatch[k], mInsert[k]));
+      }
+      fillDeletes(row);
+      if (mSupportsEarlyTermination) {
+        for (int k = 0; k < width; ++k) {
+          rowMin = Math.min(rowMin, mDelete[k]);
+        }
+        if (rowMin > maxScore) {
+          ++mEarlyTerminations;
+          return failure(templateStart);
+        }
+      }
+    }
+
+    // choose where the alignment ends, preferring the expected diagonal
+    int bestColumn = -1;
+    int bestScore = INFINITE;
+    int bestState = MATCH;
+    for (int k = 0; k < width; ++k) {
+      if (fixedEnd && k != endColumn) {
+        continue;
+      }
+      final int state = bestState(k);
+      final int score = score(state, k);
+      if (score < bestScore || score == bestScore && bestColumn >= 0 && Math.abs(k - band) <= Math.abs(bestColumn - band)) {
+        bestScore = score;
+        bestColumn = k;
+        bestState = state;
+      }
+    }
+    if (bestColumn < 0 || bestScore > maxScore) {
+      return failure(templateStart);
+    }
+    traceback(read, readStartPos, rlen, template, templateStart, band, bestColumn, bestState);
+    mWorkspace[ActionsHelper.ALIGNMENT_SCORE_INDEX] = bestScore;
+    return mWorkspace;
+  }
+
+  private int bestState(int k) {
+    if (mMatch[k] <= mDelete[k] && mMatch[k] <= mInsert[k]) {
+      return MATCH;
+    }
+    return mDelete[k] <= mInsert[k] ? DELETE : INSERT;
+  }
+
+  private int score(int state, int k) {
+    switch (state) {
+      case MATCH:
+        return mMatch[k];
+      case INSERT:
+        return mInsert[k];
+      default:
+        return mDelete[k];
+    }
+  }
+
+  /**
+   * Follow the traceback from the end of the alignment, filling in the actions in the same
+   * layout as <code>GotohEditDistance</code>.
+   */
+  private void traceback(byte[] read, int readStartPos, int rlen, byte[] template, int templateStart, int band, int endColumn, int endState) {
+    final int size = ActionsHelper.ACTIONS_START_INDEX + 1 + ((2 * rlen + 2 * band) >> ActionsHelper.ACTIONS_PER_INT_SHIFT);
+    if (mWorkspace.length < size) {
+      mWorkspace = new int[size];
+    }
+    int readPos = rlen;
+    int k = endColumn;
+    int state = endState;
+    int totalActions = 0;
+    int buffer = 0;
+    int actionPoint = ActionsHelper.ACTIONS_START_INDEX;
+    while (readPos > 0 || state != MATCH) {
+      final int trace = mTrace[readPos * mWidth + k];
+      final int command;
+      if (state == MATCH) {
+        final int templatePos = templateStart + readPos - 1 + k - band;
+        final byte readResidue = read[readStartPos + readPos - 1];
+        if (templatePos >= 0 && templatePos < template.length && isSame(template[templatePos], readResidue)) {
+          command = ActionsHelper.SAME;
+        } else {
+          command = ActionsHelper.MISMATCH;
+        }
+        state = (trace >> MATCH_SHIFT) & STATE_MASK;
+        --readPos;
+      } else if (state == INSERT) {
+        command = ActionsHelper.INSERTION_INTO_REFERENCE;
+        state = (trace >> INSERT_SHIFT) & STATE_MASK;
+        --readPos;
+        ++k;
+      } else {
+        command = ActionsHelper.DELETION_FROM_REFERENCE;
+        state = (trace >> DELETE_SHIFT) & STATE_MASK;
+        --k;
+      }
+      buffer <<= ActionsHelper.BITS_PER_ACTION;
+      buffer |= command;
+      if ((++totalActions & ActionsHelper.ACTIONS_COUNT_MASK) == 0) {
+        mWorkspace[actionPoint++] = buffer;
+        buffer = 0;
+      }
+    }
+    mWorkspace[actionPoint] = buffer << (32 - ActionsHelper.BITS_PER_ACTION * (totalActions & ActionsHelper.ACTIONS_COUNT_MASK));
+    mWorkspace[ActionsHelper.ACTIONS_LENGTH_INDEX] = totalActions;
+    mWorkspace[ActionsHelper.TEMPLATE_START_INDEX] = templateStart + k - band;
+  }
+
+  private static boolean isSame(final int refNt, final int readNt) {
+    return !(refNt == DnaUtils.UNKNOWN_RESIDUE || readNt == DnaUtils.UNKNOWN_RESIDUE) && refNt == readNt;
+  }
+
+  private int[] failure(int templateStart) {
+    mWorkspace[ActionsHelper.TEMPLATE_START_INDEX] = templateStart;
+    mWorkspace[ActionsHelper.ALIGNMENT_SCORE_INDEX] = Integer.MAX_VALUE;
+    mWorkspace[ActionsHelper.ACTIONS_LENGTH_INDEX] = 0;
+    return mWorkspace;
+  }
+
+  @Override
+  public void logStats() {
+    Diagnostic.developerLog("BandedGotohEditDistance alignments=" + mAlignments + ", early terminations=" + mEarlyTerminations
+        + ", maxbytes=" + (mTrace.length + 6L * 4 * mMatch.length) + ", currwidth=" + mWidth);
+  }
+
+  @Override
+  public int[] calculateEditDistance(byte[] read, int rlen, byte[] template, int zeroBasedStart, int maxScore, int maxShift, boolean cgLeft) {
+    return calculate(read, 0, rlen, template, zeroBasedStart, zeroBasedStart, false, false, maxScore, maxShift);
+  }
+
+  @Override
+  public int[] calculateEditDistanceFixedBoth(byte[] read, int readStartPos, int readEndPos, byte[] template, int templateStartPos,
+      int templateEndPos, int maxScore, int maxShift) {
+    return calculate(read, readStartPos, readEndPos, template, templateStartPos, templateEndPos, true, true, maxScore, maxShift);
+  }
+
+  @Override
+  public int[] calculateEditDistanceFixedEnd(byte[] read, int readStartPos, int readEndPos, byte[] template, int templateExpectedStartPos,
+      int templateEndPos, int maxScore, int maxShift) {
+    return calculate(read, readStartPos, readEndPos, template, templateExpectedStartPos, templateEndPos, false, true, maxScore, maxShift);
+  }
+
+  @Override
+  public int[] calculateEditDistanceFixedStart(byte[] read, int readStartPos, int readEndPos, byte[] template, int templateStartPos, int maxScore, int maxShift) {
+    return calculate(read, readStartPos, readEndPos, template, templateStartPos, templateStartPos, true, false, maxScore, maxShift);
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.alignment;
+
+import java.util.Arrays;
+
+import com.rtg.mode.DNA;
+import com.rtg.ngs.NgsParams;
+
+/**
+ * Rejects alignments whose score must exceed the maximum, without finding the alignment.
+ * The unit cost edit distance between the read and the best matching part of the template
+ * around the expected start position counts the fewest mismatched, inserted and deleted bases
+ * in any alignment, and so gives a lower bound on the alignment score.
+ * The edit distance is computed a 64 bit word of read positions at a time using the
+ * bit-parallel algorithm of Myers, in the formulation of Hyyr&ouml;.
+ * Unknown nucleotides, in either the read or the template, and positions off the template match anything.
+ * Reads longer than <code>MAX_READ_LENGTH</code> are passed on to the next aligner.
+ */
+class BitParallelEditDistance implements UnidirectionalEditDistance {
+
+  /** Maximum number of words used to hold the read positions */
+  static final int MAX_WORDS = 4;
+
+  /** Longest read that is checked */
+  static final int MAX_READ_LENGTH = MAX_WORDS * Long.SIZE;
+
+  private static final int UNKNOWN = DNA.N.ordinal();
+  private static final int NUM_CODES = DNA.values().length;
+
+  private final int mGapOpenPenalty;
+  private final int mGapExtendPenalty;
+  private final int mSubstitutionPenalty;
+
+  /** For each template nucleotide, the read positions it matches */
+  private final long[][] mPeq = new long[NUM_CODES][MAX_WORDS];
+  /** Read positions where the vertical difference is plus one */
+  private final long[] mPv = new long[MAX_WORDS];
+  /** Read positions where the vertical difference is minus one */
+  private final long[] mMv = new long[MAX_WORDS];
+
+  private final int[] mNoAlignmentPossible;
+
+  /**
+   * @param ngsParams {@link NgsParams} for current run
+   */
+  BitParallelEditDistance(NgsParams ngsParams) {
+    this(ngsParams.gapOpenPenalty(), ngsParams.gapExtendPenalty(), ngsParams.substitutionPenalty());
+  }
+
+  /**
+   * @param gapOpenPenalty penalty for opening a gap
+   * @param gapExtendPenalty penalty for each base of a gap, must be positive
+   * @param substitutionPenalty penalty for a substitution, must be positive
+   */
+  BitParallelEditDistance(int gapOpenPenalty, int gapExtendPenalty, int substitutionPenalty) {
+    assert gapOpenPenalty >= 0 && gapExtendPenalty > 0 && substitutionPenalty > 0;
+    mGapOpenPenalty = gapOpenPenalty;
+    mGapExtendPenalty = gapExtendPenalty;
+    mSubstitutionPenalty = substitutionPenalty;
+    mNoAlignmentPossible = new int[ActionsHelper.ACTIONS_START_INDEX];
+    mNoAlignmentPossible[ActionsHelper.ALIGNMENT_SCORE_INDEX] = Integer.MAX_VALUE;
+  }
+
+  /**
+   * The bound is only valid when every edit has a positive cost and unknown nucleotides are not rewarded.
+   * @param ngsParams {@link NgsParams} for current run
+   * @return true if the penalties allow this aligner to be used
+   */
+  static boolean isApplicable(NgsParams ngsParams) {
+    return ngsParams.gapOpenPenalty() >= 0 && ngsParams.gapExtendPenalty() > 0 && ngsParams.substitutionPenalty() > 0 && ngsParams.unknownsPenalty() >= 0;
+  }
+
+  /**
+   * The largest number of edits that an alignment scoring no more than <code>maxScore</code> can contain.
+   * An alignment with <code>k</code> edits costs at least <code>k</code> substitutions, or if it
+   * contains a gap, a gap open plus one gap base plus <code>k - 1</code> of the cheaper of gap bases and substitutions.
+   * @param maxScore maximum alignment score
+   * @return the maximum number of edits
+   */
+  int maxEdits(int maxScore) {
+    final long bySubstitutions = maxScore / mSubstitutionPenalty;
+    final long firstGap = (long) mGapOpenPenalty + mGapExtendPenalty;
+    final long withGap = maxScore < firstGap ? 0 : 1 + (maxScore - firstGap) / Math.min(mSubstitutionPenalty, mGapExtendPenalty);
+    return (int) Math.min(Integer.MAX_VALUE, Math.max(bySubstitutions, withGap));
+  }
+
+  /**
+   * Returns null if the alignment score might be less than or equal to <code>maxScore</code>.
+   *
+   * @param read the read
+   * @param rlen read length
+   * @param template the template
+   * @param zeroBasedStart start position
+   * @param maxScore maximum alignment score
+   * @param maxShift the maximum allowed shift in start and end positions
+   * @param cgLeft ignored
+   * @return null, or an alignment score of <code>Integer.MAX_VALUE</code>.
+   */
+  @Override
+  public int[] calculateEditDistance(byte[] read, int rlen, byte[] template, int zeroBasedStart, int maxScore, int maxShift, boolean cgLeft) {
+    if (rlen <= 0 || rlen > MAX_READ_LENGTH || maxScore < 0) {
+      return null;
+    }
+    final int maxEdits = maxEdits(maxScore);
+    if (maxEdits >= rlen) {
+      return null;
+    }
+    // at least as much of the template as the Gotoh aligner considers
+    final int margin = maxShift + maxShift / 2 + 1;
+    if (exceeds(read, rlen, template, zeroBasedStart - margin, zeroBasedStart + rlen + margin, maxEdits)) {
+      mNoAlignmentPossible[ActionsHelper.TEMPLATE_START_INDEX] = zeroBasedStart;
+      return mNoAlignmentPossible;
+    }
+    return null;
+  }
+
+  /**
+   * Test if every alignment of the read against part of a region of the template needs more than a given number of edits.
+   * @param read the read
+   * @param rlen read length, at most <code>MAX_READ_LENGTH</code>
+   * @param template the template
+   * @param start start of the template region (may be before the start of the template)
+   * @param end end of the template region, exclusive (may be after the end of the template)
+   * @param maxEdits maximum number of edits, less than the read length
+   * @return true if more than <code>maxEdits</code> are needed
+   */
+  boolean exceeds(byte[] read, int rlen, byte[] template, int start, int end, int maxEdits) {
+    assert rlen > 0 && rlen <= MAX_READ_LENGTH && maxEdits < rlen;
+    final int words = (rlen + Long.SIZE - 1) / Long.SIZE;
+    final int lastBit = (rlen - 1) % Long.SIZE;
+    for (final long[] peq : mPeq) {
+      Arrays.fill(peq, 0, words, 0);
+    }
+    for (int i = 0; i < rlen; ++i) {
+      final int code = read[i];
+      final int word = i / Long.SIZE;
+      final long bit = 1L << (i % Long.SIZE);
+      if (code > UNKNOWN && code < NUM_CODES) {
+        mPeq[code][word] |= bit;
+      } else {
+        for (int c = UNKNOWN + 1; c < NUM_CODES; ++c) {
+          mPeq[c][word] |= bit;
+        }
+      }
+    }
+    Arrays.fill(mPeq[UNKNOWN], 0, words, -1L);
+    Arrays.fill(mPv, 0, words, -1L);
+    Arrays.fill(mMv, 0, words, 0);
+
+    // distance at the last read position, starting from the column before the template region
+    int score = rlen;
+    for (int tPos = start; tPos < end; ++tPos) {
+      final int t = tPos >= 0 && tPos < template.length ? template[tPos] : UNKNOWN;
+      final long[] eq = mPeq[t > UNKNOWN && t < NUM_CODES ? t : UNKNOWN];
+      // the alignment may start anywhere in the template, so the top row difference is zero
+      int hin = 0;
+      for (int w = 0; w < words; ++w) {
+        final long pv = mPv[w];
+        final long mv = mMv[w];
+        long e = eq[w];
+        final long xv = e | mv;
+        if (hin < 0) {
+          e |= 1L;
+        }
+        final long xh = (((e & pv) + pv) ^ pv) | e;
+        long ph = mv | ~(xh | pv);
+        long mh = pv & xh;
+        if (w == words - 1) {
+          score += (int) ((ph >>> lastBit) & 1L) - (int) ((mh >>> lastBit) & 1L);
+        }
+        final int hout = (int) (ph >>> (Long.SIZE - 1)) - (int) (mh >>> (Long.SIZE - 1));
+        ph <<= 1;
+        mh <<= 1;
+        if (hin < 0) {
+          mh |= 1L;
+        } else if (hin > 0) {
+          ph |= 1L;
+        }
+        mPv[w] = mh | ~(xv | ph);
+        mMv[w] = ph & xv;
+        hin = hout;
+      }
+      if (score <= maxEdits) {
+        return false;
+      }
+      if (score - (end - 1 - tPos) > maxEdits) {
+        // the distance falls by at most one for each remaining template position
+        return true;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void logStats() {
+  }
+
+  @Override
+  public int[] calculateEditDistanceFixedBoth(byte[] read, int readStartPos, int readEndPos, byte[] template, int templateStartPos,
+      int templateEndPos, int maxScore, int maxShift) {
+    return null;
+  }
+
+  @Override
+  public int[] calculateEditDistanceFixedEnd(byte[] read, int readStartPos, int readEndPos, byte[] template, int templateExpectedStartPos,
+      int templateEndPos, int maxScore, int maxShift) {
+    return null;
+  }
+
+  @Override
+  public int[] calculateEditDistanceFixedStart(byte[] read, int readStartPos, int readEndPos, byte[] template, int templateStartPos, int maxScore, int maxShift) {
+    return null;
+  }
+}
@@ -51,6 +51,8 @@ public final class EditDistanceFactory {
   private static final boolean ENABLE_HEURISTIC_ALIGNING = GlobalFlags.getBooleanValue(CoreGlobalFlags.EDIT_DIST_HEURISTIC_ALIGNERS_FLAG);
   // Specify how many reads to log with -D option
   private static final int EDIT_LOGGING_AMOUNT = GlobalFlags.getIntegerValue(CoreGlobalFlags.EDIT_DIST_LOGGING_AMOUNT_FLAG);
+  // Reject alignments whose edit distance shows they cannot score well enough before trying the gotoh aligner
+  private static final boolean ENABLE_BIT_PARALLEL_FILTER = GlobalFlags.getBooleanValue(CoreGlobalFlags.EDIT_DIST_BIT_PARALLEL_FILTER_FLAG);
 
   // Priors for cg CG-gotoh TODO merge with the same default priors that variant calling uses
   private static final String GOTOH_CG_PRIORS = "cg_real_errors";
@@ -137,8 +139,8 @@ public final class EditDistanceFactory {
       Diagnostic.developerLog("Using SingleIndelEditDistance (TABLE): maxReadLength=" + maxReadLength);
       return new SoftClipperOmni(new RcEditDistance(new UnidirectionalPrioritisedEditDistance(new SingleIndelEditDistance(ngsParams, maxReadLength))), ngsParams.softClipDistance());
     }
-    // General case
-
+    // General case, optionally with banded full alignment
+    final boolean banded = effectiveChain == AlignerMode.BANDED;
     final boolean useSeededAligner = maxReadLength > MIN_LEN_FOR_SEEDED_ALIGNER;
 
     if (prereadType == PrereadType.CG) {
@@ -173,20 +175,39 @@ public final class EditDistanceFactory {
         rev.add(new HopStepEditDistanceLong(ngsParams));
       }
       Diagnostic.developerLog("SeededAligner");
-      fwd.add(new SeededAligner(ngsParams, !ENABLE_HEURISTIC_ALIGNING));
-      rev.add(new SeededAligner(ngsParams, !ENABLE_HEURISTIC_ALIGNING));
-      Diagnostic.developerLog("GotohEditDistance");
-      fwd.add(new GotohEditDistance(ngsParams));
-      rev.add(new GotohEditDistance(ngsParams));
+      fwd.add(new SeededAligner(ngsParams, !ENABLE_HEURISTIC_ALIGNING, createGotohEditDistance(ngsParams, banded)));
+      rev.add(new SeededAligner(ngsParams, !ENABLE_HEURISTIC_ALIGNING, createGotohEditDistance(ngsParams, banded)));
+      if (useBitParallelFilter(ngsParams, maxReadLength)) {
+        Diagnostic.developerLog("BitParallelEditDistance");
+        fwd.add(new BitParallelEditDistance(ngsParams));
+        rev.add(new BitParallelEditDistance(ngsParams));
+      }
+      Diagnostic.developerLog(banded ? "BandedGotohEditDistance" : "GotohEditDistance");
+      fwd.add(createGotohEditDistance(ngsParams, banded));
+      rev.add(createGotohEditDistance(ngsParams, banded));
 
       return new SoftClipperOmni(new RcEditDistance(
           new UnidirectionalPrioritisedEditDistance(fwd.toArray(new UnidirectionalEditDistance[fwd.size()])),
           new UnidirectionalPrioritisedEditDistance(rev.toArray(new UnidirectionalEditDistance[rev.size()]))), ngsParams.softClipDistance());
     }
 
+    if (useBitParallelFilter(ngsParams, maxReadLength)) {
+      return new SoftClipperOmni(new RcEditDistance(new UnidirectionalPrioritisedEditDistance(
+        new NoIndelsEditDistance(ngsParams),
+          new BitParallelEditDistance(ngsParams),
+          createGotohEditDistance(ngsParams, banded))), ngsParams.softClipDistance());
+    }
     return new SoftClipperOmni(new RcEditDistance(new UnidirectionalPrioritisedEditDistance(
       new NoIndelsEditDistance(ngsParams),
-        new GotohEditDistance(ngsParams))), ngsParams.softClipDistance());
+        createGotohEditDistance(ngsParams, banded))), ngsParams.softClipDistance());
+  }
+
+  private static UnidirectionalEditDistance createGotohEditDistance(NgsParams ngsParams, boolean banded) {
+    return banded ? new BandedGotohEditDistance(ngsParams) : new GotohEditDistance(ngsParams);
+  }
+
+  private static boolean useBitParallelFilter(NgsParams ngsParams, int maxReadLength) {
+    return ENABLE_BIT_PARALLEL_FILTER && BitParallelEditDistance.isApplicable(ngsParams) && maxReadLength <= BitParallelEditDistance.MAX_READ_LENGTH;
   }
 
   private static CgGotohEditDistance createCgGotohEditDistance(int unknownsPenalty, int readLength) {
@@ -72,6 +72,16 @@ final class SeededAligner implements UnidirectionalEditDistance {
    * @param nullOnLowComplexity true if this should return null for any alignments which trigger the low complexity filter. This is more accurate, but knocks out lots of alignments.
    */
   SeededAligner(NgsParams ngsParams, boolean nullOnLowComplexity) {
+    this(ngsParams, nullOnLowComplexity, new GotohEditDistance(ngsParams));
+  }
+
+  /**
+   * Constructor
+   * @param ngsParams supplies other penalty configuration
+   * @param nullOnLowComplexity true if this should return null for any alignments which trigger the low complexity filter.
+   * @param ed aligner used to fill in the gaps between seeds
+   */
+  SeededAligner(NgsParams ngsParams, boolean nullOnLowComplexity, UnidirectionalEditDistance ed) {
     for (int i = 0; i < mSeeds.length; ++i) {
       mSeeds[i] = new SeedPositions();
     }
@@ -85,7 +95,7 @@ final class SeededAligner implements UnidirectionalEditDistance {
     mGapOpenPenalty = ngsParams.gapOpenPenalty();
     mGapExtendPenalty = ngsParams.gapExtendPenalty();
 
-    mED = new GotohEditDistance(ngsParams);
+    mED = ed;
     mFixedStart = mED;
     mFixedEnd = mED;
 //    mCheck = mED;
@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
 
+import com.rtg.util.SimpleThreadPool;
 import com.rtg.util.iterators.Transform;
 
 /**
@@ -83,6 +84,35 @@ public class AsyncKmerIterable implements KmerIterable {
     return Transform.flatten(bytes, new Bytes2Kmers());
   }
 
+  /**
+   * Count the k-mers of all the reads into a table, with several threads taking fragments from
+   * the asynchronous read sources. Unlike the iterator no <code>Kmer</code> objects are created.
+   * @param table the table to count into.
+   * @param numberThreads number of threads adding to the table.
+   * @throws IOException if an I/O error occurs.
+   */
+  void countAll(final KmerCountTable table, final int numberThreads) throws IOException {
+    for (ReadPairSource source : mSources) {
+      source.reset();
+    }
+    final AsyncReadPool pool = new AsyncReadPool("CountPool", mSources);
+    mPool = pool;
+    final SimpleThreadPool counters = new SimpleThreadPool(numberThreads, "KmerCount", true);
+    for (int i = 0; i < numberThreads; ++i) {
+      counters.execute(() -> {
+        for (final AsyncReadSource source : pool.sources()) {
+          List<byte[]> fragments;
+          while ((fragments = source.nextFragments()) != null) {
+            for (final byte[] fragment : fragments) {
+              table.add(fragment);
+            }
+          }
+        }
+      });
+    }
+    counters.terminate();
+  }
+
   @Override
   public void close() throws IOException {
     mPool.close();
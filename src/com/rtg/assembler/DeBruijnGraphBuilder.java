@@ -25,6 +25,8 @@ import com.rtg.assembler.graph.Path;
 import com.rtg.assembler.graph.PathsIterator;
 import com.rtg.assembler.graph.implementation.GraphKmerAttribute;
 import com.rtg.assembler.graph.implementation.PathArray;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.mode.DNA;
 import com.rtg.mode.DnaUtils;
 import com.rtg.reader.SequencesReader;
@@ -41,6 +43,7 @@ import com.rtg.util.diagnostic.OneShotTimer;
 public class DeBruijnGraphBuilder {
 
   private static final boolean FORCE_HASHMAP = false; //Boolean.valueOf(System.getProperty("rtg.assembler.usehashmap", "false"));
+  private static final boolean KMER_COUNT_TABLE = GlobalFlags.getBooleanValue(CoreGlobalFlags.ASSEMBLER_KMER_COUNT_TABLE_FLAG);
 
   /**
    * This map treats all Kmer values as being equivalent to their reverse complement
@@ -93,7 +96,9 @@ public class DeBruijnGraphBuilder {
     mTipConstant = tipConstant;
     final OneShotTimer init = new OneShotTimer("DeBruijn_build");
 
-    if (kmerSize <= 32 && !FORCE_HASHMAP) {
+    if (KMER_COUNT_TABLE) {
+      mDeBruijnGraph = new KmerCountDeBruijnGraph(new KmerIterableFactory(sources, factory, kmerSize), kmerSize, numberThreads);
+    } else if (kmerSize <= 32 && !FORCE_HASHMAP) {
       final long size = size(sources, kmerSize);
       mDeBruijnGraph =  new LowKDeBruijnGraph(new KmerIterableFactory(sources, factory, kmerSize), size, kmerSize);
     } else {
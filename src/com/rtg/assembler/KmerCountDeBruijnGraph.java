@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.assembler;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.util.array.bitindex.BitIndex;
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.diagnostic.ErrorType;
+import com.rtg.util.diagnostic.NoTalkbackSlimException;
+import com.rtg.util.diagnostic.OneShotTimer;
+import com.rtg.util.iterators.IteratorHelper;
+
+/**
+ * Graph whose k-mers are counted by several threads into a <code>KmerCountTable</code> in a
+ * single pass over the reads, rather than being sorted into an index over two passes.
+ * Handles any k, and iterates over the k-mers in the same order as <code>LowKDeBruijnGraph</code>.
+ */
+@TestClass("com.rtg.assembler.KmerCountDeBruijnGraphTest")
+public class KmerCountDeBruijnGraph implements DeBruijnGraph {
+
+  private final KmerCountTable mTable;
+  private final int mKmerSize;
+  private final int[] mSlots;
+  private final BitIndex mBitIndex;
+  private int mThreshold = 0;
+
+  KmerCountDeBruijnGraph(KmerIterableFactoryInterface factory, final int kmerSize, final int numberThreads) {
+    mKmerSize = kmerSize;
+    mTable = new KmerCountTable(kmerSize, numberThreads);
+    final OneShotTimer count = new OneShotTimer("DeBruijn_count");
+    try (KmerIterable iterable = factory.makeIterable()) {
+      if (iterable instanceof AsyncKmerIterable) {
+        ((AsyncKmerIterable) iterable).countAll(mTable, numberThreads);
+      } else {
+        for (final Kmer k : iterable) {
+          mTable.add(KmerHashA.kmerToHashMin(k));
+        }
+      }
+    } catch (IOException e) {
+      throw new NoTalkbackSlimException(e, ErrorType.IO_ERROR, e.getMessage());
+    }
+    count.stopLog();
+    final OneShotTimer sort = new OneShotTimer("DeBruijn_sort");
+    mSlots = mTable.sortedSlots();
+    mBitIndex = new BitIndex(mTable.capacity(), 1);
+    sort.stopLog();
+    Diagnostic.developerLog("distinct kmers=" + mTable.size() + " bytes=" + bytes());
+  }
+
+  private int find(Kmer k) {
+    final int slot = mTable.find(KmerHashA.kmerToHashMin(k));
+    if (slot < 0) {
+      throw new RuntimeException();
+    }
+    return slot;
+  }
+
+  @Override
+  public int frequency(Kmer k) {
+    return mTable.count(find(k));
+  }
+
+  @Override
+  public void setThreshold(int goodThreshold) {
+    mThreshold = goodThreshold;
+  }
+
+  @Override
+  public void setBuilt(Kmer k, boolean built) {
+    mBitIndex.set(find(k), built ? 1 : 0);
+  }
+
+  @Override
+  public boolean isBuilt(Kmer k) {
+    final long built = mBitIndex.get(find(k));
+    assert built == 0 || built == 1;
+    return built == 1;
+  }
+
+  @Override
+  public boolean contains(Kmer k) {
+    final int slot = mTable.find(KmerHashA.kmerToHashMin(k));
+    return slot >= 0 && mTable.count(slot) > mThreshold;
+  }
+
+  private class LocalIterator extends IteratorHelper<Kmer> {
+    private int mNext = 0;
+
+    @Override
+    protected void step() {
+      ++mNext;
+    }
+
+    @Override
+    protected boolean atEnd() {
+      return mNext >= mSlots.length;
+    }
+
+    @Override
+    protected boolean isOK() {
+      return mTable.count(mSlots[mNext]) > mThreshold;
+    }
+
+    @Override
+    protected Kmer current() {
+      final long[] key = mTable.key(mSlots[mNext]);
+      return mKmerSize <= 32 ? new KmerHash(key[0], mKmerSize) : new KmerHashA(key, mKmerSize);
+    }
+  }
+
+  @Override
+  public Iterator<Kmer> iterator() {
+    return new LocalIterator();
+  }
+
+  @Override
+  public long bytes() {
+    return mTable.bytes() + 4L * mSlots.length + mBitIndex.bytes();
+  }
+}
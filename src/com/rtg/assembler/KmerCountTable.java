@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.assembler;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.mode.DNA;
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.diagnostic.NoTalkbackSlimException;
+
+/**
+ * Open addressing table counting occurrences of k-mers, which may be updated by several threads
+ * at once without locking. Each k-mer is held as the lesser of itself and its reverse complement
+ * packed two bits per nucleotide into the same layout of longs as <code>KmerHashA</code>, so memory is
+ * proportional to the number of distinct k-mers rather than the number of occurrences.
+ * <p>
+ * A thread inserting a new k-mer claims an empty slot by compare and set of its count to a
+ * busy marker, writes the packed k-mer, then publishes the slot with a count of one. Existing
+ * k-mers are counted by compare and set. K-mers are added in batches while holding a shared
+ * lock, and only when too few empty slots remain for the batches of all the adding threads is
+ * the exclusive lock taken to double the table.
+ */
+@TestClass("com.rtg.assembler.KmerCountTableTest")
+final class KmerCountTable {
+
+  /** Maximum number of k-mers added between checks that the table has room. */
+  static final int BATCH = 1024;
+  private static final int INITIAL_BITS = 16;
+  private static final int BUSY = -1;
+
+  private final int mKmerSize;
+  private final int mWords;
+  private final int mTopBits;
+  private final long mTopMask;
+  private final int mThreads;
+
+  private final ReentrantReadWriteLock mLock = new ReentrantReadWriteLock();
+  private final AtomicLong mSize = new AtomicLong();
+  private volatile long mMaxLoad;
+  private int mMask;
+  private long[] mKeys;
+  private AtomicIntegerArray mCounts;
+
+  /**
+   * @param kmerSize length of the k-mers.
+   * @param threads maximum number of threads which will add to the table at the same time.
+   */
+  KmerCountTable(final int kmerSize, final int threads) {
+    if (kmerSize < 1) {
+      throw new IllegalArgumentException("kmerSize=" + kmerSize);
+    }
+    mKmerSize = kmerSize;
+    mWords = (kmerSize + 31) / 32;
+    mTopBits = 2 * (kmerSize - 32 * (mWords - 1));
+    mTopMask = mTopBits == Long.SIZE ? -1L : (1L << mTopBits) - 1;
+    mThreads = Math.max(1, threads);
+    int bits = INITIAL_BITS;
+    while (capacityLoad(1 << bits) < 2L * mThreads * BATCH) {
+      ++bits;
+    }
+    allocate(1 << bits);
+  }
+
+  private static long capacityLoad(final int capacity) {
+    return capacity / 4 * 3;
+  }
+
+  private void allocate(final long capacity) {
+    if (capacity > 1 << 30 || capacity * mWords > Integer.MAX_VALUE - 8) {
+      throw new NoTalkbackSlimException("Too many distinct k-mers to count: " + mSize.get());
+    }
+    mMask = (int) capacity - 1;
+    mKeys = new long[(int) capacity * mWords];
+    mCounts = new AtomicIntegerArray((int) capacity);
+    mMaxLoad = capacityLoad((int) capacity);
+  }
+
+  /**
+   * @return the number of longs in a packed k-mer.
+   */
+  int words() {
+    return mWords;
+  }
+
+  /**
+   * @return the number of distinct k-mers in the table.
+   */
+  long size() {
+    return mSize.get();
+  }
+
+  /**
+   * @return the number of slots in the table.
+   */
+  int capacity() {
+    return mMask + 1;
+  }
+
+  /**
+   * @return number of bytes used by the table.
+   */
+  long bytes() {
+    return 8L * mKeys.length + 4L * mCounts.length();
+  }
+
+  /**
+   * Count one occurrence of a packed k-mer.
+   * @param key the packed k-mer, which must already be the lesser of itself and its reverse complement.
+   */
+  void add(final long[] key) {
+    assert key.length == mWords;
+    reserve();
+    final boolean added;
+    mLock.readLock().lock();
+    try {
+      added = increment(key);
+    } finally {
+      mLock.readLock().unlock();
+    }
+    if (added) {
+      mSize.incrementAndGet();
+    }
+  }
+
+  /**
+   * Count every k-mer in a read, restarting after each unknown nucleotide.
+   * @param read nucleotides of the read as <code>DNA</code> ordinals.
+   */
+  void add(final byte[] read) {
+    final long[] forward = new long[mWords];
+    final long[] reverse = new long[mWords];
+    int valid = 0;
+    int pos = 0;
+    while (pos < read.length) {
+      reserve();
+      int added = 0;
+      mLock.readLock().lock();
+      try {
+        int kmers = 0;
+        while (pos < read.length && kmers < BATCH) {
+          final byte nt = read[pos++];
+          if (nt == DNA.N.ordinal()) {
+            valid = 0;
+            continue;
+          }
+          shift(forward, reverse, nt - 1);
+          if (++valid >= mKmerSize) {
+            if (increment(compare(forward, reverse) <= 0 ? forward : reverse)) {
+              ++added;
+            }
+            ++kmers;
+          }
+        }
+      } finally {
+        mLock.readLock().unlock();
+      }
+      mSize.addAndGet(added);
+    }
+  }
+
+  /* Append a nucleotide to the forward k-mer and its complement to the front of the reverse complement. */
+  private void shift(final long[] forward, final long[] reverse, final int code) {
+    long carry = code;
+    for (int w = 0; w < mWords - 1; ++w) {
+      final long word = forward[w];
+      forward[w] = (word << 2) | carry;
+      carry = word >>> 62;
+    }
+    forward[mWords - 1] = ((forward[mWords - 1] << 2) | carry) & mTopMask;
+    carry = (long) (3 - code) << (mTopBits - 2);
+    for (int w = mWords - 1; w >= 0; --w) {
+      final long word = reverse[w];
+      reverse[w] = (word >>> 2) | carry;
+      carry = word << 62;
+    }
+  }
+
+  /**
+   * Compare packed k-mers in nucleotide order.
+   * @param a first packed k-mer.
+   * @param b second packed k-mer.
+   * @return negative, zero or positive as the first is less than, equal to or greater than the second.
+   */
+  static int compare(final long[] a, final long[] b) {
+    for (int w = a.length - 1; w >= 0; --w) {
+      final int c = Long.compareUnsigned(a[w], b[w]);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return 0;
+  }
+
+  private int compare(final int slotA, final int slotB) {
+    final long[] keys = mKeys;
+    for (int w = mWords - 1; w >= 0; --w) {
+      final int c = Long.compareUnsigned(keys[slotA * mWords + w], keys[slotB * mWords + w]);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return 0;
+  }
+
+  private static int hash(final long[] key, final int mask) {
+    long h = 0;
+    for (final long word : key) {
+      h = (h ^ word) * 0x9E3779B97F4A7C15L;
+      h ^= h >>> 29;
+    }
+    return (int) h & mask;
+  }
+
+  private static boolean sameKey(final long[] keys, final int offset, final long[] key) {
+    for (int w = 0; w < key.length; ++w) {
+      if (keys[offset + w] != key[w]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /* Must hold the shared lock. Returns true if the k-mer was not previously in the table. */
+  private boolean increment(final long[] key) {
+    final long[] keys = mKeys;
+    final AtomicIntegerArray counts = mCounts;
+    final int mask = mMask;
+    int slot = hash(key, mask);
+    while (true) {
+      int count = counts.get(slot);
+      if (count == 0) {
+        if (counts.compareAndSet(slot, 0, BUSY)) {
+          System.arraycopy(key, 0, keys, slot * mWords, mWords);
+          counts.set(slot, 1);
+          return true;
+        }
+        count = counts.get(slot);
+      }
+      while (count == BUSY) {
+        Thread.yield();
+        count = counts.get(slot);
+      }
+      if (sameKey(keys, slot * mWords, key)) {
+        while (count < Integer.MAX_VALUE && !counts.compareAndSet(slot, count, count + 1)) {
+          count = counts.get(slot);
+        }
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /*
+   * Make sure there is room for a batch from every adding thread. Each batch is checked
+   * before it starts, so at most one batch per thread is ever unaccounted for in the size.
+   */
+  private void reserve() {
+    if (mSize.get() + (long) mThreads * BATCH > mMaxLoad) {
+      mLock.writeLock().lock();
+      try {
+        while (mSize.get() + (long) mThreads * BATCH > mMaxLoad) {
+          grow();
+        }
+      } finally {
+        mLock.writeLock().unlock();
+      }
+    }
+  }
+
+  /* Must hold the exclusive lock. */
+  private void grow() {
+    final long[] keys = mKeys;
+    final AtomicIntegerArray counts = mCounts;
+    allocate(2L * (mMask + 1));
+    Diagnostic.developerLog("KmerCountTable resized to " + capacity() + " slots for " + mSize.get() + " k-mers");
+    final long[] key = new long[mWords];
+    for (int s = 0; s < counts.length(); ++s) {
+      final int count = counts.get(s);
+      if (count > 0) {
+        System.arraycopy(keys, s * mWords, key, 0, mWords);
+        int slot = hash(key, mMask);
+        while (mCounts.get(slot) != 0) {
+          slot = (slot + 1) & mMask;
+        }
+        System.arraycopy(key, 0, mKeys, slot * mWords, mWords);
+        mCounts.set(slot, count);
+      }
+    }
+  }
+
+  /**
+   * Find the slot holding a k-mer. Only valid once all additions have finished.
+   * @param key the packed k-mer, which must already be the lesser of itself and its reverse complement.
+   * @return the slot, or -1 if the k-mer is not in the table.
+   */
+  int find(final long[] key) {
+    int slot = hash(key, mMask);
+    while (true) {
+      if (mCounts.get(slot) == 0) {
+        return -1;
+      }
+      if (sameKey(mKeys, slot * mWords, key)) {
+        return slot;
+      }
+      slot = (slot + 1) & mMask;
+    }
+  }
+
+  /**
+   * @param slot a slot of the table.
+   * @return the number of occurrences of the k-mer in the slot, 0 if the slot is empty.
+   */
+  int count(final int slot) {
+    return mCounts.get(slot);
+  }
+
+  /**
+   * @param slot an occupied slot of the table.
+   * @return the packed k-mer in the slot.
+   */
+  long[] key(final int slot) {
+    final long[] key = new long[mWords];
+    System.arraycopy(mKeys, slot * mWords, key, 0, mWords);
+    return key;
+  }
+
+  /**
+   * Only valid once all additions have finished.
+   * @return the occupied slots ordered by their k-mers.
+   */
+  int[] sortedSlots() {
+    final int[] slots = new int[(int) mSize.get()];
+    int n = 0;
+    for (int s = 0; s <= mMask; ++s) {
+      if (mCounts.get(s) > 0) {
+        slots[n++] = s;
+      }
+    }
+    assert n == slots.length;
+    sort(slots, 0, n);
+    return slots;
+  }
+
+  private void sort(final int[] slots, final int lo, final int hi) {
+    int start = lo;
+    int end = hi;
+    while (end - start > 16) {
+      final int pivot = slots[(start + end) >>> 1];
+      int i = start;
+      int j = end - 1;
+      while (i <= j) {
+        while (compare(slots[i], pivot) < 0) {
+          ++i;
+        }
+        while (compare(slots[j], pivot) > 0) {
+          --j;
+        }
+        if (i <= j) {
+          final int t = slots[i];
+          slots[i++] = slots[j];
+          slots[j--] = t;
+        }
+      }
+      // Recurse into the smaller part to bound the stack depth
+      if (j - start < end - i) {
+        sort(slots, start, j + 1);
+        start = i;
+      } else {
+        sort(slots, i, end);
+        end = j + 1;
+      }
+    }
+    for (int i = start + 1; i < end; ++i) {
+      for (int j = i; j > start && compare(slots[j - 1], slots[j]) > 0; --j) {
+        final int t = slots[j];
+        slots[j] = slots[j - 1];
+        slots[j - 1] = t;
+      }
+    }
+  }
+}
@@ -88,6 +88,23 @@ public abstract class AbstractBitVector {
    */
   public abstract long bytes();
 
+  /**
+   * Returns the packed word containing bits <code>index * 32</code> to <code>index * 32 + 31</code>.
+   *
+   * @param index the index of the word.
+   * @return the word.
+   */
+  abstract int word(long index);
+
+  /**
+   * Gets the number of packed words backing the vector.
+   *
+   * @return number of words.
+   */
+  long words() {
+    return (mLength + MASK) >> BITS_PER_ENTRY;
+  }
+
 
   /**
    * Gets the length of the bit vector.
@@ -64,6 +64,10 @@ public final class BigBitVector extends AbstractBitVector {
     mArray.setInt(x, v);
   }
 
+  @Override
+  int word(final long index) {
+    return mArray.getInt(index);
+  }
 
   @Override
   public long bytes() {
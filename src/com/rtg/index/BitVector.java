@@ -60,6 +60,11 @@ public final class BitVector extends AbstractBitVector {
     mArray[(int) x] &= ~(1 << (int) (index & MASK));
   }
 
+  @Override
+  int word(final long index) {
+    return mArray[(int) index];
+  }
+
   @Override
   public long bytes() {
     return (((long) mArray.length) << BITS_PER_ENTRY) >> BITS_PER_BYTE;
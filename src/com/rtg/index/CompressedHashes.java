@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.LongUnaryOperator;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.util.LongUtils;
+import com.rtg.util.diagnostic.Diagnostic;
+
+/**
+ * The hash arrays of a frozen compressed index. The upper bits of each hash select a bucket
+ * of the initial position array and only the remaining lower bits are kept in the hash array,
+ * sorted within each bucket. Both <code>IndexCompressed</code> and the memory mapped
+ * <code>IndexMapped</code> split, rebuild and search hashes through this class.
+ */
+@TestClass({"com.rtg.index.IndexCompressedTest", "com.rtg.index.IndexFileTest"})
+final class CompressedHashes {
+
+  private final int mHashBits;
+  private final int mSRBits;
+  private final int mExcessShift;
+  private final long mCompressHashMask;
+  private final long mIncrement;
+
+  private final LongUnaryOperator mInitialPosition;
+  private final long mInitialPositionLength;
+  private final LongUnaryOperator mHash;
+  private final LongUnaryOperator mValue;
+
+  /**
+   * @param hashBits number of bits in the hash.
+   * @param initialPointerBits number of bits used to index the initial position array.
+   * @param initialPosition entries of the initial position array.
+   * @param initialPositionLength length of the initial position array.
+   * @param hash entries of the compressed hash array.
+   * @param value entries of the value array.
+   */
+  CompressedHashes(final int hashBits, final int initialPointerBits, final LongUnaryOperator initialPosition, final long initialPositionLength, final LongUnaryOperator hash, final LongUnaryOperator value) {
+    mHashBits = hashBits;
+    mSRBits = initialPointerBits >= hashBits ? 0 : hashBits - initialPointerBits;
+    final int excessBits = hashBits > Long.SIZE ? hashBits - Long.SIZE : 0;
+    mExcessShift = initialPointerBits - excessBits;
+    assert mExcessShift >= 0 : "initialPointerBits=" + initialPointerBits + " excessBits=" + excessBits + " excessShift=" + mExcessShift;
+    mCompressHashMask = LongUtils.longMask(mSRBits);
+    mIncrement = hashBits == Long.SIZE ? -(Long.MIN_VALUE >> mSRBits) : 0;
+    mInitialPosition = initialPosition;
+    mInitialPositionLength = initialPositionLength;
+    mHash = hash;
+    mValue = value;
+  }
+
+  /**
+   * Extract the lower bits from a hash. That is, the bits that are NOT used as
+   * an index into the initial position array.
+   * @param hash being sought.
+   * @return lower bits.
+   */
+  long compressHash(final long hash) {
+    return hash & mCompressHashMask;
+  }
+
+  /**
+   * Extract the bits used for an extended hash. That is, the bits that are NOT used as
+   * an index into the initial position array.
+   * @param hash being sought.
+   * @return used bits.
+   */
+  long compressHash(final long[] hash) {
+    return hash[0] & mCompressHashMask;
+  }
+
+  /**
+   * Reconstruct a hash value from two components.
+   * @param upper an index into the initial position array.
+   * @param lower the other bits.
+   * @return a full hash
+   */
+  long decompressHash(final long upper, final long lower) {
+    assert 0 <= lower && Long.compareUnsigned(lower, mCompressHashMask) <= 0;
+    assert 0 <= upper && upper < mInitialPositionLength - 1;
+    return (upper - mIncrement) << mSRBits | lower;
+  }
+
+  /**
+   * Reconstruct an extended hash value from two components.
+   * @param upper an index into the initial position array.
+   * @param lower the other bits.
+   * @return a full hash
+   */
+  long[] decompressHashExtended(final long upper, final long lower) {
+    final long up = upper - mIncrement;
+    if (mHashBits > Long.SIZE) {
+      final long[] dec = new long[2];
+      dec[1] = up >>> mExcessShift;
+      if (mExcessShift == 0) {
+        dec[0] = lower;
+      } else {
+        dec[0] = (up << (Long.SIZE - mExcessShift)) | lower;
+      }
+      return dec;
+    }
+    final long[] dec = new long[1];
+    dec[0] = up << mSRBits | lower;
+    return dec;
+  }
+
+  /**
+   * Convert from a hash to an index in the initial position array.
+   * @param hash being sought.
+   * @return index into the initial position array.
+   */
+  long position(final long hash) {
+    final long k = (hash >> mSRBits) + mIncrement;
+    assert k >= 0 && k < mInitialPositionLength - 1 : "k=" + k + " hash=" + hash + " srbits=" + mSRBits;
+    return k;
+  }
+
+  /**
+   * Convert from an extended hash to an index in the initial position array.
+   * @param hash being sought.
+   * @return index into the initial position array.
+   */
+  long position(final long[] hash) {
+    if (mHashBits <= Long.SIZE) {
+      return position(hash[0]);
+    }
+    final long h1 = hash[hash.length - 1];
+    if (mExcessShift == 0) {
+      return h1;
+    }
+    final long h2 = hash[hash.length - 2];
+    return (h1 << mExcessShift) | h2 >>> (Long.SIZE - mExcessShift);
+  }
+
+  /**
+   * Binary search of a bucket for a compressed hash.
+   * @param start index of the bucket in the initial position array.
+   * @param compressedHash lower bits of the hash.
+   * @return position of an entry with the hash or a negative number if there is none.
+   */
+  long find(final long start, final long compressedHash) {
+    final long lowParam = mInitialPosition.applyAsLong(start);
+    long low = lowParam;
+    long high = mInitialPosition.applyAsLong(start + 1) - 1;
+    assert lowParam <= high + 1;
+    while (low <= high) {
+      final long mid = (low + high) >>> 1;
+      final long midVal = mHash.applyAsLong(mid);
+      if (midVal < compressedHash) {
+        low = mid + 1;
+      } else if (midVal > compressedHash) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * Pass the values of all the entries in a bucket with a compressed hash to a finder,
+   * until it asks to stop.
+   * @param start index of the bucket in the initial position array.
+   * @param compressedHash lower bits of the hash.
+   * @param finder called for each value.
+   * @throws IOException if the finder does.
+   */
+  void search(final long start, final long compressedHash, final Finder finder) throws IOException {
+    final long found = find(start, compressedHash);
+    if (found < 0) {
+      return;
+    }
+    final long low = mInitialPosition.applyAsLong(start);
+    final long high = mInitialPosition.applyAsLong(start + 1);
+    long i = found - 1;
+    while (i >= low && mHash.applyAsLong(i) == compressedHash) {
+      --i;
+    }
+    long j = i + 1;
+    while (j < high && mHash.applyAsLong(j) == compressedHash && finder.found(mValue.applyAsLong(j))) {
+      ++j;
+    }
+  }
+
+  /**
+   * Find the bucket of the initial position array that contains an entry.
+   * @param found position of the entry.
+   * @return the index of the bucket, or -1 if the entry is not in any bucket.
+   */
+  long bucket(final long found) {
+    long low = 0;
+    long high = mInitialPositionLength - 1;
+    if (found < mInitialPosition.applyAsLong(low) || found >= mInitialPosition.applyAsLong(high)) {
+      return -1;
+    }
+    while (low + 1 < high) {
+      final long mid = (low + high) >>> 1;
+      if (mInitialPosition.applyAsLong(mid) <= found) {
+        low = mid;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @param found position of an entry.
+   * @return the full hash of the entry.
+   */
+  long getHash(final long found) {
+    final long index = bucket(found);
+    assert index >= 0 : "found=" + found + " index=" + index;
+    return decompressHash(index, mHash.applyAsLong(found));
+  }
+
+  /**
+   * @param found position of an entry.
+   * @return the full extended hash of the entry.
+   */
+  long[] getHashExtended(final long found) {
+    final long index = bucket(found);
+    assert index >= 0 : "found=" + found + " index=" + index;
+    return decompressHashExtended(index, mHash.applyAsLong(found));
+  }
+
+  /**
+   * Pass every hash and value to a finder, in hash order.
+   * @param finder called for each entry.
+   */
+  void scan(final FinderHashValue finder) {
+    long lo = 0;
+    for (long p = 0; p < mInitialPositionLength - 2; ++p) {
+      final long hi = mInitialPosition.applyAsLong(p + 1);
+      for (long i = lo; i < hi; ++i) {
+        finder.found(decompressHash(p, mHash.applyAsLong(i)), mValue.applyAsLong(i));
+      }
+      lo = hi;
+    }
+  }
+
+  /**
+   * Pass every extended hash and value to a finder, in hash order.
+   * @param finder called for each entry.
+   */
+  void scanAll(final FinderHashValueExtended finder) {
+    long lo = 0;
+    for (long p = 0; p < mInitialPositionLength - 2; ++p) {
+      final long hi = mInitialPosition.applyAsLong(p + 1);
+      for (long i = lo; i < hi; ++i) {
+        finder.found(decompressHashExtended(p, mHash.applyAsLong(i)), mValue.applyAsLong(i));
+      }
+      lo = hi;
+    }
+  }
+
+  /**
+   * Build a histogram of the number of entries sharing each hash.
+   * @param name of the index, used in the diagnostic log.
+   * @return the frequency histogram.
+   */
+  SparseFrequencyHistogram getSparseFrequencyHistogram(final String name) {
+    int[] freqDist = new int[1024];
+    SparseFrequencyHistogram freqHist = new SparseFrequencyHistogram();
+    long mergeCount = 0;
+    int numUsed = 0;
+    long lo = 0;
+    for (long p = 0; p < mInitialPositionLength - 2; ++p) {
+      final long hi = mInitialPosition.applyAsLong(p + 1);
+      for (long i = lo; i < hi;) {
+        final long hash = mHash.applyAsLong(i);
+        int freq = 1;
+        ++i;
+        while (i < hi && hash == mHash.applyAsLong(i)) {
+          ++i;
+          ++freq;
+        }
+        if (numUsed >= freqDist.length) {
+          if (freqDist.length == IndexBase.MAX_FREQ_DIST_SIZE) {
+            freqHist = SparseFrequencyHistogram.merge(freqHist, SparseFrequencyHistogram.fromIndividualFrequencies(freqDist, numUsed));
+            ++mergeCount;
+            numUsed = 0;
+          } else {
+            int length = freqDist.length * 3 / 2;
+            if (length < 0 || length > IndexBase.MAX_FREQ_DIST_SIZE) {
+              length = IndexBase.MAX_FREQ_DIST_SIZE;
+            }
+            freqDist = Arrays.copyOf(freqDist, length);
+          }
+        }
+        freqDist[numUsed++] = freq;
+      }
+      lo = hi;
+    }
+    freqHist = SparseFrequencyHistogram.merge(freqHist, SparseFrequencyHistogram.fromIndividualFrequencies(freqDist, numUsed));
+    ++mergeCount;
+    Diagnostic.developerLog(name + " " + mergeCount + " Frequency Histogram Merges");
+    return freqHist;
+  }
+}
@@ -40,17 +40,30 @@ public class HashBitVector extends IntegralAbstract {
    * @param vectorBits the number of bits to be used to address the vector.
    */
   public HashBitVector(final int bits, final int vectorBits) {
-    if (vectorBits < 0 || bits < 0 || bits > LONG_BITS) {
-      throw new RuntimeException("Invalid bit parameters bits=" + bits + " vectorBits=" + vectorBits);
-    }
+    this(bits, vectorBits, AbstractBitVector.createBitVector(1L << checkBits(bits, vectorBits)));
+  }
+
+  /**
+   * @param bits the number of valid bits used in the original hash.
+   * @param vectorBits the number of bits to be used to address the vector.
+   * @param bitVector the vector of <code>2^vectorBits</code> bits.
+   */
+  HashBitVector(final int bits, final int vectorBits, final AbstractBitVector bitVector) {
+    checkBits(bits, vectorBits);
     mBits = bits;
     mVectorBits = vectorBits;
-    final long len = 1L << mVectorBits;
-    mBitVector = AbstractBitVector.createBitVector(len);
+    mBitVector = bitVector;
     mShift = mBits >= mVectorBits ? mBits - mVectorBits : 0;
     //System.err.println("bits=" + mBits + " vectorBits=" + mVectorBits + " shift=" + mShift);
   }
 
+  private static int checkBits(final int bits, final int vectorBits) {
+    if (vectorBits < 0 || bits < 0 || bits > LONG_BITS) {
+      throw new RuntimeException("Invalid bit parameters bits=" + bits + " vectorBits=" + vectorBits);
+    }
+    return vectorBits;
+  }
+
   /**
    * Takes the high order bits of the hash and sets the corresponding bits.
    * @param hash to be set.
@@ -139,5 +152,34 @@ public class HashBitVector extends IntegralAbstract {
   public long length() {
     return mBitVector.length();
   }
+
+  /**
+   * @return the number of valid bits used in the original hash.
+   */
+  int bits() {
+    return mBits;
+  }
+
+  /**
+   * @return the number of bits used to address the vector.
+   */
+  int vectorBits() {
+    return mVectorBits;
+  }
+
+  /**
+   * @return the number of packed words backing the vector.
+   */
+  long words() {
+    return mBitVector.words();
+  }
+
+  /**
+   * @param index the index of the word.
+   * @return the packed word at the specified index.
+   */
+  int word(final long index) {
+    return mBitVector.word(index);
+  }
 }
 
@@ -125,6 +125,9 @@ public abstract class IndexBase extends IntegralAbstract implements Index {
 
   protected final int mNumberThreads;
 
+  /** True if the freeze should use a radix sort rather than a comparison sort. */
+  protected boolean mRadixSort = false;
+
   protected final IndexFilterMethod mIndexFilterMethod;
 
   /**
@@ -183,6 +186,18 @@ public abstract class IndexBase extends IntegralAbstract implements Index {
     }
   }
 
+  /**
+   * Sort the hashes during the freeze with a radix sort on the significant hash bits rather
+   * than a comparison sort. The index is equivalent but values sharing a hash may be held in a
+   * different order. Must be called before the index is frozen.
+   */
+  public void radixSort() {
+    if (mState == IndexState.FROZEN) {
+      throw new IllegalStateException("Radix sort must be selected before the index is frozen");
+    }
+    mRadixSort = true;
+  }
+
   @Override
   public abstract void add(final long hash, final long value);
 
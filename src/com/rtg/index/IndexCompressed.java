@@ -20,7 +20,10 @@ import com.rtg.index.params.CreateParams;
 import com.rtg.util.IORunnable;
 import com.rtg.util.LongUtils;
 import com.rtg.util.SimpleThreadPool;
+import com.rtg.util.array.ArrayHandle;
+import com.rtg.util.array.ArrayType;
 import com.rtg.util.array.ArrayUtils;
+import com.rtg.util.array.ExtensibleIndex;
 import com.rtg.util.array.IndexSorter;
 import com.rtg.util.array.Swapper;
 import com.rtg.util.diagnostic.Diagnostic;
@@ -32,16 +35,24 @@ import com.rtg.util.integrity.Exam;
  * but require an additional pass that accumulates statistics about the
  * distribution of hash values. Each pass must call add with the same data,
  * followed by a freeze.
+ * Alternatively, after a call to <code>singlePass</code> the data is added once
+ * and a single freeze builds the index from a copy of the hashes and values
+ * made during the first pass.
  *
  */
 @TestClass({"com.rtg.index.IndexCompressedTest", "com.rtg.index.IndexCompressedExtendedTest"})
 public class IndexCompressed extends IndexBase implements IndexExtended {
 
-  /** Mask to get the lower bits of a hash value */
-  private final long mCompressHashMask;
   private final int mExcessBits;
   private final long mExcessBitsMask;
-  private final int mExcessShift;
+
+  /** Splitting, rebuilding and searching of the compressed hashes. */
+  private final CompressedHashes mHashes;
+
+  /** Hashes and values recorded during the first pass of a single pass build, null otherwise. */
+  private ExtensibleIndex mSpillHash = null;
+  private ExtensibleIndex mSpillValue = null;
+  private long mSpillSize = 0;
 
   /**
    * Constructs an empty index.
@@ -52,16 +63,45 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
    */
   public IndexCompressed(final CreateParams indexParams, IndexFilterMethod filter,  final int numberThreads) {
     super(indexParams, filter, numberThreads);
-    mCompressHashMask = LongUtils.longMask(mSRBits);
     mExcessBits = mHashBits > Long.SIZE ? mHashBits - Long.SIZE : 0;
     mExcessBitsMask = LongUtils.longMask(mExcessBits);
     if (mHashBits < 1) {
       throw new RuntimeException("Hash bits set to invalid value bits=" + mHashBits);
     }
-    mExcessShift = mInitialPointerBits -  mExcessBits;
-    assert mExcessShift >= 0 : "initialPointerBits=" + mInitialPointerBits + " excessBits=" + mExcessBits + " excessShift=" + mExcessShift;
-    //System.err.println("hashBits=" + mHashBits + " initialPointerBits=" + mInitialPointerBits + " excessBits=" + mExcessBits + " excessShift=" + mExcessShift);
-    //System.err.println("hashMask=" + Utils.toBits(mCompressHashMask, 64));
+    mHashes = new CompressedHashes(mHashBits, mInitialPointerBits, mInitialPosition::get, mInitialPositionLength, mHash::get, mValue::get);
+  }
+
+  /**
+   * Build the index from a single pass of adds. The hashes and values are recorded as they are
+   * counted, and the freeze at the end of the pass places them in their buckets (a radix pass
+   * on the upper bits of the hash) before completing the index as usual. This avoids a second
+   * pass over the source data at the cost of temporarily holding a copy of the hashes and values.
+   * Must be called before anything is added and is only supported for hashes of at most 64 bits.
+   */
+  public void singlePass() {
+    if (mState != IndexState.PRE_ADD || mSpillHash != null) {
+      throw new IllegalStateException("Single pass must be selected before anything is added");
+    }
+    if (mHashBits > Long.SIZE) {
+      throw new UnsupportedOperationException("Single pass not supported for hashes of " + mHashBits + " bits");
+    }
+    try {
+      mSpillHash = new ArrayHandle(ArrayType.bestForBitsAndSafeFromWordTearing(mHashBits), mParams.size()).createUnsigned();
+      mSpillValue = mParams.value().createUnsigned();
+    } catch (final OutOfMemoryError e) {
+      Diagnostic.oomMessage();
+      Diagnostic.userLog(e);
+      throw e;
+    }
+  }
+
+  private void spill(final long hash, final long value) {
+    if (mSpillSize == mSpillHash.length()) {
+      throw new RuntimeException("Too many items pre-added:" + (mSpillSize + 1) + " > " + mSpillHash.length());
+    }
+    mSpillHash.set(mSpillSize, hash);
+    mSpillValue.set(mSpillSize, value);
+    ++mSpillSize;
   }
 
   @Override
@@ -70,6 +110,9 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
     if (mState == IndexState.PRE_ADD) {
       final long i = position(hash) + 2;
       mInitialPosition.set(i, mInitialPosition.get(i) + 1);
+      if (mSpillHash != null) {
+        spill(hash, value);
+      }
     } else if (mState == IndexState.FROZEN) {
       throw new IllegalStateException();
     } else {
@@ -89,6 +132,10 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
     if (mState == IndexState.PRE_ADD) {
       final long i = position(hash) + 2;
       mInitialPosition.set(i, mInitialPosition.get(i) + 1);
+      if (mSpillHash != null) {
+        // single pass is restricted to hashes that fit in the first word
+        spill(hash[0], value);
+      }
     } else if (mState == IndexState.FROZEN) {
       throw new IllegalStateException();
     } else {
@@ -124,80 +171,134 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
       }
       mInitialHashes = sum;
       mState = IndexState.ADD;
+      if (mSpillHash != null) {
+        unspill();
+        freezeAdded();
+      }
     } else if (mState == IndexState.FROZEN) {
       throw new IllegalStateException("Index closed twice");
     } else {
-      final OneShotTimer sort = new OneShotTimer("Index_sort");
-      //System.err.println("freeze2 start");
-      //System.err.println(mInitialPosition.toString());
-      final Swapper swapper = new Swapper(mHash, mValue);
-      final int numThreads = mNumberThreads;
-      final long batchSize = (mInitialPositionLength - 2) / numThreads;
-      if ((numThreads == 1) || (batchSize <= 1)) {
-        // sort each segment of mHash (and mValue), rather than the whole array
+      freezeAdded();
+    }
+  }
+
+  /**
+   * Add the recorded hashes and values in their original order, this places each in its bucket
+   * exactly as a second pass would have done.
+   */
+  private void unspill() {
+    final OneShotTimer timer = new OneShotTimer("Index_unspill");
+    assert mSpillSize == mInitialHashes;
+    for (long i = 0; i < mSpillSize; ++i) {
+      add(mSpillHash.get(i), mSpillValue.get(i));
+    }
+    mSpillHash = null;
+    mSpillValue = null;
+    mSpillSize = 0;
+    timer.stopLog();
+  }
+
+  private void freezeAdded() {
+    final OneShotTimer sort = new OneShotTimer("Index_sort");
+    //System.err.println("freeze2 start");
+    //System.err.println(mInitialPosition.toString());
+    final int numThreads = mNumberThreads;
+    final long batchSize = (mInitialPositionLength - 2) / numThreads;
+    if ((numThreads == 1) || (batchSize <= 1)) {
+      // sort each segment of mHash (and mValue), rather than the whole array
+      if (mRadixSort) {
+        final RadixSorter sorter = new RadixSorter(mHash, mValue, compressedBits());
+        for (long i = 0; i < mInitialPositionLength - 2; ++i) {
+          final long lo = mInitialPosition.get(i);
+          sorter.sort(lo, mInitialPosition.get(i + 1) - lo);
+        }
+      } else {
+        final Swapper swapper = new Swapper(mHash, mValue);
         for (long i = 0; i < mInitialPositionLength - 2; ++i) {
           final long lo = mInitialPosition.get(i);
           final long hi = mInitialPosition.get(i + 1);
           assert lo <= hi : "lo=" + lo + " hi=" + hi + " i=" + i;
           IndexSorter.sort(mHash, lo, hi - lo, swapper);
         }
-      } else {
-        if (mHash.safeFromWordTearing()) {
+      }
+    } else {
+      if (mHash.safeFromWordTearing()) {
+        // split the buckets so that each job sorts a similar number of entries
+        final long[] bounds = RadixSorter.balance(mInitialPosition::get, 0, mInitialPositionLength - 2, numThreads * RadixSorter.BATCHES_PER_THREAD);
+        if (mRadixSort) {
+          RadixSorter.sortBuckets(mHash, mValue, compressedBits(), mInitialPosition::get, bounds, numThreads);
+        } else {
+          final Swapper swapper = new Swapper(mHash, mValue);
           final SimpleThreadPool sp = new SimpleThreadPool(numThreads, "Building", true);
-          for (long i = 0; i < numThreads; ++i) {
-            sp.execute(new SwapThread(batchSize * i, (i == numThreads - 1) ? (mInitialPositionLength - 2) : (batchSize * (i + 1)), swapper));
+          for (int i = 0; i < bounds.length - 1; ++i) {
+            sp.execute(new SwapThread(bounds[i], bounds[i + 1], swapper));
           }
           try {
             sp.terminate();
           } catch (final IOException e) {
             throw new IllegalStateException("Index sorting should not throw IOException", e);
           }
-        } else {
-          throw new ConcurrentModificationException("Index implementation is not safe from concurrent update of adjacent values");
         }
-
+      } else {
+        throw new ConcurrentModificationException("Index implementation is not safe from concurrent update of adjacent values");
       }
-      //System.err.println("freeze2 end");
-      //System.err.println(mInitialPosition.toString());
-      sort.stopLog();
-      //fill overflow table
-      final OneShotTimer over = new OneShotTimer("Index_pointer");
-      createPointers();
-      over.stopLog();
-
-      if (mHashVector != null) {
-        final OneShotTimer bitv = new OneShotTimer("Index_bitVector");
-        //set bit vector
-        // we loop through mInitialPosition to get upper bits of hash
-        long low = 0;
-        for (long upper = 0; upper < mInitialPositionLength - 2; ++upper) {
-          final long hi = mInitialPosition.get(upper + 1);
-          assert low <= hi;
-          if (low < hi) {
-            long lastHash = mHash.get(low);
-            final long deh0 = mExcessBitsMask == 0 ? decompressHash(upper, lastHash) : decompressHashExtended(upper, lastHash)[0];
-            mHashVector.set(deh0);
-            for (long i = low + 1; i < hi; ++i) {
-              final long lower = mHash.get(i);
-              if (lower == lastHash) {
-                continue;
-              }
-              final long deh = mExcessBitsMask == 0 ? decompressHash(upper, lower) : decompressHashExtended(upper, lower)[0];
-              mHashVector.set(deh);
-              lastHash = lower;
+
+    }
+    //System.err.println("freeze2 end");
+    //System.err.println(mInitialPosition.toString());
+    sort.stopLog();
+    //fill overflow table
+    final OneShotTimer over = new OneShotTimer("Index_pointer");
+    createPointers();
+    over.stopLog();
+
+    if (mHashVector != null) {
+      final OneShotTimer bitv = new OneShotTimer("Index_bitVector");
+      //set bit vector
+      // we loop through mInitialPosition to get upper bits of hash
+      long low = 0;
+      for (long upper = 0; upper < mInitialPositionLength - 2; ++upper) {
+        final long hi = mInitialPosition.get(upper + 1);
+        assert low <= hi;
+        if (low < hi) {
+          long lastHash = mHash.get(low);
+          final long deh0 = mExcessBitsMask == 0 ? decompressHash(upper, lastHash) : decompressHashExtended(upper, lastHash)[0];
+          mHashVector.set(deh0);
+          for (long i = low + 1; i < hi; ++i) {
+            final long lower = mHash.get(i);
+            if (lower == lastHash) {
+              continue;
             }
+            final long deh = mExcessBitsMask == 0 ? decompressHash(upper, lower) : decompressHashExtended(upper, lower)[0];
+            mHashVector.set(deh);
+            lastHash = lower;
           }
-          low = hi;
         }
-        assert low == mNumValues; // we should have processed each hash once
-        bitv.stopLog();
+        low = hi;
       }
+      assert low == mNumValues; // we should have processed each hash once
+      bitv.stopLog();
+    }
 
-      checkRepeatFrequency();
+    checkRepeatFrequency();
 
-      mState = IndexState.FROZEN;
-      assert globalIntegrity();
-    }
+    mState = IndexState.FROZEN;
+    assert globalIntegrity();
+  }
+
+  /**
+   * Split the buckets into consecutive ranges holding similar numbers of entries, so that
+   * each range can be processed by a separate thread.
+   * @param ranges number of ranges required.
+   * @return <code>ranges + 1</code> bucket boundaries, ranges may be empty.
+   */
+  protected final long[] bucketRanges(final int ranges) {
+    return RadixSorter.balance(mInitialPosition::get, 0, mInitialPositionLength - 2, ranges);
+  }
+
+  /** @return number of bits in the hashes stored in <code>mHash</code>. */
+  private int compressedBits() {
+    return Math.min(mSRBits, Long.SIZE);
   }
 
   private class SwapThread implements IORunnable {
@@ -227,42 +328,7 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
 
   @Override
   public SparseFrequencyHistogram getSparseFrequencyHistogram() {
-    int[] freqDist = new int[1024];
-    SparseFrequencyHistogram freqHist = new SparseFrequencyHistogram();
-    long mergeCount = 0;
-    int numUsed = 0;
-    long lo = 0;
-    for (long p = 0; p < mInitialPositionLength - 2; ++p) {
-      final long hi = mInitialPosition.get(p + 1);
-      for (long i = lo; i < hi;) {
-        final long hash = mHash.get(i);
-        int freq = 1;
-        ++i;
-        while (i < hi && hash == mHash.get(i)) {
-          ++i;
-          ++freq;
-        }
-        if (numUsed >= freqDist.length) {
-          if (freqDist.length == MAX_FREQ_DIST_SIZE) {
-            freqHist = SparseFrequencyHistogram.merge(freqHist, SparseFrequencyHistogram.fromIndividualFrequencies(freqDist, numUsed));
-            ++mergeCount;
-            numUsed = 0;
-          } else {
-            int length = freqDist.length * 3 / 2;
-            if (length < 0 || length > MAX_FREQ_DIST_SIZE) {
-              length = MAX_FREQ_DIST_SIZE;
-            }
-            freqDist = Arrays.copyOf(freqDist, length);
-          }
-        }
-        freqDist[numUsed++] = freq;
-      }
-      lo = hi;
-    }
-    freqHist = SparseFrequencyHistogram.merge(freqHist, SparseFrequencyHistogram.fromIndividualFrequencies(freqDist, numUsed));
-    ++mergeCount;
-    Diagnostic.developerLog("IndexCompressed " + mergeCount + " Frequency Histogram Merges");
-    return freqHist;
+    return mHashes.getSparseFrequencyHistogram("IndexCompressed");
   }
 
   @Override
@@ -343,7 +409,7 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
   @Override
   protected final long compressHash(final long hash) {
     assert mExcessBits == 0;
-    return hash & mCompressHashMask;
+    return mHashes.compressHash(hash);
   }
 
   /**
@@ -354,7 +420,7 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
    * @return used bits.
    */
   protected final long compressHash(final long[] hash) {
-    return hash[0] & mCompressHashMask;
+    return mHashes.compressHash(hash);
   }
 
   /**
@@ -366,9 +432,7 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
    */
   @Override
   protected final long decompressHash(final long upper, final long lower) {
-    assert 0 <= lower && Long.compareUnsigned(lower, mCompressHashMask) <= 0;
-    assert 0 <= upper && upper < mInitialPositionLength - 1;
-    return (upper - mIncrement) << mSRBits | lower;
+    return mHashes.decompressHash(upper, lower);
   }
 
   /**
@@ -379,33 +443,12 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
    * @return a full hash
    */
   protected final long[] decompressHashExtended(final long upper, final long lower) {
-    //assert 0 <= upper && upper < mInitialPositionLength - 1;
-    //System.err.println("sRbits=" + mSRBits + " excessBits=" + mExcessBits);
-    //System.err.println(" upper=" + Utils.toBits(upper, 64));
-    //System.err.println(" lower=" + Utils.toBits(lower, 64));
-    final long up = upper - mIncrement;
-    if (mHashBits > Long.SIZE) {
-      final long[] dec = new long[2];
-      dec[1] = up >>> mExcessShift;
-    if (mExcessShift == 0) {
-      dec[0] = lower;
-    } else {
-      assert mExcessShift > 0;
-      dec[0] = (up << (Long.SIZE - mExcessShift)) | lower;
-    }
-    return dec;
-    }
-    assert mExcessBits == 0;
-    final long[] dec = new long[1];
-    dec[0] = up << mSRBits | lower;
-    return dec;
+    return mHashes.decompressHashExtended(upper, lower);
   }
 
   @Override
   protected  long position(final long hash) {
-    final long k = (hash >> mSRBits) + mIncrement;
-    assert k >= 0 && k < mInitialPositionLength - 1 : "k=" + k + " hash=" + hash + " srbits=" + mSRBits;
-    return k;
+    return mHashes.position(hash);
   }
 
   /**
@@ -414,15 +457,7 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
    * @return index into <code>mInitialPosition</code>.
    */
   protected final long position(final long[] hash) {
-    if (mHashBits <= Long.SIZE) {
-      return position(hash[0]);
-    }
-    final long h1 = hash[hash.length - 1];
-    if (mExcessShift == 0) {
-      return h1;
-    }
-    final long h2 = hash[hash.length - 2];
-    return (h1 << mExcessShift) | h2 >>> (Long.SIZE - mExcessShift);
+    return mHashes.position(hash);
   }
 
 
@@ -435,27 +470,7 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
     if (!mHashVector.get(hash)) {
       return;
     }
-
-    final long start = position(hash);
-    final long compressedHash = compressHash(hash);
-    final long low = mInitialPosition.get(start);
-    final long high = mInitialPosition.get(start + 1);
-    assert low <= high; // : "i=" + i + " low=" + low + " high=" + high;
-    final long found = SearchUtils.binarySearch(mHash, low, high - 1, compressedHash);
-    if (found < 0) {
-      return;
-    }
-    assert compressedHash == mHash.get(found) : found;
-    assert hash == decompressHash(start, mHash.get(found)) : found;
-    //System.out.println("found = " + found + " qkey=" + hash + " start=" + start + " skey=" + mHash.get(found));
-    long i = found - 1;
-    while (i >= low && mHash.get(i) == compressedHash) {
-      --i;
-    }
-    long j = i + 1;
-    while (j < high && mHash.get(j) == compressedHash && finder.found(mValue.get(j))) {
-      ++j;
-    }
+    mHashes.search(position(hash), compressHash(hash), finder);
   }
 
   @Override
@@ -468,27 +483,7 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
     if (!mHashVector.get(hash[0])) {
       return;
     }
-
-    final long start = position(hash);
-    final long compressedHash = compressHash(hash);
-    final long low = mInitialPosition.get(start);
-    final long high = mInitialPosition.get(start + 1);
-    assert low <= high; // : "i=" + i + " low=" + low + " high=" + high;
-    final long found = SearchUtils.binarySearch(mHash, low, high - 1, compressedHash);
-    if (found < 0) {
-      return;
-    }
-    assert compressedHash == mHash.get(found) : found;
-    assert Arrays.equals(hash, decompressHashExtended(start, mHash.get(found))) : found;
-    //System.out.println("found = " + found + " qkey=" + hash + " start=" + start + " skey=" + mHash.get(found));
-    long i = found - 1;
-    while (i >= low && mHash.get(i) == compressedHash) {
-      --i;
-    }
-    long j = i + 1;
-    while (j < high && mHash.get(j) == compressedHash && finder.found(mValue.get(j))) {
-      ++j;
-    }
+    mHashes.search(position(hash), compressHash(hash), finder);
   }
 
   @Override
@@ -514,17 +509,7 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
     if (mState != IndexState.FROZEN) {
       throw new IllegalStateException();
     }
-    long lo = 0;
-    for (long p = 0; p < mInitialPositionLength - 2; ++p) {
-      final long hi = mInitialPosition.get(p + 1);
-      for (long i = lo; i < hi; ++i) {
-        final long hash0 = mHash.get(i);
-        final long hash = decompressHash(p, hash0);
-        final long value = mValue.get(i);
-        finder.found(hash, value);
-      }
-      lo = hi;
-    }
+    mHashes.scan(finder);
   }
 
   @Override
@@ -532,17 +517,7 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
     if (mState != IndexState.FROZEN) {
       throw new IllegalStateException();
     }
-    long lo = 0;
-    for (long p = 0; p < mInitialPositionLength - 2; ++p) {
-      final long hi = mInitialPosition.get(p + 1);
-      for (long i = lo; i < hi; ++i) {
-        final long hash0 = mHash.get(i);
-        final long[] hash = decompressHashExtended(p, hash0);
-        final long value = mValue.get(i);
-        finder.found(hash, value);
-      }
-      lo = hi;
-    }
+    mHashes.scanAll(finder);
   }
 
 
@@ -554,12 +529,7 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
       //assert mInitialPosition.binarySearch(hash) < 0 : "hash=" + hash + LS + toString();
       return -1;
     }
-    final long start = position(hash);
-    final long low = mInitialPosition.get(start);
-    final long high = mInitialPosition.get(start + 1);
-    assert low <= high; // : "i=" + i + " low=" + low + " high=" + high;
-    final long compressedHash = compressHash(hash);
-    return SearchUtils.binarySearch(mHash, low, high - 1, compressedHash);
+    return mHashes.find(position(hash), compressHash(hash));
   }
 
   @Override
@@ -591,12 +561,7 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
       //assert mInitialPosition.binarySearch(hash) < 0 : "hash=" + hash + LS + toString();
       return -1;
     }
-    final long start = position(hash);
-    final long low = mInitialPosition.get(start);
-    final long high = mInitialPosition.get(start + 1);
-    assert low <= high; // : "i=" + i + " low=" + low + " high=" + high;
-    final long compressedHash = compressHash(hash);
-    return SearchUtils.binarySearch(mHash, low, high - 1, compressedHash);
+    return mHashes.find(position(hash), compressHash(hash));
   }
 
   @Override
@@ -622,16 +587,12 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
 
   @Override
   public final long getHash(final long found) {
-    final long index = SearchUtils.bracketSearch(mInitialPosition, 0, mInitialPositionLength - 1, found);
-    assert index >= 0 : "found=" + found + " index=" + index;
-    return decompressHash(index, mHash.get(found));
+    return mHashes.getHash(found);
   }
 
   @Override
   public long[] getHashExtended(long found) {
-    final long index = SearchUtils.bracketSearch(mInitialPosition, 0, mInitialPositionLength - 1, found);
-    assert index >= 0 : "found=" + found + " index=" + index;
-    return decompressHashExtended(index, mHash.get(found));
+    return mHashes.getHashExtended(found);
   }
 
   @Override
@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.util.array.CommonIndex;
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.diagnostic.OneShotTimer;
+
+/**
+ * Saves the frozen contents of a set of <code>IndexCompressed</code> indexes to a single file
+ * and reopens them as read-only memory mapped <code>IndexMapped</code> indexes.
+ * <p>
+ * The file starts with a header identifying the format and a description supplied by the
+ * caller (used to check that a saved index is compatible with the current run), followed by a
+ * section for each index. Each section holds the index statistics and then the initial
+ * position, hash, value and bit vector arrays. Arrays are stored big-endian using the smallest
+ * of 1, 2, 4 or 8 bytes per entry and start on an 8 byte boundary.
+ */
+@TestClass("com.rtg.index.IndexFileTest")
+public final class IndexFile {
+
+  private static final long MAGIC = 0x5254474958464C45L; // "RTGIXFLE"
+  private static final int VERSION = 2;
+  private static final int ALIGNMENT = 8;
+
+  // offsets of statistics in the counts array
+  static final int INITIAL_HASHES = 0;
+  static final int NUM_HASHES = 1;
+  static final int NUM_VALUES = 2;
+  static final int MAX_RAW_HASH_COUNT = 3;
+  static final int MAX_HASH_COUNT = 4;
+  static final int HASH_COUNT_0 = 5;
+  static final int HASH_COUNT_1 = 6;
+  static final int HASH_COUNT_2 = 7;
+  static final int BUCKET_COUNT_0 = 8;
+  static final int BUCKET_COUNT_1 = 9;
+  static final int BUCKET_COUNT_2 = 10;
+  private static final int NUM_COUNTS = 11;
+
+  private IndexFile() { }
+
+  /**
+   * Write a set of frozen indexes to a file.
+   * @param file destination file, overwritten if it exists.
+   * @param indexes the indexes, each must be a frozen <code>IndexCompressed</code> with a bit vector.
+   * @param description text used to identify the inputs and parameters the indexes were built from.
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void save(final File file, final IndexSet indexes, final String description) throws IOException {
+    final OneShotTimer timer = new OneShotTimer("Index_save");
+    for (int i = 0; i < indexes.size(); ++i) {
+      checkSavable(indexes.get(i));
+    }
+    try (final Output out = new Output(file)) {
+      out.writeLong(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(indexes.size());
+      final byte[] desc = description.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(desc.length);
+      out.write(desc);
+      out.align();
+      for (int i = 0; i < indexes.size(); ++i) {
+        writeIndex(out, (IndexCompressed) indexes.get(i));
+      }
+    }
+    Diagnostic.userLog("Saved " + indexes.size() + " indexes to " + file.getPath());
+    timer.stopLog();
+  }
+
+  private static void checkSavable(final Index index) {
+    if (!(index instanceof IndexCompressed)) {
+      throw new UnsupportedOperationException("Only compressed indexes can be saved");
+    }
+    final IndexCompressed ic = (IndexCompressed) index;
+    if (ic.mState != IndexBase.IndexState.FROZEN) {
+      throw new IllegalStateException("Index must be frozen before saving");
+    }
+    if (ic.mHashVector == null) {
+      throw new UnsupportedOperationException("Only indexes with a bit vector can be saved");
+    }
+  }
+
+  private static void writeIndex(final Output out, final IndexCompressed index) throws IOException {
+    final long numValues = index.mNumValues;
+    final int ipWidth = MappedArray.width(bits(index.mInitialPosition, index.mInitialPositionLength));
+    final int hashWidth = MappedArray.width(bits(index.mHash, numValues));
+    final int valueWidth = MappedArray.width(bits(index.mValue, numValues));
+    out.writeInt(index.mHashBits);
+    out.writeInt(index.mInitialPointerBits);
+    out.writeInt(index.mHashVector.bits());
+    out.writeInt(index.mHashVector.vectorBits());
+    out.writeInt(ipWidth);
+    out.writeInt(hashWidth);
+    out.writeInt(valueWidth);
+    out.writeInt(0); // padding
+    out.writeLong(index.mInitialPositionLength);
+    out.writeLong(index.mInitialHashes);
+    out.writeLong(index.mNumHashes);
+    out.writeLong(numValues);
+    out.writeLong(index.mMaxRawHashCount);
+    out.writeLong(index.mMaxHashCount);
+    out.writeLong(index.mHashCount0);
+    out.writeLong(index.mHashCount1);
+    out.writeLong(index.mHashCount2);
+    out.writeLong(index.mBucketCount0);
+    out.writeLong(index.mBucketCount1);
+    out.writeLong(index.mBucketCount2);
+    out.writeLong(index.mHashVector.words());
+    writeArray(out, index.mInitialPosition, index.mInitialPositionLength, ipWidth);
+    writeArray(out, index.mHash, numValues, hashWidth);
+    writeArray(out, index.mValue, numValues, valueWidth);
+    final long words = index.mHashVector.words();
+    for (long i = 0; i < words; ++i) {
+      out.writeInt(index.mHashVector.word(i));
+    }
+    out.align();
+  }
+
+  private static long bits(final CommonIndex array, final long length) {
+    long bits = 0;
+    for (long i = 0; i < length; ++i) {
+      bits |= array.get(i);
+    }
+    return bits;
+  }
+
+  private static void writeArray(final Output out, final CommonIndex array, final long length, final int width) throws IOException {
+    for (long i = 0; i < length; ++i) {
+      final long v = array.get(i);
+      switch (width) {
+        case 1:
+          out.write((int) v);
+          break;
+        case 2:
+          out.writeShort((int) v);
+          break;
+        case 4:
+          out.writeInt((int) v);
+          break;
+        default:
+          out.writeLong(v);
+          break;
+      }
+    }
+    out.align();
+  }
+
+  /**
+   * Check if a file contains saved indexes built with the specified description.
+   * The description is a list of <code>name=value</code> lines and every field must match.
+   * @param file file to check.
+   * @param numberIndexes number of indexes expected.
+   * @param description text identifying the inputs and parameters of the current run.
+   * @return true iff the file exists and was saved with the same number of indexes and description.
+   * @throws IOException if an I/O error occurs.
+   */
+  public static boolean isCompatible(final File file, final int numberIndexes, final String description) throws IOException {
+    if (!file.isFile()) {
+      return false;
+    }
+    try (final RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      if (raf.length() < 20 || raf.readLong() != MAGIC || raf.readInt() != VERSION || raf.readInt() != numberIndexes) {
+        Diagnostic.userLog("Index file " + file.getPath() + " has a different format or number of indexes");
+        return false;
+      }
+      final String difference = difference(readDescription(raf), description);
+      if (difference != null) {
+        Diagnostic.userLog("Index file " + file.getPath() + " differs in " + difference);
+        return false;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Compare two descriptions field by field.
+   * @param saved description stored in an index file.
+   * @param current description of the current run.
+   * @return null if the descriptions have the same fields with the same values, otherwise a message naming the first difference.
+   */
+  static String difference(final String saved, final String current) {
+    final Map<String, String> savedFields = fields(saved);
+    final Map<String, String> currentFields = fields(current);
+    for (final Map.Entry<String, String> e : currentFields.entrySet()) {
+      final String savedValue = savedFields.get(e.getKey());
+      if (!e.getValue().equals(savedValue)) {
+        return e.getKey() + ": saved " + savedValue + ", current " + e.getValue();
+      }
+    }
+    for (final String name : savedFields.keySet()) {
+      if (!currentFields.containsKey(name)) {
+        return name + ": saved " + savedFields.get(name) + ", current null";
+      }
+    }
+    return null;
+  }
+
+  private static Map<String, String> fields(final String description) {
+    final Map<String, String> fields = new LinkedHashMap<>();
+    for (final String line : description.split("\\r?\\n")) {
+      if (line.length() > 0) {
+        final int eq = line.indexOf('=');
+        if (eq < 0) {
+          fields.put(line, "");
+        } else {
+          fields.put(line.substring(0, eq), line.substring(eq + 1));
+        }
+      }
+    }
+    return fields;
+  }
+
+  private static String readDescription(final RandomAccessFile raf) throws IOException {
+    final int length = raf.readInt();
+    if (length < 0 || length > raf.length() - raf.getFilePointer()) {
+      throw new IOException("Invalid index file description length: " + length);
+    }
+    final byte[] desc = new byte[length];
+    raf.readFully(desc);
+    return new String(desc, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Memory map the indexes saved in a file.
+   * @param file file previously written by <code>save</code>.
+   * @return the set of read-only indexes.
+   * @throws IOException if the file cannot be read or is not a saved index.
+   */
+  public static IndexSet load(final File file) throws IOException {
+    final OneShotTimer timer = new OneShotTimer("Index_load");
+    try (final RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      if (raf.readLong() != MAGIC) {
+        throw new IOException("File " + file.getPath() + " is not an index file");
+      }
+      final int version = raf.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported index file version " + version + " in " + file.getPath());
+      }
+      final int numberIndexes = raf.readInt();
+      readDescription(raf);
+      long position = align(raf.getFilePointer());
+      final IndexMapped[] indexes = new IndexMapped[numberIndexes];
+      for (int i = 0; i < numberIndexes; ++i) {
+        raf.seek(position);
+        indexes[i] = readIndex(raf);
+        position = raf.getFilePointer();
+      }
+      Diagnostic.userLog("Loaded " + numberIndexes + " indexes from " + file.getPath());
+      timer.stopLog();
+      return new IndexSet(indexes);
+    }
+  }
+
+  private static IndexMapped readIndex(final RandomAccessFile raf) throws IOException {
+    final int hashBits = raf.readInt();
+    final int initialPointerBits = raf.readInt();
+    final int vectorHashBits = raf.readInt();
+    final int vectorBits = raf.readInt();
+    final int ipWidth = raf.readInt();
+    final int hashWidth = raf.readInt();
+    final int valueWidth = raf.readInt();
+    raf.readInt(); // padding
+    final long initialPositionLength = raf.readLong();
+    final long[] counts = new long[NUM_COUNTS];
+    for (int i = 0; i < NUM_COUNTS; ++i) {
+      counts[i] = raf.readLong();
+    }
+    final long words = raf.readLong();
+    final long numValues = counts[NUM_VALUES];
+    final FileChannel channel = raf.getChannel();
+    long position = raf.getFilePointer();
+    final MappedArray initialPosition = new MappedArray(channel, position, initialPositionLength, ipWidth);
+    position = align(position + initialPosition.bytes());
+    final MappedArray hash = new MappedArray(channel, position, numValues, hashWidth);
+    position = align(position + hash.bytes());
+    final MappedArray value = new MappedArray(channel, position, numValues, valueWidth);
+    position = align(position + value.bytes());
+    final MappedArray bitVector = new MappedArray(channel, position, words, 4);
+    position = align(position + bitVector.bytes());
+    if (position > raf.length()) {
+      throw new IOException("Index file is truncated");
+    }
+    raf.seek(position);
+    final HashBitVector hashVector = new HashBitVector(vectorHashBits, vectorBits, new MappedBitVector(1L << vectorBits, bitVector));
+    return new IndexMapped(hashBits, initialPointerBits, counts, initialPosition, hash, value, hashVector);
+  }
+
+  private static long align(final long position) {
+    return (position + ALIGNMENT - 1) & -ALIGNMENT;
+  }
+
+  /**
+   * Data output that keeps track of its (possibly greater than 2GB) position so that it can pad
+   * to the alignment boundary.
+   */
+  private static final class Output implements Closeable {
+    private final DataOutputStream mOut;
+    private long mPosition = 0;
+
+    Output(final File file) throws IOException {
+      mOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 20));
+    }
+
+    void write(final int b) throws IOException {
+      mOut.write(b);
+      ++mPosition;
+    }
+
+    void write(final byte[] b) throws IOException {
+      mOut.write(b);
+      mPosition += b.length;
+    }
+
+    void writeShort(final int v) throws IOException {
+      mOut.writeShort(v);
+      mPosition += 2;
+    }
+
+    void writeInt(final int v) throws IOException {
+      mOut.writeInt(v);
+      mPosition += 4;
+    }
+
+    void writeLong(final long v) throws IOException {
+      mOut.writeLong(v);
+      mPosition += 8;
+    }
+
+    void align() throws IOException {
+      while ((mPosition & (ALIGNMENT - 1)) != 0) {
+        write(0);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      mOut.close();
+    }
+  }
+}
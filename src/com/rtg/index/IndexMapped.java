@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.util.StringUtils;
+import com.rtg.util.integrity.Exam;
+import com.rtg.util.integrity.IntegralAbstract;
+
+/**
+ * Read-only index over the memory mapped arrays of a frozen <code>IndexCompressed</code>
+ * that has been saved by <code>IndexFile</code>. Searches give the same results as the
+ * original index, but the arrays live in the operating system page cache so they can
+ * be shared between processes and do not need to be rebuilt.
+ */
+@TestClass("com.rtg.index.IndexFileTest")
+public final class IndexMapped extends IntegralAbstract implements IndexExtended {
+
+  private final int mHashBits;
+  private final int mInitialPointerBits;
+
+  private final MappedArray mInitialPosition;
+  private final long mInitialPositionLength;
+  private final MappedArray mHash;
+  private final MappedArray mValue;
+  private final HashBitVector mHashVector;
+
+  private final CompressedHashes mHashes;
+
+  private final long[] mCounts;
+
+  /**
+   * @param hashBits number of bits in the hash.
+   * @param initialPointerBits number of bits used to index the initial position array.
+   * @param counts the statistics of the original index in the order given by <code>IndexFile</code>.
+   * @param initialPosition initial position array.
+   * @param hash compressed hash array.
+   * @param value value array.
+   * @param hashVector bit vector of the hashes present.
+   */
+  IndexMapped(final int hashBits, final int initialPointerBits, final long[] counts, final MappedArray initialPosition, final MappedArray hash, final MappedArray value, final HashBitVector hashVector) {
+    mHashBits = hashBits;
+    mInitialPointerBits = initialPointerBits;
+    mCounts = counts;
+    mInitialPosition = initialPosition;
+    mInitialPositionLength = initialPosition.length();
+    mHash = hash;
+    mValue = value;
+    mHashVector = hashVector;
+    mHashes = new CompressedHashes(hashBits, initialPointerBits, initialPosition::get, mInitialPositionLength, hash::get, value::get);
+    assert integrity();
+  }
+
+  @Override
+  public void add(final long hash, final long value) {
+    throw new IllegalStateException();
+  }
+
+  @Override
+  public void add(final long[] hash, final long value) {
+    throw new IllegalStateException();
+  }
+
+  @Override
+  public void freeze() {
+    throw new IllegalStateException("Index closed twice");
+  }
+
+  @Override
+  public void search(final long hash, final Finder finder) throws IOException {
+    if (!mHashVector.get(hash)) {
+      return;
+    }
+    mHashes.search(mHashes.position(hash), mHashes.compressHash(hash), finder);
+  }
+
+  @Override
+  public void search(final long[] hash, final Finder finder) throws IOException {
+    if (!mHashVector.get(hash[0])) {
+      return;
+    }
+    mHashes.search(mHashes.position(hash), mHashes.compressHash(hash), finder);
+  }
+
+  private long find(final long hash) {
+    if (!mHashVector.get(hash)) {
+      return -1;
+    }
+    return mHashes.find(mHashes.position(hash), mHashes.compressHash(hash));
+  }
+
+  private long find(final long[] hash) {
+    if (!mHashVector.get(hash[0])) {
+      return -1;
+    }
+    return mHashes.find(mHashes.position(hash), mHashes.compressHash(hash));
+  }
+
+  @Override
+  public boolean contains(final long hash) {
+    return find(hash) >= 0;
+  }
+
+  @Override
+  public boolean contains(final long[] hash) {
+    return find(hash) >= 0;
+  }
+
+  @Override
+  public int count(final long hash) {
+    try {
+      final CountingFinder countingFinder = new CountingFinder();
+      search(hash, countingFinder);
+      final long count = countingFinder.getCount();
+      assert count <= Integer.MAX_VALUE;
+      return (int) count;
+    } catch (final IOException e) {
+      throw new RuntimeException("Unpossible: " + e.getMessage()); // CountingFinder has no IOException
+    }
+  }
+
+  @Override
+  public int count(final long[] hash) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public long first(final long hash) {
+    long index = find(hash);
+    if (index < 0) {
+      return index;
+    }
+    while (index > 0 && getHash(index - 1) == hash) {
+      --index;
+    }
+    return index;
+  }
+
+  @Override
+  public long first(final long[] hash) {
+    long index = find(hash);
+    if (index < 0) {
+      return index;
+    }
+    while (index > 0 && Arrays.equals(getHashExtended(index - 1), hash)) {
+      --index;
+    }
+    return index;
+  }
+
+  @Override
+  public long getHash(final long found) {
+    return mHashes.getHash(found);
+  }
+
+  @Override
+  public long[] getHashExtended(final long found) {
+    return mHashes.getHashExtended(found);
+  }
+
+  @Override
+  public long getValue(final long found) {
+    return mValue.get(found);
+  }
+
+  @Override
+  public void scan(final FinderHashValue finder) throws IOException {
+    mHashes.scan(finder);
+  }
+
+  @Override
+  public void scanAll(final FinderHashValueExtended finder) throws IOException {
+    mHashes.scanAll(finder);
+  }
+
+  @Override
+  public SparseFrequencyHistogram getSparseFrequencyHistogram() {
+    return mHashes.getSparseFrequencyHistogram("IndexMapped");
+  }
+
+  @Override
+  public long numberEntries() {
+    return mCounts[IndexFile.NUM_VALUES];
+  }
+
+  @Override
+  public long numberHashes() {
+    return mCounts[IndexFile.NUM_HASHES];
+  }
+
+  @Override
+  public long getInitialHashes() {
+    return mCounts[IndexFile.INITIAL_HASHES];
+  }
+
+  @Override
+  public int maxHashCount() {
+    return (int) mCounts[IndexFile.MAX_HASH_COUNT];
+  }
+
+  @Override
+  public long bytes() {
+    return mInitialPosition.bytes() + mHash.bytes() + mValue.bytes() + mHashVector.bytes();
+  }
+
+  @Override
+  public String perfString() {
+    return "Performance statistics not available." + StringUtils.LS;
+  }
+
+  @Override
+  public String infoString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("Mapped Memory Usage\tbytes\tlength").append(StringUtils.LS);
+    sb.append("\t\t").append(StringUtils.commas(mHash.bytes())).append("\t").append(StringUtils.commas(mHash.length())).append("\tHash").append(StringUtils.LS);
+    sb.append("\t\t").append(StringUtils.commas(mValue.bytes())).append("\t").append(StringUtils.commas(mValue.length())).append("\tValue").append(StringUtils.LS);
+    sb.append("\t\t").append(StringUtils.commas(mInitialPosition.bytes())).append("\t").append(StringUtils.commas(mInitialPositionLength)).append("\tInitial Position").append(StringUtils.LS);
+    sb.append("\t\t").append(StringUtils.commas(mHashVector.bytes())).append("\t").append(StringUtils.commas(mHashVector.length())).append("\tBit vector").append(StringUtils.LS);
+    sb.append("\t\t").append(StringUtils.commas(bytes())).append("\t\tTotal bytes").append(StringUtils.LS);
+    sb.append(StringUtils.LS);
+    sb.append("Hash counts\t0\t1\t2").append(StringUtils.LS);
+    sb.append("\t\t").append(mCounts[IndexFile.HASH_COUNT_0]).append("\t").append(mCounts[IndexFile.HASH_COUNT_1]).append("\t").append(mCounts[IndexFile.HASH_COUNT_2]).append(StringUtils.LS);
+    sb.append("Bucket counts\t0\t1\t2").append(StringUtils.LS);
+    sb.append("\t\t").append(mCounts[IndexFile.BUCKET_COUNT_0]).append("\t").append(mCounts[IndexFile.BUCKET_COUNT_1]).append("\t").append(mCounts[IndexFile.BUCKET_COUNT_2]).append(StringUtils.LS);
+    return sb.toString();
+  }
+
+  @Override
+  public void dumpValues(final PrintStream out) {
+    out.println("Index InitialPosition");
+    for (long i = 0; i < mInitialPositionLength; ++i) {
+      out.println("[" + i + "]" + "  " + mInitialPosition.get(i));
+    }
+    out.println("Index Hash  Values");
+    for (long i = 0; i < mValue.length(); ++i) {
+      out.println("[" + i + "]" + "  " + mHash.get(i) + "  " + mValue.get(i));
+    }
+  }
+
+  @Override
+  public void toString(final StringBuilder sb) {
+    sb.append("IndexMapped").append(StringUtils.LS);
+    sb.append("Hash Bits=").append(mHashBits).append(StringUtils.LS);
+    sb.append("Initial Number of hashes=").append(getInitialHashes()).append(StringUtils.LS);
+    sb.append("Number of hash codes=").append(numberHashes()).append(StringUtils.LS);
+    sb.append(infoString());
+  }
+
+  @Override
+  public boolean integrity() {
+    Exam.assertEquals(mHash.length(), mValue.length());
+    Exam.assertEquals(numberEntries(), mValue.length());
+    Exam.assertTrue(numberHashes() <= numberEntries());
+    Exam.assertTrue(mInitialPositionLength == (1L << mInitialPointerBits) + 2);
+    Exam.assertTrue(mHashBits <= Long.SIZE || mInitialPointerBits >= mHashBits - Long.SIZE);
+    Exam.assertEquals(mInitialPosition.get(mInitialPositionLength - 1), mInitialPosition.get(mInitialPositionLength - 2));
+    Exam.assertEquals(numberEntries(), mInitialPosition.get(mInitialPositionLength - 1));
+    return true;
+  }
+
+  @Override
+  public boolean globalIntegrity() {
+    integrity();
+    for (long i = 1; i < mInitialPositionLength; ++i) {
+      Exam.assertTrue(mInitialPosition.get(i - 1) <= mInitialPosition.get(i));
+    }
+    return true;
+  }
+}
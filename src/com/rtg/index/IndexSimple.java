@@ -92,7 +92,13 @@ public class IndexSimple extends IndexBase {
   public void freeze() {
     assert mState == IndexState.ADD;
     final OneShotTimer sort = new OneShotTimer("Index_sort");
-    IndexSorter.sort(mHash, mValue, mInitialHashes);
+    if (mRadixSort) {
+      // concurrent sorting of adjacent ranges is only possible when the arrays are safe from word tearing
+      final int threads = mHash.safeFromWordTearing() && mValue.safeFromWordTearing() ? mNumberThreads : 1;
+      RadixSorter.sort(mHash, mValue, mHashBits, mInitialHashes, threads);
+    } else {
+      IndexSorter.sort(mHash, mValue, mInitialHashes);
+    }
     sort.stopLog();
     //fill overflow table
     final OneShotTimer over = new OneShotTimer("Index_pointer");
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only array of unsigned fixed width entries backed by a memory mapped region of a file.
+ * Entries of width 1, 2 or 4 bytes are zero extended, entries of width 8 are returned unchanged.
+ * The region is split into segments so that arrays longer than 2GB can be mapped. The region must
+ * start on an 8 byte boundary so that no entry straddles two segments.
+ */
+final class MappedArray {
+
+  static final int SEGMENT_BITS = 30;
+  private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+  private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+  private final MappedByteBuffer[] mSegments;
+  private final long mLength;
+  private final int mWidth;
+  private final int mWidthBits;
+
+  /**
+   * @param channel channel of the file containing the array.
+   * @param position offset in the file of the first entry.
+   * @param length number of entries.
+   * @param width number of bytes in each entry (one of 1, 2, 4 or 8).
+   * @throws IOException if the region cannot be mapped.
+   */
+  MappedArray(final FileChannel channel, final long position, final long length, final int width) throws IOException {
+    mLength = length;
+    mWidth = width;
+    mWidthBits = widthBits(width);
+    final long bytes = length << mWidthBits;
+    final int numSegments = (int) ((bytes + SEGMENT_MASK) >> SEGMENT_BITS);
+    mSegments = new MappedByteBuffer[numSegments];
+    for (int i = 0; i < numSegments; ++i) {
+      final long start = (long) i << SEGMENT_BITS;
+      mSegments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + start, Math.min(SEGMENT_SIZE, bytes - start));
+    }
+  }
+
+  private static int widthBits(final int width) {
+    switch (width) {
+      case 1:
+        return 0;
+      case 2:
+        return 1;
+      case 4:
+        return 2;
+      case 8:
+        return 3;
+      default:
+        throw new IllegalArgumentException("Invalid width:" + width);
+    }
+  }
+
+  /**
+   * Get the smallest supported entry width able to hold the specified bits.
+   * @param bits bitwise or of all values to be stored.
+   * @return width in bytes.
+   */
+  static int width(final long bits) {
+    if (bits < 0 || bits >>> Integer.SIZE != 0) {
+      return 8;
+    } else if (bits >>> Short.SIZE != 0) {
+      return 4;
+    } else if (bits >>> Byte.SIZE != 0) {
+      return 2;
+    }
+    return 1;
+  }
+
+  /**
+   * @param index position of entry.
+   * @return the value of the entry.
+   */
+  long get(final long index) {
+    assert index >= 0 && index < mLength : "index=" + index + " length=" + mLength;
+    final long offset = index << mWidthBits;
+    final MappedByteBuffer segment = mSegments[(int) (offset >>> SEGMENT_BITS)];
+    final int pos = (int) (offset & SEGMENT_MASK);
+    switch (mWidth) {
+      case 1:
+        return segment.get(pos) & 0xFFL;
+      case 2:
+        return segment.getShort(pos) & 0xFFFFL;
+      case 4:
+        return segment.getInt(pos) & 0xFFFFFFFFL;
+      default:
+        return segment.getLong(pos);
+    }
+  }
+
+  /**
+   * @return number of entries.
+   */
+  long length() {
+    return mLength;
+  }
+
+  /**
+   * @return number of bytes mapped.
+   */
+  long bytes() {
+    return mLength << mWidthBits;
+  }
+}
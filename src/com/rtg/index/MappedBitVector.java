@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+/**
+ * Read-only vector of bits backed by the packed words of a bit vector saved by <code>IndexFile</code>.
+ */
+final class MappedBitVector extends AbstractBitVector {
+
+  private final MappedArray mWords;
+
+  /**
+   * @param length the number of bits.
+   * @param words packed words of the vector, as given by <code>word</code>.
+   */
+  MappedBitVector(final long length, final MappedArray words) {
+    super(length);
+    if (words.length() != words()) {
+      throw new IllegalArgumentException("Expected " + words() + " words for " + length + " bits but there are " + words.length());
+    }
+    mWords = words;
+  }
+
+  @Override
+  public boolean get(final long index) {
+    assert index >= 0 && index < mLength : index + ":" + mLength;
+    return (mWords.get(index >> BITS_PER_ENTRY) & (1L << (index & MASK))) != 0;
+  }
+
+  @Override
+  public void set(final long index) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void reset(final long index) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  int word(final long index) {
+    return (int) mWords.get(index);
+  }
+
+  @Override
+  public long bytes() {
+    return mWords.bytes();
+  }
+}
@@ -97,4 +97,9 @@ public class ProportionalRepeatFrequencyFilterMethod implements IndexFilterMetho
     }
     return ret - 1;
   }
+
+  @Override
+  public String toString() {
+    return "ProportionalRepeatFrequency discard=" + mDiscardTarget + " max=" + mMaxThreshold + " min=" + mMinThreshold;
+  }
 }
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.LongUnaryOperator;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.util.SimpleThreadPool;
+import com.rtg.util.array.ExtensibleIndex;
+
+/**
+ * Sorts ranges of a hash array (and the parallel value array) into ascending signed order
+ * using a radix sort on the significant bits of the hashes.
+ * Large ranges are partitioned in place one digit at a time (most significant first), once
+ * a range is small enough it is copied into primitive arrays and finished with a stable least
+ * significant digit sort. Each instance keeps its own scratch arrays so one should be used per thread.
+ */
+@TestClass("com.rtg.index.RadixSorterTest")
+final class RadixSorter {
+
+  static final int DIGIT_BITS = 8;
+  private static final int RADIX = 1 << DIGIT_BITS;
+  private static final int DIGIT_MASK = RADIX - 1;
+
+  /** Ranges at most this long are sorted in primitive arrays. */
+  static final int COPY_LIMIT = 1 << 16;
+
+  /** Number of sorting jobs per thread, so that uneven jobs are smoothed out. */
+  static final int BATCHES_PER_THREAD = 4;
+
+  /** Ranges at most this long are insertion sorted. */
+  private static final int INSERTION_LIMIT = 32;
+
+  private final ExtensibleIndex mHash;
+  private final ExtensibleIndex mValue;
+  private final int mTopShift;
+  private final long mFlip;
+
+  private long[] mKeys = new long[0];
+  private long[] mValues = new long[0];
+  private long[] mKeysTmp = new long[0];
+  private long[] mValuesTmp = new long[0];
+  private final int[] mCounts = new int[RADIX];
+
+  /**
+   * @param hash the hashes (keys) to be sorted.
+   * @param value values which are moved with their hashes.
+   * @param bits number of significant bits in the hashes, when 64 the hashes are ordered as signed values.
+   */
+  RadixSorter(final ExtensibleIndex hash, final ExtensibleIndex value, final int bits) {
+    assert bits >= 0 && bits <= Long.SIZE;
+    mHash = hash;
+    mValue = value;
+    mTopShift = bits == 0 ? -1 : ((bits - 1) / DIGIT_BITS) * DIGIT_BITS;
+    mFlip = bits == Long.SIZE ? Long.MIN_VALUE : 0;
+  }
+
+  private int digit(final long key, final int shift) {
+    return (int) ((key ^ mFlip) >>> shift) & DIGIT_MASK;
+  }
+
+  /**
+   * Sort a range of the arrays.
+   * @param start first position to be sorted.
+   * @param length number of entries to be sorted.
+   */
+  void sort(final long start, final long length) {
+    sort(start, length, mTopShift);
+  }
+
+  private void sort(final long start, final long length, final int shift) {
+    if (length < 2 || shift < 0) {
+      return;
+    }
+    if (length <= COPY_LIMIT) {
+      sortCopy(start, (int) length, shift);
+      return;
+    }
+    final long[] bounds = partition(start, length, shift);
+    for (int d = 0; d < RADIX; ++d) {
+      sort(bounds[d], bounds[d + 1] - bounds[d], shift - DIGIT_BITS);
+    }
+  }
+
+  /**
+   * Permute a range in place so that entries are grouped by the digit at <code>shift</code>.
+   * @param start first position in range.
+   * @param length number of entries in range.
+   * @param shift position of the lowest bit of the digit.
+   * @return the <code>RADIX + 1</code> boundaries of the groups.
+   */
+  long[] partition(final long start, final long length, final int shift) {
+    final long[] counts = new long[RADIX];
+    final long end = start + length;
+    for (long i = start; i < end; ++i) {
+      ++counts[digit(mHash.get(i), shift)];
+    }
+    final long[] bounds = new long[RADIX + 1];
+    final long[] next = new long[RADIX];
+    bounds[0] = start;
+    for (int d = 0; d < RADIX; ++d) {
+      next[d] = bounds[d];
+      bounds[d + 1] = bounds[d] + counts[d];
+    }
+    for (int d = 0; d < RADIX; ++d) {
+      while (next[d] < bounds[d + 1]) {
+        long key = mHash.get(next[d]);
+        long value = mValue.get(next[d]);
+        int kd = digit(key, shift);
+        // follow the cycle until an entry belonging in this group is found
+        while (kd != d) {
+          final long p = next[kd]++;
+          final long k = mHash.get(p);
+          final long v = mValue.get(p);
+          mHash.set(p, key);
+          mValue.set(p, value);
+          key = k;
+          value = v;
+          kd = digit(key, shift);
+        }
+        mHash.set(next[d], key);
+        mValue.set(next[d], value);
+        ++next[d];
+      }
+    }
+    return bounds;
+  }
+
+  private void ensureCapacity(final int length) {
+    if (mKeys.length < length) {
+      mKeys = new long[length];
+      mValues = new long[length];
+      mKeysTmp = new long[length];
+      mValuesTmp = new long[length];
+    }
+  }
+
+  private void sortCopy(final long start, final int length, final int topShift) {
+    ensureCapacity(length);
+    for (int i = 0; i < length; ++i) {
+      mKeys[i] = mHash.get(start + i);
+      mValues[i] = mValue.get(start + i);
+    }
+    if (length <= INSERTION_LIMIT) {
+      insertionSort(mKeys, mValues, length);
+    } else {
+      lsdSort(length, topShift);
+    }
+    for (int i = 0; i < length; ++i) {
+      mHash.set(start + i, mKeys[i]);
+      mValue.set(start + i, mValues[i]);
+    }
+  }
+
+  private static void insertionSort(final long[] keys, final long[] values, final int length) {
+    for (int i = 1; i < length; ++i) {
+      final long key = keys[i];
+      final long value = values[i];
+      int j = i - 1;
+      while (j >= 0 && keys[j] > key) {
+        keys[j + 1] = keys[j];
+        values[j + 1] = values[j];
+        --j;
+      }
+      keys[j + 1] = key;
+      values[j + 1] = value;
+    }
+  }
+
+  /** Stable sort of the first <code>length</code> entries of <code>mKeys</code>, result is left in <code>mKeys</code>. */
+  private void lsdSort(final int length, final int topShift) {
+    long[] keys = mKeys;
+    long[] values = mValues;
+    long[] keysTmp = mKeysTmp;
+    long[] valuesTmp = mValuesTmp;
+    final int[] counts = mCounts;
+    for (int shift = 0; shift <= topShift; shift += DIGIT_BITS) {
+      Arrays.fill(counts, 0);
+      for (int i = 0; i < length; ++i) {
+        ++counts[digit(keys[i], shift)];
+      }
+      if (counts[digit(keys[0], shift)] == length) {
+        continue; // every entry has the same digit
+      }
+      int sum = 0;
+      for (int d = 0; d < RADIX; ++d) {
+        final int c = counts[d];
+        counts[d] = sum;
+        sum += c;
+      }
+      for (int i = 0; i < length; ++i) {
+        final int p = counts[digit(keys[i], shift)]++;
+        keysTmp[p] = keys[i];
+        valuesTmp[p] = values[i];
+      }
+      final long[] k = keys;
+      keys = keysTmp;
+      keysTmp = k;
+      final long[] v = values;
+      values = valuesTmp;
+      valuesTmp = v;
+    }
+    if (keys != mKeys) {
+      System.arraycopy(keys, 0, mKeys, 0, length);
+      System.arraycopy(values, 0, mValues, 0, length);
+    }
+  }
+
+  /**
+   * Split the buckets from <code>from</code> (inclusive) to <code>to</code> (exclusive) into
+   * consecutive ranges holding similar numbers of entries.
+   * @param bucketStart gives the position of the first entry of a bucket, bucket <code>b</code> spans
+   * <code>bucketStart(b)</code> to <code>bucketStart(b + 1)</code> and the function must be non-decreasing.
+   * @param from first bucket.
+   * @param to end bucket (exclusive).
+   * @param ranges number of ranges required.
+   * @return <code>ranges + 1</code> bucket boundaries, ranges may be empty.
+   */
+  static long[] balance(final LongUnaryOperator bucketStart, final long from, final long to, final int ranges) {
+    final long[] bounds = new long[ranges + 1];
+    bounds[0] = from;
+    bounds[ranges] = to;
+    final long first = bucketStart.applyAsLong(from);
+    final long total = bucketStart.applyAsLong(to) - first;
+    for (int r = 1; r < ranges; ++r) {
+      final long target = first + total / ranges * r + total % ranges * r / ranges;
+      // smallest bucket at or after the previous bound which starts at or after target
+      long lo = bounds[r - 1];
+      long hi = to;
+      while (lo < hi) {
+        final long mid = (lo + hi) >>> 1;
+        if (bucketStart.applyAsLong(mid) < target) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      bounds[r] = lo;
+    }
+    return bounds;
+  }
+
+  /**
+   * Sort the buckets in each of the ranges in parallel.
+   * @param hash the hashes (keys) to be sorted.
+   * @param value values which are moved with their hashes.
+   * @param bits number of significant bits in the hashes.
+   * @param bucketStart gives the position of the first entry of a bucket.
+   * @param bounds bucket boundaries of the ranges, as produced by <code>balance</code>.
+   * @param numberThreads number of threads to use.
+   */
+  static void sortBuckets(final ExtensibleIndex hash, final ExtensibleIndex value, final int bits, final LongUnaryOperator bucketStart, final long[] bounds, final int numberThreads) {
+    final SimpleThreadPool pool = new SimpleThreadPool(numberThreads, "RadixSort", true);
+    for (int r = 0; r < bounds.length - 1; ++r) {
+      final long from = bounds[r];
+      final long to = bounds[r + 1];
+      pool.execute(() -> {
+        final RadixSorter sorter = new RadixSorter(hash, value, bits);
+        for (long b = from; b < to; ++b) {
+          final long lo = bucketStart.applyAsLong(b);
+          sorter.sort(lo, bucketStart.applyAsLong(b + 1) - lo);
+        }
+      });
+    }
+    try {
+      pool.terminate();
+    } catch (final IOException e) {
+      throw new IllegalStateException("Index sorting should not throw IOException", e);
+    }
+  }
+
+  /**
+   * Sort the first <code>length</code> entries of the arrays, after partitioning on the most
+   * significant digit the groups are sorted in parallel.
+   * @param hash the hashes (keys) to be sorted.
+   * @param value values which are moved with their hashes.
+   * @param bits number of significant bits in the hashes.
+   * @param length number of entries to sort.
+   * @param numberThreads number of threads to use.
+   */
+  static void sort(final ExtensibleIndex hash, final ExtensibleIndex value, final int bits, final long length, final int numberThreads) {
+    final RadixSorter sorter = new RadixSorter(hash, value, bits);
+    if (numberThreads == 1 || length <= COPY_LIMIT || sorter.mTopShift < 0) {
+      sorter.sort(0, length);
+      return;
+    }
+    final long[] groups = sorter.partition(0, length, sorter.mTopShift);
+    final int lowerBits = sorter.mTopShift;
+    final long[] bounds = balance(g -> groups[(int) g], 0, RADIX, numberThreads * BATCHES_PER_THREAD);
+    sortBuckets(hash, value, lowerBits, g -> groups[(int) g], bounds, numberThreads);
+  }
+}
@@ -49,6 +49,8 @@ public class NgsHashLoopImpl extends IntegralAbstract implements NgsHashLoop {
 
   protected long mMinChunkSize = HashingRegion.DEFAULT_MIN_CHUNK_SIZE;
 
+  private boolean mAdaptiveSplitting = false;
+
   /**
    * set the number of bases to pad each threads region to handle matches near the boundaries
    * @param threadPadding the number of bases to pad the thread
@@ -57,6 +59,14 @@ public class NgsHashLoopImpl extends IntegralAbstract implements NgsHashLoop {
     this.mThreadPadding = threadPadding;
   }
 
+  /**
+   * set whether template regions are split further during the search to keep all threads busy
+   * @param adaptive true to use a work stealing scheduler that splits regions as threads become idle
+   */
+  public void setAdaptiveSplitting(final boolean adaptive) {
+    mAdaptiveSplitting = adaptive;
+  }
+
   /**
    * @param numberReads total number of reads used for building.
    * @param progress true iff progress messages are to be generated.
@@ -293,7 +303,6 @@ public class NgsHashLoopImpl extends IntegralAbstract implements NgsHashLoop {
     assert mode.allFrames().length == 2;
     final SequencesReader reader0 = params.reader();
     final long t0 = System.currentTimeMillis();
-    final SimpleThreadPool pool = new SimpleThreadPool(numberThreads, "Search", true);
 
     // For a 50m Yoruba run taking 40 minutes for 16 threads this is 640 cpu minutes.
     // For Threads=16 * 2 = 32 chunks, this is 20 minutes for each chunk. Trying to reduce the maximum
@@ -301,6 +310,17 @@ public class NgsHashLoopImpl extends IntegralAbstract implements NgsHashLoop {
     // In the case of a single template sequence, the region splitting has a minimum chunk size so
     // this will avoid creating too many chunks.
     final HashingRegion[] ranges = HashingRegion.splitWorkload(reader0, params.sex(), start, end, numberThreads * threadMultiplier, mMinChunkSize, mThreadPadding);
+    if (mAdaptiveSplitting && numberThreads > 1) {
+      final int[] lengths = reader0.sequenceLengths(0, reader0.numberSequences());
+      final TemplateChunkScheduler scheduler = new TemplateChunkScheduler(numberThreads, lengths, mMinChunkSize, mThreadPadding, (chunk, name) -> {
+        timeLog(t0, name, "Scheduling", chunk);
+        return new SequenceLoop(this, params, hf, chunk, name, t0);
+      });
+      scheduler.run(ranges);
+      timeLog(t0, "parent", "Finished", HashingRegion.NONE);
+      return;
+    }
+    final SimpleThreadPool pool = new SimpleThreadPool(numberThreads, "Search", true);
     pool.enableBasicProgress(ranges.length);
     for (int i = 0; i < ranges.length; ++i) {
       schedule(params, hf, t0, pool, i, ranges[i]);
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index.hash.ngs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.launcher.HashingRegion;
+import com.rtg.util.IORunnable;
+import com.rtg.util.StringUtils;
+import com.rtg.util.diagnostic.Diagnostic;
+
+/**
+ * Runs the template search over a set of regions on a work stealing pool.
+ * When a chunk is about to start and there are fewer chunks waiting than threads, the chunk is
+ * split in half (with padding either side of the new boundary) and the second half is left for
+ * another thread to steal. This keeps slow repeat dense regions from defining the tail of the run.
+ * The time taken by each chunk is recorded and reported at the end.
+ */
+@TestClass("com.rtg.index.hash.ngs.TemplateChunkSchedulerTest")
+public class TemplateChunkScheduler {
+
+  /** Creates the work for a region. */
+  public interface ChunkFactory {
+    /**
+     * @param region region to be searched.
+     * @param name name of the chunk, used in log messages.
+     * @return the work which searches the region.
+     */
+    IORunnable chunk(HashingRegion region, String name);
+  }
+
+  private final int mNumberThreads;
+  private final int[] mSequenceLengths;
+  private final long mMinChunkSize;
+  private final long mPadding;
+  private final ChunkFactory mFactory;
+  private final ConcurrentLinkedQueue<ChunkTiming> mTimings = new ConcurrentLinkedQueue<>();
+  /** Number of chunks waiting to be started. */
+  private final AtomicInteger mPending = new AtomicInteger();
+
+  /**
+   * @param numberThreads number of threads to use.
+   * @param sequenceLengths lengths of the template sequences, indexed by sequence id.
+   * @param minChunkSize regions are never split into chunks smaller than this.
+   * @param padding amount of padding for padded regions.
+   * @param factory creates the work for each chunk.
+   */
+  public TemplateChunkScheduler(final int numberThreads, final int[] sequenceLengths, final long minChunkSize, final long padding, final ChunkFactory factory) {
+    mNumberThreads = numberThreads;
+    mSequenceLengths = sequenceLengths;
+    mMinChunkSize = minChunkSize;
+    mPadding = padding;
+    mFactory = factory;
+  }
+
+  /**
+   * Search all the regions, returning when every chunk has finished.
+   * If a chunk fails, chunks not yet started are cancelled and those running are waited for before the failure is reported.
+   * @param regions initial regions, these may be further split.
+   * @throws IOException if an I/O error occurs in any chunk.
+   */
+  public void run(final HashingRegion[] regions) throws IOException {
+    final long t0 = System.currentTimeMillis();
+    final ForkJoinPool pool = new ForkJoinPool(mNumberThreads);
+    try {
+      final List<ChunkTask> tasks = new ArrayList<>();
+      for (int i = 0; i < regions.length; ++i) {
+        tasks.add(new ChunkTask(regions[i], Integer.toString(i)));
+      }
+      pool.invoke(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          ForkJoinTask.invokeAll(tasks);
+        }
+      });
+    } catch (final RuntimeException e) {
+      for (Throwable t = e; t != null; t = t.getCause()) {
+        if (t instanceof IOException) {
+          throw (IOException) t;
+        }
+      }
+      throw e;
+    } finally {
+      // On failure the other chunks may still be queued or running, cancel the queued ones and wait out the rest
+      pool.shutdownNow();
+      while (!pool.isTerminated()) {
+        try {
+          pool.awaitTermination(1L, TimeUnit.SECONDS);
+        } catch (final InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+    Diagnostic.userLog(report(System.currentTimeMillis() - t0));
+  }
+
+  /** @return timings of the completed chunks, in region order. */
+  List<ChunkTiming> timings() {
+    final List<ChunkTiming> timings = new ArrayList<>(mTimings);
+    Collections.sort(timings);
+    return timings;
+  }
+
+  String report(final long elapsed) {
+    final List<ChunkTiming> timings = timings();
+    final StringBuilder sb = new StringBuilder();
+    long totalBases = 0;
+    long totalTime = 0;
+    long maxTime = 0;
+    for (final ChunkTiming timing : timings) {
+      totalBases += timing.mBases;
+      totalTime += timing.mMillis;
+      maxTime = Math.max(maxTime, timing.mMillis);
+    }
+    sb.append("Search chunks ").append(timings.size()).append(" from ").append(totalBases).append(" bases, elapsed ").append(elapsed / 1000L)
+      .append(" s, chunk time total ").append(totalTime / 1000L).append(" s max ").append(maxTime / 1000L).append(" s").append(StringUtils.LS);
+    for (final ChunkTiming timing : timings) {
+      sb.append("Search chunk ").append(timing).append(StringUtils.LS);
+    }
+    return sb.toString();
+  }
+
+  /** Time taken to search a chunk. */
+  static final class ChunkTiming implements Comparable<ChunkTiming> {
+    final HashingRegion mRegion;
+    final String mName;
+    final long mBases;
+    final long mMillis;
+
+    ChunkTiming(final HashingRegion region, final String name, final long bases, final long millis) {
+      mRegion = region;
+      mName = name;
+      mBases = bases;
+      mMillis = millis;
+    }
+
+    @Override
+    public int compareTo(final ChunkTiming other) {
+      return mRegion.compareTo(other.mRegion);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return obj instanceof ChunkTiming && compareTo((ChunkTiming) obj) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return mRegion.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return mName + " " + mRegion + " " + mBases + " bases " + mMillis + " ms";
+    }
+  }
+
+  private final class ChunkTask extends RecursiveAction {
+    private final HashingRegion mRegion;
+    private final String mName;
+
+    ChunkTask(final HashingRegion region, final String name) {
+      mRegion = region;
+      mName = name;
+      mPending.incrementAndGet();
+    }
+
+    @Override
+    protected void compute() {
+      HashingRegion region = mRegion;
+      String name = mName;
+      final List<ChunkTask> stolen = new ArrayList<>();
+      mPending.decrementAndGet();
+      // split while the other threads would otherwise go idle
+      while (mPending.get() < mNumberThreads - 1) {
+        final HashingRegion[] halves = region.split(mSequenceLengths, mMinChunkSize, mPadding);
+        if (halves == null) {
+          break;
+        }
+        final ChunkTask other = new ChunkTask(halves[1], name + ".2");
+        other.fork();
+        stolen.add(other);
+        region = halves[0];
+        name = name + ".1";
+      }
+      final long start = System.currentTimeMillis();
+      try {
+        mFactory.chunk(region, name).run();
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      mTimings.add(new ChunkTiming(region, name, region.length(mSequenceLengths), System.currentTimeMillis() - start));
+      for (int i = stolen.size() - 1; i >= 0; --i) {
+        stolen.get(i).join();
+      }
+    }
+  }
+}
@@ -12,11 +12,13 @@
 package com.rtg.index.similarity;
 
 import java.io.IOException;
+import java.util.function.Consumer;
 
 import com.rtg.index.Finder;
 import com.rtg.index.IndexCompressed;
 import com.rtg.index.IndexFilterMethod;
 import com.rtg.index.params.CreateParams;
+import com.rtg.util.SimpleThreadPool;
 
 /**
  */
@@ -47,45 +49,95 @@ public final class IndexSimilarity extends IndexCompressed {
   }
 
   /**
-   * Create a self-similarity matrix for the sequences in the index.
+   * Create a self-similarity matrix for the sequences in the index, using the number of threads
+   * the index was created with.
    * @param numSequences total number of sequences
    * @return the similarity matrix.
    * @throws IllegalStateException if index has not been frozen.
    */
   public SimilarityMatrix similarity(long numSequences) {
+    return similarity(numSequences, mNumberThreads);
+  }
+
+  /**
+   * Create a self-similarity matrix for the sequences in the index. When more than one thread
+   * is used the buckets are split into ranges with similar numbers of entries, each thread
+   * accumulates its range into its own tiled partial matrix, and the partial matrices are then
+   * added into the result in parallel.
+   * @param numSequences total number of sequences
+   * @param threads number of threads to use.
+   * @return the similarity matrix.
+   * @throws IllegalStateException if index has not been frozen.
+   */
+  public SimilarityMatrix similarity(long numSequences, int threads) {
     if (mState != IndexState.FROZEN) {
       throw new IllegalStateException();
     }
-    if (mSimilaritySorter == null) {
-      mSimilaritySorter = new SimilaritySorter(maxHashCount(), mSingleton);
-    }
     final SimilarityMatrix matrix = new SimilarityMatrix(numSequences);
-    long lo = 0;
-    for (long p = 0; p < mInitialPositionLength - 2; ++p) {
-      final long hi = mInitialPosition.get(p + 1);
-      for (long i = lo; i < hi;) {
-      final long hash = mHash.get(i);
-      final int seq = (int) mValue.get(i);
-      //System.err.println(" i=" + i + " seq=" + seq + " hash=" + hash);
-      mSimilaritySorter.add(seq);
-      ++i;
-      if (i >= mNumValues) {
-        mSimilaritySorter.similarity(matrix);
-        //System.err.println(mSimilaritySorter.toString());
-        mSimilaritySorter.reset();
-        break;
+    if (threads <= 1) {
+      if (mSimilaritySorter == null) {
+        mSimilaritySorter = new SimilaritySorter(maxHashCount(), mSingleton);
       }
-      if (hash != mHash.get(i)) {
-        mSimilaritySorter.similarity(matrix);
-        //System.err.println(mSimilaritySorter.toString());
-        mSimilaritySorter.reset();
+      accumulate(0, mInitialPositionLength - 2, mSimilaritySorter, sorter -> sorter.similarity(matrix));
+    } else {
+      accumulate(matrix, threads);
+    }
+    return matrix;
+  }
+
+  /**
+   * Pass the sequence ids for each distinct hash in a range of buckets to the sorter, and flush
+   * the sorter at the end of each hash.
+   */
+  private void accumulate(final long from, final long to, final SimilaritySorter sorter, final Consumer<SimilaritySorter> flush) {
+    for (long p = from; p < to; ++p) {
+      final long hi = mInitialPosition.get(p + 1);
+      for (long i = mInitialPosition.get(p); i < hi; ++i) {
+        final long hash = mHash.get(i);
+        //System.err.println(" i=" + i + " seq=" + mValue.get(i) + " hash=" + hash);
+        sorter.add((int) mValue.get(i));
+        if (i + 1 == hi || hash != mHash.get(i + 1)) {
+          flush.accept(sorter);
+          sorter.reset();
+        }
       }
     }
-      mSimilaritySorter.similarity(matrix);
-      //System.err.println(mSimilaritySorter.toString());
-      mSimilaritySorter.reset();
-      lo = hi;
+  }
+
+  private void accumulate(final SimilarityMatrix matrix, final int threads) {
+    final long[] bounds = bucketRanges(threads);
+    final SimilarityTiles[] partials = new SimilarityTiles[threads];
+    final SimpleThreadPool pool = new SimpleThreadPool(threads, "Similarity", true);
+    for (int t = 0; t < threads; ++t) {
+      final int part = t;
+      pool.execute(() -> {
+        final SimilarityTiles tiles = new SimilarityTiles(matrix.length());
+        accumulate(bounds[part], bounds[part + 1], new SimilaritySorter(maxHashCount(), mSingleton), sorter -> sorter.similarity(tiles));
+        partials[part] = tiles;
+      });
+    }
+    terminate(pool);
+    final SimpleThreadPool merge = new SimpleThreadPool(threads, "SimilarityMerge", true);
+    final int tileRows = partials[0].tileRows();
+    for (int t = 0; t < threads; ++t) {
+      final int first = t;
+      merge.execute(() -> {
+        // interleave tile rows as the later rows hold more tiles
+        for (int r = first; r < tileRows; r += threads) {
+          for (final SimilarityTiles tiles : partials) {
+            tiles.addTo(matrix, r);
+          }
+        }
+      });
+    }
+    terminate(merge);
+  }
+
+  private static void terminate(final SimpleThreadPool pool) {
+    try {
+      pool.terminate();
+    } catch (final IOException e) {
+      throw new IllegalStateException("Similarity should not throw IOException", e);
     }
-    return matrix;
   }
 }
@@ -14,6 +14,8 @@ package com.rtg.index.similarity;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.util.PortableRandom;
 import com.rtg.util.diagnostic.Diagnostic;
 
@@ -25,6 +27,8 @@ import com.rtg.util.diagnostic.Diagnostic;
  */
 public class NeighborJoining {
 
+  private static final int RAPID_THRESHOLD = GlobalFlags.getIntegerValue(CoreGlobalFlags.SIMILARITY_RAPID_NJ_THRESHOLD_FLAG);
+
   private final PortableRandom mRandom;
 
   /**
@@ -66,10 +70,56 @@ public class NeighborJoining {
    * @return the resulting tree
    */
   public BinaryTree neighborJoin(final List<String> nodeNames, final SimilarityMatrix matrix) {
+    if (RAPID_THRESHOLD > 0 && matrix.length() >= RAPID_THRESHOLD) {
+      return new RapidNeighborJoining(mRandom, nodeNames, makeTriangle(matrix)).neighborJoin();
+    }
     final ArrayList<ArrayList<Double>> d = makeArray(matrix);
     return neighborJoin(nodeNames, d);
   }
 
+  private static double[] norms(final SimilarityMatrix matrix) {
+    final int length = matrix.length();
+    final double[] norm = new double[length];
+    for (int i = 0; i < length; ++i) {
+      //be careful to deal with 0's on diagonal
+      final double n = matrix.get(i, i);
+      assert n >= 0;
+      norm[i] = Math.sqrt(n == 0 ? 1 : n);
+    }
+    return norm;
+  }
+
+  private static double distance(final SimilarityMatrix matrix, final double[] norm, final int i, final int j) {
+    final double v = matrix.get(i, j) / (norm[i] * norm[j]);
+    assert v >= 0.0 && !Double.isInfinite(v) && !Double.isNaN(v) : v;
+    final double w = 1.0 / (1.0 + v);
+    assert w >= 0.0 && !Double.isInfinite(w) && !Double.isNaN(w) : w;
+    return w;
+  }
+
+  /**
+   * Produce a packed lower triangular array with the same normalized and inverted similarity
+   * scores as <code>makeArray</code>.
+   * @param matrix with the original counts.
+   * @return the packed lower triangular array.
+   */
+  static double[] makeTriangle(final SimilarityMatrix matrix) {
+    final int length = matrix.length();
+    final long size = RapidNeighborJoining.size(length);
+    if (size > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Too many sequences for neighbor joining: " + length);
+    }
+    final double[] norm = norms(matrix);
+    final double[] d = new double[(int) size];
+    int k = 0;
+    for (int i = 0; i < length; ++i) {
+      for (int j = 0; j < i; ++j) {
+        d[k++] = distance(matrix, norm, i, j);
+      }
+    }
+    return d;
+  }
+
   /**
    * Produce an array which is a lower triangular matrix with normalized and inverted
    * similarity scores (the matrix contains counts of common hashes for pairs of sequences).
@@ -80,22 +130,12 @@ public class NeighborJoining {
     final ArrayList<ArrayList<Double>> d;
     final int length = matrix.length();
     //compute normalization factors
-    final double[] norm = new double[length];
-    for (int i = 0; i < length; ++i) {
-      //be careful to deal with 0's on diagonal
-      final double n = matrix.get(i, i);
-      assert n >= 0;
-      norm[i] = Math.sqrt(n == 0 ? 1 : n);
-    }
+    final double[] norm = norms(matrix);
     d = new ArrayList<>();
     for (int i = 0; i < length; ++i) {
       final ArrayList<Double> row = new ArrayList<>();
       for (int j = 0; j < i; ++j) {
-        final double v = matrix.get(i, j) / (norm[i] * norm[j]);
-        assert v >= 0.0 && !Double.isInfinite(v) && !Double.isNaN(v) : v;
-        final double w = 1.0 / (1.0 + v);
-        assert w >= 0.0 && !Double.isInfinite(w) && !Double.isNaN(w) : w;
-        row.add(w);
+        row.add(distance(matrix, norm, i, j));
       }
       d.add(row);
     }
@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index.similarity;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.util.PortableRandom;
+import com.rtg.util.diagnostic.Diagnostic;
+
+/**
+ * Neighbor joining on a packed lower triangular distance array, for trees with many leaves.
+ * Row sums are maintained incrementally and the minimum of the Q matrix is found with the
+ * bounded search of RapidNJ (Simonsen, Mailund and Pedersen): each node keeps the nodes before
+ * it sorted by distance, and a row is abandoned as soon as the distance is too large for any
+ * remaining entry to beat the best value found so far. The sorted rows hold the distances
+ * rounded down to floats, so bounds are checked sequentially in memory and the exact distance
+ * is only retrieved for entries which might be the minimum.
+ * <p>
+ * Distances between two existing nodes never change, so a sorted row stays valid apart from
+ * entries for nodes which have since been joined, which are skipped and periodically removed.
+ * A leaf's row holds the leaves before it and a joined node's row holds every node present
+ * when it was created, so each pair of live nodes is in the row of the later one.
+ */
+@TestClass("com.rtg.index.similarity.RapidNeighborJoiningTest")
+final class RapidNeighborJoining {
+
+  private final PortableRandom mRandom;
+
+  private final int mLeaves;
+  /** Distances, indexed by slot, a joined node reuses one of the slots of its children. */
+  private final double[] mDistances;
+  private final int[] mSlot;
+  private final boolean[] mAlive;
+  private final double[] mRowSum;
+  private final BinaryTree[] mTree;
+  private final int[][] mSorted;
+  private final float[][] mSortedDistance;
+  private final int[] mSortedLength;
+  /** Live nodes in order of creation. */
+  private final int[] mActive;
+  private int mNumActive;
+  private int mNumNodes;
+
+  /**
+   * @param random used to break ties between equal entries of the Q matrix.
+   * @param nodeNames the names of the leaves.
+   * @param distances packed lower triangular distances between the leaves, as produced by <code>index</code>.
+   */
+  RapidNeighborJoining(final PortableRandom random, final List<String> nodeNames, final double[] distances) {
+    mRandom = random;
+    mLeaves = nodeNames.size();
+    if (distances.length != size(mLeaves)) {
+      throw new IllegalArgumentException("Distances for " + distances.length + " pairs cf. " + mLeaves + " names");
+    }
+    mDistances = distances;
+    final int maxNodes = Math.max(2 * mLeaves - 1, 0);
+    mSlot = new int[maxNodes];
+    mAlive = new boolean[maxNodes];
+    mRowSum = new double[maxNodes];
+    mTree = new BinaryTree[maxNodes];
+    mSorted = new int[maxNodes][];
+    mSortedDistance = new float[maxNodes][];
+    mSortedLength = new int[maxNodes];
+    mActive = new int[mLeaves];
+    final double[] keys = new double[mLeaves];
+    for (int i = 0; i < mLeaves; ++i) {
+      mSlot[i] = i;
+      mAlive[i] = true;
+      mTree[i] = new BinaryTree(null, null, 0, 0, nodeNames.get(i));
+      mActive[i] = i;
+      final int[] sorted = new int[i];
+      for (int j = 0; j < i; ++j) {
+        sorted[j] = j;
+        keys[j] = distances[index(i, j)];
+        mRowSum[i] += keys[j];
+        mRowSum[j] += keys[j];
+      }
+      setSorted(i, sorted, keys, i);
+    }
+    mNumActive = mLeaves;
+    mNumNodes = mLeaves;
+  }
+
+  /**
+   * @param n number of leaves.
+   * @return the length of the packed lower triangular array for <code>n</code> leaves.
+   */
+  static long size(final int n) {
+    return (long) n * (n - 1) / 2;
+  }
+
+  /**
+   * @param i first index.
+   * @param j second index, different to the first.
+   * @return the position of the distance between <code>i</code> and <code>j</code> in a packed lower triangular array.
+   */
+  static int index(final int i, final int j) {
+    assert i != j;
+    return i > j ? (int) (size(i) + j) : (int) (size(j) + i);
+  }
+
+  private double distance(final int a, final int b) {
+    return mDistances[index(mSlot[a], mSlot[b])];
+  }
+
+  /**
+   * Perform the neighbor-joining algorithm.
+   * @return the resulting tree, or null if there are no leaves.
+   */
+  BinaryTree neighborJoin() {
+    if (mLeaves == 0) {
+      return null;
+    }
+    int compactAt = mNumActive / 2;
+    final int[] best = new int[2];
+    while (mNumActive > 1) {
+      search(best);
+      join(best[0], best[1]);
+      if (mNumActive <= compactAt) {
+        compact();
+        compactAt = mNumActive / 2;
+      }
+    }
+    return mTree[mActive[0]];
+  }
+
+  /* Find the smallest entry in the Q matrix, the first node of the pair is the later one. */
+  private void search(final int[] res) {
+    final int r = mNumActive - 2;
+    double maxRowSum = Double.NEGATIVE_INFINITY;
+    for (int a = 0; a < mNumActive; ++a) {
+      maxRowSum = Math.max(maxRowSum, mRowSum[mActive[a]]);
+    }
+    // The nearest live node of each row gives an upper bound on the minimum to prune with from the start
+    double limit = Double.POSITIVE_INFINITY;
+    for (int a = 1; a < mNumActive; ++a) {
+      final int k = mActive[a];
+      final int[] sorted = mSorted[k];
+      for (int e = 0; e < mSortedLength[k]; ++e) {
+        final int j = sorted[e];
+        if (mAlive[j]) {
+          limit = Math.min(limit, r * distance(k, j) - mRowSum[k] - mRowSum[j]);
+          break;
+        }
+      }
+    }
+    double best = Double.POSITIVE_INFINITY;
+    int c = 0;
+    int f = -1;
+    int g = -1;
+    for (int a = 1; a < mNumActive; ++a) {
+      final int k = mActive[a];
+      final int[] sorted = mSorted[k];
+      final float[] distances = mSortedDistance[k];
+      final int length = mSortedLength[k];
+      final double rowSum = mRowSum[k];
+      for (int e = 0; e < length; ++e) {
+        final double lower = r * (double) distances[e] - rowSum;
+        if (lower - maxRowSum > limit) {
+          break;
+        }
+        final int j = sorted[e];
+        // the slot of a joined node may now belong to another node so its distance cannot be used
+        if (!mAlive[j] || lower - mRowSum[j] > limit) {
+          continue;
+        }
+        final double q = r * distance(k, j) - rowSum - mRowSum[j];
+        if (Double.doubleToRawLongBits(q) == Double.doubleToRawLongBits(best) && mRandom.nextInt(++c) == 0) {
+          // Break ties fairly
+          f = k;
+          g = j;
+        } else if (q < best) {
+          c = 1;
+          f = k;
+          g = j;
+          best = q;
+          limit = Math.min(limit, q);
+        }
+      }
+    }
+    assert f >= 0 && g >= 0 : "f=" + f + " g=" + g;
+    res[0] = f;
+    res[1] = g;
+  }
+
+  private void join(final int f, final int g) {
+    final int m = mNumActive;
+    // Compute distance of merged node to new node
+    final double dfu, dgu, dfg = 0.5 * distance(f, g);
+    if (m > 2) {
+      dfu = dfg + 0.5 * (mRowSum[f] - mRowSum[g]) / (m - 2);
+      dgu = dfg + 0.5 * (mRowSum[g] - mRowSum[f]) / (m - 2);
+    } else {
+      dfu = dfg;
+      dgu = dfg;
+    }
+    final int u = mNumNodes++;
+    mTree[u] = new BinaryTree(mTree[f], mTree[g], dfu, dgu, String.valueOf(m));
+    Diagnostic.userLog("NeighborJoining: " + mTree[f].getLabel() + " + " + mTree[g].getLabel() + " -> " + mTree[u].getLabel());
+    mTree[f] = null;
+    mTree[g] = null;
+    mAlive[f] = false;
+    mAlive[g] = false;
+    mAlive[u] = true;
+    mSlot[u] = Math.min(mSlot[f], mSlot[g]);
+
+    // Compute distance of merged node to all other nodes, and update their row sums
+    final int[] sorted = new int[m - 2];
+    final double[] keys = new double[m - 2];
+    int n = 0;
+    double rowSum = 0;
+    for (int a = 0; a < m; ++a) {
+      final int i = mActive[a];
+      if (i != f && i != g) {
+        final double dfi = distance(f, i);
+        final double dgi = distance(g, i);
+        final double dui = 0.5 * (dfi - dfu + dgi - dgu);
+        mRowSum[i] += dui - dfi - dgi;
+        rowSum += dui;
+        sorted[n] = i;
+        keys[n] = dui;
+        mActive[n] = i;
+        ++n;
+      }
+    }
+    assert n == m - 2;
+    // The slot is shared with one of the children so only write once they are no longer needed
+    for (int e = 0; e < n; ++e) {
+      mDistances[index(mSlot[u], mSlot[sorted[e]])] = keys[e];
+    }
+    setSorted(u, sorted, keys, n);
+    mSorted[f] = null;
+    mSorted[g] = null;
+    mSortedDistance[f] = null;
+    mSortedDistance[g] = null;
+    mRowSum[u] = rowSum;
+    mActive[n] = u;
+    mNumActive = n + 1;
+  }
+
+  private void setSorted(final int node, final int[] ids, final double[] keys, final int length) {
+    sort(ids, keys, 0, length);
+    final float[] distances = new float[length];
+    for (int e = 0; e < length; ++e) {
+      distances[e] = lower(keys[e]);
+    }
+    mSorted[node] = ids;
+    mSortedDistance[node] = distances;
+    mSortedLength[node] = length;
+  }
+
+  /* Largest float no greater than the value, so bounds computed from it stay bounds. */
+  static float lower(final double v) {
+    final float f = (float) v;
+    return f > v ? Math.nextDown(f) : f;
+  }
+
+  /* Remove entries for nodes which have been joined from the sorted rows, and release the space. */
+  private void compact() {
+    for (int a = 0; a < mNumActive; ++a) {
+      final int k = mActive[a];
+      final int[] sorted = mSorted[k];
+      final float[] distances = mSortedDistance[k];
+      int n = 0;
+      for (int e = 0; e < mSortedLength[k]; ++e) {
+        if (mAlive[sorted[e]]) {
+          sorted[n] = sorted[e];
+          distances[n] = distances[e];
+          ++n;
+        }
+      }
+      mSorted[k] = Arrays.copyOf(sorted, n);
+      mSortedDistance[k] = Arrays.copyOf(distances, n);
+      mSortedLength[k] = n;
+    }
+  }
+
+  /* Sort the ids in a range by their keys, keeping the keys in step. */
+  static void sort(final int[] ids, final double[] keys, final int lo, final int hi) {
+    int start = lo;
+    int end = hi;
+    while (end - start > 16) {
+      final int mid = (start + end) >>> 1;
+      final double pivot = median(keys[start], keys[mid], keys[end - 1]);
+      int i = start;
+      int j = end - 1;
+      while (i <= j) {
+        while (keys[i] < pivot) {
+          ++i;
+        }
+        while (keys[j] > pivot) {
+          --j;
+        }
+        if (i <= j) {
+          swap(ids, keys, i++, j--);
+        }
+      }
+      // Recurse into the smaller part to bound the stack depth
+      if (j - start < end - i) {
+        sort(ids, keys, start, j + 1);
+        start = i;
+      } else {
+        sort(ids, keys, i, end);
+        end = j + 1;
+      }
+    }
+    for (int i = start + 1; i < end; ++i) {
+      for (int j = i; j > start && keys[j - 1] > keys[j]; --j) {
+        swap(ids, keys, j - 1, j);
+      }
+    }
+  }
+
+  private static double median(final double a, final double b, final double c) {
+    return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+  }
+
+  private static void swap(final int[] ids, final double[] keys, final int i, final int j) {
+    final int t = ids[i];
+    ids[i] = ids[j];
+    ids[j] = t;
+    final double k = keys[i];
+    keys[i] = keys[j];
+    keys[j] = k;
+  }
+}
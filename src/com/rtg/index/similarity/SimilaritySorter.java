@@ -124,6 +124,39 @@ public final class SimilaritySorter extends IntegralAbstract {
    * @param matrix to be updated.
    */
   public void similarity(final SimilarityMatrix matrix) {
+    removeDuplicates();
+    //put counts into similarity matrix
+    for (int j = 0; j < mNumNoDupl; ++j) {
+      for (int k = j; k < mNumNoDupl; ++k) {
+        if (mSingleton) {
+          matrix.increment(mNoDupl[j], mNoDupl[k]);
+        } else {
+          matrix.increment(mNoDupl[j], mNoDupl[k], (double) mCounts[j] * mCounts[k]); //TODO add different ways of computing the value to increment by
+        }
+      }
+    }
+    mSorted = true;
+  }
+
+  /**
+   * Increment a tiled partial matrix using accumulated values.
+   * @param tiles to be updated.
+   */
+  void similarity(final SimilarityTiles tiles) {
+    removeDuplicates();
+    for (int j = 0; j < mNumNoDupl; ++j) {
+      for (int k = j; k < mNumNoDupl; ++k) {
+        if (mSingleton) {
+          tiles.increment(mNoDupl[j], mNoDupl[k], 1.0);
+        } else {
+          tiles.increment(mNoDupl[j], mNoDupl[k], (double) mCounts[j] * mCounts[k]);
+        }
+      }
+    }
+    mSorted = true;
+  }
+
+  private void removeDuplicates() {
     Arrays.sort(mSortedIds, 0, mCurr);
 //    System.err.print("[");
 //    for (int i = 0; i < mCurr; ++i) {
@@ -145,18 +178,6 @@ public final class SimilaritySorter extends IntegralAbstract {
       last = fromV;
     }
     mNumNoDupl = to + 1;
-
-    //put counts into similarity matrix
-    for (int j = 0; j < mNumNoDupl; ++j) {
-      for (int k = j; k < mNumNoDupl; ++k) {
-        if (mSingleton) {
-          matrix.increment(mNoDupl[j], mNoDupl[k]);
-        } else {
-          matrix.increment(mNoDupl[j], mNoDupl[k], (double) mCounts[j] * mCounts[k]); //TODO add different ways of computing the value to increment by
-        }
-      }
-    }
-    mSorted = true;
   }
 
   @Override
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index.similarity;
+
+/**
+ * Partial similarity matrix accumulated by a single thread. The lower triangle is split into
+ * square tiles which are only allocated when first touched, and within a tile the entries for
+ * one column are adjacent, which is the order <code>SimilaritySorter</code> updates them.
+ */
+final class SimilarityTiles {
+
+  static final int TILE_BITS = 6;
+  static final int TILE = 1 << TILE_BITS;
+  private static final int TILE_MASK = TILE - 1;
+
+  private final int mLength;
+
+  private final int mTileRows;
+
+  private final double[][] mTiles;
+
+  /**
+   * @param numberSequences same as size of matrix.
+   */
+  SimilarityTiles(final int numberSequences) {
+    mLength = numberSequences;
+    mTileRows = (numberSequences + TILE_MASK) >>> TILE_BITS;
+    mTiles = new double[(int) ((long) mTileRows * (mTileRows + 1) / 2)][];
+  }
+
+  /**
+   * @return the number of rows of tiles.
+   */
+  int tileRows() {
+    return mTileRows;
+  }
+
+  /**
+   * @return the number of tiles which have been allocated.
+   */
+  int allocated() {
+    int count = 0;
+    for (final double[] tile : mTiles) {
+      if (tile != null) {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  private static int tile(final int row, final int col) {
+    return row * (row + 1) / 2 + col;
+  }
+
+  /**
+   * Increment count taking into account commutativity of matrix.
+   * @param a first index.
+   * @param b second index.
+   * @param incr amount to increment count by.
+   */
+  void increment(final int a, final int b, final double incr) {
+    final int hi = Math.max(a, b);
+    final int lo = Math.min(a, b);
+    final int t = tile(hi >>> TILE_BITS, lo >>> TILE_BITS);
+    double[] tile = mTiles[t];
+    if (tile == null) {
+      tile = new double[TILE * TILE];
+      mTiles[t] = tile;
+    }
+    tile[(lo & TILE_MASK) << TILE_BITS | (hi & TILE_MASK)] += incr;
+  }
+
+  /**
+   * Get count taking into account commutativity of matrix.
+   * @param a first index.
+   * @param b second index.
+   * @return the count.
+   */
+  double get(final int a, final int b) {
+    final int hi = Math.max(a, b);
+    final int lo = Math.min(a, b);
+    final double[] tile = mTiles[tile(hi >>> TILE_BITS, lo >>> TILE_BITS)];
+    return tile == null ? 0 : tile[(lo & TILE_MASK) << TILE_BITS | (hi & TILE_MASK)];
+  }
+
+  /**
+   * Add the counts in one row of tiles to a matrix. Only the rows of the matrix covered by the
+   * tile row are updated, so different tile rows may be added concurrently.
+   * @param matrix to be updated.
+   * @param tileRow the row of tiles.
+   */
+  void addTo(final SimilarityMatrix matrix, final int tileRow) {
+    final int rowStart = tileRow << TILE_BITS;
+    final int rowEnd = Math.min(rowStart + TILE, mLength);
+    for (int tileCol = 0; tileCol <= tileRow; ++tileCol) {
+      final double[] tile = mTiles[tile(tileRow, tileCol)];
+      if (tile == null) {
+        continue;
+      }
+      final int colStart = tileCol << TILE_BITS;
+      final int colEnd = Math.min(colStart + TILE, rowEnd);
+      for (int b = colStart; b < colEnd; ++b) {
+        final int offset = (b & TILE_MASK) << TILE_BITS;
+        for (int a = Math.max(b, rowStart); a < rowEnd; ++a) {
+          final double v = tile[offset | (a & TILE_MASK)];
+          if (v > 0) {
+            matrix.increment(a, b, v);
+          }
+        }
+      }
+    }
+  }
+}
@@ -471,6 +471,74 @@ public class HashingRegion implements Serializable, Comparable<HashingRegion> {
       return ranges.toArray(rangeArray);
     }
   }
+  /**
+   * Number of bases covered by this region, excluding padding.
+   * @param sequenceLengths lengths of the sequences, indexed by sequence id
+   * @return the number of bases in the region
+   */
+  public long length(final int[] sequenceLengths) {
+    if (mStartId == MISSING) {
+      return ArrayUtils.sum(sequenceLengths);
+    }
+    if (mStartClipPosition == MISSING || mEndClipPosition == MISSING) {
+      // whole sequences, end exclusive
+      return ArrayUtils.sum(Arrays.copyOfRange(sequenceLengths, (int) mStartId, (int) mEndId));
+    }
+    long total = 0;
+    for (long id = mStartId; id <= mEndId; ++id) {
+      total += clipEnd(id, sequenceLengths) - clipStart(id);
+    }
+    return total;
+  }
+
+  private long clipStart(final long sequenceId) {
+    return sequenceId == mStartId ? mStartClipPosition : 0;
+  }
+
+  private long clipEnd(final long sequenceId, final int[] sequenceLengths) {
+    final int length = sequenceLengths[(int) sequenceId];
+    return sequenceId == mEndId ? Math.min(mEndClipPosition, length) : length;
+  }
+
+  /**
+   * Splits this region into two regions of similar length. The halves meet at the midpoint
+   * of the region, padding is applied on either side of the new boundary and the outer
+   * padded positions are kept.
+   * @param sequenceLengths lengths of the sequences, indexed by sequence id
+   * @param minChunkSize neither half will be shorter than this
+   * @param padding amount of padding for padded regions
+   * @return the two halves in order, or null if the region cannot be split
+   */
+  public HashingRegion[] split(final int[] sequenceLengths, final long minChunkSize, final long padding) {
+    if (mStartId == MISSING || mStartClipPosition == MISSING || mEndClipPosition == MISSING) {
+      return null;
+    }
+    final long total = length(sequenceLengths);
+    if (total < 2 * Math.max(1, minChunkSize)) {
+      return null;
+    }
+    long remaining = total / 2;
+    for (long id = mStartId; id <= mEndId; ++id) {
+      final long start = clipStart(id);
+      final long end = clipEnd(id, sequenceLengths);
+      if (remaining <= end - start) {
+        final long mid = start + remaining;
+        final int length = sequenceLengths[(int) id];
+        final HashingRegion first = new HashingRegion(mStartId, mStartClipPosition, id, mid, mPaddedStartPosition, Math.min(mid + padding, length));
+        final HashingRegion second;
+        if (mid < length) {
+          second = new HashingRegion(id, mid, mEndId, mEndClipPosition, Math.max(0, mid - padding), mPaddedEndPosition);
+        } else {
+          // the first half ends exactly at the end of a sequence
+          second = new HashingRegion(id + 1, 0, mEndId, mEndClipPosition, 0, mPaddedEndPosition);
+        }
+        return new HashingRegion[] {first, second};
+      }
+      remaining -= end - start;
+    }
+    throw new IllegalStateException("Midpoint not found in region " + this);
+  }
+
   @Override
   public boolean equals(final Object obj) {
     if (this == obj) {
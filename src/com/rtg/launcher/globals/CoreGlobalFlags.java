@@ -26,8 +26,14 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
   public static final String SPECIES_LTERMINATION_FLAG = "com.rtg.species.ltermination";
   /** Test early termination for p-values */
   public static final String SPECIES_TERMINATION_TARGET_FLAG = "com.rtg.species.ltermination-target";
+  /** Blocks with at least this many species get variances from iterative solves of a sparse Hessian rather than an eigendecomposition, 0 for never */
+  public static final String SPECIES_ITERATIVE_VARIANCE_FLAG = "com.rtg.species.iterative-variance";
   /** Allow shut off of principle component analysis in similarity. */
   public static final String SIMILARITY_PCA_FLAG = "com.rtg.similarity.pca";
+  /** Number of threads used to accumulate the similarity matrix, each holding its own tiled partial matrix */
+  public static final String SIMILARITY_MATRIX_THREADS_FLAG = "com.rtg.similarity.matrix-threads";
+  /** Trees for at least this many sequences are built with the bounded search neighbor joining, 0 for never */
+  public static final String SIMILARITY_RAPID_NJ_THRESHOLD_FLAG = "com.rtg.similarity.rapid-nj-threshold";
   /** Specify how many reads to log */
   public static final String EDIT_DIST_LOGGING_AMOUNT_FLAG = "com.rtg.alignment.EditDistanceFactory.logging-amount";
   /** Enable the heuristic aligners (faster, but some lower quality alignments are produced) */
@@ -40,10 +46,20 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
   public static final String EDIT_DIST_INDEL_TABLE_FLAG = "com.rtg.alignment.SingleIndelEditDistance.penalties-file";
   /** True to log alignment score histogram */
   public static final String EDIT_DIST_LOG_AS_HISTOGRAM_FLAG = "com.rtg.alignment.UnidirectionalPrioritisedEditDistance.log-as-histo";
+  /** Reject alignments using a bound from the bit-parallel edit distance before trying the Gotoh aligner */
+  public static final String EDIT_DIST_BIT_PARALLEL_FILTER_FLAG = "com.rtg.alignment.EditDistanceFactory.bit-parallel-filter";
   /** Dump alignment stats upon closing a temp file writer */
   public static final String TEMP_FILES_DUMP_ALIGN_STATS_FLAG = "com.rtg.ngs.tempstage.AbstractTempFileWriter.dump-alignment-stats";
+  /** Gzip the intermediate alignment files written during mapping, when false they are read through a memory mapping */
+  public static final String TEMP_FILES_GZIP_FLAG = "com.rtg.ngs.tempstage.gzip-temp-files";
   /** keep temporary files from mapping run instead of deleting them */
   public static final String MAP_KEEP_TEMPORARY_FILES = "com.rtg.map.keep-temporary-files";
+  /** Stream unfiltered single and paired end alignments straight into SAM/BAM fragments as each template chunk is searched */
+  public static final String MAP_STREAM_UNFILTERED_OUTPUT = "com.rtg.map.stream-unfiltered-output";
+  /** Use compare and set rather than striped locks for the read blockers and top N store shared between mapping threads */
+  public static final String MAP_ATOMIC_READ_BLOCKING = "com.rtg.map.atomic-read-blocking";
+  /** Where per read tables are held during mapping, one of heap, direct or mapped */
+  public static final String MAP_READ_TABLE_STORAGE = "com.rtg.map.read-table-storage";
   /** Maximum number of hits at a given position in the sliding window collector */
   //see bug #1476 for consequences of this on larger datasets
   public static final String SLIDING_WINDOW_MAX_HITS_PER_POS_FLAG = "com.rtg.pairedend.SlidingWindow.max-hits-per-position";
@@ -55,6 +71,8 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
   public static final String ASSEMBLER_MAX_HITS_PER_START_POS_FLAG = "com.rtg.assembler.maxhits";
   /** Number of deviations to apply to insert distributions. */
   public static final String ASSEMBLER_INSERT_DEVIATIONS_FLAG = "com.rtg.assembler.insertdeviations";
+  /** Count k-mers for the De Bruijn graph in a concurrent hash table rather than a sorted index. */
+  public static final String ASSEMBLER_KMER_COUNT_TABLE_FLAG = "com.rtg.assembler.kmer-count-table";
   /** Mask homopolymer bases near ends of alignments before using in variant calling */
   public static final String VARIANT_MASK_HOMOPOLYMER = "com.rtg.variant.mask-homopolymer";
   /** The maximum number of hypotheses that can comfortably be handled by the complex caller */
@@ -65,6 +83,16 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
   public static final String COMPLEX_REGION_SIMPLE_REPEAT_LIMIT = "com.rtg.variant.region-simple-repeat-limit";
   /** Complex region extraction simple repeat implementation */
   public static final String COMPLEX_REGION_SIMPLE_REPEAT_IMPL = "com.rtg.variant.region-simple-repeat-impl";
+  /** Build variant caller alignment records straight from the binary form of BAM records */
+  public static final String VARIANT_DIRECT_BAM_DECODE = "com.rtg.variant.direct-bam-decode";
+  /** Toss alignments once the coverage at their start exceeds the coverage bypass threshold, bounding the alignments held in memory */
+  public static final String VARIANT_BOUNDED_READER_WINDOW = "com.rtg.variant.bounded-reader-window";
+  /** Hold the bases and qualities of variant caller alignment records packed into shared slabs */
+  public static final String VARIANT_PACKED_ALIGNMENT_RECORDS = "com.rtg.variant.packed-alignment-records";
+  /** Reset and reuse the per position SNP models that did not produce a call, rather than allocating new ones */
+  public static final String VARIANT_RECYCLE_MODELS = "com.rtg.variant.recycle-models";
+  /** Maximum number of short reference sequences processed at once by the multisample callers, sharing one set of threads */
+  public static final String MULTISAMPLE_SEQUENCES_IN_FLIGHT = "com.rtg.variant.multisample.sequences-in-flight";
   /** Dump the non SNP signals that are used for triggering complex calls */
   public static final String DUMP_COMPLEX_TRIGGER_SIGNALS = "com.rtg.variant.dump-complex-trigger-signals";
   /** Use soft clips to trigger complex calling */
@@ -81,12 +109,22 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
   public static final String COMPLEX_CALLER_UNROLL_CG_FLAG = "com.rtg.variant.bayes.EvidenceComplex.unroll-cg";
   /** If true, use the class loader hack to prevent JIT from de-optimizing all-paths due to call bi-morphism */
   public static final String COMPLEX_CALLER_HOTSPOT_HACK = "com.rtg.variant.bayes.complex.hotspot-hack";
+  /** If true, all-paths scoring in the complex caller only keeps the rows needed for the total, using arithmetic specific kernels */
+  public static final String COMPLEX_CALLER_TOTAL_ONLY_ALLPATHS = "com.rtg.variant.bayes.complex.total-only-allpaths";
+  /** Maximum number of distinct reads per complex region whose all-paths scores are remembered for identical reads, 0 to disable */
+  public static final String COMPLEX_CALLER_SCORE_CACHE_SIZE = "com.rtg.variant.bayes.complex.score-cache-size";
   /** Variant caller min depth for call-at-N triggering */
   public static final String CALLER_N_MIN_DEPTH = "com.rtg.variant.n-min-depth";
   /** If true, the population command will fall back to using forward backward when disagreeing calls are encountered (currently slow for large pops) */
   public static final String FAMILY_CALLER_FALLBACK_FLAG = "com.rtg.variant.bayes.multisample.FamilyCaller.fb-fallback";
   /** If true perform early exit of family caller when enough precision is reached */
   public static final String FAMILY_CALLER_SORTED_HYPOTHESES = "com.rtg.variant.bayes.multisample.FamilyPosterior.sorted-hypotheses";
+  /** If true the family caller uses precomputed Mendelian transmission tables */
+  public static final String FAMILY_CALLER_TRANSMISSION_TABLES = "com.rtg.variant.bayes.multisample.FamilyPosterior.transmission-tables";
+  /** If true the population caller runs EM over flat per-sample posterior arrays when there are no families */
+  public static final String POPULATION_COLUMNAR_EM = "com.rtg.variant.bayes.multisample.population.columnar-em";
+  /** Minimum number of samples at a site for the population EM to find best genotypes in parallel, 0 to disable */
+  public static final String POPULATION_EM_PARALLEL_SAMPLES = "com.rtg.variant.bayes.multisample.population.em-parallel-samples";
   /** Treat bases with phred below the minimum base quality as quality 2*/
   public static final String MIN_BASE_QUALITY_AS_TWO = "com.rtg.variant.VariantAlignmentRecord.min-bq-2";
   /** Minimum count required in a calibration covariate set before it will be used */
@@ -105,6 +143,8 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
   public static final String CP437_DELETES = "com.rtg.visualization.cp437-deletes";
   /** Number of DP when displaying coverage levels */
   public static final String COVERAGE_DP = "com.rtg.coverage.depth-of-coverage-dp";
+  /** Compute coverage for several chunks of a sequence at once, from records read in a single pass */
+  public static final String COVERAGE_PARALLEL_CHUNKS = "com.rtg.coverage.parallel-chunks";
 
   CoreGlobalFlags(List<Flag<?>> flags) {
     super(flags);
@@ -115,7 +155,10 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
     // Metagenomics
     registerFlag(SPECIES_LTERMINATION_FLAG, Double.class, 0.1);
     registerFlag(SPECIES_TERMINATION_TARGET_FLAG, Double.class, 0.01);
+    registerFlag(SPECIES_ITERATIVE_VARIANCE_FLAG, Integer.class, 0);
     registerFlag(SIMILARITY_PCA_FLAG, Boolean.class, true);
+    registerFlag(SIMILARITY_MATRIX_THREADS_FLAG, Integer.class, 1);
+    registerFlag(SIMILARITY_RAPID_NJ_THRESHOLD_FLAG, Integer.class, 1000);
 
 
     //Edit distance factory
@@ -125,10 +168,15 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
     registerFlag(EDIT_DIST_SINGLE_INDEL_SEEDED_ONLY_FLAG);
     registerFlag(EDIT_DIST_INDEL_TABLE_FLAG, String.class, "");
     registerFlag(EDIT_DIST_LOG_AS_HISTOGRAM_FLAG);
+    registerFlag(EDIT_DIST_BIT_PARALLEL_FILTER_FLAG, Boolean.class, true);
 
 
     registerFlag(TEMP_FILES_DUMP_ALIGN_STATS_FLAG);
+    registerFlag(TEMP_FILES_GZIP_FLAG, Boolean.class, true);
     registerFlag(MAP_KEEP_TEMPORARY_FILES);
+    registerFlag(MAP_STREAM_UNFILTERED_OUTPUT);
+    registerFlag(MAP_ATOMIC_READ_BLOCKING);
+    registerFlag(MAP_READ_TABLE_STORAGE, String.class, "heap");
     registerFlag(SLIDING_WINDOW_MAX_HITS_PER_POS_FLAG, Integer.class, 0);
     registerFlag(SLIDING_WINDOW_MAX_HITS_PER_READ_FLAG, Integer.class, 0);
 
@@ -140,9 +188,15 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
 
     registerFlag(ASSEMBLER_MAX_HITS_PER_START_POS_FLAG, Integer.class, 5);
     registerFlag(ASSEMBLER_INSERT_DEVIATIONS_FLAG, Integer.class, 4);
+    registerFlag(ASSEMBLER_KMER_COUNT_TABLE_FLAG, Boolean.class, false);
 
     // variant calling
     registerFlag(VARIANT_MASK_HOMOPOLYMER, Boolean.class, false);
+    registerFlag(MULTISAMPLE_SEQUENCES_IN_FLIGHT, Integer.class, 1);
+    registerFlag(VARIANT_DIRECT_BAM_DECODE, Boolean.class, true);
+    registerFlag(VARIANT_BOUNDED_READER_WINDOW, Boolean.class, false);
+    registerFlag(VARIANT_PACKED_ALIGNMENT_RECORDS, Boolean.class, false);
+    registerFlag(VARIANT_RECYCLE_MODELS, Boolean.class, false);
 
     // Complex caller
     registerFlag(COMPLEX_CALLER_MAX_HYPOTH_FLAG, Integer.class, 20);
@@ -157,11 +211,16 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
     registerFlag(COMPLEX_HYPOTHESIS_ADJUST_PRIORS, Boolean.class, true);
     registerFlag(COMPLEX_CALLER_UNROLL_CG_FLAG, Boolean.class, true);
     registerFlag(COMPLEX_CALLER_HOTSPOT_HACK, Boolean.class, true);
+    registerFlag(COMPLEX_CALLER_TOTAL_ONLY_ALLPATHS, Boolean.class, true);
+    registerFlag(COMPLEX_CALLER_SCORE_CACHE_SIZE, Integer.class, 20000);
 
     // Misc calling
     registerFlag(CALLER_N_MIN_DEPTH, Integer.class, 5);
     registerFlag(FAMILY_CALLER_FALLBACK_FLAG, Boolean.class, false);
     registerFlag(FAMILY_CALLER_SORTED_HYPOTHESES, Boolean.class, true);
+    registerFlag(FAMILY_CALLER_TRANSMISSION_TABLES, Boolean.class, true);
+    registerFlag(POPULATION_COLUMNAR_EM, Boolean.class, true);
+    registerFlag(POPULATION_EM_PARALLEL_SAMPLES, Integer.class, 0);
     registerFlag(MIN_BASE_QUALITY_AS_TWO, Boolean.class, false);
     registerFlag(QUALITY_CALIBRATION_MIN_EVIDENCE, Integer.class, 10);
     registerFlag(QUALITY_CALIBRATION_COVARIATE_INTERSECTION, Boolean.class, false);
@@ -169,6 +228,7 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
 
 
     registerFlag(COVERAGE_DP, Integer.class, 2);
+    registerFlag(COVERAGE_PARALLEL_CHUNKS, Boolean.class, false);
 
     registerFlag(AVR_ALLOW_UNDECLARED_ATTRIBUTES, Boolean.class, false);
 
@@ -345,6 +345,67 @@ public class Frag extends IntegralAbstract {
     return Utils.pairHash(Arrays.hashCode(mGenomes), Arrays.hashCode(mCounts));
   }
 
+  /**
+   * Hash code of the fragment that would be constructed from the first <code>n</code> genomes and counts,
+   * consistent with <code>hashCode</code>.
+   * @param genomes sorted genomes
+   * @param counts counts corresponding to the genomes
+   * @param n number of genomes used
+   * @return the hash code
+   */
+  static int hash(final int[] genomes, final int[] counts, final int n) {
+    int g = 1;
+    int c = 1;
+    for (int i = 0; i < n; ++i) {
+      g = 31 * g + genomes[i];
+      c = 31 * c + counts[i];
+    }
+    return Utils.pairHash(g, c);
+  }
+
+  /**
+   * Test if this fragment has the first <code>n</code> genomes and counts, without constructing a fragment.
+   * @param genomes sorted genomes
+   * @param counts counts corresponding to the genomes
+   * @param n number of genomes used
+   * @return true if the fragment would be equal to this
+   */
+  boolean sameAs(final int[] genomes, final int[] counts, final int n) {
+    if (n != mN) {
+      return false;
+    }
+    for (int i = 0; i < n; ++i) {
+      if (genomes[i] != mGenomes[i] || counts[i] != mCounts[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Order fragments by their genomes and then their counts, ignoring multiplicity.
+   * @param a first fragment
+   * @param b second fragment
+   * @return negative, zero or positive as <code>a</code> is before, the same as, or after <code>b</code>
+   */
+  static int compareContents(final Frag a, final Frag b) {
+    final int n = Math.min(a.mN, b.mN);
+    for (int i = 0; i < n; ++i) {
+      if (a.mGenomes[i] != b.mGenomes[i]) {
+        return Integer.compare(a.mGenomes[i], b.mGenomes[i]);
+      }
+    }
+    if (a.mN != b.mN) {
+      return Integer.compare(a.mN, b.mN);
+    }
+    for (int i = 0; i < n; ++i) {
+      if (a.mCounts[i] != b.mCounts[i]) {
+        return Integer.compare(a.mCounts[i], b.mCounts[i]);
+      }
+    }
+    return 0;
+  }
+
   int multiplicity() {
     return mMultiplicity;
   }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics;
+
+import java.util.Arrays;
+
+import com.reeltwo.jumble.annotations.TestClass;
+
+/**
+ * Hash consing table of fragments. Identical fragments are held once, with their
+ * multiplicity counting the number of times they were added, so memory scales with
+ * the number of distinct fragments rather than the number of reads.
+ */
+@TestClass("com.rtg.metagenomics.FragTableTest")
+final class FragTable {
+
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  private Frag[] mFrags;
+  private int[] mHashes;
+  private int mSize;
+
+  FragTable() {
+    mFrags = new Frag[INITIAL_CAPACITY];
+    mHashes = new int[INITIAL_CAPACITY];
+  }
+
+  private static int slot(final int hash, final int mask) {
+    return (hash * 0x9E3779B9) >>> 7 & mask;
+  }
+
+  /**
+   * Add a fragment given as sorted genomes and their counts.
+   * @param genomes sorted distinct genomes, only the first <code>n</code> are used
+   * @param counts number of hits to each genome
+   * @param n number of distinct genomes
+   * @param totalCount total number of hits
+   * @param multiplicity number of copies of the fragment being added
+   */
+  void add(final int[] genomes, final int[] counts, final int n, final int totalCount, final int multiplicity) {
+    final int hash = Frag.hash(genomes, counts, n);
+    final int mask = mFrags.length - 1;
+    int i = slot(hash, mask);
+    while (mFrags[i] != null) {
+      final Frag f = mFrags[i];
+      if (mHashes[i] == hash && f.sameAs(genomes, counts, n)) {
+        f.setMultiplicity(f.multiplicity() + multiplicity);
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    insert(i, hash, new Frag(Arrays.copyOf(genomes, n), Arrays.copyOf(counts, n), totalCount, n, multiplicity));
+  }
+
+  /**
+   * Add a fragment, retaining the instance if no equal fragment is present.
+   * @param frag fragment to add
+   */
+  void add(final Frag frag) {
+    final int hash = frag.hashCode();
+    final int mask = mFrags.length - 1;
+    int i = slot(hash, mask);
+    while (mFrags[i] != null) {
+      final Frag f = mFrags[i];
+      if (mHashes[i] == hash && f.equals(frag)) {
+        f.setMultiplicity(f.multiplicity() + frag.multiplicity());
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    insert(i, hash, frag);
+  }
+
+  /**
+   * Add all the fragments of another table.
+   * @param other table whose fragments are added, and which should not be used afterwards
+   */
+  void addAll(final FragTable other) {
+    for (final Frag f : other.mFrags) {
+      if (f != null) {
+        add(f);
+      }
+    }
+  }
+
+  private void insert(final int i, final int hash, final Frag frag) {
+    mFrags[i] = frag;
+    mHashes[i] = hash;
+    if (++mSize > mFrags.length / 4 * 3) {
+      resize();
+    }
+  }
+
+  private void resize() {
+    final Frag[] frags = mFrags;
+    final int[] hashes = mHashes;
+    mFrags = new Frag[frags.length * 2];
+    mHashes = new int[frags.length * 2];
+    final int mask = mFrags.length - 1;
+    for (int j = 0; j < frags.length; ++j) {
+      if (frags[j] != null) {
+        int i = slot(hashes[j], mask);
+        while (mFrags[i] != null) {
+          i = (i + 1) & mask;
+        }
+        mFrags[i] = frags[j];
+        mHashes[i] = hashes[j];
+      }
+    }
+  }
+
+  /** @return the number of distinct fragments */
+  int size() {
+    return mSize;
+  }
+
+  /**
+   * @return the distinct fragments, in an order depending only on their contents
+   */
+  Frag[] toArray() {
+    final Frag[] res = new Frag[mSize];
+    int k = 0;
+    for (final Frag f : mFrags) {
+      if (f != null) {
+        res[k++] = f;
+      }
+    }
+    Arrays.sort(res, Frag::compareContents);
+    return res;
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.util.SimpleThreadPool;
+import com.rtg.util.diagnostic.NoTalkbackSlimException;
+
+/**
+ * Accumulates the species hit by each read, without boxing. Read identifiers are held in an
+ * open addressing table whose slots refer to a linked list of hits, itself held in parallel
+ * primitive arrays, so each read costs a few words and each hit two integers.
+ */
+@TestClass("com.rtg.metagenomics.HitStoreTest")
+final class HitStore {
+
+  private static final int MAX_CAPACITY_BITS = 30;
+  private static final int MAX_HITS = Integer.MAX_VALUE - 8;
+  private static final int EMPTY = -1;
+
+  private int mBits;
+  private long[] mReadIds;
+  private int[] mHeads; // first hit of the read in each slot, or EMPTY
+  private int mReads;
+
+  private int[] mSpecies;
+  private int[] mNext; // next hit of the same read, or EMPTY
+  private int mHits;
+
+  HitStore() {
+    this(10);
+  }
+
+  /**
+   * @param bits log base 2 of the initial number of slots for reads
+   */
+  HitStore(final int bits) {
+    mBits = bits;
+    mReadIds = new long[1 << bits];
+    mHeads = new int[1 << bits];
+    Arrays.fill(mHeads, EMPTY);
+    mSpecies = new int[1 << bits];
+    mNext = new int[1 << bits];
+  }
+
+  private int slot(final long readId) {
+    return (int) ((readId * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - mBits));
+  }
+
+  private int find(final long readId) {
+    final int mask = mHeads.length - 1;
+    int i = slot(readId);
+    while (mHeads[i] != EMPTY && mReadIds[i] != readId) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  /**
+   * Record a hit of a read to a species.
+   * @param readId read identifier
+   * @param species species identifier
+   */
+  void add(final long readId, final int species) {
+    int i = find(readId);
+    if (mHeads[i] == EMPTY) {
+      if (mReads + 1 > mHeads.length / 4 * 3) {
+        resize();
+        i = find(readId);
+      }
+      mReadIds[i] = readId;
+      ++mReads;
+    }
+    if (mHits == mSpecies.length) {
+      if (mHits == MAX_HITS) {
+        throw new NoTalkbackSlimException("Too many alignments to accumulate: " + mHits);
+      }
+      final int length = (int) Math.min(MAX_HITS, mHits + (long) mHits / 2);
+      mSpecies = Arrays.copyOf(mSpecies, length);
+      mNext = Arrays.copyOf(mNext, length);
+    }
+    mSpecies[mHits] = species;
+    mNext[mHits] = mHeads[i];
+    mHeads[i] = mHits;
+    ++mHits;
+  }
+
+  private void resize() {
+    if (mBits == MAX_CAPACITY_BITS) {
+      throw new NoTalkbackSlimException("Too many reads to accumulate: " + mReads);
+    }
+    final long[] readIds = mReadIds;
+    final int[] heads = mHeads;
+    ++mBits;
+    mReadIds = new long[1 << mBits];
+    mHeads = new int[1 << mBits];
+    Arrays.fill(mHeads, EMPTY);
+    for (int j = 0; j < heads.length; ++j) {
+      if (heads[j] != EMPTY) {
+        final int i = find(readIds[j]);
+        mReadIds[i] = readIds[j];
+        mHeads[i] = heads[j];
+      }
+    }
+  }
+
+  /** @return the number of distinct reads */
+  int reads() {
+    return mReads;
+  }
+
+  /** @return the total number of hits */
+  int hits() {
+    return mHits;
+  }
+
+  /**
+   * Collapse the hits of the reads in a range of slots into fragments.
+   * @param start first slot
+   * @param end slot after the last
+   * @return table of the distinct fragments
+   */
+  FragTable collapse(final int start, final int end) {
+    final FragTable table = new FragTable();
+    int[] species = new int[16];
+    int[] genomes = new int[16];
+    int[] counts = new int[16];
+    for (int s = start; s < end; ++s) {
+      if (mHeads[s] == EMPTY) {
+        continue;
+      }
+      int n = 0;
+      for (int h = mHeads[s]; h != EMPTY; h = mNext[h]) {
+        if (n == species.length) {
+          species = Arrays.copyOf(species, n * 2);
+          genomes = new int[n * 2];
+          counts = new int[n * 2];
+        }
+        species[n++] = mSpecies[h];
+      }
+      Arrays.sort(species, 0, n);
+      int runs = 0;
+      for (int k = 0; k < n; ++k) {
+        if (runs == 0 || genomes[runs - 1] != species[k]) {
+          genomes[runs] = species[k];
+          counts[runs] = 1;
+          ++runs;
+        } else {
+          ++counts[runs - 1];
+        }
+      }
+      table.add(genomes, counts, runs, n, 1);
+    }
+    return table;
+  }
+
+  /**
+   * Collapse the hits of all reads into fragments, using multiple threads.
+   * @param threads number of threads to use
+   * @return table of the distinct fragments
+   * @throws IOException if a thread fails
+   */
+  FragTable collapse(final int threads) throws IOException {
+    final int slots = mHeads.length;
+    final int chunks = Math.max(1, Math.min(threads, slots >> 10));
+    final FragTable[] parts = new FragTable[chunks];
+    final SimpleThreadPool stp = new SimpleThreadPool(threads, "CollapseHits", true);
+    for (int c = 0; c < chunks; ++c) {
+      final int part = c;
+      final int start = (int) ((long) slots * c / chunks);
+      final int end = (int) ((long) slots * (c + 1) / chunks);
+      stp.execute(() -> parts[part] = collapse(start, end));
+    }
+    stp.terminate();
+    for (int c = 1; c < chunks; ++c) {
+      parts[0].addAll(parts[c]);
+      parts[c] = null;
+    }
+    return parts[0];
+  }
+}
@@ -15,6 +15,7 @@ package com.rtg.metagenomics;
 import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.launcher.globals.CoreGlobalFlags;
 import com.rtg.metagenomics.matrix.Matrix;
+import com.rtg.metagenomics.matrix.MatrixSparseSymmetric;
 import com.rtg.metagenomics.matrix.MatrixSymmetric;
 import com.rtg.metagenomics.matrix.MatrixUtils;
 import com.rtg.metagenomics.matrix.Vector;
@@ -35,6 +36,10 @@ public class Species extends IntegralAbstract {
 
   private static final double L_TERMINATION = (Double) GlobalFlags.getFlag(CoreGlobalFlags.SPECIES_LTERMINATION_FLAG).getValue();
   private static final Double L_TERMINATION_TARGET = (Double) GlobalFlags.getFlag(CoreGlobalFlags.SPECIES_TERMINATION_TARGET_FLAG).getValue();
+  private static final int ITERATIVE_VARIANCE = GlobalFlags.getIntegerValue(CoreGlobalFlags.SPECIES_ITERATIVE_VARIANCE_FLAG);
+
+  /** Relative residual at which the conjugate gradient solves for the variance stop */
+  private static final double CG_TOLERANCE = 1e-12;
 
   private static final int[] EMPTY = new int[0];
 
@@ -95,6 +100,16 @@ public class Species extends IntegralAbstract {
       initialR.set(i, rv);
     }
     solve(initialR, EMPTY, minIter, mSimpleTerminator);
+    final int totalGenomes =  mBlockInfo.getGlobalSpeciesMap() == null ? mBlockInfo.getSpeciesMap().size() : mBlockInfo.getGlobalSpeciesMap().size();
+    if (ITERATIVE_VARIANCE > 0 && numSpecies >= ITERATIVE_VARIANCE) {
+      final MatrixSparseSymmetric hessian = new MatrixSparseSymmetric(numSpecies);
+      hessian(mLastR, hessian);
+      final long startTime = System.currentTimeMillis();
+      final Vector variance = variance(mMembersOf, mBlockInfo, mLastR, hessian);
+      final long endTime = System.currentTimeMillis();
+      Diagnostic.developerLog("B:" + mBlockInfo.id() + " Iterative variance took: " + ((endTime - startTime) / 1000) + "s" + " Hessian dimensions: " + hessian.size() + " non-zero: " + hessian.nonZeroCount());
+      return new SubBlockResult(mLastR, variance, new Vector(totalGenomes), mLastL);
+    }
     final Matrix hessian = hessian(mLastR);
     //System.err.println("Hessian:");
     //Extract eigenvectors and eigenvalues.
@@ -102,7 +117,6 @@ public class Species extends IntegralAbstract {
     final EigenvalueDecomposition ed = hessian.toJama().eig();
     final long endTime = System.currentTimeMillis();
     Diagnostic.developerLog("B:" + mBlockInfo.id() + " EigenValue Decomp took: " + ((endTime - startTime) / 1000) + "s" + " Hessian dimensions: " + hessian.size());
-    final int totalGenomes =  mBlockInfo.getGlobalSpeciesMap() == null ? mBlockInfo.getSpeciesMap().size() : mBlockInfo.getGlobalSpeciesMap().size();
     return new SubBlockResult(mLastR, variance(mMembersOf, mBlockInfo, mLastR, ed), new Vector(totalGenomes), mLastL);
 
   }
@@ -315,6 +329,109 @@ public class Species extends IntegralAbstract {
     return v;
   }
 
+  /**
+   * Compute the same variances as the eigendecomposition, <code>w' H^-1 w</code> where <code>w</code> is
+   * <code>r</code> restricted to the members of each taxon, by a conjugate gradient solve per taxon
+   * against a sparse Hessian. This avoids the cubic cost and quadratic memory of the eigendecomposition.
+   * Unlike the eigendecomposition, a Hessian that is not positive definite only gives infinite variance
+   * for the taxa whose solve reaches the offending entries, that is the taxa sharing fragments with them.
+   * @param membersOf local ids of the species in the block that are members of each taxon
+   * @param info block information
+   * @param r frequency estimates
+   * @param hessian Hessian at <code>r</code>
+   * @return the variance for each taxon
+   */
+  static Vector variance(int[][] membersOf, BlockInfo info, Vector r, MatrixSparseSymmetric hessian) {
+    final boolean isGlobal = info.getGlobalSpeciesMap() == null;
+    final int blockSize = hessian.size();
+    final int totalGenomes =  isGlobal ? blockSize : info.getGlobalSpeciesMap().size();
+    final Vector diagonal = new Vector(blockSize);
+    for (int i = 0; i < blockSize; ++i) {
+      diagonal.set(i, hessian.get(i, i));
+    }
+    final Vector v = new Vector(totalGenomes);
+    for (int j = 0; j < totalGenomes; ++j) {
+      if (membersOf[j].length == 0) {
+        continue;
+      }
+      final Vector w = new Vector(blockSize);
+      for (final int j2 : membersOf[j]) {
+        w.set(j2, r.get(j2));
+      }
+      v.set(j, inverseQuadratic(hessian, diagonal, w));
+    }
+    return v;
+  }
+
+  /**
+   * Solve <code>H x = w</code> by conjugate gradients, preconditioned by the diagonal of <code>H</code>.
+   * @return <code>w' x</code>, or infinity if <code>H</code> is found not to be positive definite
+   */
+  private static double inverseQuadratic(final MatrixSparseSymmetric hessian, final Vector diagonal, final Vector w) {
+    final int n = w.size();
+    final double ww = MatrixUtils.multiply(w, w);
+    if (ww == 0.0) {
+      return 0.0;
+    }
+    final Vector x = new Vector(n);
+    final Vector residual = new Vector(w);
+    final Vector z = new Vector(n);
+    if (!precondition(diagonal, residual, z)) {
+      return Double.POSITIVE_INFINITY;
+    }
+    final Vector p = new Vector(z);
+    double rz = MatrixUtils.multiply(residual, z);
+    final double tolerance = CG_TOLERANCE * CG_TOLERANCE * ww;
+    final int maxIterations = 10 * n + 100;
+    int iteration = 0;
+    while (MatrixUtils.multiply(residual, residual) > tolerance) {
+      if (++iteration > maxIterations) {
+        Diagnostic.developerLog("Variance solve did not converge in " + maxIterations + " iterations");
+        break;
+      }
+      final Vector hp = hessian.multiply(p);
+      final double php = MatrixUtils.multiply(p, hp);
+      if (!(php > 0.0)) {
+        return Double.POSITIVE_INFINITY;
+      }
+      final double alpha = rz / php;
+      for (int i = 0; i < n; ++i) {
+        x.incr(i, alpha * p.get(i));
+        residual.incr(i, -alpha * hp.get(i));
+      }
+      if (!precondition(diagonal, residual, z)) {
+        return Double.POSITIVE_INFINITY;
+      }
+      final double rzNext = MatrixUtils.multiply(residual, z);
+      final double beta = rzNext / rz;
+      rz = rzNext;
+      for (int i = 0; i < n; ++i) {
+        p.set(i, z.get(i) + beta * p.get(i));
+      }
+    }
+    return MatrixUtils.multiply(w, x);
+  }
+
+  /**
+   * Apply the diagonal preconditioner, <code>z = D^-1 residual</code>. Entries the solve has not reached
+   * have an exactly zero residual (the product with the sparse Hessian never spreads outside the
+   * connected species), so only the diagonal entries actually reached are required to be positive.
+   * @return false if a reached diagonal entry is not positive
+   */
+  private static boolean precondition(final Vector diagonal, final Vector residual, final Vector z) {
+    for (int i = 0; i < residual.size(); ++i) {
+      final double ri = residual.get(i);
+      if (ri == 0.0) {
+        z.set(i, 0.0);
+      } else if (diagonal.get(i) > 0.0) {
+        z.set(i, ri / diagonal.get(i));
+      } else {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /* Make a default membership matrix corresponding to a flat taxonomy */
   static int[][] makeFlatMembership(final int totalGenomes) {
     final int[][] membersOf = new int[totalGenomes][];
@@ -428,7 +545,10 @@ public class Species extends IntegralAbstract {
    * @return the Jacobian in frequency space.
    */
   Matrix hessian(final Vector r) {
-    final Matrix hessian = new MatrixSymmetric(mBlockInfo.getN());
+    return hessian(r, new MatrixSymmetric(mBlockInfo.getN()));
+  }
+
+  Matrix hessian(final Vector r, final Matrix hessian) {
     final Vector jacobian = new Vector(mBlockInfo.getN());
     for (int i = 0; i < mBlockInfo.getN(); ++i) {
       final long length = mBlockInfo.getGenomeLength(i);
@@ -108,7 +108,7 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
   private static final String NUM_FORMAT_CONFIDENCE = "%1.2g";
 
   protected final Map<String, Integer> mSequenceMap = new HashMap<>();
-  private final Map<Long, ArrayList<Integer>> mHits = new HashMap<>();
+  private final HitStore mHits = new HitStore();
   private final Set<Integer> mSpeciesWithHits = new HashSet<>();
 
   //TODO get rid of these protected declarations - this is not a civilized way to test things
@@ -118,10 +118,6 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
   protected SpeciesMap mSpeciesMap = null;
   protected Taxonomy mTaxonomy;
 
-  static class MyInteger {
-    int mValue = 1;
-  }
-
   SpeciesTask(final SpeciesParams params, final OutputStream out, final UsageMetric usageMetric) {
     super(params, out, new SpeciesStatistics(params.directory()), usageMetric);
   }
@@ -300,20 +296,10 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
     }
   }
 
-  private Frag[] preprocessHits() {
+  private Frag[] preprocessHits() throws IOException {
     Diagnostic.progress("Pre-processing Started");
-    final Frag[] frags;
     // Collapse identical frags
-    final HashMap<Frag, SpeciesTask.MyInteger> uniq = new HashMap<>();
-    for (final ArrayList<Integer> g : mHits.values()) {
-      Collections.sort(g); // needed for frag construction?
-      final Frag f = new Frag(g);
-      if (uniq.containsKey(f)) {
-        uniq.get(f).mValue++;
-      } else {
-        uniq.put(f, new SpeciesTask.MyInteger());
-      }
-    }
+    final FragTable uniq = mHits.collapse(mParams.execThreads());
     // Zero-frequency adjustment. Add one fragment per species. Doing this helps with
     // convergence and confidence evaluation later on.
     for (final Integer taxonId : new HashSet<>(mSequenceMap.values())) {
@@ -322,21 +308,10 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
         continue;
       }
       //System.err.println("taxonId=" + taxonId + " species=" + species);
-      final Frag f = new Frag(Collections.singletonList(species));
-      if (uniq.containsKey(f)) {
-        uniq.get(f).mValue++;
-      } else {
-        uniq.put(f, new SpeciesTask.MyInteger());
-      }
-    }
-    frags = new Frag[uniq.size()];
-    int k = 0;
-    for (final Map.Entry<Frag, SpeciesTask.MyInteger> e : uniq.entrySet()) {
-      final Frag f = e.getKey();
-      f.setMultiplicity(e.getValue().mValue);
-      frags[k++] = f;
+      uniq.add(new int[] {species}, new int[] {1}, 1, 1, 1);
     }
-    Diagnostic.developerLog("Frag collapsed count = " + frags.length + ", original count = " + mHits.size());
+    final Frag[] frags = uniq.toArray();
+    Diagnostic.developerLog("Frag collapsed count = " + frags.length + ", original count = " + mHits.reads());
     Diagnostic.progress("Pre-processing Finished");
     return frags;
   }
@@ -392,8 +367,7 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
               Diagnostic.developerLog("Starting: " + sequenceName);
             }
             final Integer speciesId = mSpeciesMap.id(taxonId);
-            final ArrayList<Integer> hitList = mHits.computeIfAbsent(readId, k -> new ArrayList<>());
-            hitList.add(speciesId);
+            mHits.add(readId, speciesId);
             mSpeciesWithHits.add(speciesId);
             final int len = rec.getReadLength();
             cov += len * mappedIncr;
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics.matrix;
+
+/**
+ * Symmetric matrix holding only its non-zero entries, for Hessians of large blocks
+ * where most pairs of species never share a fragment.
+ */
+public class MatrixSparseSymmetric extends Matrix {
+
+  private static final int INITIAL_ROW = 4;
+
+  private final int mSize;
+
+  // Each row is an open addressing table of (column + 1) for columns no greater than the row, 0 marking unused slots
+  private final int[][] mColumns;
+  private final double[][] mValues;
+  private final int[] mCounts;
+
+  /**
+   * @param dimension n of an n x n matrix.
+   */
+  public MatrixSparseSymmetric(final int dimension) {
+    mSize = dimension;
+    mColumns = new int[dimension][];
+    mValues = new double[dimension][];
+    mCounts = new int[dimension];
+    for (int i = 0; i < dimension; ++i) {
+      mColumns[i] = new int[INITIAL_ROW];
+      mValues[i] = new double[INITIAL_ROW];
+    }
+  }
+
+  private static int find(final int[] columns, final int j) {
+    final int mask = columns.length - 1;
+    int k = (j * 0x9E3779B9) >>> 11 & mask;
+    while (columns[k] != 0 && columns[k] != j + 1) {
+      k = (k + 1) & mask;
+    }
+    return k;
+  }
+
+  @Override
+  public double get(final int i, final int j) {
+    final int r = Math.max(i, j);
+    final int c = Math.min(i, j);
+    final int k = find(mColumns[r], c);
+    return mColumns[r][k] == 0 ? 0.0 : mValues[r][k];
+  }
+
+  private int slot(final int r, final int c) {
+    int k = find(mColumns[r], c);
+    if (mColumns[r][k] == 0) {
+      if (mCounts[r] + 1 > mColumns[r].length / 4 * 3) {
+        grow(r);
+        k = find(mColumns[r], c);
+      }
+      mColumns[r][k] = c + 1;
+      ++mCounts[r];
+    }
+    return k;
+  }
+
+  private void grow(final int r) {
+    final int[] columns = mColumns[r];
+    final double[] values = mValues[r];
+    mColumns[r] = new int[columns.length * 2];
+    mValues[r] = new double[columns.length * 2];
+    for (int k = 0; k < columns.length; ++k) {
+      if (columns[k] != 0) {
+        final int n = find(mColumns[r], columns[k] - 1);
+        mColumns[r][n] = columns[k];
+        mValues[r][n] = values[k];
+      }
+    }
+  }
+
+  @Override
+  public void set(final int i, final int j, final double v) {
+    final int r = Math.max(i, j);
+    final int k = slot(r, Math.min(i, j));
+    mValues[r][k] = v;
+  }
+
+  @Override
+  public void incr(final int i, final int j, final double v) {
+    final int r = Math.max(i, j);
+    final int k = slot(r, Math.min(i, j));
+    mValues[r][k] += v;
+  }
+
+  @Override
+  public int size() {
+    return mSize;
+  }
+
+  @Override
+  public boolean isSymmetric() {
+    return true;
+  }
+
+  /**
+   * @return the number of entries held, counting each off diagonal pair once
+   */
+  public long nonZeroCount() {
+    long count = 0;
+    for (final int c : mCounts) {
+      count += c;
+    }
+    return count;
+  }
+
+  /**
+   * Multiply this matrix by a vector, visiting only the entries held.
+   * @param v vector to multiply.
+   * @return the product.
+   */
+  public Vector multiply(final Vector v) {
+    assert v.size() == mSize;
+    final Vector res = new Vector(mSize);
+    for (int i = 0; i < mSize; ++i) {
+      final int[] columns = mColumns[i];
+      final double[] values = mValues[i];
+      final double vi = v.get(i);
+      double sum = 0.0;
+      for (int k = 0; k < columns.length; ++k) {
+        if (columns[k] != 0) {
+          final int j = columns[k] - 1;
+          sum += values[k] * v.get(j);
+          if (j != i) {
+            res.incr(j, values[k] * vi);
+          }
+        }
+      }
+      res.incr(i, sum);
+    }
+    return res;
+  }
+
+  @Override
+  public Jama.Matrix toJama() {
+    final Jama.Matrix m = new Jama.Matrix(size(), size());
+    for (int i = 0; i < size(); ++i) {
+      for (int j = 0; j < size(); ++j) {
+        m.set(i, j, get(i, j));
+      }
+    }
+    return m;
+  }
+}
@@ -32,7 +32,7 @@ import com.rtg.launcher.ISequenceParams;
 import com.rtg.launcher.globals.CoreGlobalFlags;
 import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.ngs.blocking.MapQScoringReadBlocker;
-import com.rtg.ngs.blocking.MapQScoringReadBlockerSynch;
+import com.rtg.ngs.blocking.MapQScoringReadBlockerAtomic;
 import com.rtg.ngs.tempstage.AbstractTempFileWriter;
 import com.rtg.ngs.tempstage.PairedTempFileWriterImpl;
 import com.rtg.ngs.tempstage.SingleEndTempFileWriter;
@@ -380,11 +380,11 @@ public abstract class AbstractMapOutputProcessor implements OutputProcessor {
     Diagnostic.progress("UnmatedInit: 1/1 Jobs Finished");
 
     final SimpleThreadPool stp = new SimpleThreadPool(mParams.numberThreads(), paired ? "UnmatedProcessing" : "Alignment", true);
-    final MapQScoringReadBlocker blockerFirst = new MapQScoringReadBlockerSynch((int) mParams.buildFirstParams().reader().numberSequences(), mParams.outputParams().maxTopResults());
+    final MapQScoringReadBlocker blockerFirst = MapQScoringReadBlockerAtomic.concurrent((int) mParams.buildFirstParams().reader().numberSequences(), mParams.outputParams().maxTopResults());
 
     final MapQScoringReadBlocker blockerSecond;
     if (paired) {
-      blockerSecond = new MapQScoringReadBlockerSynch((int) mParams.buildFirstParams().reader().numberSequences(), mParams.outputParams().maxTopResults());
+      blockerSecond = MapQScoringReadBlockerAtomic.concurrent((int) mParams.buildFirstParams().reader().numberSequences(), mParams.outputParams().maxTopResults());
     } else {
       blockerSecond = null;
     }
@@ -394,8 +394,8 @@ public abstract class AbstractMapOutputProcessor implements OutputProcessor {
     stp.enableBasicProgress(tempFiles.length);
     final ChunkPair[] chunks = findChunkBoundaries(regions, results);
     for (int i = 0; i < tempFiles.length; ++i) {
-      tempFiles[i] = mParams.outputParams().resultStreamHandler().tempFile(namePrefix + i + FileUtils.GZ_SUFFIX);
-      final OutputStream stream = FileUtils.createOutputStream(tempFiles[i], true, false);
+      tempFiles[i] = mParams.outputParams().resultStreamHandler().tempFile(namePrefix + i + AbstractTempFileWriter.tempFileSuffix());
+      final OutputStream stream = AbstractTempFileWriter.createTempOutputStream(tempFiles[i]);
 
       if (paired) {
         final PairedTempFileWriterImpl sw = new PairedTempFileWriterImpl(mParams,  mUnmappedTracker, mSharedResources);
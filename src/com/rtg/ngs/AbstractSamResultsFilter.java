@@ -20,9 +20,12 @@ import com.rtg.calibrate.Calibrator;
 import com.rtg.calibrate.CovariateEnum;
 import com.rtg.mode.DnaUtils;
 import com.rtg.ngs.blocking.MapQScoringReadBlocker;
+import com.rtg.ngs.tempstage.AbstractTempFileWriter;
 import com.rtg.ngs.tempstage.BinaryTempFileRecord;
 import com.rtg.ngs.tempstage.TempRecordReader;
+import com.rtg.ngs.tempstage.TempRecordReaderMapped;
 import com.rtg.ngs.tempstage.TempRecordReaderNio;
+import com.rtg.ngs.tempstage.TempRecordWriter;
 import com.rtg.reader.CgUtils;
 import com.rtg.reader.FastaUtils;
 import com.rtg.reader.NamesInterface;
@@ -143,24 +146,7 @@ public abstract class AbstractSamResultsFilter {
    * @throws IOException if any IO errors occur
    */
   public void filterConcat(SAMFileHeader header, OutputStream destination, OutputStream calibrationDest, ReferenceRegions referenceRegions, SequencesReader template, boolean deleteTempFiles, File... inputFiles) throws IOException {
-    try (SAMFileWriter samWriter = getSAMFileWriter(header, destination)) {
-      if (mStatsCalculator != null) {
-        mStatsCalculator.setupReadGroups(header);
-      }
-
-      final CalibratingSamRecordPopulator cp;
-      if (template != null && calibrationDest != null) {
-        final Calibrator cal = new Calibrator(CovariateEnum.getCovariates(CovariateEnum.DEFAULT_COVARIATES, header), referenceRegions);
-        if (referenceRegions != null) {
-          cal.setSequenceLengths(Calibrator.getSequenceLengthMap(template, referenceRegions));
-        }
-        cp = new CalibratingSamRecordPopulator(cal, template, false);
-      } else {
-        cp = null;
-      }
-
-      int inputRecords = 0;
-      int outputRecords = 0;
+    try (StreamingWriter writer = streamingWriter(header, destination, calibrationDest, referenceRegions, template)) {
       for (final File currentFile : inputFiles) {
         ProgramState.checkAbort();
         final long t0 = System.nanoTime();
@@ -170,23 +156,10 @@ public abstract class AbstractSamResultsFilter {
         //System.out.println("Starting to filter file " + current);
 
         final TempRecordReader.RecordFactory fact = new TempRecordReader.RecordFactory(mPaired, mLegacyCigars, mCG, mUnfiltered);
-        try (TempRecordReader recReader = new TempRecordReaderNio(FileUtils.createGzipInputStream(currentFile, false), fact)) {
+        try (TempRecordReader recReader = openTempFile(currentFile, fact)) {
           BinaryTempFileRecord rec;
           while ((rec = recReader.readRecord()) != null) {
-            ++inputRecords;
-            final SAMRecord filteredRecord = filterRecord(samWriter, rec, template.names());
-            if (filteredRecord != null) {
-              if (cp != null) {
-                cp.populate(filteredRecord);
-              }
-              if (mStatsCalculator != null) {
-                mStatsCalculator.addRecord(filteredRecord);
-              }
-              if (mMapReportData != null) {
-                mMapReportData.processRead(filteredRecord);
-              }
-              ++outputRecords;
-            }
+            writer.writeRecord(rec);
           } //while
         }
         final long diff = System.nanoTime() - t0;
@@ -198,13 +171,110 @@ public abstract class AbstractSamResultsFilter {
           }
         }
       } //for
-      // timer.stopLog();
-      if (cp != null) {
-        cp.calibrator().writeToStream(calibrationDest);
+    }
+  }
+
+  /**
+   * Create a writer which filters records straight into <code>destination</code> as they
+   * are written, rather than reading them back from temp files.
+   * It is the callers responsibility to close <code>destination</code>.
+   *
+   * @param header the sam file header
+   * @param destination output stream
+   * @param calibrationDest output stream for calibration
+   * @param referenceRegions restrict calibration to these regions
+   * @param template sequences reader for the template
+   * @return the writer, which must be closed to complete the output
+   */
+  StreamingWriter streamingWriter(SAMFileHeader header, OutputStream destination, OutputStream calibrationDest, ReferenceRegions referenceRegions, SequencesReader template) {
+    final SAMFileWriter samWriter = getSAMFileWriter(header, destination);
+    if (mStatsCalculator != null) {
+      mStatsCalculator.setupReadGroups(header);
+    }
+    final CalibratingSamRecordPopulator cp;
+    if (template != null && calibrationDest != null) {
+      final Calibrator cal = new Calibrator(CovariateEnum.getCovariates(CovariateEnum.DEFAULT_COVARIATES, header), referenceRegions);
+      if (referenceRegions != null) {
+        cal.setSequenceLengths(Calibrator.getSequenceLengthMap(template, referenceRegions));
+      }
+      cp = new CalibratingSamRecordPopulator(cal, template, false);
+    } else {
+      cp = null;
+    }
+    return new StreamingWriter(samWriter, cp, calibrationDest, template);
+  }
+
+  /**
+   * Filters temp file records into a SAM writer as they arrive.
+   */
+  final class StreamingWriter implements TempRecordWriter {
+    private final SAMFileWriter mSamWriter;
+    private final CalibratingSamRecordPopulator mCalibrator;
+    private final OutputStream mCalibrationDest;
+    private final SequencesReader mTemplate;
+    private int mInputRecords = 0;
+    private int mOutputRecords = 0;
+
+    private StreamingWriter(SAMFileWriter samWriter, CalibratingSamRecordPopulator calibrator, OutputStream calibrationDest, SequencesReader template) {
+      mSamWriter = samWriter;
+      mCalibrator = calibrator;
+      mCalibrationDest = calibrationDest;
+      mTemplate = template;
+    }
+
+    @Override
+    public void writeRecord(BinaryTempFileRecord rec) throws IOException {
+      ++mInputRecords;
+      final SAMRecord filteredRecord = filterRecord(mSamWriter, rec, mTemplate.names());
+      if (filteredRecord != null) {
+        if (mCalibrator != null) {
+          mCalibrator.populate(filteredRecord);
+        }
+        if (mStatsCalculator != null) {
+          mStatsCalculator.addRecord(filteredRecord);
+        }
+        if (mMapReportData != null) {
+          mMapReportData.processRead(filteredRecord);
+        }
+        ++mOutputRecords;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      try (SAMFileWriter ignored = mSamWriter) {
+        if (mCalibrator != null) {
+          mCalibrator.calibrator().writeToStream(mCalibrationDest);
+        }
+        Diagnostic.userLog(getName() + " SAM filter outputs " + mOutputRecords + "/" + mInputRecords + " records");
       }
+    }
+  }
 
-      Diagnostic.userLog(getName() + " SAM filter outputs " + outputRecords + "/" + inputRecords + " records");
+  /**
+   * Open a temp file for reading, using the encoding set by the gzip temp files flag.
+   * @param file the temp file
+   * @param fact factory for the temp file records
+   * @return the reader
+   * @throws IOException if the file cannot be opened
+   */
+  static TempRecordReader openTempFile(File file, TempRecordReader.RecordFactory fact) throws IOException {
+    return openTempFile(file, fact, AbstractTempFileWriter.gzipTempFiles());
+  }
+
+  /**
+   * Open a temp file for reading. Gzipped files are streamed, uncompressed files are memory mapped.
+   * @param file the temp file
+   * @param fact factory for the temp file records
+   * @param gzip true if the file was written gzipped
+   * @return the reader
+   * @throws IOException if the file cannot be opened
+   */
+  static TempRecordReader openTempFile(File file, TempRecordReader.RecordFactory fact, boolean gzip) throws IOException {
+    if (gzip) {
+      return new TempRecordReaderNio(FileUtils.createGzipInputStream(file, false), fact);
     }
+    return new TempRecordReaderMapped(file, fact);
   }
 
   private SAMFileWriter getSAMFileWriter(SAMFileHeader header, OutputStream destination) {
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.util.array.CommonIndex;
+
+/**
+ * Per read table held on the heap in one of the usual chunked arrays.
+ */
+@TestClass("com.rtg.ngs.ReadTableTest")
+final class HeapReadTable extends ReadTable {
+
+  private final CommonIndex mIndex;
+  private final long mMask;
+
+  /**
+   * @param index array holding the entries, at least as wide as the table.
+   * @param width number of bytes in each entry (one of 1, 2, 4 or 8).
+   */
+  HeapReadTable(final CommonIndex index, final int width) {
+    mIndex = index;
+    mMask = width == 8 ? -1L : (1L << (width << 3)) - 1;
+  }
+
+  @Override
+  public long get(final long index) {
+    return mIndex.get(index) & mMask;
+  }
+
+  @Override
+  public void set(final long index, final long value) {
+    mIndex.set(index, value & mMask);
+  }
+
+  @Override
+  public long length() {
+    return mIndex.length();
+  }
+
+  @Override
+  public long bytes() {
+    return mIndex.bytes();
+  }
+
+  @Override
+  public String toString() {
+    return "HeapReadTable";
+  }
+}
@@ -107,6 +107,12 @@ public class MapCli extends ParamsCli<NgsParams>  {
     ngsParamsBuilder.maxFragmentLength((Integer) flags.getValue(CommonFlags.MAX_FRAGMENT_SIZE));
     ngsParamsBuilder.minFragmentLength((Integer) flags.getValue(CommonFlags.MIN_FRAGMENT_SIZE));
     ngsParamsBuilder.compressHashes((Boolean) flags.getValue(MapFlags.COMPRESS_HASHES_FLAG));
+    if (flags.isSet(MapFlags.READ_INDEX_FLAG)) {
+      ngsParamsBuilder.readIndexFile((File) flags.getValue(MapFlags.READ_INDEX_FLAG));
+    }
+    ngsParamsBuilder.singlePassIndex((Boolean) flags.getValue(MapFlags.SINGLE_PASS_INDEX_FLAG));
+    ngsParamsBuilder.radixSortIndex((Boolean) flags.getValue(MapFlags.RADIX_SORT_INDEX_FLAG));
+    ngsParamsBuilder.adaptiveSearch((Boolean) flags.getValue(MapFlags.ADAPTIVE_SEARCH_FLAG));
 
     MapParamsHelper.populateAlignerPenaltiesParams(ngsParamsBuilder, flags);
 
@@ -204,6 +210,10 @@ public class MapCli extends ParamsCli<NgsParams>  {
     flags.registerOptional(MapFlags.X_LONG_READ, "use the non-default version for long read").setCategory(CommonFlagCategories.UTILITY);
     flags.registerOptional(MapFlags.MASK_FLAG, String.class, CommonFlags.STRING, "mask class name").setCategory(CommonFlagCategories.SENSITIVITY_TUNING);
     flags.registerOptional(MapFlags.COMPRESS_HASHES_FLAG, Boolean.class, "BOOL", "compress hashes in indexes", true).setCategory(CommonFlagCategories.UTILITY);
+    flags.registerOptional(MapFlags.READ_INDEX_FLAG, File.class, CommonFlags.FILE, "save the read index to this file, or reuse it if it was saved by an earlier run on the same reads").setCategory(CommonFlagCategories.UTILITY);
+    flags.registerOptional(MapFlags.SINGLE_PASS_INDEX_FLAG, Boolean.class, CommonFlags.BOOL, "build compressed read indexes from a single pass over the reads (uses more memory during the build)", Boolean.FALSE).setCategory(CommonFlagCategories.UTILITY);
+    flags.registerOptional(MapFlags.RADIX_SORT_INDEX_FLAG, Boolean.class, CommonFlags.BOOL, "sort read indexes with a parallel radix sort when they are frozen", Boolean.FALSE).setCategory(CommonFlagCategories.UTILITY);
+    flags.registerOptional(MapFlags.ADAPTIVE_SEARCH_FLAG, Boolean.class, CommonFlags.BOOL, "split reference regions further during the search as threads become idle", Boolean.FALSE).setCategory(CommonFlagCategories.UTILITY);
     flags.registerOptional(MapFlags.XSCORE_INDEL, Integer.class, CommonFlags.INT, "set max score indel for topn threshold", MapFlags.MAX_SCORE).setCategory(CommonFlagCategories.REPORTING); //7 was used for illumina mappings
     flags.registerOptional(MapFlags.OUTPUT_NULLFILTERED, "write nothing").setCategory(CommonFlagCategories.REPORTING);
     flags.registerOptional(MapFlags.MIN_HITS_FLAG, Integer.class, CommonFlags.INT, "Require this many hits to a logical read position before further processing").setCategory(CommonFlagCategories.UTILITY);
@@ -82,6 +82,14 @@ public final class MapFlags {
   public static final String FORCE_LONG_FLAG = "Xforce-long";
   /** Parallel unmated processing */
   public static final String PARALLEL_UNMATED_PROCESSING_FLAG = "Xparallel-unmated-processing";
+  /** File in which the read index is saved and reused between runs */
+  public static final String READ_INDEX_FLAG = "Xread-index";
+  /** Build compressed read indexes from a single pass over the reads */
+  public static final String SINGLE_PASS_INDEX_FLAG = "Xsingle-pass-index";
+  /** Use a radix sort when freezing read indexes */
+  public static final String RADIX_SORT_INDEX_FLAG = "Xradix-sort-index";
+  /** Split template regions further during the search as threads become idle */
+  public static final String ADAPTIVE_SEARCH_FLAG = "Xadaptive-search";
   private static final int MAX_WORD_SIZE = 32; //Integer.valueOf(System.getProperty("rtg.max-word", "32"));
   private static final int MAX_INSERT_SIZE = 1000000000;
   private static final int BITS_FOR_SCORE1 = 12;
@@ -437,8 +445,9 @@ public final class MapFlags {
     if (flags.isSet(ALIGNER_BAND_WIDTH_FACTOR_FLAG) && !flags.checkInRange(ALIGNER_BAND_WIDTH_FACTOR_FLAG, (double) 0.0f, (double) 1.0f)) {
       return false;
     }
-    if (!(AlignerMode.GENERAL == flags.getValue(ALIGNER_MODE_FLAG)) && (flags.isSet(MISMATCH_PENALTY_FLAG) || flags.isSet(UNKNOWNS_PENALTY_FLAG) || flags.isSet(GAP_OPEN_PENALTY_FLAG) || flags.isSet(GAP_EXTEND_PENALTY_FLAG))) {
-      flags.setParseMessage("Penalty flags are only valid if --" + ALIGNER_MODE_FLAG + " is 'general'");
+    final Object alignerMode = flags.getValue(ALIGNER_MODE_FLAG);
+    if (!(AlignerMode.GENERAL == alignerMode || AlignerMode.BANDED == alignerMode) && (flags.isSet(MISMATCH_PENALTY_FLAG) || flags.isSet(UNKNOWNS_PENALTY_FLAG) || flags.isSet(GAP_OPEN_PENALTY_FLAG) || flags.isSet(GAP_EXTEND_PENALTY_FLAG))) {
+      flags.setParseMessage("Penalty flags are only valid if --" + ALIGNER_MODE_FLAG + " is 'general' or 'banded'");
       return false;
 
     }
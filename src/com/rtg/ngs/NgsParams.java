@@ -80,6 +80,10 @@ public class NgsParams extends ModuleParams implements Integrity {
   private final AlignerMode mAlignerMode;
   private final String mSingleIndelPenalties;
   private final IndexFilterMethod mIndexFilter;
+  private final File mReadIndexFile;
+  private final boolean mSinglePassIndex;
+  private final boolean mRadixSortIndex;
+  private final boolean mAdaptiveSearch;
 
   /**
    * Creates a NgsParams builder.
@@ -129,6 +133,10 @@ public class NgsParams extends ModuleParams implements Integrity {
     mAlignerMode = builder.mAlignerMode;
     mSingleIndelPenalties = builder.mSingleIndelPenalties;
     mIndexFilter = builder.mIndexFilter;
+    mReadIndexFile = builder.mReadIndexFile;
+    mSinglePassIndex = builder.mSinglePassIndex;
+    mRadixSortIndex = builder.mRadixSortIndex;
+    mAdaptiveSearch = builder.mAdaptiveSearch;
   }
 
   //  /**
@@ -414,6 +422,26 @@ public class NgsParams extends ModuleParams implements Integrity {
     return mSingleIndelPenalties;
   }
 
+  /** @return file in which the short read index is saved for reuse, or null if the index is not saved */
+  public File readIndexFile() {
+    return mReadIndexFile;
+  }
+
+  /** @return true if compressed read indexes should be built from a single pass over the reads */
+  public boolean singlePassIndex() {
+    return mSinglePassIndex;
+  }
+
+  /** @return true if read indexes should be sorted with a radix sort when they are frozen */
+  public boolean radixSortIndex() {
+    return mRadixSortIndex;
+  }
+
+  /** @return true if template regions should be split further during the search as threads become idle */
+  public boolean adaptiveSearch() {
+    return mAdaptiveSearch;
+  }
+
   @Override
   @ParamsNoField
   public File file(final String name) {
@@ -671,7 +699,11 @@ public class NgsParams extends ModuleParams implements Integrity {
     .softClipDistance(softClipDistance())
     .alignerBandWidthFactor(alignerBandWidthFactor())
     .alignerMode(alignerMode())
-    .singleIndelPenalties(singleIndelPenalties());
+    .singleIndelPenalties(singleIndelPenalties())
+    .readIndexFile(readIndexFile())
+    .singlePassIndex(singlePassIndex())
+    .radixSortIndex(radixSortIndex())
+    .adaptiveSearch(adaptiveSearch());
     return npb;
   }
 }
@@ -11,6 +11,7 @@
  */
 package com.rtg.ngs;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -70,6 +71,10 @@ public class NgsParamsBuilder extends ModuleParamsBuilder<NgsParamsBuilder> {
   AlignerMode mAlignerMode = AlignerMode.AUTO;
   String mSingleIndelPenalties = EditDistanceFactory.DEFAULT_SINGLE_INDEL_TABLE;
   IndexFilterMethod mIndexFilter = new FixedRepeatFrequencyFilterMethod(1000);
+  File mReadIndexFile = null;
+  boolean mSinglePassIndex = false;
+  boolean mRadixSortIndex = false;
+  boolean mAdaptiveSearch = false;
 
 
   @Override
@@ -447,6 +452,43 @@ public class NgsParamsBuilder extends ModuleParamsBuilder<NgsParamsBuilder> {
     return self();
   }
 
+  /**
+   * @param file file in which the read index is saved for reuse by later runs, or null to always build the index in memory
+   * @return this build, so calls can be chained
+   */
+  public NgsParamsBuilder readIndexFile(File file) {
+    mReadIndexFile = file;
+    return self();
+  }
+
+  /**
+   * @param value true to build compressed read indexes from a single pass over the reads, at the cost of
+   * temporarily holding a copy of the hashes and values
+   * @return this build, so calls can be chained
+   */
+  public NgsParamsBuilder singlePassIndex(boolean value) {
+    mSinglePassIndex = value;
+    return self();
+  }
+
+  /**
+   * @param value true to sort read indexes with a parallel radix sort when they are frozen
+   * @return this build, so calls can be chained
+   */
+  public NgsParamsBuilder radixSortIndex(boolean value) {
+    mRadixSortIndex = value;
+    return self();
+  }
+
+  /**
+   * @param value true to split template regions further during the search as threads become idle
+   * @return this build, so calls can be chained
+   */
+  public NgsParamsBuilder adaptiveSearch(boolean value) {
+    mAdaptiveSearch = value;
+    return self();
+  }
+
   /**
    * Creates a NgsParams using the current builder
    * configuration.
@@ -30,12 +30,16 @@ import com.rtg.calibrate.Calibrator;
 import com.rtg.calibrate.ChrStats;
 import com.rtg.calibrate.Recalibrate;
 import com.rtg.index.Index;
+import com.rtg.index.IndexBase;
+import com.rtg.index.IndexCompressed;
+import com.rtg.index.IndexFile;
 import com.rtg.index.IndexSet;
 import com.rtg.index.hash.ngs.HashFunctionFactory;
 import com.rtg.index.hash.ngs.NgsHashFunction;
 import com.rtg.index.hash.ngs.NgsHashLoop;
 import com.rtg.index.hash.ngs.NgsHashLoopImpl;
 import com.rtg.index.hash.ngs.OutputProcessor;
+import com.rtg.index.hash.ngs.ReadCall;
 import com.rtg.index.hash.ngs.ReadCallImplementation;
 import com.rtg.index.hash.ngs.ReadEncoder;
 import com.rtg.index.hash.ngs.TemplateCall;
@@ -48,6 +52,7 @@ import com.rtg.position.output.PositionParams;
 import com.rtg.reader.CgUtils;
 import com.rtg.reader.PrereadType;
 import com.rtg.reader.ReaderUtils;
+import com.rtg.reader.SdfId;
 import com.rtg.report.MapFSummaryReport;
 import com.rtg.report.MapReport;
 import com.rtg.report.MapSummaryReport;
@@ -256,6 +261,7 @@ public class NgsTask extends ParamsTask<NgsParams, MapStatistics> {
     Diagnostic.developerLog("Index params: " + indexParams.toString());
     final NgsHashLoopImpl hashLoop = new NgsHashLoopImpl(params.buildFirstParams().numberSequences(), params.outputParams().progress(), 0x3FFFFL, ((pMask + 1L) << threadBits) - 1L);
     hashLoop.setThreadPadding(params.calculateThreadPadding());
+    hashLoop.setAdaptiveSplitting(params.adaptiveSearch());
     usageMetric.setMetric(indexThenSearchShortReads(params, hashLoop, statistics, indexParams));
   }
 
@@ -273,19 +279,36 @@ public class NgsTask extends ParamsTask<NgsParams, MapStatistics> {
   static long indexThenSearchShortReads(final NgsParams params, final NgsHashLoop shl, final MapStatistics statistics, final CreateParams indexParams) throws IOException {
     Diagnostic.developerLog("index params: " + indexParams.toString());
     final HashFunctionFactory hashFunctionFactory = params.maskParams().maskFactory((int) params.getMaxReadLength());
-    final IndexSet indexes = new IndexSet(params, indexParams, hashFunctionFactory.numberWindows());
+    final File indexFile = readIndexFile(params, indexParams);
+    final String indexDescription = indexFile == null ? null : readIndexDescription(params, indexParams);
+    final boolean reuseIndex = indexFile != null && IndexFile.isCompatible(indexFile, hashFunctionFactory.numberWindows(), indexDescription);
+    final IndexSet indexes;
+    final ReadCall readCall;
+    if (reuseIndex) {
+      Diagnostic.userLog("Reusing read index from " + indexFile.getPath());
+      indexes = IndexFile.load(indexFile);
+      readCall = NULL_READ_CALL;
+    } else {
+      if (indexFile != null && indexFile.exists()) {
+        Diagnostic.warning("Read index " + indexFile.getPath() + " does not match the current reads and parameters, it will be rebuilt.");
+      }
+      indexes = new IndexSet(params, indexParams, hashFunctionFactory.numberWindows());
+      readCall = new ReadCallImplementation(indexes);
+    }
     if (indexes.size() > INDEX_USAGE_REPORTING_THRESHOLD) {
       Diagnostic.warning("Selected parameters produce " + indexes.size() + " indexes (this is high and could be slow to run).");
     }
-    final ReadCallImplementation rci = new ReadCallImplementation(indexes);
     final TemplateCallImplementation tci = new TemplateCallImplementation(params, indexParams.size(), indexes, null);
 
-    final NgsHashFunction hf = hashFunctionFactory.create(rci, tci);
+    final NgsHashFunction hf = hashFunctionFactory.create(readCall, tci);
 
     final long numberReads = params.buildFirstParams().numberSequences() + (params.paired() ? params.buildSecondParams().numberSequences() : 0);
     hf.setReadSequences(numberReads);
 
-    final long totalLength = index(params, shl, indexParams, indexes, hf);
+    final long totalLength = index(params, shl, indexParams, indexes, hf, !reuseIndex);
+    if (indexFile != null && !reuseIndex) {
+      IndexFile.save(indexFile, indexes, indexDescription);
+    }
     final OutputFilter filter = params.outputParams().outFilter();
     try (OutputProcessor outProcessor = filter.makeProcessor(params, statistics)) {
       tci.setOutputProcessor(outProcessor);
@@ -296,10 +319,90 @@ public class NgsTask extends ParamsTask<NgsParams, MapStatistics> {
     return totalLength;
   }
 
-  private static long index(NgsParams params, NgsHashLoop shl, CreateParams indexParams, IndexSet indexes, NgsHashFunction hf) throws IOException {
+  /** Used when the indexes have been loaded, the read pass only needs to record the read sequences. */
+  private static final ReadCall NULL_READ_CALL = (id, hash, index) -> { };
+
+  private static File readIndexFile(final NgsParams params, final CreateParams indexParams) {
+    final File indexFile = params.readIndexFile();
+    if (indexFile != null && !indexParams.compressHashes()) {
+      Diagnostic.warning("The read index can only be saved when hashes are compressed, it will not be saved.");
+      return null;
+    }
+    return indexFile;
+  }
+
+  /**
+   * Describe everything that determines the contents of the read index, one field per line, so that
+   * a saved index is only reused for the same reads and parameters. The reads are identified by the
+   * SDF GUID, or by location and modification time for SDFs that have none.
+   */
+  static String readIndexDescription(final NgsParams params, final CreateParams indexParams) throws IOException {
+    final StringBuilder sb = new StringBuilder();
+    describeReads(sb, "reads", params.buildFirstParams());
+    if (params.paired()) {
+      describeReads(sb, "second", params.buildSecondParams());
+    }
+    field(sb, "word-size", params.maskParams().getWordSize());
+    field(sb, "step-size", params.stepSize());
+    field(sb, "mask", params.maskParams());
+    field(sb, "hash-bits", indexParams.hashBits());
+    field(sb, "window-bits", indexParams.windowBits());
+    field(sb, "initial-pointer-bits", indexParams.initialPointerBits());
+    field(sb, "value-bits", indexParams.valueBits());
+    field(sb, "size", indexParams.size());
+    field(sb, "compress-hashes", indexParams.compressHashes());
+    field(sb, "repeat-filter", params.indexFilter());
+    field(sb, "radix-sort", params.radixSortIndex());
+    return sb.toString();
+  }
+
+  private static void describeReads(final StringBuilder sb, final String name, final ISequenceParams reads) throws IOException {
+    final SdfId sdfId = reads.reader().getSdfId();
+    if (sdfId.available()) {
+      field(sb, name + ".sdf-id", sdfId);
+    } else {
+      field(sb, name + ".directory", reads.directory().getAbsolutePath());
+      field(sb, name + ".modified", lastModified(reads.directory()));
+    }
+    field(sb, name + ".restriction", reads.readerRestriction());
+    field(sb, name + ".count", reads.numberSequences());
+    field(sb, name + ".max-length", reads.maxLength());
+  }
+
+  private static void field(final StringBuilder sb, final String name, final Object value) {
+    sb.append(name).append('=').append(value).append(LS);
+  }
+
+  private static long lastModified(final File dir) {
+    long modified = dir.lastModified();
+    final File[] files = dir.listFiles();
+    if (files != null) {
+      for (final File f : files) {
+        modified = Math.max(modified, f.lastModified());
+      }
+    }
+    return modified;
+  }
+
+  private static long index(NgsParams params, NgsHashLoop shl, CreateParams indexParams, IndexSet indexes, NgsHashFunction hf, boolean build) throws IOException {
     Diagnostic.developerLog("index start");
     long totalLength = 0;
-    for (int pass = 1; pass <= (indexParams.compressHashes() ? 2 : 1); ++pass) {
+    final boolean singlePass = build && indexParams.compressHashes() && params.singlePassIndex() && indexParams.hashBits() <= Long.SIZE;
+    if (singlePass) {
+      Diagnostic.developerLog("single pass index build");
+      for (int i = 0; i < indexes.size(); ++i) {
+        ((IndexCompressed) indexes.get(i)).singlePass();
+      }
+    }
+    if (build && params.radixSortIndex()) {
+      Diagnostic.developerLog("radix sort index freeze");
+      for (int i = 0; i < indexes.size(); ++i) {
+        ((IndexBase) indexes.get(i)).radixSort();
+      }
+    }
+    // when the index has been loaded only a single pass over the reads is needed to record them in the hash function
+    final int passes = build && indexParams.compressHashes() && !singlePass ? 2 : 1;
+    for (int pass = 1; pass <= passes; ++pass) {
       totalLength = 0; //only count for one pass
       if (params.paired()) {
         final boolean cgFlip = params.buildFirstParams().reader().getPrereadType() == PrereadType.CG && params.buildFirstParams().reader().minLength() == CgUtils.CG_RAW_READ_LENGTH;
@@ -310,7 +413,9 @@ public class NgsTask extends ParamsTask<NgsParams, MapStatistics> {
       } else {
         totalLength += shl.readLoop(params.buildFirstParams(), hf, ReadEncoder.SINGLE_END, false);
       }
-      indexes.freeze(params.numberThreads());
+      if (build) {
+        indexes.freeze(params.numberThreads());
+      }
     }
     return totalLength;
   }
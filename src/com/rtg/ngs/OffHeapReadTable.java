@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import com.reeltwo.jumble.annotations.TestClass;
+
+/**
+ * Per read table held outside the heap, either in direct memory or in a memory mapped file.
+ * The entries are split into segments so that tables of more than 2GB can be held. Segments
+ * are a multiple of 8 bytes so that no entry straddles two segments.
+ */
+@TestClass("com.rtg.ngs.ReadTableTest")
+final class OffHeapReadTable extends ReadTable {
+
+  static final int SEGMENT_BITS = 30;
+
+  private final ByteBuffer[] mSegments;
+  private final long mLength;
+  private final int mWidth;
+  private final int mWidthBits;
+  private final int mSegmentBits;
+  private final long mSegmentMask;
+
+  /**
+   * @param length number of entries.
+   * @param width number of bytes in each entry (one of 1, 2, 4 or 8).
+   * @param file file to map the entries into, which is deleted once mapped, or null to use direct memory.
+   * @throws IOException if the file cannot be mapped.
+   */
+  OffHeapReadTable(final long length, final int width, final File file) throws IOException {
+    this(length, width, file, SEGMENT_BITS);
+  }
+
+  OffHeapReadTable(final long length, final int width, final File file, final int segmentBits) throws IOException {
+    mLength = length;
+    mWidth = width;
+    mWidthBits = widthBits(width);
+    mSegmentBits = segmentBits;
+    final long segmentSize = 1L << segmentBits;
+    mSegmentMask = segmentSize - 1;
+    final long bytes = length << mWidthBits;
+    final int numSegments = (int) ((bytes + mSegmentMask) >> segmentBits);
+    mSegments = new ByteBuffer[numSegments];
+    if (file == null) {
+      for (int i = 0; i < numSegments; ++i) {
+        final long start = (long) i << segmentBits;
+        mSegments[i] = ByteBuffer.allocateDirect((int) Math.min(segmentSize, bytes - start)).order(ByteOrder.nativeOrder());
+      }
+    } else {
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        // Extending the file leaves it sparse and zero filled
+        raf.setLength(bytes);
+        final FileChannel channel = raf.getChannel();
+        for (int i = 0; i < numSegments; ++i) {
+          final long start = (long) i << segmentBits;
+          mSegments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(segmentSize, bytes - start)).order(ByteOrder.nativeOrder());
+        }
+      } finally {
+        // The mappings remain valid after the file is removed, where the platform allows it
+        if (!file.delete()) {
+          file.deleteOnExit();
+        }
+      }
+    }
+  }
+
+  @Override
+  public long get(final long index) {
+    assert index >= 0 && index < mLength : "index=" + index + " length=" + mLength;
+    final long offset = index << mWidthBits;
+    final ByteBuffer segment = mSegments[(int) (offset >>> mSegmentBits)];
+    final int pos = (int) (offset & mSegmentMask);
+    switch (mWidth) {
+      case 1:
+        return segment.get(pos) & 0xFFL;
+      case 2:
+        return segment.getShort(pos) & 0xFFFFL;
+      case 4:
+        return segment.getInt(pos) & 0xFFFFFFFFL;
+      default:
+        return segment.getLong(pos);
+    }
+  }
+
+  @Override
+  public void set(final long index, final long value) {
+    assert index >= 0 && index < mLength : "index=" + index + " length=" + mLength;
+    final long offset = index << mWidthBits;
+    final ByteBuffer segment = mSegments[(int) (offset >>> mSegmentBits)];
+    final int pos = (int) (offset & mSegmentMask);
+    switch (mWidth) {
+      case 1:
+        segment.put(pos, (byte) value);
+        break;
+      case 2:
+        segment.putShort(pos, (short) value);
+        break;
+      case 4:
+        segment.putInt(pos, (int) value);
+        break;
+      default:
+        segment.putLong(pos, value);
+        break;
+    }
+  }
+
+  @Override
+  public long length() {
+    return mLength;
+  }
+
+  @Override
+  public long bytes() {
+    return mLength << mWidthBits;
+  }
+
+  @Override
+  public String toString() {
+    return "OffHeapReadTable";
+  }
+}
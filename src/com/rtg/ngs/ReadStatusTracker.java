@@ -66,11 +66,11 @@ public class ReadStatusTracker implements ReadStatusListener {
 
   protected final MapStatistics mStatistics;
 
-  protected final int[] mReadIdStatus;
+  protected final ReadTable mReadIdStatus;
 
 
   protected ReadStatusTracker(int numReads, MapStatistics stats) {
-    mReadIdStatus = new int[numReads];
+    mReadIdStatus = ReadTable.create(numReads, 4);
     mStatistics = stats;
   }
 
@@ -81,10 +81,11 @@ public class ReadStatusTracker implements ReadStatusListener {
    */
   @Override
   public void addStatus(int readId, int status) {
-    if (isSet(mReadIdStatus[readId], status)) {
+    final int current = status(readId);
+    if (isSet(current, status)) {
       return;
     }
-    mReadIdStatus[readId] |= status;
+    mReadIdStatus.set(readId, current | status);
   }
 
   /**
@@ -94,7 +95,7 @@ public class ReadStatusTracker implements ReadStatusListener {
    * @return true if given status is set for the given read id
    */
   public boolean getStatus(int readId, int status) {
-    return isSet(mReadIdStatus[readId], status);
+    return isSet(status(readId), status);
   }
 
   /**
@@ -163,9 +164,9 @@ public class ReadStatusTracker implements ReadStatusListener {
 
   protected void calculateStatistics(boolean pairedEnd, boolean allhits) {
     if (mStatistics != null) {
-      for (int r = 0; r < mReadIdStatus.length; ++r) {
-        final int mappingStatus = mReadIdStatus[r] & MAPPING_STATUS_MASK;
-        final int status = mReadIdStatus[r];
+      for (int r = 0; r < getNumReads(); ++r) {
+        final int status = status(r);
+        final int mappingStatus = status & MAPPING_STATUS_MASK;
         boolean leftNoHit = false;
 
         mStatistics.increment(MapStatisticsField.TOTAL_READS, Arm.LEFT);
@@ -292,6 +293,15 @@ public class ReadStatusTracker implements ReadStatusListener {
     Diagnostic.userLog("Setting stats: " + mStatistics);
   }
 
+  /**
+   * Get all the status bits of a particular read
+   * @param readId read id
+   * @return the status bits
+   */
+  int status(int readId) {
+    return (int) mReadIdStatus.get(readId);
+  }
+
   boolean isSet(int val, int attr) {
     return (val & attr) == attr;
   }
@@ -303,7 +313,7 @@ public class ReadStatusTracker implements ReadStatusListener {
    * @return <code>XC code</code> or <code>'\0'</code> if none
    */
   public char getXCAttribute(int readId, boolean first) {
-    final int val = mReadIdStatus[readId];
+    final int val = status(readId);
     if ((first && isSet(val, BLOCKED_FIRST)) || (!first && isSet(val, BLOCKED_SECOND))) {
       return 'B';
     } else if (isSet(val, MATED) && !(isSet(val, BLOCKED_FIRST) || isSet(val, BLOCKED_SECOND))) {
@@ -341,7 +351,7 @@ public class ReadStatusTracker implements ReadStatusListener {
    * @return the number of reads
    */
   public int getNumReads() {
-    return mReadIdStatus.length;
+    return (int) mReadIdStatus.length();
   }
 
   /**
@@ -350,10 +360,11 @@ public class ReadStatusTracker implements ReadStatusListener {
    */
   void preProcessUnMappedStatistics(boolean paired) {
     Diagnostic.progress("UnmappedPreprocess: Starting 1 Jobs");
-    for (int i = 0; i < mReadIdStatus.length; ++i) {
+    for (int i = 0; i < getNumReads(); ++i) {
+      final int status = status(i);
       if (paired) {
-        final boolean leftUnmapped = (mReadIdStatus[i] & (MATED_FIRST | UNMATED_FIRST)) == 0;
-        final boolean rightUnmapped = (mReadIdStatus[i] & (MATED_SECOND | UNMATED_SECOND)) == 0;
+        final boolean leftUnmapped = (status & (MATED_FIRST | UNMATED_FIRST)) == 0;
+        final boolean rightUnmapped = (status & (MATED_SECOND | UNMATED_SECOND)) == 0;
         if (leftUnmapped) {
           addStatus(i, UNMAPPED_FIRST);
         }
@@ -361,7 +372,7 @@ public class ReadStatusTracker implements ReadStatusListener {
           addStatus(i, UNMAPPED_SECOND);
         }
       } else {
-        if ((mReadIdStatus[i] & (MATED_FIRST | UNMATED_FIRST)) == 0) {
+        if ((status & (MATED_FIRST | UNMATED_FIRST)) == 0) {
           addStatus(i, UNMAPPED);
         }
       }
@@ -370,9 +381,10 @@ public class ReadStatusTracker implements ReadStatusListener {
   }
 
   UnmappedStatus getUnmappedStatus(int readId, boolean paired) {
+    final int status = status(readId);
     if (paired) {
-      final boolean leftUnmapped = (mReadIdStatus[readId] & UNMAPPED_FIRST) != 0;
-      final boolean rightUnmapped = (mReadIdStatus[readId] & UNMAPPED_SECOND) != 0;
+      final boolean leftUnmapped = (status & UNMAPPED_FIRST) != 0;
+      final boolean rightUnmapped = (status & UNMAPPED_SECOND) != 0;
       if (leftUnmapped && rightUnmapped) {
         return UnmappedStatus.BOTH_UNMAPPED;
       }
@@ -383,7 +395,7 @@ public class ReadStatusTracker implements ReadStatusListener {
         return UnmappedStatus.RIGHT_UNMAPPED;
       }
     } else {
-      if ((mReadIdStatus[readId] & UNMAPPED) != 0) {
+      if ((status & UNMAPPED) != 0) {
         return UnmappedStatus.SINGLE_END_UNMAPPED;
       }
     }
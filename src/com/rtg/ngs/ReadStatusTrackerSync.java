@@ -43,11 +43,11 @@ public class ReadStatusTrackerSync extends ReadStatusTracker {
    */
   @Override
   public void addStatus(int readId, int attr) {
-    if (isSet(mReadIdStatus[readId], attr)) {
+    if (isSet(status(readId), attr)) {
       return;
     }
     synchronized (mThreadLocks[readId & THREAD_LOCK_MASK]) {
-      mReadIdStatus[readId] |= attr;
+      mReadIdStatus.set(readId, status(readId) | attr);
     }
   }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
+import com.rtg.util.array.intindex.IntCreate;
+import com.rtg.util.array.longindex.LongCreate;
+import com.rtg.util.diagnostic.ErrorType;
+import com.rtg.util.diagnostic.SlimException;
+
+/**
+ * Long indexed table of unsigned fixed width entries holding per read state during mapping.
+ * The entries may be held on the heap, in direct memory, or in a memory mapped temporary file,
+ * so that tables sized by the number of reads need not count against the maximum heap size.
+ * Entries of width 1, 2 or 4 bytes are zero extended, entries of width 8 are returned unchanged.
+ */
+@TestClass("com.rtg.ngs.ReadTableTest")
+public abstract class ReadTable {
+
+  /** Where the entries of a table are held. */
+  public enum Storage {
+    /** On the heap, in the usual chunked arrays. */
+    HEAP,
+    /** In direct memory, limited by the maximum direct memory size of the JVM. */
+    DIRECT,
+    /** In a memory mapped temporary file which is deleted once mapped. */
+    MAPPED
+  }
+
+  private static final Storage STORAGE = Storage.valueOf(GlobalFlags.getStringValue(CoreGlobalFlags.MAP_READ_TABLE_STORAGE).toUpperCase(Locale.ROOT));
+
+  /**
+   * @return the storage selected for per read tables.
+   */
+  public static Storage storage() {
+    return STORAGE;
+  }
+
+  /**
+   * Create a table using the storage selected for per read tables.
+   * @param length number of entries.
+   * @param width number of bytes in each entry (one of 1, 2, 4 or 8).
+   * @return the table, with all entries zero.
+   */
+  public static ReadTable create(final long length, final int width) {
+    return create(length, width, STORAGE);
+  }
+
+  /**
+   * Create a table.
+   * @param length number of entries.
+   * @param width number of bytes in each entry (one of 1, 2, 4 or 8).
+   * @param storage where the entries are held.
+   * @return the table, with all entries zero.
+   */
+  public static ReadTable create(final long length, final int width, final Storage storage) {
+    widthBits(width);
+    switch (storage) {
+      case DIRECT:
+      case MAPPED:
+        try {
+          return new OffHeapReadTable(length, width, storage == Storage.MAPPED ? File.createTempFile("readtable", ".bin") : null);
+        } catch (final IOException e) {
+          throw new SlimException(e, ErrorType.WRITING_ERROR, System.getProperty("java.io.tmpdir"));
+        }
+      default:
+        return new HeapReadTable(width <= 4 ? IntCreate.createIndex(length) : LongCreate.createIndex(length), width);
+    }
+  }
+
+  static int widthBits(final int width) {
+    switch (width) {
+      case 1:
+        return 0;
+      case 2:
+        return 1;
+      case 4:
+        return 2;
+      case 8:
+        return 3;
+      default:
+        throw new IllegalArgumentException("Invalid width:" + width);
+    }
+  }
+
+  /**
+   * @param index position of entry.
+   * @return the value of the entry.
+   */
+  public abstract long get(long index);
+
+  /**
+   * @param index position of entry.
+   * @param value new value of the entry, truncated to the width of the table.
+   */
+  public abstract void set(long index, long value);
+
+  /**
+   * @return number of entries.
+   */
+  public abstract long length();
+
+  /**
+   * @return number of bytes used to hold the entries.
+   */
+  public abstract long bytes();
+}
@@ -24,7 +24,7 @@ import com.rtg.calibrate.Recalibrate;
 import com.rtg.index.hash.ngs.OutputProcessor;
 import com.rtg.ngs.blocking.MapQScoringReadBlocker;
 import com.rtg.ngs.blocking.ReadBlocker;
-import com.rtg.ngs.blocking.ReadBlockerSync;
+import com.rtg.ngs.blocking.ReadBlockerAtomic;
 import com.rtg.pairedend.ReadStatusListener;
 import com.rtg.reader.NamesInterface;
 import com.rtg.sam.BamIndexer;
@@ -60,8 +60,8 @@ public class SamSingleEndOutputProcessor extends AbstractMapOutputProcessor {
     //super((int) param.build().reader().numberSequences(), stats);
     final long numSequences = param.buildFirstParams().numberSequences();
     mOutputUnmapped = outputUnmapped;
-    mFreqBlocker = new ReadBlockerSync((int) numSequences, param.readFreqThreshold(), "single end freq count");
-    mTopN = new UptoNStoreSync(new TopNImplementation((int) numSequences, (int) param.searchParams().reader().numberSequences(), mParams.outputParams().filter().topN(), param.searchParams().reader().maxLength(), param.buildFirstParams().maxLength()));
+    mFreqBlocker = ReadBlockerAtomic.concurrent((int) numSequences, param.readFreqThreshold(), "single end freq count");
+    mTopN = UptoNStoreAtomic.concurrent(new TopNImplementation((int) numSequences, (int) param.searchParams().reader().numberSequences(), mParams.outputParams().filter().topN(), param.searchParams().reader().maxLength(), param.buildFirstParams().maxLength()));
   }
 
   @Override
@@ -109,9 +109,9 @@ public class SamSingleEndOutputProcessor extends AbstractMapOutputProcessor {
   public void threadFinish() {
   }
 
-  private static MatchResult organizeResults(final int[] readIdStatus, final UptoNStore uptoN) {
-    final MatchResult results = new MatchResult(readIdStatus.length);
-    for (int i = 0; i < readIdStatus.length; ++i) {
+  private static MatchResult organizeResults(final ReadStatusTracker tracker, final UptoNStore uptoN) {
+    final MatchResult results = new MatchResult(tracker.getNumReads());
+    for (int i = 0; i < tracker.getNumReads(); ++i) {
       //System.err.println(i + " READ ID STATUS = " + mReadIdStatus[i]);
       uptoN.setResults(results, i);
 
@@ -125,7 +125,7 @@ public class SamSingleEndOutputProcessor extends AbstractMapOutputProcessor {
     Diagnostic.userLog("Extracting hits for reads");
     final Timer outputTimer = new Timer("AlignmentOutput");
     outputTimer.start();
-    final MatchResult results = organizeResults(mUnmappedTracker.mReadIdStatus, mTopN);
+    final MatchResult results = organizeResults(mUnmappedTracker, mTopN);
     mTopN = null;
     Collections.sort(mRegions);
     final FilterConcatIntermediateFiles files = getNonMatedFilterConcatIntermediateFiles(results, false, mRegions.toArray(new HashingRegion[mRegions.size()]));
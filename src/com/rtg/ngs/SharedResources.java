@@ -14,7 +14,7 @@ package com.rtg.ngs;
 import java.io.IOException;
 
 import com.rtg.ngs.blocking.MapQScoringReadBlocker;
-import com.rtg.ngs.blocking.MapQScoringReadBlockerSynch;
+import com.rtg.ngs.blocking.MapQScoringReadBlockerAtomic;
 import com.rtg.reader.NamesInterface;
 import com.rtg.reader.PrereadType;
 import com.rtg.reader.SequencesReader;
@@ -52,7 +52,7 @@ public class SharedResources {
     final SequencesReader srTemplate = params.searchParams().reader().copy();
 
     assert params.outputParams() != null;
-    final MapQScoringReadBlocker blocker = new MapQScoringReadBlockerSynch((int) srFirst.numberSequences(), params.outputParams().maxTopResults());
+    final MapQScoringReadBlocker blocker = MapQScoringReadBlockerAtomic.concurrent((int) srFirst.numberSequences(), params.outputParams().maxTopResults());
     final NamesInterface templateNames = params.searchParams().reader().names();
     final SAMFileHeader header = createHeader(srTemplate, templateNames, srFirst, params.outputParams().readGroup(), params.sex(), true);
     final SAMFileHeader header2 = createHeader(srTemplate, templateNames, srFirst, params.outputParams().readGroup(), params.sex(), false);
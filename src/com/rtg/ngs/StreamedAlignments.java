@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.calibrate.Recalibrate;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
+import com.rtg.ngs.tempstage.BinaryTempFileRecord;
+import com.rtg.ngs.tempstage.TempRecordWriter;
+import com.rtg.pairedend.ReadStatusListener;
+import com.rtg.reader.SequencesReader;
+import com.rtg.util.io.FileUtils;
+
+/**
+ * Converts unfiltered alignments straight into headerless SAM/BAM fragments as they leave
+ * each chunk's reordering buffer, then joins the fragments in region order behind a header
+ * and in front of the block compression terminator. Used by the unfiltered output processors
+ * instead of writing binary temp files and filtering them in a second pass.
+ */
+@TestClass({"com.rtg.ngs.UnfilteredSingleEndOutputProcessorTest", "com.rtg.ngs.UnfilteredPairedEndOutputProcessorTest"})
+final class StreamedAlignments {
+
+  /** Status of streamed records is set during the search, so the filter need not report it. */
+  private static final ReadStatusListener NO_STATUS = (readId, status) -> { };
+
+  private final NgsParams mParams;
+  private final SharedResources mSharedResources;
+  private final long mReadIdOffset;
+
+  /**
+   * @param params parameters for the run
+   * @param sharedResources provides the SAM header
+   * @param readIdOffset the offset to apply to read ids
+   */
+  StreamedAlignments(NgsParams params, SharedResources sharedResources, long readIdOffset) {
+    mParams = params;
+    mSharedResources = sharedResources;
+    mReadIdOffset = readIdOffset;
+  }
+
+  private boolean compress() {
+    return mParams.outputParams().bam() || mParams.outputParams().isCompressOutput();
+  }
+
+  private static File calibrationFile(File fragment) {
+    return new File(fragment.getParent(), fragment.getName() + Recalibrate.EXTENSION);
+  }
+
+  private AbstractSamResultsFilter filter(boolean writeHeader) {
+    final AbstractSamResultsFilter filter = new SansFilterConcat(mParams, NO_STATUS, mReadIdOffset).makeFilter();
+    filter.setHeader(mSharedResources.getHeader());
+    filter.setWriteHeader(writeHeader);
+    return filter;
+  }
+
+  /**
+   * Create the file for the fragment of one chunk.
+   * @param currentChild a numeric indicator used as part of the filename
+   * @return the fragment file
+   * @throws IOException if an IO error occurs.
+   */
+  File fragmentFile(int currentChild) throws IOException {
+    return TopNPairedEndOutputProcessorSync.determineTempFile(mParams, currentChild, compress());
+  }
+
+  /**
+   * Create a writer that converts the records of one chunk into a fragment (and calibration) as they arrive.
+   * @param fragment the fragment file
+   * @return the writer, which must be closed to complete the fragment
+   * @throws IOException if the fragment cannot be created
+   */
+  TempRecordWriter fragmentWriter(File fragment) throws IOException {
+    return new FragmentWriter(fragment);
+  }
+
+  /**
+   * Puts the fragments together into the alignments file, then indexes and calibrates the result.
+   * @param fragments the fragments in region order
+   * @param outFile the alignments file
+   * @throws IOException if an IO error occurs.
+   */
+  void concat(File[] fragments, File outFile) throws IOException {
+    final boolean compress = compress();
+    final File[] parts = new File[fragments.length + (compress ? 2 : 1)];
+    parts[0] = TopNPairedEndOutputProcessorSync.determineTempFile(mParams, fragments.length, compress);
+    try (OutputStream headerOut = FileUtils.createOutputStream(parts[0], compress, false, false)) {
+      filter(true).streamingWriter(mSharedResources.getHeader(), headerOut, null, null, null).close();
+    }
+    System.arraycopy(fragments, 0, parts, 1, fragments.length);
+    if (compress) {
+      parts[parts.length - 1] = TopNPairedEndOutputProcessorSync.determineTempFile(mParams, fragments.length + 1, true);
+      FileUtils.createOutputStream(parts[parts.length - 1], true, false, true).close();
+    }
+    FileUtils.catInSync(outFile, !GlobalFlags.isSet(CoreGlobalFlags.MAP_KEEP_TEMPORARY_FILES), parts);
+    SamSingleEndOutputProcessor.indexSamFile(mParams, outFile, true, (int) mParams.searchParams().numberSequences());
+    if (mParams.outputParams().calibrate()) {
+      final File[] calibrationFiles = new File[fragments.length];
+      for (int i = 0; i < fragments.length; ++i) {
+        calibrationFiles[i] = calibrationFile(fragments[i]);
+      }
+      AbstractMulticoreFilterConcat.mergeCalibration(outFile, mParams.outputParams().calibrateRegions(), calibrationFiles);
+    }
+  }
+
+  private final class FragmentWriter implements TempRecordWriter {
+    private final OutputStream mOut;
+    private final OutputStream mCalibrationOut;
+    private final SequencesReader mTemplate;
+    private final TempRecordWriter mWriter;
+
+    FragmentWriter(File fragment) throws IOException {
+      mOut = FileUtils.createOutputStream(fragment, compress(), false, false);
+      mCalibrationOut = mParams.outputParams().calibrate() ? FileUtils.createOutputStream(calibrationFile(fragment), false, false) : null;
+      mTemplate = mParams.searchParams().reader().copy();
+      mWriter = filter(false).streamingWriter(mSharedResources.getHeader(), mOut, mCalibrationOut, mParams.outputParams().calibrateRegions(), mTemplate);
+    }
+
+    @Override
+    public void writeRecord(BinaryTempFileRecord rec) throws IOException {
+      mWriter.writeRecord(rec);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try (OutputStream ignored = mOut; OutputStream ignored2 = mCalibrationOut; SequencesReader ignored3 = mTemplate) {
+        mWriter.close();
+      }
+    }
+  }
+}
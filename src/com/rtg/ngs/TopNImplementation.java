@@ -15,8 +15,6 @@ import static com.rtg.util.StringUtils.LS;
 
 import com.rtg.util.BitPack3IntoLong;
 import com.rtg.util.StringUtils;
-import com.rtg.util.array.longindex.LongCreate;
-import com.rtg.util.array.longindex.LongIndex;
 import com.rtg.util.diagnostic.Diagnostic;
 
 /**
@@ -51,8 +49,8 @@ public class TopNImplementation implements UptoNStore {
   //Reserved for a return value from insert, TopEquals constructor makes sure that not all bits can be set in result
   private static final long NO_RESULT = ~0L;
 
-  private final LongIndex mTopNRes;
-  private final LongIndex mResultCounts;
+  private final ReadTable mTopNRes;
+  private final ReadTable mResultCounts;
 
   private final int mN;
   private final long mNumTemplateSeqs;
@@ -67,6 +65,19 @@ public class TopNImplementation implements UptoNStore {
    * @param readMaxLength maximum read length, used to determine how far off template we can go
    */
   public TopNImplementation(final long numReads, final long numTemplateSeqs, final int n, final long templateMaxLength, long readMaxLength) {
+    this(numReads, numTemplateSeqs, n, templateMaxLength, readMaxLength, ReadTable.storage());
+  }
+
+  /**
+   * Constructor
+   * @param numReads number of reads (* 2 for paired end)
+   * @param numTemplateSeqs number of template sequences
+   * @param n number of results to keep per read
+   * @param templateMaxLength size of largest template sequence
+   * @param readMaxLength maximum read length, used to determine how far off template we can go
+   * @param storage where the per read results are held
+   */
+  public TopNImplementation(final long numReads, final long numTemplateSeqs, final int n, final long templateMaxLength, long readMaxLength, ReadTable.Storage storage) {
     final long length = numReads * n;
     mPositionOffset = readMaxLength;
     final long product = numTemplateSeqs * (templateMaxLength + mPositionOffset * 2);
@@ -75,8 +86,8 @@ public class TopNImplementation implements UptoNStore {
       throw new RuntimeException("Number of sequences * maximum sequence length exceeds implementation limits.");
     }
 
-    mTopNRes = LongCreate.createIndex(length);
-    mResultCounts = LongCreate.createIndex(numReads);
+    mTopNRes = ReadTable.create(length, 8, storage);
+    mResultCounts = ReadTable.create(numReads, 8, storage);
     mN = n;
     mNumTemplateSeqs = numTemplateSeqs;
     Diagnostic.userLog(toString() + " statistics" + LS + infoString());
@@ -105,7 +116,7 @@ public class TopNImplementation implements UptoNStore {
     final StringBuilder sb = new StringBuilder();
     sb.append("Histogram for TopN: ").append(LS);
     final long[] hist = new long[mN + 1];
-    for (int i = 0; i < mResultCounts.length(); ++i) {
+    for (long i = 0; i < mResultCounts.length(); ++i) {
       hist[(int) mBitPackHelperRead.getField(RESULT_COUNT_FIELD_ID, mResultCounts.get(i))]++;
     }
     long tot = 0;
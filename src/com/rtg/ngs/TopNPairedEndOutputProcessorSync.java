@@ -26,7 +26,8 @@ import com.rtg.index.hash.ngs.OutputProcessor;
 import com.rtg.launcher.HashingRegion;
 import com.rtg.ngs.blocking.MapQScoringReadBlocker;
 import com.rtg.ngs.blocking.ReadBlocker;
-import com.rtg.ngs.blocking.ReadBlockerSync;
+import com.rtg.ngs.blocking.ReadBlockerAtomic;
+import com.rtg.ngs.tempstage.AbstractTempFileWriter;
 import com.rtg.ngs.tempstage.PairedTempFileWriterImpl;
 import com.rtg.pairedend.ReadStatusListener;
 import com.rtg.pairedend.SlidingWindowCollector;
@@ -85,8 +86,8 @@ public class TopNPairedEndOutputProcessorSync extends AbstractMapOutputProcessor
     final long sequences = param.buildFirstParams().numberSequences();
 
     // These blockers are for counting hits per read per side, for high frequency filtering purposes
-    mFreqBlockerLeft = new ReadBlockerSync(sequences, param.readFreqThreshold(), "left hits");
-    mFreqBlockerRight = new ReadBlockerSync(sequences, param.readFreqThreshold(), "right hits");
+    mFreqBlockerLeft = ReadBlockerAtomic.concurrent(sequences, param.readFreqThreshold(), "left hits");
+    mFreqBlockerRight = ReadBlockerAtomic.concurrent(sequences, param.readFreqThreshold(), "right hits");
     mChildren = new ArrayList<>();
     mOutputUnmated = outputUnmated;
     mOutputUnmapped = outputUnmapped;
@@ -99,7 +100,7 @@ public class TopNPairedEndOutputProcessorSync extends AbstractMapOutputProcessor
         Diagnostic.developerLog("Using TopN: " + mParams.outputParams().filter().topN());
         nStore = new TopNImplementation(sequences * 2, param.searchParams().reader().numberSequences(), mParams.outputParams().filter().topN(), param.searchParams().reader().maxLength(), Math.max(param.buildFirstParams().maxLength(), param.buildSecondParams().maxLength()));
       }
-      mTopN = new UptoNStoreSync(nStore);
+      mTopN = UptoNStoreAtomic.concurrent(nStore);
     } else {
       mTopN = null;
     }
@@ -121,7 +122,7 @@ public class TopNPairedEndOutputProcessorSync extends AbstractMapOutputProcessor
     final File dir = mParams.outputParams().directory();
     createDir(dir);
     final File out = TopNPairedEndOutputProcessorSync.determineTempFile(mParams, currentChild);
-    final OutputStream outStream = FileUtils.createOutputStream(out, true, false);
+    final OutputStream outStream = AbstractTempFileWriter.createTempOutputStream(out);
 
     final PairedTempFileWriterImpl sam = new PairedTempFileWriterImpl(mParams,  mUnmappedTracker, mSharedResources);
     sam.initialiseMated(outStream);
@@ -206,7 +207,7 @@ public class TopNPairedEndOutputProcessorSync extends AbstractMapOutputProcessor
     Diagnostic.progress("UnmatedInit: Starting 1 Jobs");
     final Timer unmatedOutputTimer = new Timer("UnmatedOutput");
     unmatedOutputTimer.start();
-    final MatchResult results = TopNPairedEndOutputProcessorSync.organizeUnmatedResults(mUnmappedTracker.mReadIdStatus, mTopN);
+    final MatchResult results = TopNPairedEndOutputProcessorSync.organizeUnmatedResults(mUnmappedTracker, mTopN);
 
     mTopN = null;
     final boolean paired = true;
@@ -287,9 +288,9 @@ public class TopNPairedEndOutputProcessorSync extends AbstractMapOutputProcessor
 
     MatedMulticoreFilterConcat(NgsParams params, MapQScoringReadBlocker xaBlocker, ReadBlocker freqBlockerLeft, ReadBlocker freqBlockerRight, NamesInterface templateNames, PairedTopRandomImplementation.HitRecord[] hitsToKeep, ReadGroupStatsCalculator.Merger statsMerger, MapReportData.Merger reportMerger) {
       super(params, "Mated");
-      mXaBlocker = new MapQScoringReadBlocker(xaBlocker);    // Read-only from here, so no need for synchronization
-      mFreqBlockerLeft = new ReadBlocker(freqBlockerLeft);   // Read-only from here, so no need for synchronization
-      mFreqBlockerRight = new ReadBlocker(freqBlockerRight); // Read-only from here, so no need for synchronization
+      mXaBlocker = xaBlocker.readOnly();               // Read-only from here, so no need for synchronization
+      mFreqBlockerLeft = freqBlockerLeft.readOnly();   // Read-only from here, so no need for synchronization
+      mFreqBlockerRight = freqBlockerRight.readOnly(); // Read-only from here, so no need for synchronization
       mTemplateNames = templateNames;
       mHitsToKeep = hitsToKeep;
       mStatsMerger = statsMerger;
@@ -334,10 +335,10 @@ public class TopNPairedEndOutputProcessorSync extends AbstractMapOutputProcessor
 
     UnmatedMulticoreFilterConcat(NgsParams params, MapQScoringReadBlocker asBlockerLeft, MapQScoringReadBlocker asBlockerRight, ReadBlocker freqBlockerLeft, ReadBlocker freqBlockerRight, SingleEndTopRandomImplementation.HitRecord[] hitsToKeep, NamesInterface templateNames, UnmatedAugmenter.Merger augmenterMerger, ReadGroupStatsCalculator.Merger statsMerger, MapReportData.Merger reportMerger) {
       super(params, "Unmated");
-      mAsBlockerLeft = new MapQScoringReadBlocker(asBlockerLeft);    // Read-only from here, so no need for synchronization
-      mAsBlockerRight = new MapQScoringReadBlocker(asBlockerRight);  // Read-only from here, so no need for synchronization
-      mFreqBlockerLeft = new ReadBlocker(freqBlockerLeft);           // Read-only from here, so no need for synchronization
-      mFreqBlockerRight = new ReadBlocker(freqBlockerRight);         // Read-only from here, so no need for synchronization
+      mAsBlockerLeft = asBlockerLeft.readOnly();       // Read-only from here, so no need for synchronization
+      mAsBlockerRight = asBlockerRight.readOnly();     // Read-only from here, so no need for synchronization
+      mFreqBlockerLeft = freqBlockerLeft.readOnly();   // Read-only from here, so no need for synchronization
+      mFreqBlockerRight = freqBlockerRight.readOnly(); // Read-only from here, so no need for synchronization
       mHitsToKeep = hitsToKeep;
       mTemplateNames = templateNames;
       mAugmenterMerger = augmenterMerger;
@@ -494,27 +495,40 @@ public class TopNPairedEndOutputProcessorSync extends AbstractMapOutputProcessor
     throw new UnsupportedOperationException("Calls should be made on thread local clones");
   }
 
+  /**
+   * Creates a temporary file for use with unfiltered mated sam output, named to match
+   * the encoding of the binary temp files.
+   * @param param contains settings used to locate the temporary directory
+   * @param currentChild a numeric indicator used as part of the filename
+   * @return the temp file
+   * @throws IOException if an IO error occurs.
+   */
+  public static File determineTempFile(final NgsParams param, final int currentChild) throws IOException {
+    return determineTempFile(param, currentChild, AbstractTempFileWriter.gzipTempFiles());
+  }
+
   /**
    * Creates a temporary file for use with unfiltered mated sam output.
-   * @param param contains settings used to locate the temporary directory and filename extension
+   * @param param contains settings used to locate the temporary directory
    * @param currentChild a numeric indicator used as part of the filename
+   * @param gzip true if the file will be written compressed
    * @return the temp file
    * @throws IOException if an IO error occurs.
    */
-  public static synchronized File determineTempFile(final NgsParams param, final int currentChild) throws IOException {
+  public static synchronized File determineTempFile(final NgsParams param, final int currentChild, final boolean gzip) throws IOException {
     final File tempDir = param.outputParams().tempFilesDirectory();
     // check that the temporary output directory exists
     if (!tempDir.exists() && !tempDir.mkdirs()) {
       throw new IOException("Could not create temporary directory: " + tempDir.getPath());
     }
-    final boolean gzipTempFiles = param.outputParams().isCompressOutput();
     return param.outputParams().resultStreamHandler().tempFile(AbstractMapOutputProcessor.TEMP_SAM_ALIGNMENT_NAME + currentChild
-            + (gzipTempFiles ? FileUtils.GZ_SUFFIX : ""));
+            + (gzip ? FileUtils.GZ_SUFFIX : ""));
   }
 
-  private static MatchResult organizeUnmatedResults(final int[] readIdStatus, final UptoNStore uptoN) {
+  private static MatchResult organizeUnmatedResults(final ReadStatusTracker tracker, final UptoNStore uptoN) {
     int guessCount = 0;
-    for (final int readStatus : readIdStatus) {
+    for (int i = 0; i < tracker.getNumReads(); ++i) {
+      final int readStatus = tracker.status(i);
       //System.err.println(i + " READ ID STATUS = " + mReadIdStatus[i]);
       if (((readStatus & ReadStatusTracker.MATED_FIRST) == 0) && ((readStatus & ReadStatusTracker.MATED_SECOND) == 0)) {
         guessCount += 2;
@@ -522,9 +536,10 @@ public class TopNPairedEndOutputProcessorSync extends AbstractMapOutputProcessor
     }
     final MatchResult results = new MatchResult(guessCount);
 
-    for (int i = 0; i < readIdStatus.length; ++i) {
+    for (int i = 0; i < tracker.getNumReads(); ++i) {
+      final int readStatus = tracker.status(i);
       //System.err.println(i + " READ ID STATUS = " + mReadIdStatus[i]);
-      if (((readIdStatus[i] & ReadStatusTracker.MATED_FIRST) == 0) && ((readIdStatus[i] & ReadStatusTracker.MATED_SECOND) == 0)) {
+      if (((readStatus & ReadStatusTracker.MATED_FIRST) == 0) && ((readStatus & ReadStatusTracker.MATED_SECOND) == 0)) {
         uptoN.setResults(results, i * 2);
         uptoN.setResults(results, i * 2 + 1);
       }
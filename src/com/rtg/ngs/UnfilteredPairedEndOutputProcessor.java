@@ -24,9 +24,12 @@ import java.util.List;
 
 import com.rtg.index.hash.ngs.OutputProcessor;
 import com.rtg.launcher.HashingRegion;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.ngs.blocking.MapQScoringReadBlocker;
 import com.rtg.ngs.blocking.ReadBlocker;
-import com.rtg.ngs.blocking.ReadBlockerSync;
+import com.rtg.ngs.blocking.ReadBlockerAtomic;
+import com.rtg.ngs.tempstage.AbstractTempFileWriter;
 import com.rtg.ngs.tempstage.UnfilteredTempFileWriter;
 import com.rtg.pairedend.ReadStatusListener;
 import com.rtg.pairedend.UnfilteredSlidingWindowCollector;
@@ -38,6 +41,10 @@ import com.rtg.util.io.FileUtils;
 
 /**
  * Thread safe version of super class
+ * <p>
+ * When streaming is enabled the records leaving each chunk's reordering buffer are converted
+ * straight into a SAM/BAM fragment, so the fragments only need concatenating at the end
+ * instead of a second pass over binary temp files.
  */
 public class UnfilteredPairedEndOutputProcessor extends AbstractSdfOutputProcessor {
 
@@ -48,6 +55,7 @@ public class UnfilteredPairedEndOutputProcessor extends AbstractSdfOutputProcess
 
   final boolean mOutputUnmapped;
   private final boolean mOutputSam;
+  private final StreamedAlignments mStreamed;
 
   private final ReadBlocker mFreqBlockerLeft;
   private final ReadBlocker mFreqBlockerRight;
@@ -60,15 +68,28 @@ public class UnfilteredPairedEndOutputProcessor extends AbstractSdfOutputProcess
    * @throws IOException if sam has problems setting up.
    */
   public UnfilteredPairedEndOutputProcessor(NgsParams param, MapStatistics stats, boolean outputUnmapped) throws IOException {
+    this(param, stats, outputUnmapped, GlobalFlags.isSet(CoreGlobalFlags.MAP_STREAM_UNFILTERED_OUTPUT));
+  }
+
+  /**
+   * Construct an output processor
+   * @param param parameters
+   * @param stats map to put statistics into
+   * @param outputUnmapped  true if unmapped should be output
+   * @param streaming true if alignments should be streamed into SAM/BAM fragments during the search
+   * @throws IOException if sam has problems setting up.
+   */
+  UnfilteredPairedEndOutputProcessor(NgsParams param, MapStatistics stats, boolean outputUnmapped, boolean streaming) throws IOException {
     super(param, stats, param.paired(), param.outputParams().sam() || param.outputParams().bam());
     final int sequences = (int) param.buildFirstParams().numberSequences();
     mChildren = new ArrayList<>();
     mOutputUnmapped = outputUnmapped;
     mOutputSam = param.outputParams().sam() || param.outputParams().bam();
+    mStreamed = mOutputSam && !param.outputParams().unify() && streaming ? new StreamedAlignments(param, mSharedResources, readIdOffset()) : null;
 
     // These blockers are for counting hits per read per side, for high frequency filtering purposes
-    mFreqBlockerLeft = new ReadBlockerSync(sequences, param.readFreqThreshold(), "left hits");
-    mFreqBlockerRight = new ReadBlockerSync(sequences, param.readFreqThreshold(), "right hits");
+    mFreqBlockerLeft = ReadBlockerAtomic.concurrent(sequences, param.readFreqThreshold(), "left hits");
+    mFreqBlockerRight = ReadBlockerAtomic.concurrent(sequences, param.readFreqThreshold(), "right hits");
   }
 
   private static synchronized void createDir(File dir) throws IOException {
@@ -85,15 +106,21 @@ public class UnfilteredPairedEndOutputProcessor extends AbstractSdfOutputProcess
     // Check that output directory exists
     final File dir = mParams.outputParams().directory();
     createDir(dir);
-    final File out = TopNPairedEndOutputProcessorSync.determineTempFile(mParams, currentChild);
-    final OutputStream outStream;
-    if (mOutputSam) {
-      outStream = FileUtils.createOutputStream(out, true, false);
+    final File out = mStreamed != null
+      ? mStreamed.fragmentFile(currentChild)
+      : TopNPairedEndOutputProcessorSync.determineTempFile(mParams, currentChild);
+    final UnfilteredTempFileWriter sam = new UnfilteredTempFileWriter(mUnmappedTracker, mSharedResources, mParams, mFreqBlockerLeft, mFreqBlockerRight);
+    if (mStreamed != null) {
+      sam.initialiseUnmated(mStreamed.fragmentWriter(out));
     } else {
-      outStream = NullStreamUtils.getNullOutputStream();
+      final OutputStream outStream;
+      if (mOutputSam) {
+        outStream = AbstractTempFileWriter.createTempOutputStream(out);
+      } else {
+        outStream = NullStreamUtils.getNullOutputStream();
+      }
+      sam.initialiseUnmated(outStream);
     }
-    final UnfilteredTempFileWriter sam = new UnfilteredTempFileWriter(mUnmappedTracker, mSharedResources, mParams, mFreqBlockerLeft, mFreqBlockerRight);
-    sam.initialiseUnmated(outStream);
     sam.setClipRegion(region);
     final UnfilteredSlidingWindowCollector collector = new UnfilteredSlidingWindowCollector(mParams.maxFragmentLength(), mParams.minFragmentLength(), mParams.pairOrientation(), sam,
         mSharedResources, mParams.outputParams().calibrateRegions());
@@ -166,9 +193,12 @@ public class UnfilteredPairedEndOutputProcessor extends AbstractSdfOutputProcess
     mUnmappedTracker.calculateStatistics(true, true);
   }
 
+  private long readIdOffset() {
+    return Math.max(mParams.buildFirstParams().readerRestriction().getStart(), 0);
+  }
+
   private FilterConcatIntermediateFiles writeAlignments(File[] outputFiles) throws IOException {
     Diagnostic.userLog("Merging unmated results");
-    final long readIdOffset = Math.max(mParams.buildFirstParams().readerRestriction().getStart(), 0);
     final File outFile;
     if (mParams.outputParams().bam()) {
       outFile = mParams.outputParams().resultStreamHandler().file(NgsOutputParams.ALIGNMENTS_BAM_FILE_NAME);
@@ -177,7 +207,11 @@ public class UnfilteredPairedEndOutputProcessor extends AbstractSdfOutputProcess
         ? mParams.outputParams().resultStreamHandler().file(NgsOutputParams.ALIGNMENTS_SAM_FILE_NAME + FileUtils.GZ_SUFFIX)
         : mParams.outputParams().resultStreamHandler().file(NgsOutputParams.ALIGNMENTS_SAM_FILE_NAME);
     }
-    return new SansFilterConcat(mParams, mUnmappedTracker, readIdOffset).filterConcat(outputFiles, outFile, mSharedResources.getHeader(), mParams.outputParams());
+    if (mStreamed != null) {
+      mStreamed.concat(outputFiles, outFile);
+      return null;
+    }
+    return new SansFilterConcat(mParams, mUnmappedTracker, readIdOffset()).filterConcat(outputFiles, outFile, mSharedResources.getHeader(), mParams.outputParams());
   }
 
   private FilterConcatIntermediateFiles writeUnmapped() throws IOException {
@@ -19,8 +19,11 @@ import java.util.Collections;
 
 import com.rtg.index.hash.ngs.OutputProcessor;
 import com.rtg.launcher.HashingRegion;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.ngs.blocking.MapQScoringReadBlocker;
 import com.rtg.ngs.blocking.ReadBlocker;
+import com.rtg.ngs.tempstage.AbstractTempFileWriter;
 import com.rtg.ngs.tempstage.BinaryTempFileRecord;
 import com.rtg.ngs.tempstage.SingleEndTempFileWriter;
 import com.rtg.reader.NamesInterface;
@@ -32,6 +35,9 @@ import com.rtg.util.io.FileUtils;
 
 /**
  * Quick and dirty writer of unfiltered SAM output files.
+ * When streaming is enabled the records leaving each chunk's reordering buffer are converted
+ * straight into a SAM/BAM fragment, so the fragments only need concatenating at the end
+ * instead of a second pass over binary temp files.
  *
  */
 public class UnfilteredSingleEndOutputProcessor extends AbstractSdfOutputProcessor {
@@ -47,6 +53,7 @@ public class UnfilteredSingleEndOutputProcessor extends AbstractSdfOutputProcess
   protected final ReadBlocker mFreqBlockerLeft;
   private final ArrayList<Pair<HashingRegion, File>> mChildren;
   private final boolean mOutputSam;
+  private final StreamedAlignments mStreamed;
   private int mChildCount = 0;
 
   /**
@@ -57,10 +64,23 @@ public class UnfilteredSingleEndOutputProcessor extends AbstractSdfOutputProcess
    * @throws IOException If an IO error
    */
   public UnfilteredSingleEndOutputProcessor(NgsParams param, MapStatistics stats, boolean outputUnmapped) throws IOException {
+    this(param, stats, outputUnmapped, GlobalFlags.isSet(CoreGlobalFlags.MAP_STREAM_UNFILTERED_OUTPUT));
+  }
+
+  /**
+   * Create a new {@link UnfilteredSingleEndOutputProcessor}
+   * @param param {@link NgsParams}
+   * @param stats map to put statistics into
+   * @param outputUnmapped  true if unmapped should be output
+   * @param streaming true if alignments should be streamed into SAM/BAM fragments during the search
+   * @throws IOException If an IO error
+   */
+  UnfilteredSingleEndOutputProcessor(NgsParams param, MapStatistics stats, boolean outputUnmapped, boolean streaming) throws IOException {
     super(param, stats, false, param.outputParams().sam() || param.outputParams().bam());
     final int numSequences = (int) param.buildFirstParams().numberSequences();
     mOutputUnmapped = outputUnmapped;
     mOutputSam = param.outputParams().sam() || mParams.outputParams().bam();
+    mStreamed = mOutputSam && !param.outputParams().unify() && streaming ? new StreamedAlignments(param, mSharedResources, readIdOffset()) : null;
     mFreqBlockerLeft = new ReadBlocker(numSequences, param.readFreqThreshold(), "left hits");
     mChildren = new ArrayList<>();
     mThreadLocks = new Object[NUMBER_OF_THREAD_LOCKS];
@@ -85,17 +105,12 @@ public class UnfilteredSingleEndOutputProcessor extends AbstractSdfOutputProcess
       outputFiles[i] = mChildren.get(i).getB();
     }
     final FilterConcatIntermediateFiles alignmentsIntFiles;
-    if (mOutputSam) {
-      final long readIdOffset = Math.max(mParams.buildFirstParams().readerRestriction().getStart(), 0);
-      final File outFile;
-      if (mParams.outputParams().bam()) {
-        outFile = mParams.outputParams().resultStreamHandler().file(NgsOutputParams.ALIGNMENTS_BAM_FILE_NAME);
-      } else {
-        outFile = mParams.outputParams().isCompressOutput()
-            ? mParams.outputParams().resultStreamHandler().file(NgsOutputParams.ALIGNMENTS_SAM_FILE_NAME + FileUtils.GZ_SUFFIX)
-                : mParams.outputParams().resultStreamHandler().file(NgsOutputParams.ALIGNMENTS_SAM_FILE_NAME);
-      }
-      alignmentsIntFiles = new SansFilterConcat(mParams, mUnmappedTracker, readIdOffset).filterConcat(outputFiles, outFile, mSharedResources.getHeader(), mParams.outputParams());
+    if (mStreamed != null) {
+      mStreamed.concat(outputFiles, alignmentsFile());
+      alignmentsIntFiles = null;
+    } else if (mOutputSam) {
+      final File outFile = alignmentsFile();
+      alignmentsIntFiles = new SansFilterConcat(mParams, mUnmappedTracker, readIdOffset()).filterConcat(outputFiles, outFile, mSharedResources.getHeader(), mParams.outputParams());
       //SamSingleEndOutputProcessor.indexSamFile(mParams, outFile);
     } else {
       alignmentsIntFiles = null;
@@ -118,6 +133,19 @@ public class UnfilteredSingleEndOutputProcessor extends AbstractSdfOutputProcess
     mUnmappedTracker.calculateStatistics(false, true);
   }
 
+  private long readIdOffset() {
+    return Math.max(mParams.buildFirstParams().readerRestriction().getStart(), 0);
+  }
+
+  private File alignmentsFile() throws IOException {
+    if (mParams.outputParams().bam()) {
+      return mParams.outputParams().resultStreamHandler().file(NgsOutputParams.ALIGNMENTS_BAM_FILE_NAME);
+    }
+    return mParams.outputParams().isCompressOutput()
+        ? mParams.outputParams().resultStreamHandler().file(NgsOutputParams.ALIGNMENTS_SAM_FILE_NAME + FileUtils.GZ_SUFFIX)
+            : mParams.outputParams().resultStreamHandler().file(NgsOutputParams.ALIGNMENTS_SAM_FILE_NAME);
+  }
+
   private FilterConcatIntermediateFiles writeUnmapped() throws IOException {
     return writeUnmapped(!mParams.outputParams().unify(), !mOutputSam, true);
   }
@@ -135,15 +163,21 @@ public class UnfilteredSingleEndOutputProcessor extends AbstractSdfOutputProcess
     if (!dir.exists() && !dir.mkdirs()) {
       throw new IOException("unable to create directory: " + dir);
     }
-    final File out = TopNPairedEndOutputProcessorSync.determineTempFile(mParams, currentChild);
-    final OutputStream outStream;
-    if (mOutputSam) {
-      outStream = FileUtils.createOutputStream(out, true, false);
+    final File out = mStreamed != null
+      ? mStreamed.fragmentFile(currentChild)
+      : TopNPairedEndOutputProcessorSync.determineTempFile(mParams, currentChild);
+    final SingleEndTempFileWriter samse = new SingleEndTempFileWriter(mParams,  mUnmappedTracker, mSharedResources);
+    if (mStreamed != null) {
+      samse.initialiseAlignments(mStreamed.fragmentWriter(out), null);
     } else {
-      outStream = NullStreamUtils.getNullOutputStream();
+      final OutputStream outStream;
+      if (mOutputSam) {
+        outStream = AbstractTempFileWriter.createTempOutputStream(out);
+      } else {
+        outStream = NullStreamUtils.getNullOutputStream();
+      }
+      samse.initialiseAlignments(outStream, null);
     }
-    final SingleEndTempFileWriter samse = new SingleEndTempFileWriter(mParams,  mUnmappedTracker, mSharedResources);
-    samse.initialiseAlignments(outStream, null);
     samse.setClipRegion(region);
     final com.rtg.ngs.UnfilteredSingleEndOutputProcessor.InnerUnfilteredSingleEndOutputProcessor inner = new com.rtg.ngs.UnfilteredSingleEndOutputProcessor.InnerUnfilteredSingleEndOutputProcessor(this, samse);
     mChildren.add(new Pair<>(region, out));
@@ -186,9 +220,11 @@ public class UnfilteredSingleEndOutputProcessor extends AbstractSdfOutputProcess
     private final Object[] mThreadLocks;
     private final ReadBlocker mFreqBlockerLeft;
     private final ReadStatusTracker mUnmappedTracker;
+    private final boolean mStreaming;
 
     public InnerUnfilteredSingleEndOutputProcessor(UnfilteredSingleEndOutputProcessor parent, SingleEndTempFileWriter tempWriter) {
       mTempWriter = tempWriter;
+      mStreaming = parent.mStreamed != null;
       mThreadLocks = parent.mThreadLocks;
       mFreqBlockerLeft = parent.mFreqBlockerLeft;
       mUnmappedTracker = parent.mUnmappedTracker;
@@ -230,6 +266,10 @@ public class UnfilteredSingleEndOutputProcessor extends AbstractSdfOutputProcess
         record = mTempWriter.alignmentResultUnfiltered(readId, bFrame, tStart);
         if (record != null) {
           blocker.increment(readId);
+          if (mStreaming) {
+            // normally set when the temp files are filtered
+            mUnmappedTracker.addStatus(readId, ReadStatusTracker.UNMATED_FIRST);
+          }
         }
         mUnmappedTracker.addStatus(readId, MATCHED);
       }
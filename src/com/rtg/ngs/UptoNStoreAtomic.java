@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
+
+/**
+ * Guard writes to an arbitrary <code>UptoNStore</code> with a claim bit per read (modulo the
+ * number of bits) set by compare and set, rather than the monitors of <code>UptoNStoreSync</code>.
+ * Insertion into the enclosed store touches several slots for a read so is not itself atomic,
+ * but threads only ever wait on a thread working on the same read, and the bits for
+ * 32 reads share a single integer instead of each needing a lock object.
+ */
+@TestClass("com.rtg.ngs.UptoNStoreAtomicTest")
+public class UptoNStoreAtomic implements UptoNStore {
+
+  private static final boolean ATOMIC = GlobalFlags.getBooleanValue(CoreGlobalFlags.MAP_ATOMIC_READ_BLOCKING);
+
+  private static final int NUMBER_OF_CLAIM_WORDS = 1 << 16;
+  private static final int CLAIM_MASK = NUMBER_OF_CLAIM_WORDS * Integer.SIZE - 1;
+
+  private final AtomicIntegerArray mClaims;
+
+  private final UptoNStore mEnclosed;
+
+  /**
+   * Constructor
+   * @param enclosed implementation to enclose
+   */
+  public UptoNStoreAtomic(UptoNStore enclosed) {
+    mClaims = new AtomicIntegerArray(NUMBER_OF_CLAIM_WORDS);
+    mEnclosed = enclosed;
+  }
+
+  /**
+   * Wrap a store so that it may be updated by multiple threads, with either this implementation
+   * or <code>UptoNStoreSync</code> as selected by the atomic read blocking flag.
+   * @param enclosed implementation to enclose
+   * @return the wrapped store
+   */
+  public static UptoNStore concurrent(UptoNStore enclosed) {
+    return ATOMIC ? new UptoNStoreAtomic(enclosed) : new UptoNStoreSync(enclosed);
+  }
+
+  @Override
+  public String histogram() {
+    return mEnclosed.histogram();
+  }
+
+  @Override
+  public void setResults(MatchResult results, int encodedReadId) {
+    mEnclosed.setResults(results, encodedReadId);
+  }
+
+  @Override
+  public void process(long templateId, boolean reverse, int encodedReadId, int tStart, int scoreIndel) {
+    final int claim = claimId(encodedReadId);
+    final int word = claim >>> 5;
+    final int bit = 1 << (claim & 31);
+    while (true) {
+      final int current = mClaims.get(word);
+      if ((current & bit) == 0) {
+        if (mClaims.compareAndSet(word, current, current | bit)) {
+          break;
+        }
+      } else {
+        Thread.yield();
+      }
+    }
+    try {
+      mEnclosed.process(templateId, reverse, encodedReadId, tStart, scoreIndel);
+    } finally {
+      while (true) {
+        final int current = mClaims.get(word);
+        if (mClaims.compareAndSet(word, current, current & ~bit)) {
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the claim bit guarding a read.
+   * @param encodedReadId read identifier being accessed.
+   * @return the index of the claim bit for the read identifier.
+   */
+  static int claimId(int encodedReadId) {
+    return encodedReadId & CLAIM_MASK;
+  }
+
+  @Override
+  public String toString() {
+    return mEnclosed.toString() + "Atomic";
+  }
+}
@@ -79,7 +79,8 @@ public class MapQScoringReadBlocker implements Closeable {
   }
 
   private final String mTitle;
-  private final int mThreshold;  // Count limit for best score
+  private final int mNumReads;
+  protected final int mThreshold;  // Count limit for best score
   private final byte[] mScore1; // Current best score treated as unsigned here
   private final byte[] mScore2; // Current next best score treated as unsigned here
   private final short[] mCount1; // Count at current score treated as unsigned here
@@ -91,6 +92,7 @@ public class MapQScoringReadBlocker implements Closeable {
    */
   public MapQScoringReadBlocker(MapQScoringReadBlocker source) {
     mTitle = source.mTitle;
+    mNumReads = source.mNumReads;
     mThreshold = source.mThreshold;
     mScore1 = source.mScore1;
     mScore2 = source.mScore2;
@@ -106,6 +108,18 @@ public class MapQScoringReadBlocker implements Closeable {
    * @param title a title to use during logging
    */
   public MapQScoringReadBlocker(final int count, final int threshold, final String title) {
+    this(count, threshold, title, true);
+  }
+
+  /**
+   * Creates a counter for <code>count</code> records blocking at <code>threshold</code>.
+   *
+   * @param count number of reads
+   * @param threshold blocking threshold score in range 1 to 255
+   * @param title a title to use during logging
+   * @param allocate false if the subclass keeps the scores and counts itself
+   */
+  protected MapQScoringReadBlocker(final int count, final int threshold, final String title, final boolean allocate) {
     // we add one to the threshold because the way this scoring blocker is
     // used means that it discards reads with count >= the threshold.
     if (threshold > MAX_COUNT || threshold < 1) {
@@ -113,10 +127,12 @@ public class MapQScoringReadBlocker implements Closeable {
     }
     mTitle = title;
     mThreshold = threshold + 1;
-    mCount1 = new short[count];
-    mCount2 = new short[count];
-    mScore1 = new byte[count];
-    mScore2 = new byte[count];
+    mNumReads = count;
+    final int length = allocate ? count : 0;
+    mCount1 = new short[length];
+    mCount2 = new short[length];
+    mScore1 = new byte[length];
+    mScore2 = new byte[length];
     Arrays.fill(mScore1, (byte) 0xFF);
     Arrays.fill(mScore2, (byte) 0xFF);
   }
@@ -139,7 +155,7 @@ public class MapQScoringReadBlocker implements Closeable {
    * @param r Read identifier
    * @return the number of records written, or the threshold.
    */
-  public final int getCount1(int r) {
+  public int getCount1(int r) {
     return mCount1[r] & MAX_COUNT;
   }
 
@@ -148,7 +164,7 @@ public class MapQScoringReadBlocker implements Closeable {
    * @param r Read identifier
    * @return the score.
    */
-  public final int getScore1(int r) {
+  public int getScore1(int r) {
     return mScore1[r] & 0xFF;
   }
 
@@ -160,7 +176,7 @@ public class MapQScoringReadBlocker implements Closeable {
    * @param r Read identifier
    * @return the number of records written, or the threshold.
    */
-  final int getCount2(int r) {
+  int getCount2(int r) {
     return mCount2[r] & MAX_COUNT;
   }
 
@@ -169,7 +185,7 @@ public class MapQScoringReadBlocker implements Closeable {
    * @param r Read identifier
    * @return the score.
    */
-  public final int getScore2(int r) {
+  public int getScore2(int r) {
     return mScore2[r] & 0xFF;
   }
 
@@ -234,7 +250,7 @@ public class MapQScoringReadBlocker implements Closeable {
    * @param r read id
    * @return a MAPQ value
    */
-  public final int getMapQ(final int r) {
+  public int getMapQ(final int r) {
     final int bestCount = mCount1[r] & MAX_COUNT;
     final int nextCount = mCount2[r] & MAX_COUNT;
     final int bestScore = mScore1[r] & 0xFF;
@@ -280,8 +296,8 @@ public class MapQScoringReadBlocker implements Closeable {
   public void close() {
     if (License.isDeveloper()) {
       final int[] h = new int[MAX_COUNT + 1];
-      for (final int k : mCount1) {
-        h[k & MAX_COUNT]++;
+      for (int r = 0; r < mNumReads; ++r) {
+        h[getCount1(r)]++;
       }
       Diagnostic.developerLog("Statistics of " + mTitle);
       long sum = 0;
@@ -296,6 +312,15 @@ public class MapQScoringReadBlocker implements Closeable {
     }
   }
 
+  /**
+   * Get a blocker for use once all updates have finished, which avoids any
+   * synchronization overhead of this blocker.
+   * @return a blocker with the same scores and counts as this one
+   */
+  public MapQScoringReadBlocker readOnly() {
+    return new MapQScoringReadBlocker(this);
+  }
+
   @Override
   public String toString() {
     return "ScoringReadBlocker";
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs.blocking;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
+import com.rtg.ngs.ReadTable;
+
+/**
+ * Lock-free version of <code>MapQScoringReadBlocker</code> with the same behaviour as
+ * <code>MapQScoringReadBlockerSynch</code>. The packed record of each read is held in an
+ * atomic array and updated with compare and set.
+ */
+@TestClass("com.rtg.ngs.blocking.MapQScoringReadBlockerAtomicTest")
+public class MapQScoringReadBlockerAtomic extends PackedMapQScoringReadBlocker {
+
+  private static final boolean ATOMIC = GlobalFlags.getBooleanValue(CoreGlobalFlags.MAP_ATOMIC_READ_BLOCKING);
+
+  private final AtomicLongArray mRecords;
+
+  /**
+   * Creates a counter for <code>count</code> records blocking at <code>threshold</code>.
+   *
+   * @param count number of reads
+   * @param threshold blocking threshold score in range 1 to 255
+   * @param title a title to use during logging
+   */
+  public MapQScoringReadBlockerAtomic(final int count, final int threshold, final String title) {
+    super(count, threshold, title);
+    mRecords = new AtomicLongArray(count);
+  }
+
+  /**
+   * Creates a counter for <code>count</code> records blocking at <code>
+   * threshold</code>.
+   *
+   * @param count number of reads
+   * @param threshold blocking threshold in range 1 to 255.
+   */
+  public MapQScoringReadBlockerAtomic(final int count, final int threshold) {
+    this(count, threshold, "multithreaded blocked pairings");
+  }
+
+  /**
+   * Creates a blocker that may be updated by multiple threads. When per read tables are held
+   * off the heap this is a <code>MapQScoringReadBlockerOffHeap</code>, otherwise either this
+   * implementation or <code>MapQScoringReadBlockerSynch</code> as selected by the atomic read
+   * blocking flag.
+   *
+   * @param count number of reads
+   * @param threshold blocking threshold in range 1 to 255.
+   * @return the blocker
+   */
+  public static MapQScoringReadBlocker concurrent(final int count, final int threshold) {
+    if (ReadTable.storage() != ReadTable.Storage.HEAP) {
+      return new MapQScoringReadBlockerOffHeap(count, threshold, ReadTable.storage());
+    }
+    return ATOMIC ? new MapQScoringReadBlockerAtomic(count, threshold) : new MapQScoringReadBlockerSynch(count, threshold);
+  }
+
+  @Override
+  long record(final int r) {
+    return mRecords.get(r);
+  }
+
+  @Override
+  boolean compareAndSet(final int r, final long expect, final long update) {
+    return mRecords.compareAndSet(r, expect, update);
+  }
+
+  @Override
+  public String toString() {
+    return "ScoringReadBlockerAtomic";
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs.blocking;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.ngs.ReadTable;
+
+/**
+ * Multithreaded <code>MapQScoringReadBlocker</code> holding the packed record of each read
+ * in a <code>ReadTable</code>, so the records can live outside the heap. Updates are guarded
+ * by the same striped locks as <code>MapQScoringReadBlockerSynch</code>, while queries read a
+ * single record without locking.
+ */
+@TestClass("com.rtg.ngs.blocking.MapQScoringReadBlockerOffHeapTest")
+public class MapQScoringReadBlockerOffHeap extends PackedMapQScoringReadBlocker {
+
+  private static final int NUMBER_OF_THREAD_LOCKS = 1 << 16;
+  private static final int THREAD_LOCK_MASK = NUMBER_OF_THREAD_LOCKS - 1;
+
+  /* Array of locks for multiple threads */
+  private final Object[] mThreadLocks;
+
+  private final ReadTable mRecords;
+
+  /**
+   * Creates a counter for <code>count</code> records blocking at <code>threshold</code>.
+   *
+   * @param count number of reads
+   * @param threshold blocking threshold score in range 1 to 255
+   * @param storage where the records are held
+   */
+  public MapQScoringReadBlockerOffHeap(final int count, final int threshold, final ReadTable.Storage storage) {
+    super(count, threshold, "multithreaded blocked pairings");
+    mThreadLocks = new Object[NUMBER_OF_THREAD_LOCKS];
+    for (int i = 0; i < mThreadLocks.length; ++i) {
+      mThreadLocks[i] = new Object();
+    }
+    mRecords = ReadTable.create(count, 8, storage);
+  }
+
+  @Override
+  long record(final int r) {
+    return mRecords.get(r);
+  }
+
+  @Override
+  boolean compareAndSet(final int r, final long expect, final long update) {
+    synchronized (mThreadLocks[r & THREAD_LOCK_MASK]) {
+      if (mRecords.get(r) != expect) {
+        return false;
+      }
+      mRecords.set(r, update);
+      return true;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ScoringReadBlockerOffHeap";
+  }
+}
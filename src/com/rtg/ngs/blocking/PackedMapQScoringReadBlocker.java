@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs.blocking;
+
+import com.reeltwo.jumble.annotations.TestClass;
+
+/**
+ * <code>MapQScoringReadBlocker</code> holding the two scores and two counts of each read packed
+ * into a single long. Every update replaces the whole record with a compare and set, so
+ * every query sees a consistent record and subclasses only decide where the records live.
+ */
+@TestClass({"com.rtg.ngs.blocking.MapQScoringReadBlockerAtomicTest", "com.rtg.ngs.blocking.MapQScoringReadBlockerOffHeapTest"})
+abstract class PackedMapQScoringReadBlocker extends MapQScoringReadBlocker {
+
+  // Scores are stored complemented, so that a zero record has both scores at 255 and both counts at 0
+  private static final int SCORE1_SHIFT = 40;
+  private static final int SCORE2_SHIFT = 32;
+  private static final int COUNT1_SHIFT = 16;
+  private static final int COUNT2_SHIFT = 0;
+
+  /**
+   * @param count number of reads
+   * @param threshold blocking threshold score in range 1 to 255
+   * @param title a title to use during logging
+   */
+  PackedMapQScoringReadBlocker(final int count, final int threshold, final String title) {
+    super(count, threshold, title, false);
+  }
+
+  /**
+   * @param r read identifier
+   * @return the packed record of the read
+   */
+  abstract long record(int r);
+
+  /**
+   * Replace the record of a read if it has not changed.
+   * @param r read identifier
+   * @param expect the record the read is expected to have
+   * @param update the new record
+   * @return true if the record was replaced
+   */
+  abstract boolean compareAndSet(int r, long expect, long update);
+
+  private static long pack(final int score1, final int score2, final int count1, final int count2) {
+    return ((long) (~score1 & MAX_SCORE) << SCORE1_SHIFT)
+      | ((long) (~score2 & MAX_SCORE) << SCORE2_SHIFT)
+      | ((long) count1 << COUNT1_SHIFT)
+      | ((long) count2 << COUNT2_SHIFT);
+  }
+
+  private static int score1(final long record) {
+    return ~(int) (record >>> SCORE1_SHIFT) & MAX_SCORE;
+  }
+
+  private static int score2(final long record) {
+    return ~(int) (record >>> SCORE2_SHIFT) & MAX_SCORE;
+  }
+
+  private static int count1(final long record) {
+    return (int) (record >>> COUNT1_SHIFT) & MAX_COUNT;
+  }
+
+  private static int count2(final long record) {
+    return (int) (record >>> COUNT2_SHIFT) & MAX_COUNT;
+  }
+
+  @Override
+  public int getCount1(final int r) {
+    return count1(record(r));
+  }
+
+  @Override
+  public int getScore1(final int r) {
+    return score1(record(r));
+  }
+
+  @Override
+  int getCount2(final int r) {
+    return count2(record(r));
+  }
+
+  @Override
+  public int getScore2(final int r) {
+    return score2(record(r));
+  }
+
+  @Override
+  public int getTerminationScore(final int r) {
+    final long record = record(r);
+    if (count1(record) > 1) {
+      return score1(record);
+    }
+    return score2(record);
+  }
+
+  @Override
+  public int increment(final int r, final int score) {
+    final int storedScore = (score > MAX_SCORE) ? 0xFF : (score & 0xFF);
+    while (true) {
+      final long current = record(r);
+      final int currentScore = score1(current);
+      final int currentScore2 = score2(current);
+      final int count1 = count1(current);
+      final int count2 = count2(current);
+      final long update;
+      final int result;
+      if (score < currentScore) {       // New best score, old best becomes second best
+        update = pack(storedScore, currentScore, 1, count1);
+        result = 1;
+      } else if (score == currentScore) { // Another hit at the best score
+        result = count1 == MAX_COUNT ? count1 : count1 + 1;
+        update = pack(currentScore, currentScore2, result, count2);
+      } else if (score < currentScore2) { // New second best score
+        update = pack(currentScore, storedScore, count1, 1);
+        result = -1;
+      } else if (score == currentScore2) { // Another hit at second best score
+        update = pack(currentScore, currentScore2, count1, count2 == MAX_COUNT ? count2 : count2 + 1);
+        result = -1;
+      } else { // score > currentScore2 is a no-op
+        return -1;
+      }
+      if (update == current || compareAndSet(r, current, update)) {
+        return result;
+      }
+    }
+  }
+
+  @Override
+  public int getMapQ(final int r) {
+    final long record = record(r);
+    return approxMapQ(count1(record), count2(record), score1(record), MAX_SCORE);
+  }
+
+  @Override
+  public boolean isBlocked1(final int r, final int score) {
+    final long record = record(r);
+    final int currentScore = score1(record);
+    return (score > currentScore)
+    || ((score == currentScore) && count1(record) >= mThreshold);
+  }
+
+  @Override
+  public boolean isBlocked(final int r) {
+    return getCount1(r) >= mThreshold;
+  }
+
+  @Override
+  public boolean isBlocked2(final int r, final int score) {
+    final long record = record(r);
+    final int currentScore = score2(record);
+    return (score > currentScore)
+    || ((score == currentScore) && count2(record) >= NEXT_LIMIT);
+  }
+
+  /**
+   * Queries never need a lock, so this blocker can be used directly.
+   * @return this blocker
+   */
+  @Override
+  public MapQScoringReadBlocker readOnly() {
+    return this;
+  }
+}
@@ -24,7 +24,8 @@ public class ReadBlocker implements Closeable {
 
   private static final int MAX_COUNT = Short.MAX_VALUE * 2 + 1;
   private final short[] mCounts; // treated as unsigned here
-  private final int mThreshold;
+  private final int mNumReads;
+  protected final int mThreshold;
   private final String mTitle;
 
   /**
@@ -34,6 +35,7 @@ public class ReadBlocker implements Closeable {
   public ReadBlocker(ReadBlocker source) {
     mTitle = source.mTitle;
     mCounts = source.mCounts;
+    mNumReads = source.mNumReads;
     mThreshold = source.mThreshold;
   }
 
@@ -46,13 +48,27 @@ public class ReadBlocker implements Closeable {
    * @param title a title to use during logging
    */
   public ReadBlocker(final long count, final int threshold, final String title) {
+    this(count, threshold, title, true);
+  }
+
+  /**
+   * Creates a counter for <code>count</code> records blocking at <code>
+   * threshold</code>.
+   *
+   * @param count number of reads
+   * @param threshold blocking threshold in range 1 to 255
+   * @param title a title to use during logging
+   * @param allocate false if the subclass keeps the counts itself
+   */
+  protected ReadBlocker(final long count, final int threshold, final String title, final boolean allocate) {
     if (count > Integer.MAX_VALUE) {
       throw new IllegalArgumentException("Too many reads");
     }
     if (threshold != -1 && (threshold > MAX_COUNT || threshold < 1)) {
       throw new IllegalArgumentException();
     }
-    mCounts = new short[(int) count];
+    mCounts = new short[allocate ? (int) count : 0];
+    mNumReads = (int) count;
     mThreshold = threshold;
     mTitle = title;
   }
@@ -105,8 +121,8 @@ public class ReadBlocker implements Closeable {
   public void close() {
     if (License.isDeveloper()) {
       final int[] h = new int[MAX_COUNT + 1];
-      for (final int k : mCounts) {
-        h[k & MAX_COUNT]++;
+      for (int r = 0; r < mNumReads; ++r) {
+        h[getCount(r)]++;
       }
       Diagnostic.developerLog("Statistics of " + mTitle);
       long sum = 0;
@@ -131,4 +147,13 @@ public class ReadBlocker implements Closeable {
   public int getCount(int r) {
     return mCounts[r] & MAX_COUNT;
   }
+
+  /**
+   * Get a blocker for use once all updates have finished, which avoids any
+   * synchronization overhead of this blocker.
+   * @return a blocker with the same counts as this one
+   */
+  public ReadBlocker readOnly() {
+    return new ReadBlocker(this);
+  }
 }
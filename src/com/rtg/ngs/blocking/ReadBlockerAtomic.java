@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs.blocking;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
+
+/**
+ * Lock-free version of <code>ReadBlocker</code> with the same behaviour as <code>ReadBlockerSync</code>.
+ * The unsigned 16 bit counts are packed two to an integer and updated with compare and set,
+ * so no monitors are shared between threads working on different reads.
+ */
+@TestClass("com.rtg.ngs.blocking.ReadBlockerAtomicTest")
+public class ReadBlockerAtomic extends ReadBlocker {
+
+  private static final boolean ATOMIC = GlobalFlags.getBooleanValue(CoreGlobalFlags.MAP_ATOMIC_READ_BLOCKING);
+
+  private static final int COUNT_BITS = 16;
+  private static final int COUNT_MASK = (1 << COUNT_BITS) - 1;
+
+  private final AtomicIntegerArray mCounts;
+
+  /**
+   * Creates a counter for <code>count</code> records blocking at <code>
+   * threshold</code>.
+   *
+   * @param count number of reads
+   * @param threshold blocking threshold in range 1 to 255
+   * @param title a title to use during logging
+   */
+  public ReadBlockerAtomic(final long count, final int threshold, final String title) {
+    super(count, threshold, title, false);
+    mCounts = new AtomicIntegerArray((int) ((count + 1) / 2));
+  }
+
+  /**
+   * Creates a blocker that may be updated by multiple threads, either this implementation
+   * or <code>ReadBlockerSync</code> as selected by the atomic read blocking flag.
+   *
+   * @param count number of reads
+   * @param threshold blocking threshold in range 1 to 255
+   * @param title a title to use during logging
+   * @return the blocker
+   */
+  public static ReadBlocker concurrent(final long count, final int threshold, final String title) {
+    return ATOMIC ? new ReadBlockerAtomic(count, threshold, title) : new ReadBlockerSync(count, threshold, title);
+  }
+
+  private static int shift(final int r) {
+    return (r & 1) * COUNT_BITS;
+  }
+
+  @Override
+  public void reset(final int r) {
+    final int i = r >>> 1;
+    final int mask = ~(COUNT_MASK << shift(r));
+    while (true) {
+      final int current = mCounts.get(i);
+      final int update = current & mask;
+      if (current == update || mCounts.compareAndSet(i, current, update)) {
+        return;
+      }
+    }
+  }
+
+  @Override
+  public void increment(final int r) {
+    final int i = r >>> 1;
+    final int shift = shift(r);
+    while (true) {
+      final int current = mCounts.get(i);
+      final int count = (current >>> shift) & COUNT_MASK;
+      if (count == COUNT_MASK) {
+        return;
+      }
+      if (mCounts.compareAndSet(i, current, current + (1 << shift))) {
+        return;
+      }
+    }
+  }
+
+  @Override
+  public boolean isBlocked(final int r) {
+    if (mThreshold == -1) {
+      return false;
+    }
+    return getCount(r) >= mThreshold;
+  }
+
+  @Override
+  public int getCount(final int r) {
+    return (mCounts.get(r >>> 1) >>> shift(r)) & COUNT_MASK;
+  }
+
+  /**
+   * Reads are already lock-free, so this blocker can be used directly.
+   * @return this blocker
+   */
+  @Override
+  public ReadBlocker readOnly() {
+    return this;
+  }
+}
@@ -12,6 +12,7 @@
 package com.rtg.ngs.tempstage;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Comparator;
@@ -30,6 +31,7 @@ import com.rtg.reader.SequencesReader;
 import com.rtg.util.IntegerOrPercentage;
 import com.rtg.util.MaxShiftFactor;
 import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.io.FileUtils;
 
 /**
  * Base class used to derive temp file writers.
@@ -68,6 +70,31 @@ public abstract class AbstractTempFileWriter implements Closeable {
 
   private final MaxShiftFactor mMaxShiftFactor;
 
+  /**
+   * @return true if temp files are gzipped, false if this has been disabled with a global flag
+   */
+  public static boolean gzipTempFiles() {
+    return GlobalFlags.getBooleanValue(CoreGlobalFlags.TEMP_FILES_GZIP_FLAG);
+  }
+
+  /**
+   * @return the file name suffix matching the encoding of temp files
+   */
+  public static String tempFileSuffix() {
+    return gzipTempFiles() ? FileUtils.GZ_SUFFIX : "";
+  }
+
+  /**
+   * Create a stream for writing a temp file. The file is gzipped unless this has been disabled
+   * with a global flag, uncompressed temp files are read back through a memory mapping.
+   * @param file the temp file, named with <code>tempFileSuffix()</code>
+   * @return the output stream
+   * @throws IOException if the file cannot be created
+   */
+  public static OutputStream createTempOutputStream(final File file) throws IOException {
+    return FileUtils.createOutputStream(file, gzipTempFiles(), false);
+  }
+
   /**
    * Construct a new writer.
    * @param listener a listener that will receive notifications of mated pairs
@@ -159,6 +186,10 @@ public abstract class AbstractTempFileWriter implements Closeable {
   }
 
   protected SmartTempFileWriter createSmartWriter(final OutputStream out) {
+    return createSmartWriter(new TempRecordWriterNio(out));
+  }
+
+  protected SmartTempFileWriter createSmartWriter(final TempRecordWriter out) {
     final int maxLength = mSecondReader == null ? (int) mFirstReader.maxLength() : Math.max((int) mFirstReader.maxLength(), (int) mSecondReader.maxLength());
     // Initial reported position can be out by maxshift for an individual record. Between records though the ordering could be out by read length + maxgap.
 
@@ -369,6 +369,51 @@ public class BinaryTempFileRecord {
     return true;
   }
 
+  /**
+   * Read into this alignment record from a buffer which holds the whole record. Existing arrays
+   * are reused when the length of the new value is unchanged, so values returned by earlier calls
+   * to the getters may be overwritten.
+   * @param in the buffer, positioned at the start of the record
+   * @return true if a record was read, false if the end of the input data has been reached
+   * @throws java.nio.BufferUnderflowException if the buffer ends part way through the record
+   */
+  public boolean readBuffer(ByteBuffer in) {
+    mReferenceId = in.getInt();
+    if (mReferenceId == -1) {
+      return false;
+    }
+    mStartPosition = in.getInt();
+    mReadId = in.getInt();
+    mSamFlags = in.get();
+    mCigarString = readArray(in, mCigarString);
+    mAlignmentScore = in.getInt();
+    mNumberMismatches = in.getInt();
+    if (hasMdField()) {
+      mMdString = readArray(in, mMdString);
+    }
+    if (hasPairedFields()) {
+      mMatePosition = in.getInt();
+      mTemplateLength = in.getInt();
+      mComboScore = in.getInt();
+    }
+    if (hasCgFields()) {
+      mReadString = readArray(in, mReadString);
+      mSuperCigarString = readArray(in, mSuperCigarString);
+      mReadDeltaString = readArray(in, mReadDeltaString);
+    }
+    if (hasUnfilteredField()) {
+      mUnfilteredMated = in.get() != 0;
+    }
+    return true;
+  }
+
+  private static byte[] readArray(ByteBuffer in, byte[] reuse) {
+    final int length = in.getInt();
+    final byte[] ret = reuse != null && reuse.length == length ? reuse : new byte[length];
+    in.get(ret);
+    return ret;
+  }
+
   static void readMore(ByteBuffer in, ReadableByteChannel ch) throws IOException {
     in.compact();
     int rr = 0;
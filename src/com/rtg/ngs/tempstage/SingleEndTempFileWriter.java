@@ -86,6 +86,17 @@ public class SingleEndTempFileWriter extends AbstractTempFileWriter {
    * @exception IOException if an I/O error occurs
    */
   public void initialiseAlignments(final OutputStream alignmentsOut, final MapQScoringReadBlocker alignmentsBlocker) throws IOException {
+    initialiseAlignments(new TempRecordWriterNio(alignmentsOut), alignmentsBlocker);
+  }
+
+  /**
+   * Tells the alignment writer where alignment results should be sent, records are
+   * passed on in sorted order as they leave the reordering buffer.
+   * Must be called before any calls to <code>alignmentResult</code>
+   * @param alignmentsOut record writer to send unmated results to.
+   * @param alignmentsBlocker blocker to keep track of best score per read
+   */
+  public void initialiseAlignments(final TempRecordWriter alignmentsOut, final MapQScoringReadBlocker alignmentsBlocker) {
     mUnmatedBlocker = alignmentsBlocker;
     mBinarizableRecordWriter = createSmartWriter(alignmentsOut);
     mTemplateId = -1;
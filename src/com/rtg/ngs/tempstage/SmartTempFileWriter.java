@@ -34,8 +34,18 @@ public class SmartTempFileWriter extends ReorderingQueue<BinaryTempFileRecord> {
    * @param bufferDistance the initial buffer distance;
    */
   public SmartTempFileWriter(OutputStream out, Comparator<BinaryTempFileRecord> comp, int bufferDistance) {
+    this(new TempRecordWriterNio(out), comp, bufferDistance);
+  }
+
+  /**
+   * Makes our smart binary record writer, sending the sorted records to another record writer
+   * @param out the record writer to send records to
+   * @param comp comparator to sort records by
+   * @param bufferDistance the initial buffer distance;
+   */
+  public SmartTempFileWriter(TempRecordWriter out, Comparator<BinaryTempFileRecord> comp, int bufferDistance) {
     super(bufferDistance, comp);
-    mOutputStream = new TempRecordWriterNio(out);
+    mOutputStream = out;
   }
 
   /**
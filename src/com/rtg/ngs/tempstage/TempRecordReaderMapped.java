@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs.tempstage;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import com.reeltwo.jumble.annotations.TestClass;
+
+/**
+ * Reads an uncompressed temp file through a memory mapping of the file.
+ * The same record is returned by every call to <code>readRecord</code>, it is overwritten
+ * by the next call so callers must copy anything they wish to keep.
+ */
+@TestClass("com.rtg.ngs.tempstage.TempRecordMappedTest")
+public class TempRecordReaderMapped implements TempRecordReader {
+
+  /** Size of the region of the file mapped at any one time. */
+  static final long DEFAULT_WINDOW = 1L << 30;
+
+  private final FileChannel mChannel;
+  private final long mLength;
+  private final long mWindow;
+  private final BinaryTempFileRecord mRecord;
+  private MappedByteBuffer mBuffer;
+  /** Position in the file of the start of the buffer. */
+  private long mBufferStart;
+
+  /**
+   * @param file uncompressed temp file to be read
+   * @param fact factory to create the temp file record
+   * @throws IOException if the file cannot be opened
+   */
+  public TempRecordReaderMapped(File file, RecordFactory fact) throws IOException {
+    this(file, fact, DEFAULT_WINDOW);
+  }
+
+  TempRecordReaderMapped(File file, RecordFactory fact, long window) throws IOException {
+    mChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    mLength = mChannel.size();
+    mWindow = window;
+    mRecord = fact.createRecord();
+    map(0);
+  }
+
+  private void map(final long start) throws IOException {
+    mBufferStart = start;
+    mBuffer = mChannel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(mWindow, mLength - start));
+    mBuffer.order(ByteOrder.nativeOrder());
+  }
+
+  @Override
+  public BinaryTempFileRecord readRecord() throws IOException {
+    final int start = mBuffer.position();
+    if (mBufferStart + start == mLength) {
+      return null;
+    }
+    final boolean read;
+    try {
+      read = mRecord.readBuffer(mBuffer);
+    } catch (final BufferUnderflowException e) {
+      if (mBufferStart + mBuffer.limit() == mLength) {
+        throw new EOFException("Unexpected end of temp file");
+      }
+      if (start == 0) {
+        throw new IOException("Temp file record is larger than the mapped window of " + mWindow + " bytes");
+      }
+      // the record crosses the end of the mapped window, map again from the start of the record
+      map(mBufferStart + start);
+      return readRecord();
+    }
+    return read ? mRecord : null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    mBuffer = null;
+    mChannel.close();
+  }
+}
@@ -80,6 +80,14 @@ public class UnfilteredTempFileWriter extends AbstractTempFileWriter {
    * @throws IOException if an IOException occurs
    */
   public void initialiseUnmated(final OutputStream unmatedOut) throws IOException {
+    initialiseUnmated(new TempRecordWriterNio(unmatedOut));
+  }
+
+  /**
+   * Initialise the unmated output, records are passed on in sorted order as they leave the reordering buffer.
+   * @param unmatedOut record writer to output unmated to
+   */
+  public void initialiseUnmated(final TempRecordWriter unmatedOut) {
     mBinarizableRecordUnmatedWriter = createSmartWriter(unmatedOut);
     mTemplateId = -1;
   }
@@ -373,7 +373,7 @@ public final class CigarFormatter {
     final String rs = sb.toString();
     final AlignmentMatch match = new AlignmentMatch(alignmentRecord, chooser, rs, quality, params.qDefault(), 0, rs.length(), VariantUtils.readScoreFromAlignmentRecord(alignmentRecord, params), !leftN, !rightN);
     match.setBasesLeftOfMatch(startInRead);
-    match.setBasesRightOfMatch(alignmentRecord.getRead().length - endReadPos);
+    match.setBasesRightOfMatch(read.length - endReadPos);
     setSoftClipBases(cigar, match, read.length);
     return match;
   }
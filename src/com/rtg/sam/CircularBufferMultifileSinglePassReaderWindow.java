@@ -31,11 +31,14 @@ public class CircularBufferMultifileSinglePassReaderWindow<T extends ReaderRecor
   private int[] mDepth; // Chain length at this position
   private int[] mMaxLengths; // Max record length at this position
   private int[] mMinimumStart; // Stores offsets for how far back in buffer to search for overlapping records
+  private int[] mCoverage; // Number of records read so far overlapping this position, only kept when the coverage limit is active
+  private boolean[] mTossed; // Records starting at this position were tossed due to coverage, only kept when the coverage limit is active
 
   // Holds the one record that is ahead of the requested region.
   private T mSingleRecordStash = null;
 
   private final int mDepthLimit; // Maximum depth of records to retain at any start position
+  private final int mCoverageLimit; // Maximum number of overlapping records to retain at any start position, or 0 for no limit
   private final Populator<T> mPopulator;
   private int mFirstPosition; // The leftmost start position coordinate that we may be asked about (we may store some records with start positions left of that) (0 based in template co-ordinates)
   private int mLastPosition; // The rightmost start position coordinate that we may be asked about (?exclusive) (0 based in template co-ordinates)
@@ -59,6 +62,29 @@ public class CircularBufferMultifileSinglePassReaderWindow<T extends ReaderRecor
    * @param maxDepth maximum records per position
    */
   public CircularBufferMultifileSinglePassReaderWindow(RecordIterator<T> recordIt, Populator<T> pop, int templateIndex, int templateStart, int maxDepth) {
+    this(recordIt, pop, templateIndex, templateStart, maxDepth, 0);
+  }
+
+  /**
+   * Note: the supplied record iterator must be closed explicitly by the caller when finished using it as the
+   * close method for the <code>CircularBufferMultifileSinglePassReaderWindow</code> will not close it.
+   * When a coverage limit is given the window keeps an exact count of the records overlapping each position,
+   * and once more than <code>maxCoverage</code> records overlap a start position the records starting there are
+   * tossed and replaced by an overflow record covering just that position. Unlike the overflow record made when
+   * too many records share a start position, this does not extend over the tossed records, positions they overlap
+   * are left to be bypassed on their own coverage (see <code>coverage</code>).
+   * This bounds the records held in regions of extreme coverage, where calls are bypassed in any case.
+   * @param recordIt iterator supplying records
+   * @param pop the record populator
+   * @param templateIndex sequence index for template
+   * @param templateStart first position being retrieved (zero based)
+   * @param maxDepth maximum records per position
+   * @param maxCoverage maximum overlapping records to retain at any start position, or 0 for no limit
+   */
+  public CircularBufferMultifileSinglePassReaderWindow(RecordIterator<T> recordIt, Populator<T> pop, int templateIndex, int templateStart, int maxDepth, int maxCoverage) {
+    if (maxCoverage < 0) {
+      throw new IllegalArgumentException("Coverage limit must not be negative: " + maxCoverage);
+    }
     mIterator = recordIt;
     mPopulator = pop;
     mTemplateIndex = templateIndex;
@@ -68,6 +94,11 @@ public class CircularBufferMultifileSinglePassReaderWindow<T extends ReaderRecor
     mMaxLengths = new int[DEFAULT_BUFFER_LENGTH];
     mDepthLimit = Math.max(1, maxDepth); // blows up deeper with NPE if 0 is allowed through
     mMinimumStart = new int[DEFAULT_BUFFER_LENGTH];
+    mCoverageLimit = maxCoverage;
+    if (mCoverageLimit > 0) {
+      mCoverage = new int[DEFAULT_BUFFER_LENGTH];
+      mTossed = new boolean[DEFAULT_BUFFER_LENGTH];
+    }
     mLastPosition = mFirstPosition;
     mFlushedTo = mFirstPosition;
     mFirstStart = mFirstPosition;
@@ -150,6 +181,10 @@ public class CircularBufferMultifileSinglePassReaderWindow<T extends ReaderRecor
       mBuffer[ix] = null;
       mDepth[ix] = 0;
       mMaxLengths[ix] = 0;
+      if (mCoverage != null) {
+        mCoverage[ix] = 0;
+        mTossed[ix] = false;
+      }
     }
     for (int i = newStart; i < overlapEnd; ++i) {
       final int ix = i % mBuffer.length;
@@ -228,6 +263,8 @@ public class CircularBufferMultifileSinglePassReaderWindow<T extends ReaderRecor
     final int[] newDepth = new int[resize];
     final int[] newMaxLenths = new int[resize];
     final int[] newMinimumStart = new int[resize];
+    final int[] newCoverage = mCoverage == null ? null : new int[resize];
+    final boolean[] newTossed = mTossed == null ? null : new boolean[resize];
     //copy the buffers
     for (int i = mFirstStart; i < mLastEnd; ++i) {
       final int j = i % mBuffer.length;
@@ -235,6 +272,10 @@ public class CircularBufferMultifileSinglePassReaderWindow<T extends ReaderRecor
       newBuffer[k] = mBuffer[j];
       newDepth[k] = mDepth[j];
       newMaxLenths[k] = mMaxLengths[j];
+      if (mCoverage != null) {
+        newCoverage[k] = mCoverage[j];
+        newTossed[k] = mTossed[j];
+      }
     }
 
     for (int i = mFirstPosition; i < mLastEnd; ++i) {
@@ -246,6 +287,8 @@ public class CircularBufferMultifileSinglePassReaderWindow<T extends ReaderRecor
     mDepth = newDepth;
     mMaxLengths = newMaxLenths;
     mMinimumStart = newMinimumStart;
+    mCoverage = newCoverage;
+    mTossed = newTossed;
   }
 
   public long getValidRecordsCount() {
@@ -269,19 +312,31 @@ public class CircularBufferMultifileSinglePassReaderWindow<T extends ReaderRecor
     //System.err.println("add buffer start=" + start + " index=" + index);
     final int length = record.getLength();
     mMaxLengths[index] = Math.max(mMaxLengths[index], length);
-    if (++mDepth[index] >= mDepthLimit) {
-      if (mDepth[index] > mMaxSeenDepth) {
-        mMaxSeenDepth = mDepth[index];
+    if (mCoverage != null) {
+      for (int i = start; i < start + length; ++i) {
+        ++mCoverage[i % mBuffer.length];
+      }
+    }
+    final int depth = ++mDepth[index];
+    final boolean overflowed = depth > mDepthLimit || (mTossed != null && mTossed[index]);
+    if (overflowed || depth == mDepthLimit || (mCoverage != null && mCoverage[index] > mCoverageLimit)) {
+      if (depth > mMaxSeenDepth) {
+        mMaxSeenDepth = depth;
       }
-      if (mDepth[index] == mDepthLimit) {
+      // Tossing on coverage only discards the start position, the depth limit discards the region the records span
+      final int span = depth == mDepthLimit ? mMaxLengths[index] : depth > mDepthLimit ? length : 1;
+      if (!overflowed) {
         Diagnostic.developerLog("CBMSPRW tossing all records with start position: " + start);
-        mBuffer[index] = mPopulator.overflow(start, mMaxLengths[index]);
-        mDroppedRecords += mDepthLimit;
+        mBuffer[index] = mPopulator.overflow(start, span);
+        mDroppedRecords += depth;
+        if (mTossed != null) {
+          mTossed[index] = true;
+        }
       } else {
         ++mDroppedRecords;
-        if (length > mBuffer[index].getLength()) {
+        if (span > mBuffer[index].getLength()) {
           // Update discard region to be maximum length observed
-          mBuffer[index] = mPopulator.overflow(start, length);
+          mBuffer[index] = mPopulator.overflow(start, span);
         }
       }
     } else {
@@ -336,6 +391,44 @@ public class CircularBufferMultifileSinglePassReaderWindow<T extends ReaderRecor
     return records.iterator();
   }
 
+  /**
+   * Number of records read so far that overlap a position. This is exact for positions that have not
+   * been flushed, including records that were tossed, once records up to the position have been read.
+   * Coverage is only counted when a coverage limit is set.
+   * @param position zero based position on the template
+   * @return the number of overlapping records, or -1 if no coverage limit is set
+   */
+  public int coverage(final int position) {
+    if (mCoverage == null) {
+      return -1;
+    }
+    if (position < mFlushedTo || position >= mLastEnd) {
+      return 0;
+    }
+    return mCoverage[position % mBuffer.length];
+  }
+
+  /**
+   * Maximum of <code>coverage</code> over a region.
+   * @param start zero based start position of the region (inclusive)
+   * @param end zero based end position of the region (exclusive), a region with <code>end &lt;= start</code> is just <code>start</code>
+   * @return the maximum number of records overlapping any position of the region, or -1 if no coverage limit is set
+   */
+  public int maxCoverage(final int start, final int end) {
+    int max = coverage(start);
+    for (int position = start + 1; position < end && max >= 0; ++position) {
+      max = Math.max(max, coverage(position));
+    }
+    return max;
+  }
+
+  /**
+   * @return maximum overlapping records retained at any start position, or 0 if there is no limit
+   */
+  public int coverageLimit() {
+    return mCoverageLimit;
+  }
+
   /**
    * Total number of records discarded due to extreme coverage regions.
    * @return discarded record count
@@ -41,6 +41,20 @@ public final class CircularBufferMultifileSinglePassReaderWindowSync<T extends R
     super(recordIt, pop, templateIndex, templateStart, maxDepth);
   }
 
+  /**
+   * Note: the supplied record iterator must be closed explicitly by the caller when finished using it as the
+   * close method for the <code>CircularBufferMultifileSinglePassReaderWindow</code> will not close it.
+   * @param recordIt iterator supplying records
+   * @param pop the record populator
+   * @param templateIndex sequence index for template
+   * @param templateStart first position being retrieved
+   * @param maxDepth maximum records per position
+   * @param maxCoverage maximum overlapping records to retain at any start position, or 0 for no limit
+   */
+  public CircularBufferMultifileSinglePassReaderWindowSync(RecordIterator<T> recordIt, Populator<T> pop, int templateIndex, int templateStart, int maxDepth, int maxCoverage) {
+    super(recordIt, pop, templateIndex, templateStart, maxDepth, maxCoverage);
+  }
+
   @Override
   public synchronized void flush(int start, int end) throws IOException {
     //System.err.println("CirularBuffer flush enter");
@@ -80,4 +94,14 @@ public final class CircularBufferMultifileSinglePassReaderWindowSync<T extends R
     return super.finishedTo();
   }
 
+  @Override
+  public synchronized int coverage(int position) {
+    return super.coverage(position);
+  }
+
+  @Override
+  public synchronized int maxCoverage(int start, int end) {
+    return super.maxCoverage(start, end);
+  }
+
 }
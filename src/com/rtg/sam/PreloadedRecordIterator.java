@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.sam;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import htsjdk.samtools.SAMFileHeader;
+
+/**
+ * Returns records which have already been read from another iterator, optionally followed by the
+ * records remaining in that iterator. Record counts are those of the underlying iterator.
+ * Closing this iterator does not close the underlying iterator.
+ * @param <T> record type
+ */
+public class PreloadedRecordIterator<T extends ReaderRecord<T> & MateInfo> implements RecordIterator<T> {
+
+  private final Iterator<T> mPreloaded;
+  private final RecordIterator<T> mSource;
+  private final boolean mContinue;
+
+  /**
+   * @param preloaded records already read from <code>source</code>.
+   * @param source the iterator the records were read from.
+   * @param continueFromSource if true, the records remaining in <code>source</code> are returned after the preloaded records.
+   */
+  public PreloadedRecordIterator(List<T> preloaded, RecordIterator<T> source, boolean continueFromSource) {
+    mPreloaded = preloaded.iterator();
+    mSource = source;
+    mContinue = continueFromSource;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return mPreloaded.hasNext() || (mContinue && mSource.hasNext());
+  }
+
+  @Override
+  public T next() {
+    if (mPreloaded.hasNext()) {
+      return mPreloaded.next();
+    }
+    if (!mContinue) {
+      throw new NoSuchElementException();
+    }
+    return mSource.next();
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public SAMFileHeader header() {
+    return mSource.header();
+  }
+
+  @Override
+  public long getTotalNucleotides() {
+    return mSource.getTotalNucleotides();
+  }
+
+  @Override
+  public long getInvalidRecordsCount() {
+    return mSource.getInvalidRecordsCount();
+  }
+
+  @Override
+  public long getFilteredRecordsCount() {
+    return mSource.getFilteredRecordsCount();
+  }
+
+  @Override
+  public long getDuplicateRecordsCount() {
+    return mSource.getDuplicateRecordsCount();
+  }
+
+  @Override
+  public long getOutputRecordsCount() {
+    return mSource.getOutputRecordsCount();
+  }
+
+  @Override
+  public long getTotalRecordsCount() {
+    return mSource.getTotalRecordsCount();
+  }
+}
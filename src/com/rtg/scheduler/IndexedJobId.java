@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.scheduler;
+
+import com.reeltwo.jumble.annotations.TestClass;
+
+/**
+ * Identifies a job belonging to one of several schedulers being run together.
+ * @param <J> the type of the job identifiers within each scheduler.
+ */
+@TestClass("com.rtg.scheduler.SchedulerMultipleTest")
+public final class IndexedJobId<J extends JobId<J>> implements JobId<IndexedJobId<J>> {
+
+  private final int mIndex;
+
+  private final J mId;
+
+  /**
+   * @param index of the scheduler the job belongs to.
+   * @param id identifier of the job within its scheduler.
+   */
+  public IndexedJobId(final int index, final J id) {
+    mIndex = index;
+    mId = id;
+  }
+
+  /**
+   * @return index of the scheduler the job belongs to.
+   */
+  public int index() {
+    return mIndex;
+  }
+
+  /**
+   * @return identifier of the job within its scheduler.
+   */
+  public J id() {
+    return mId;
+  }
+
+  @Override
+  public boolean validArguments(Result[] results) {
+    return mId.validArguments(results);
+  }
+
+  @Override
+  public boolean validResult(Result result) {
+    return mId.validResult(result);
+  }
+
+  @Override
+  public int time() {
+    return mId.time();
+  }
+
+  @Override
+  public int compareTo(final IndexedJobId<J> that) {
+    final int c = Integer.compare(mIndex, that.mIndex);
+    if (c != 0) {
+      return c;
+    }
+    return mId.compareTo(that.mId);
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (!(obj instanceof IndexedJobId)) {
+      return false;
+    }
+    final IndexedJobId<?> that = (IndexedJobId<?>) obj;
+    return mIndex == that.mIndex && mId.equals(that.mId);
+  }
+
+  @Override
+  public int hashCode() {
+    return mIndex * 31 + mId.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return mIndex + "/" + mId;
+  }
+}
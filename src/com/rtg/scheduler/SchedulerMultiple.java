@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.scheduler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.rtg.util.integrity.Exam;
+import com.rtg.util.integrity.IntegralAbstract;
+
+/**
+ * Runs the jobs of several independent schedulers on a single executor, so that
+ * work which is too small to keep all the threads busy on its own can be overlapped.
+ * Schedulers are added (typically from another thread) while the executor is running,
+ * jobs are taken from the earliest added scheduler that has one available.
+ * When no jobs are running and none are available the executor is held until either another
+ * scheduler is added or <code>close</code> is called.
+ * @param <J> the type of the job identifiers within each scheduler.
+ */
+public class SchedulerMultiple<J extends JobId<J>> extends IntegralAbstract implements Scheduler<IndexedJobId<J>> {
+
+  private static final class Part<J extends JobId<J>> {
+    private final int mIndex;
+    private final Scheduler<J> mScheduler;
+    private int mRunning = 0;
+    private boolean mComplete = false;
+
+    Part(final int index, final Scheduler<J> scheduler) {
+      mIndex = index;
+      mScheduler = scheduler;
+    }
+  }
+
+  private static final class IndexedJob<J extends JobId<J>> extends Job<IndexedJobId<J>> {
+    private final Job<J> mJob;
+
+    IndexedJob(final int index, final Job<J> job) {
+      super(new IndexedJobId<>(index, job.id()));
+      mJob = job;
+    }
+
+    @Override
+    protected Result run() throws IOException {
+      return mJob.run();
+    }
+
+    @Override
+    public String toString() {
+      return id().index() + "/" + mJob;
+    }
+  }
+
+  /** Parts that have been added and not yet retrieved by <code>await</code>. */
+  private final Map<Integer, Part<J>> mParts = new HashMap<>();
+
+  /** Parts that may still have jobs, in the order they were added. */
+  private final List<Part<J>> mActive = new ArrayList<>();
+
+  /** Look ahead reported when no scheduler has jobs outstanding. */
+  private final LookAhead mIdle = new LookAhead(0, 0);
+
+  private int mNextIndex = 0;
+
+  private int mRunning = 0;
+
+  private boolean mClosed = false;
+
+  private boolean mExecutorFinished = false;
+
+  /**
+   * Add a scheduler whose jobs are to be run.
+   * @param scheduler scheduler with jobs still to be run.
+   * @return index identifying the scheduler in calls to <code>await</code>.
+   */
+  public synchronized int add(final Scheduler<J> scheduler) {
+    if (mClosed) {
+      throw new IllegalStateException("Scheduler has been closed");
+    }
+    final Part<J> part = new Part<>(mNextIndex++, scheduler);
+    mParts.put(part.mIndex, part);
+    mActive.add(part);
+    notifyAll();
+    return part.mIndex;
+  }
+
+  /**
+   * Wait until all the jobs of a scheduler have finished.
+   * @param index index of the scheduler as returned by <code>add</code>.
+   * @return true if the jobs all finished, false if the executor stopped before they did (for example because a job failed).
+   */
+  public synchronized boolean await(final int index) {
+    final Part<J> part = mParts.get(index);
+    if (part == null) {
+      throw new IllegalArgumentException("Unknown scheduler: " + index);
+    }
+    while (!part.mComplete) {
+      if (mExecutorFinished) {
+        return false;
+      }
+      try {
+        wait();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    mParts.remove(index);
+    return true;
+  }
+
+  /**
+   * Indicates that no more schedulers will be added, the executor will finish once the remaining jobs have been run.
+   */
+  public synchronized void close() {
+    mClosed = true;
+    notifyAll();
+  }
+
+  /**
+   * Called when the executor running the jobs has stopped, so that nothing waits on it forever.
+   */
+  public synchronized void executorFinished() {
+    mExecutorFinished = true;
+    notifyAll();
+  }
+
+  @Override
+  public synchronized Job<IndexedJobId<J>> doneNext(final IndexedJobId<J> id, final Result result, final long nanoTime) {
+    if (id != null) {
+      final Part<J> part = mParts.get(id.index());
+      --part.mRunning;
+      --mRunning;
+      final Job<IndexedJobId<J>> job = next(part, part.mScheduler.doneNext(id.id(), result, nanoTime));
+      if (job != null) {
+        return job;
+      }
+    }
+    while (true) {
+      final Iterator<Part<J>> it = mActive.iterator();
+      while (it.hasNext()) {
+        final Part<J> part = it.next();
+        if (!part.mComplete) {
+          final Job<IndexedJobId<J>> job = next(part, part.mScheduler.doneNext(null, null, -1));
+          if (job != null) {
+            return job;
+          }
+        }
+        if (part.mComplete) {
+          it.remove();
+        }
+      }
+      if (mRunning > 0 || mClosed) {
+        return null;
+      }
+      // nothing running or available, hold this executor thread until more work arrives
+      try {
+        wait();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+    }
+  }
+
+  private Job<IndexedJobId<J>> next(final Part<J> part, final Job<J> job) {
+    if (job == null) {
+      if (part.mRunning == 0 && !part.mComplete) {
+        // a scheduler with nothing running and nothing available is finished
+        part.mComplete = true;
+        notifyAll();
+      }
+      return null;
+    }
+    ++part.mRunning;
+    ++mRunning;
+    return new IndexedJob<>(part.mIndex, job);
+  }
+
+  @Override
+  public synchronized boolean checkEmpty() {
+    Exam.assertEquals(0, mRunning);
+    for (final Part<J> part : mActive) {
+      Exam.assertTrue(part.mComplete);
+    }
+    return true;
+  }
+
+  /**
+   * Each of the added schedulers has its own look ahead over its own times, so there is no single
+   * window for the combination. The earliest added scheduler that has not completed is the one
+   * holding back progress, so its look ahead is given.
+   * @return the look ahead of the earliest incomplete scheduler, or an idle look ahead if there is none.
+   */
+  @Override
+  public synchronized LookAhead lookAhead() {
+    for (final Part<J> part : mActive) {
+      if (!part.mComplete) {
+        return part.mScheduler.lookAhead();
+      }
+    }
+    return mIdle;
+  }
+
+  @Override
+  public synchronized boolean integrity() {
+    Exam.assertTrue(mRunning >= 0);
+    Exam.assertTrue(mNextIndex >= mParts.size());
+    return true;
+  }
+}
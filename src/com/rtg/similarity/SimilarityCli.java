@@ -437,7 +437,7 @@ public final class SimilarityCli extends ParamsCli<BuildSearchParams> {
   static void similarity(final IndexSimilarity index, final long numSequences, List<String> presetNames, final BuildSearchParams params, final String outDir, final Appendable simiOut, final Appendable pcaOut, final Appendable treeOut, final Appendable xmlOut) throws IOException {
     final List<String> names;
     final OneShotTimer matrixTimer = new OneShotTimer("Ph_similarity_matrix");
-    final SimilarityMatrix matrix = index.similarity(numSequences);
+    final SimilarityMatrix matrix = index.similarity(numSequences, GlobalFlags.getIntegerValue(CoreGlobalFlags.SIMILARITY_MATRIX_THREADS_FLAG));
     //System.err.println(matrix);
     matrixTimer.stopLog();
 
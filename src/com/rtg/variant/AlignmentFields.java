@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
+import com.rtg.mode.DNA;
+import com.rtg.sam.ReadGroupUtils;
+import com.rtg.sam.SamUtils;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * The parts of a SAM record used to construct a <code>VariantAlignmentRecord</code>.
+ * For records read from BAM files these are decoded straight from the binary form of the record,
+ * which avoids building the read name, CIGAR and attribute objects of the SAM record.
+ * Only the tags used by <code>VariantAlignmentRecord</code> are examined.
+ */
+@TestClass("com.rtg.variant.VariantAlignmentRecordTest")
+final class AlignmentFields {
+
+  private static final boolean DIRECT_DECODE = GlobalFlags.getBooleanValue(CoreGlobalFlags.VARIANT_DIRECT_BAM_DECODE);
+
+  private static final int SAM_PAIRED = 0x1;
+  private static final int SAM_PROPER_PAIR = 0x2;
+  private static final int SAM_UNMAPPED = 0x4;
+  private static final int SAM_REVERSE = 0x10;
+  private static final int SAM_FIRST = 0x40;
+
+  private static final String CIGAR_OPERATIONS = "MIDNSHP=X";
+  private static final String BAM_BASES = "=ACMGRSVTWYHKDBN";
+  private static final byte INVALID_BASE = -1;
+  /** Our nucleotide code for each of the 4-bit BAM base codes */
+  private static final byte[] BASE_CODES = new byte[BAM_BASES.length()];
+  static {
+    for (int i = 0; i < BASE_CODES.length; ++i) {
+      final char c = BAM_BASES.charAt(i);
+      try {
+        BASE_CODES[i] = c == '=' ? (byte) '=' : (byte) DNA.getDNA(c);
+      } catch (final IllegalArgumentException e) {
+        BASE_CODES[i] = INVALID_BASE;
+      }
+    }
+  }
+
+  int mSequenceId;
+  /** Zero based start */
+  int mStart;
+  /** Zero based exclusive end */
+  int mEnd;
+  int mFlags;
+  int mMappingQuality;
+  byte[] mBases;
+  byte[] mQualities;
+  String mCigar;
+  SAMReadGroupRecord mReadGroup;
+  Integer mNhOrIh;
+  Integer mAlignmentScore;
+  String mSuperCigar;
+  String mOverlapQuality;
+  String mSuperCigarOverlapQuality;
+  String mOverlapBases;
+  String mOverlapInstructions;
+  String mReadDelta;
+  int mMateSequenceId;
+  int mFragmentLength;
+
+  private AlignmentFields() { }
+
+  boolean isPaired() {
+    return (mFlags & SAM_PAIRED) != 0;
+  }
+
+  boolean isProperPair() {
+    return isPaired() && (mFlags & SAM_PROPER_PAIR) != 0;
+  }
+
+  boolean isFirst() {
+    return isPaired() && (mFlags & SAM_FIRST) != 0;
+  }
+
+  boolean isNegativeStrand() {
+    return (mFlags & SAM_REVERSE) != 0;
+  }
+
+  boolean isUnmapped() {
+    return (mFlags & SAM_UNMAPPED) != 0;
+  }
+
+  /**
+   * Extract the fields from a record, decoding directly from the binary form when it is available.
+   * @param record the SAM record
+   * @return the fields
+   */
+  static AlignmentFields fields(final SAMRecord record) {
+    if (DIRECT_DECODE) {
+      final AlignmentFields fields = fromBinary(record);
+      if (fields != null) {
+        return fields;
+      }
+    }
+    return fromRecord(record);
+  }
+
+  /**
+   * Extract the fields using the accessors of the SAM record.
+   * @param record the SAM record
+   * @return the fields
+   */
+  static AlignmentFields fromRecord(final SAMRecord record) {
+    final AlignmentFields f = new AlignmentFields();
+    f.mSequenceId = record.getReferenceIndex();
+    f.mStart = record.getAlignmentStart() - 1;
+    f.mEnd = record.getReadUnmappedFlag() ? record.getAlignmentStart() - 1 + record.getReadLength() : record.getAlignmentEnd(); // picard end position is 1-based inclusive == 0-based exclusive
+    f.mFlags = record.getFlags();
+    f.mMappingQuality = record.getMappingQuality();
+    f.mBases = VariantAlignmentRecord.byteDNAtoByteHandleEquals(record.getReadBases()); //we assume something will convert the = before use
+    f.mQualities = record.getBaseQualities();
+    f.mCigar = record.getCigarString();
+    f.mReadGroup = record.getReadGroup();
+    f.mNhOrIh = SamUtils.getNHOrIH(record);
+    f.mAlignmentScore = record.getIntegerAttribute(SamUtils.ATTRIBUTE_ALIGNMENT_SCORE);
+    f.mSuperCigar = record.getStringAttribute(SamUtils.CG_SUPER_CIGAR);
+    f.mOverlapQuality = record.getStringAttribute(SamUtils.ATTRIBUTE_CG_OVERLAP_QUALITY);
+    f.mSuperCigarOverlapQuality = record.getStringAttribute(SamUtils.CG_SUPER_CIGAR_OVERLAP_QUALITY);
+    f.mOverlapBases = record.getStringAttribute(SamUtils.ATTRIBUTE_CG_OVERLAP_BASES);
+    f.mOverlapInstructions = record.getStringAttribute(SamUtils.ATTRIBUTE_CG_RAW_READ_INSTRUCTIONS);
+    f.mReadDelta = record.getStringAttribute(SamUtils.CG_READ_DELTA);
+    f.mMateSequenceId = record.getMateReferenceIndex();
+    f.mFragmentLength = record.getInferredInsertSize();
+    return f;
+  }
+
+  /**
+   * Extract the fields from the binary form of a record read from a BAM file.
+   * The layout of the variable length part of the record is: the null terminated read name,
+   * the CIGAR operations as 32 bit integers, the bases packed two per byte, the qualities, and then the tags.
+   * @param record the SAM record
+   * @return the fields, or null if the record has no binary form or contains something not handled here
+   */
+  static AlignmentFields fromBinary(final SAMRecord record) {
+    final byte[] data = record.getVariableBinaryRepresentation();
+    if (data == null) {
+      return null;
+    }
+    final AlignmentFields f = new AlignmentFields();
+    f.mSequenceId = record.getReferenceIndex();
+    f.mFlags = record.getFlags();
+    f.mMappingQuality = record.getMappingQuality();
+    f.mMateSequenceId = record.getMateReferenceIndex();
+    f.mFragmentLength = record.getInferredInsertSize();
+    final int alignmentStart = record.getAlignmentStart();
+    final int readLength = record.getReadLength();
+
+    int pos = 0;
+    while (data[pos] != 0) {
+      ++pos;
+    }
+    ++pos;
+
+    final int cigarLength = record.getCigarLength();
+    final int referenceLength;
+    if (cigarLength == 0) {
+      f.mCigar = SAMRecord.NO_ALIGNMENT_CIGAR;
+      referenceLength = 0;
+    } else {
+      final StringBuilder sb = new StringBuilder();
+      int refLen = 0;
+      for (int i = 0; i < cigarLength; ++i, pos += 4) {
+        final int op = readInt(data, pos);
+        final int len = op >>> 4;
+        final int type = op & 0xF;
+        if (type >= CIGAR_OPERATIONS.length()) {
+          return null;
+        }
+        final char c = CIGAR_OPERATIONS.charAt(type);
+        sb.append(len).append(c);
+        if (c == 'M' || c == 'D' || c == 'N' || c == '=' || c == 'X') {
+          refLen += len;
+        }
+      }
+      f.mCigar = sb.toString();
+      referenceLength = refLen;
+    }
+    f.mStart = alignmentStart - 1;
+    f.mEnd = (f.mFlags & SAM_UNMAPPED) != 0 ? alignmentStart - 1 + readLength : alignmentStart - 1 + referenceLength;
+
+    f.mBases = new byte[readLength];
+    for (int i = 0; i < readLength; ++i) {
+      final int packed = data[pos + (i >> 1)];
+      final byte code = BASE_CODES[(i & 1) == 0 ? (packed >> 4) & 0xF : packed & 0xF];
+      if (code == INVALID_BASE) {
+        throw new IllegalArgumentException(String.valueOf(BAM_BASES.charAt((i & 1) == 0 ? (packed >> 4) & 0xF : packed & 0xF)));
+      }
+      f.mBases[i] = code;
+    }
+    pos += (readLength + 1) / 2;
+
+    if (readLength == 0 || data[pos] == (byte) 0xFF) {
+      f.mQualities = SAMRecord.NULL_QUALS;
+    } else {
+      f.mQualities = new byte[readLength];
+      System.arraycopy(data, pos, f.mQualities, 0, readLength);
+    }
+    pos += readLength;
+
+    final TagValues tags = new TagValues();
+    if (!tags.read(data, pos)) {
+      return null;
+    }
+    final SAMFileHeader header = record.getHeader();
+    f.mReadGroup = tags.mReadGroupId == null || header == null ? null : header.getReadGroup(tags.mReadGroupId);
+    f.mNhOrIh = tags.mNh != null ? tags.mNh : tags.mIh;
+    f.mAlignmentScore = tags.mAlignmentScore;
+    f.mSuperCigar = tags.mSuperCigar;
+    f.mOverlapQuality = tags.mOverlapQuality;
+    f.mSuperCigarOverlapQuality = tags.mSuperCigarOverlapQuality;
+    f.mOverlapBases = tags.mOverlapBases;
+    f.mOverlapInstructions = tags.mOverlapInstructions;
+    f.mReadDelta = tags.mReadDelta;
+    return f;
+  }
+
+  /** Values of the tags that are used, as found in the binary form of a record */
+  private static final class TagValues {
+    private String mReadGroupId;
+    private Integer mNh;
+    private Integer mIh;
+    private Integer mAlignmentScore;
+    private String mSuperCigar;
+    private String mOverlapQuality;
+    private String mSuperCigarOverlapQuality;
+    private String mOverlapBases;
+    private String mOverlapInstructions;
+    private String mReadDelta;
+
+    // Pick out the tags we use, returns false if any of them are of an unexpected type
+    boolean read(final byte[] data, final int start) {
+      int pos = start;
+      while (pos < data.length) {
+        final char t0 = (char) data[pos];
+        final char t1 = (char) data[pos + 1];
+        final char type = (char) data[pos + 2];
+        pos += 3;
+        final int valueStart = pos;
+        switch (type) {
+          case 'A':
+          case 'c':
+          case 'C':
+            pos += 1;
+            break;
+          case 's':
+          case 'S':
+            pos += 2;
+            break;
+          case 'i':
+          case 'I':
+          case 'f':
+            pos += 4;
+            break;
+          case 'Z':
+          case 'H':
+            while (data[pos] != 0) {
+              ++pos;
+            }
+            ++pos;
+            break;
+          case 'B':
+            pos += 5 + elementSize((char) data[pos]) * readInt(data, pos + 1);
+            break;
+          default:
+            return false;
+        }
+        if (!assign(t0, t1, type, data, valueStart, pos)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean assign(final char t0, final char t1, final char type, final byte[] data, final int valueStart, final int valueEnd) {
+      // Unsigned 32 bit values beyond the range of an int are not integer attributes
+      final boolean integer = type == 'c' || type == 'C' || type == 's' || type == 'S' || type == 'i' || (type == 'I' && readInt(data, valueStart) >= 0);
+      if (is(SamUtils.ATTRIBUTE_NH, t0, t1)) {
+        mNh = integer ? integerValue(type, data, valueStart) : null;
+        return integer;
+      } else if (is(SamUtils.ATTRIBUTE_IH, t0, t1)) {
+        mIh = integer ? integerValue(type, data, valueStart) : null;
+        return integer;
+      } else if (is(SamUtils.ATTRIBUTE_ALIGNMENT_SCORE, t0, t1)) {
+        mAlignmentScore = integer ? integerValue(type, data, valueStart) : null;
+        return integer;
+      }
+      final String value = type == 'Z' ? new String(data, valueStart, valueEnd - valueStart - 1) : null;
+      if (is(ReadGroupUtils.RG_ATTRIBUTE, t0, t1)) {
+        mReadGroupId = value;
+      } else if (is(SamUtils.CG_SUPER_CIGAR, t0, t1)) {
+        mSuperCigar = value;
+      } else if (is(SamUtils.ATTRIBUTE_CG_OVERLAP_QUALITY, t0, t1)) {
+        mOverlapQuality = value;
+      } else if (is(SamUtils.CG_SUPER_CIGAR_OVERLAP_QUALITY, t0, t1)) {
+        mSuperCigarOverlapQuality = value;
+      } else if (is(SamUtils.ATTRIBUTE_CG_OVERLAP_BASES, t0, t1)) {
+        mOverlapBases = value;
+      } else if (is(SamUtils.ATTRIBUTE_CG_RAW_READ_INSTRUCTIONS, t0, t1)) {
+        mOverlapInstructions = value;
+      } else if (is(SamUtils.CG_READ_DELTA, t0, t1)) {
+        mReadDelta = value;
+      } else {
+        return true;
+      }
+      return value != null;
+    }
+  }
+
+  private static boolean is(final String tag, final char t0, final char t1) {
+    return tag.charAt(0) == t0 && tag.charAt(1) == t1;
+  }
+
+  private static int integerValue(final char type, final byte[] data, final int pos) {
+    switch (type) {
+      case 'c':
+        return data[pos];
+      case 'C':
+        return data[pos] & 0xFF;
+      case 's':
+        return (short) ((data[pos] & 0xFF) | (data[pos + 1] << 8));
+      case 'S':
+        return (data[pos] & 0xFF) | ((data[pos + 1] & 0xFF) << 8);
+      default:
+        return readInt(data, pos);
+    }
+  }
+
+  private static int elementSize(final char subtype) {
+    switch (subtype) {
+      case 'c':
+      case 'C':
+        return 1;
+      case 's':
+      case 'S':
+        return 2;
+      default:
+        return 4;
+    }
+  }
+
+  private static int readInt(final byte[] data, final int pos) {
+    return (data[pos] & 0xFF) | ((data[pos + 1] & 0xFF) << 8) | ((data[pos + 2] & 0xFF) << 16) | ((data[pos + 3] & 0xFF) << 24);
+  }
+}
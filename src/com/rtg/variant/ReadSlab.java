@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.mode.DNA;
+
+/**
+ * Compact storage for the bases and qualities of alignment records while they are held by the
+ * variant callers. Each reading thread carves records out of large slabs, so that a record holds
+ * a reference to the slab and an offset instead of separate base and quality arrays.
+ * Bases take two bits each, with a bitmap of unknown bases present only when a read has any,
+ * and recalibrated qualities take a byte each. Records are allocated and released roughly in
+ * reference order, so a slab becomes garbage soon after the last of its records is flushed.
+ */
+@TestClass("com.rtg.variant.ReadSlabTest")
+final class ReadSlab {
+
+  /** Size of each slab in bytes */
+  static final int SLAB_SIZE = 1 << 20;
+
+  private static final ThreadLocal<ReadSlab> LOCAL = ThreadLocal.withInitial(ReadSlab::new);
+
+  private static final int HAS_QUALITIES = 1;
+  private static final int HAS_UNKNOWNS = 2;
+  private static final int FLAG_BITS = 2;
+
+  private final int mSlabSize;
+  private byte[] mSlab;
+  private int mUsed;
+
+  ReadSlab() {
+    this(SLAB_SIZE);
+  }
+
+  ReadSlab(final int slabSize) {
+    mSlabSize = slabSize;
+  }
+
+  /** @return the slab for the current thread */
+  static ReadSlab local() {
+    return LOCAL.get();
+  }
+
+  /**
+   * Test if bases can be packed, that is they contain only known bases and <code>N</code>.
+   * Reads containing <code>=</code> are not packed, as those bases are later replaced in place.
+   * @param bases read bases
+   * @return true if the bases can be packed
+   */
+  static boolean packable(final byte[] bases) {
+    for (final byte b : bases) {
+      if (b < DNA.N.ordinal() || b > DNA.T.ordinal()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Describe the layout of a packed read.
+   * @param bases read bases, which must be packable
+   * @param qualities qualities, either empty or the same length as the bases
+   * @return the layout information to be supplied to the accessors
+   */
+  static int info(final byte[] bases, final byte[] qualities) {
+    assert qualities.length == 0 || qualities.length == bases.length;
+    int info = bases.length << FLAG_BITS;
+    if (qualities.length != 0) {
+      info |= HAS_QUALITIES;
+    }
+    for (final byte b : bases) {
+      if (b == DNA.N.ordinal()) {
+        info |= HAS_UNKNOWNS;
+        break;
+      }
+    }
+    return info;
+  }
+
+  /**
+   * @param info layout information
+   * @return the number of bases in the read
+   */
+  static int length(final int info) {
+    return info >>> FLAG_BITS;
+  }
+
+  private static int basesOffset(final int info) {
+    return (info & HAS_QUALITIES) != 0 ? length(info) : 0;
+  }
+
+  private static int unknownsOffset(final int info) {
+    return basesOffset(info) + (length(info) + 3) / 4;
+  }
+
+  static int size(final int info) {
+    return unknownsOffset(info) + ((info & HAS_UNKNOWNS) != 0 ? (length(info) + 7) / 8 : 0);
+  }
+
+  /**
+   * Copy a read into the current slab, starting a new slab if there is insufficient room.
+   * Afterwards <code>slab()</code> returns the slab the read was written into.
+   * @param info layout information
+   * @param bases read bases
+   * @param qualities read qualities
+   * @return offset of the read within the slab
+   */
+  int pack(final int info, final byte[] bases, final byte[] qualities) {
+    final int size = size(info);
+    if (mSlab == null || mUsed + size > mSlab.length) {
+      mSlab = new byte[Math.max(mSlabSize, size)];
+      mUsed = 0;
+    }
+    final int offset = mUsed;
+    mUsed += size;
+    System.arraycopy(qualities, 0, mSlab, offset, qualities.length);
+    final int b = offset + basesOffset(info);
+    final int u = offset + unknownsOffset(info);
+    for (int i = 0; i < bases.length; ++i) {
+      if (bases[i] == DNA.N.ordinal()) {
+        mSlab[u + (i >> 3)] |= 1 << (i & 7);
+      } else {
+        mSlab[b + (i >> 2)] |= (bases[i] - 1) << ((i & 3) << 1);
+      }
+    }
+    return offset;
+  }
+
+  /** @return the slab most recently packed into */
+  byte[] slab() {
+    return mSlab;
+  }
+
+  /**
+   * Get a single base of a packed read.
+   * @param slab slab holding the read
+   * @param offset offset of the read within the slab
+   * @param info layout information
+   * @param i position within the read
+   * @return the base
+   */
+  static byte base(final byte[] slab, final int offset, final int info, final int i) {
+    if ((info & HAS_UNKNOWNS) != 0 && (slab[offset + unknownsOffset(info) + (i >> 3)] & (1 << (i & 7))) != 0) {
+      return (byte) DNA.N.ordinal();
+    }
+    return (byte) (((slab[offset + basesOffset(info) + (i >> 2)] >> ((i & 3) << 1)) & 3) + 1);
+  }
+
+  /**
+   * Get a single quality of a packed read.
+   * @param slab slab holding the read
+   * @param offset offset of the read within the slab
+   * @param i position within the read, which must have qualities
+   * @return the quality
+   */
+  static byte quality(final byte[] slab, final int offset, final int i) {
+    return slab[offset + i];
+  }
+
+  /**
+   * @param info layout information
+   * @return the number of qualities held for the read, zero if it has none
+   */
+  static int qualitiesLength(final int info) {
+    return (info & HAS_QUALITIES) == 0 ? 0 : length(info);
+  }
+
+  /**
+   * Unpack the bases of a read.
+   * @param slab slab holding the read
+   * @param offset offset of the read within the slab
+   * @param info layout information
+   * @return a new array containing the bases
+   */
+  static byte[] bases(final byte[] slab, final int offset, final int info) {
+    final byte[] bases = new byte[length(info)];
+    for (int i = 0; i < bases.length; ++i) {
+      bases[i] = base(slab, offset, info, i);
+    }
+    return bases;
+  }
+
+  /**
+   * Unpack the qualities of a read.
+   * @param slab slab holding the read
+   * @param offset offset of the read within the slab
+   * @param info layout information
+   * @return a new array containing the qualities, empty if the read has none
+   */
+  static byte[] qualities(final byte[] slab, final int offset, final int info) {
+    final byte[] qualities = new byte[qualitiesLength(info)];
+    System.arraycopy(slab, offset, qualities, 0, qualities.length);
+    return qualities;
+  }
+}
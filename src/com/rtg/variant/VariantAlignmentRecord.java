@@ -12,6 +12,7 @@
 package com.rtg.variant;
 
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.rtg.launcher.globals.CoreGlobalFlags;
 import com.rtg.launcher.globals.GlobalFlags;
@@ -36,6 +37,11 @@ import htsjdk.samtools.SAMRecord;
 public final class VariantAlignmentRecord extends SequenceIdLocusSimple implements ReaderRecord<VariantAlignmentRecord>, MateInfo, MapInfo {
   // Factor 1.1 to cover arithmetic error in sum used for error() in EvidenceComplex
   private static final boolean MIN_QUALITY_AS_TWO = GlobalFlags.getBooleanValue(CoreGlobalFlags.MIN_BASE_QUALITY_AS_TWO);
+  private static final boolean PACKED = GlobalFlags.getBooleanValue(CoreGlobalFlags.VARIANT_PACKED_ALIGNMENT_RECORDS);
+
+  // Packed records share a single instance of each of the commonly occurring CIGARs
+  private static final int CIGAR_POOL_LIMIT = 10000;
+  private static final ConcurrentHashMap<String, String> CIGAR_POOL = new ConcurrentHashMap<>();
 
   private static final int FLAG_MATED = 1;
   private static final int FLAG_PAIRED = 2;
@@ -53,8 +59,11 @@ public final class VariantAlignmentRecord extends SequenceIdLocusSimple implemen
     return new VariantAlignmentRecord(start, start + length);
   }
 
-  private final byte[] mBases;
-  private final byte[] mRecalibratedQuality;
+  private final byte[] mBases; // null when packed
+  private final byte[] mRecalibratedQuality; // null when packed
+  private final byte[] mPacked; // slab holding bases and qualities when packed
+  private final int mPackedOffset;
+  private final int mPackedInfo;
   private final String mCigar;
   private final byte mMappingQuality;
   private final byte mFlag; // Not the same semantics as SAM flag.
@@ -76,6 +85,9 @@ public final class VariantAlignmentRecord extends SequenceIdLocusSimple implemen
     super(0, start, end);
     mBases = null;
     mRecalibratedQuality = null;
+    mPacked = null;
+    mPackedOffset = 0;
+    mPackedInfo = 0;
     mCigar = null;
     mMappingQuality = 0;
     mFlag = -1;
@@ -100,56 +112,65 @@ public final class VariantAlignmentRecord extends SequenceIdLocusSimple implemen
    * @param minBaseQuality minimum read base quality
    */
   public VariantAlignmentRecord(final SAMRecord record, final int genome, MachineErrorChooserInterface chooser, int minBaseQuality) {
-    super(record.getReferenceIndex(), record.getAlignmentStart() - 1, record.getReadUnmappedFlag() ? record.getAlignmentStart() - 1 + record.getReadLength() : record.getAlignmentEnd()); // picard end position is 1-based inclusive == 0-based exclusive
-    mGenome = genome;
-    mFragmentLength = record.getInferredInsertSize();
-    final byte[] readBases = record.getReadBases();
-
-    mBases = byteDNAtoByteHandleEquals(readBases); //we assume something will convert the = before use
-
+    this(record, genome, chooser, minBaseQuality, PACKED);
+  }
 
-    final byte[] baseQualities = record.getBaseQualities();
-//    if (baseQualities.length == 0) {
-//      mRecalibratedQuality = baseQualities;
-//    } else {
-//      mRecalibratedQuality = baseQualities;
+  /**
+   * Construct a new alignment record populated from a SAM record.
+   * @param record SAM record. Requires header with sequence dictionary (for reference index lookup)
+   * @param genome genome code for this record
+   * @param chooser machine error chooser
+   * @param minBaseQuality minimum read base quality
+   * @param packed true if bases and qualities should be held in packed form where possible
+   */
+  VariantAlignmentRecord(final SAMRecord record, final int genome, MachineErrorChooserInterface chooser, int minBaseQuality, boolean packed) {
+    this(AlignmentFields.fields(record), genome, chooser, minBaseQuality, packed);
+  }
 
-    mCigar = record.getCigarString();
-    mMappingQuality = (byte) record.getMappingQuality();
-    mReadGroup = record.getReadGroup();
-    mAmbiguity = MathUtils.unboxNatural(SamUtils.getNHOrIH(record));
-    mAlignmentScore = MathUtils.unboxNatural(record.getIntegerAttribute("AS"));
-    mSuperCigar = record.getStringAttribute(SamUtils.CG_SUPER_CIGAR);
-    mMateSequenceId = record.getMateReferenceIndex();
+  private VariantAlignmentRecord(final AlignmentFields record, final int genome, MachineErrorChooserInterface chooser, int minBaseQuality, boolean packed) {
+    super(record.mSequenceId, record.mStart, record.mEnd);
+    mGenome = genome;
+    mFragmentLength = record.mFragmentLength;
+    final byte[] bases = record.mBases;
+
+    final byte[] baseQualities = record.mQualities;
+
+    mCigar = packed ? pooledCigar(record.mCigar) : record.mCigar;
+    mMappingQuality = (byte) record.mMappingQuality;
+    mReadGroup = record.mReadGroup;
+    mAmbiguity = MathUtils.unboxNatural(record.mNhOrIh);
+    mAlignmentScore = MathUtils.unboxNatural(record.mAlignmentScore);
+    mSuperCigar = record.mSuperCigar;
+    mMateSequenceId = record.mMateSequenceId;
     int f = 0;
-    if (record.getReadPairedFlag()) {
+    if (record.isPaired()) {
       f += FLAG_PAIRED;
-      if (record.getProperPairFlag()) {
+      if (record.isProperPair()) {
         f += FLAG_MATED;
       }
-      if (record.getFirstOfPairFlag()) {
+      if (record.isFirst()) {
         f += FLAG_FIRST;
       }
     }
-    if (record.getReadNegativeStrandFlag()) {
+    if (record.isNegativeStrand()) {
       f += FLAG_NEGATIVE;
     }
-    if (record.getReadUnmappedFlag()) {
+    if (record.isUnmapped()) {
       f += FLAG_UNMAPPED;
     }
     mFlag = (byte) f;
 
     final String overlapQuality = mSuperCigar == null
-      ? SamUtils.allowEmpty(record.getStringAttribute(SamUtils.ATTRIBUTE_CG_OVERLAP_QUALITY))
-      : SamUtils.allowEmpty(record.getStringAttribute(SamUtils.CG_SUPER_CIGAR_OVERLAP_QUALITY));
-    final String cgOverlap = record.getStringAttribute(SamUtils.ATTRIBUTE_CG_OVERLAP_BASES);
+      ? SamUtils.allowEmpty(record.mOverlapQuality)
+      : SamUtils.allowEmpty(record.mSuperCigarOverlapQuality);
+    final String cgOverlap = record.mOverlapBases;
     mOverlapBases = cgOverlap == null ? new byte[0] : cgOverlap.getBytes();
     DnaUtils.encodeArray(mOverlapBases);
-    mOverlapInstructions = record.getStringAttribute(SamUtils.ATTRIBUTE_CG_RAW_READ_INSTRUCTIONS);
-    mCgReadDelta = record.getStringAttribute(SamUtils.CG_READ_DELTA);
+    mOverlapInstructions = record.mOverlapInstructions;
+    mCgReadDelta = record.mReadDelta;
 
     // Perform recalibration at this point
-    final PhredScaler me = chooser == null ? null : chooser.machineErrors(record.getReadGroup(), record.getReadPairedFlag());
+    final PhredScaler me = chooser == null ? null : chooser.machineErrors(record.mReadGroup, record.isPaired());
 
     final int readLength = baseQualities.length + overlapQuality.length();
 
@@ -158,19 +179,19 @@ public final class VariantAlignmentRecord extends SequenceIdLocusSimple implemen
       // Work out CG backstep position
       final boolean v1 = readLength == CgUtils.CG_RAW_READ_LENGTH;
       if (v1) {
-        final boolean first = record.getReadPairedFlag() && record.getFirstOfPairFlag();
-        backStepPosition = record.getReadNegativeStrandFlag() ^ !first ? baseQualities.length - CgUtils.CG_OVERLAP_POSITION : CgUtils.CG_OVERLAP_POSITION;
+        final boolean first = record.isFirst();
+        backStepPosition = record.isNegativeStrand() ^ !first ? baseQualities.length - CgUtils.CG_OVERLAP_POSITION : CgUtils.CG_OVERLAP_POSITION;
       } else {
-        backStepPosition = record.getReadNegativeStrandFlag() ? baseQualities.length - CgUtils.CG2_OVERLAP_POSITION : CgUtils.CG2_OVERLAP_POSITION;
+        backStepPosition = record.isNegativeStrand() ? baseQualities.length - CgUtils.CG2_OVERLAP_POSITION : CgUtils.CG2_OVERLAP_POSITION;
       }
     } else {
       backStepPosition = -1;
     }
 
-    mRecalibratedQuality = new byte[baseQualities.length];
+    final byte[] recalibratedQuality = new byte[baseQualities.length];
     final int machineStep;
     int machineCycle;
-    if (record.getReadNegativeStrandFlag()) {
+    if (record.isNegativeStrand()) {
       machineCycle = readLength - 1;
       machineStep = -1;
     } else {
@@ -179,17 +200,17 @@ public final class VariantAlignmentRecord extends SequenceIdLocusSimple implemen
     }
     int qualityPosition = 0;
 
-    final Arm arm = !record.getReadPairedFlag() || record.getFirstOfPairFlag() ? Arm.LEFT : Arm.RIGHT;
-    while (qualityPosition < backStepPosition && qualityPosition < mRecalibratedQuality.length) {
+    final Arm arm = !record.isPaired() || record.isFirst() ? Arm.LEFT : Arm.RIGHT;
+    while (qualityPosition < backStepPosition && qualityPosition < recalibratedQuality.length) {
       final byte quality = baseQualities[qualityPosition];
       final int recalibrated = me == null ? quality : me.getScaledPhred(quality, machineCycle, arm);
-      mRecalibratedQuality[qualityPosition] = (byte) recalibrated;
+      recalibratedQuality[qualityPosition] = (byte) recalibrated;
       machineCycle += machineStep;
       ++qualityPosition;
     }
 
     mOverlapQuality = new byte[overlapQuality.length()];
-    for (int i = 0; i < overlapQuality.length() && qualityPosition < mRecalibratedQuality.length; ++i) {
+    for (int i = 0; i < overlapQuality.length() && qualityPosition < recalibratedQuality.length; ++i) {
       final byte scoreChar = (byte) (overlapQuality.charAt(i) - FastaUtils.PHRED_LOWER_LIMIT_CHAR);
       // Be careful to invoke the me.getScaledPhred that takes a char. It will correct for ascii encoding
       final int recalibrated = me == null ? scoreChar : me.getScaledPhred(scoreChar, machineCycle, arm);
@@ -197,22 +218,51 @@ public final class VariantAlignmentRecord extends SequenceIdLocusSimple implemen
       machineCycle += machineStep;
     }
 
-    while (qualityPosition < mRecalibratedQuality.length) {
+    while (qualityPosition < recalibratedQuality.length) {
       final byte quality = baseQualities[qualityPosition];
       final int recalibrated = me == null ? quality : me.getScaledPhred(quality, machineCycle, arm);
-      mRecalibratedQuality[qualityPosition] = (byte) recalibrated;
+      recalibratedQuality[qualityPosition] = (byte) recalibrated;
       machineCycle += machineStep;
       ++qualityPosition;
     }
-    for (int i = 0; i < mRecalibratedQuality.length; ++i) {
-      if (mRecalibratedQuality[i] < minBaseQuality) {
+    for (int i = 0; i < recalibratedQuality.length; ++i) {
+      if (recalibratedQuality[i] < minBaseQuality) {
         if (MIN_QUALITY_AS_TWO) {
-          mRecalibratedQuality[i] = 2;
+          recalibratedQuality[i] = 2;
         } else {
-          mBases[i] = 0;
+          bases[i] = 0;
         }
       }
     }
+    if (packed && ReadSlab.packable(bases)) {
+      final ReadSlab slab = ReadSlab.local();
+      mPackedInfo = ReadSlab.info(bases, recalibratedQuality);
+      mPackedOffset = slab.pack(mPackedInfo, bases, recalibratedQuality);
+      mPacked = slab.slab();
+      mBases = null;
+      mRecalibratedQuality = null;
+    } else {
+      mPacked = null;
+      mPackedOffset = 0;
+      mPackedInfo = 0;
+      mBases = bases;
+      mRecalibratedQuality = recalibratedQuality;
+    }
+  }
+
+  private static String pooledCigar(final String cigar) {
+    if (cigar == null) {
+      return null;
+    }
+    final String pooled = CIGAR_POOL.get(cigar);
+    if (pooled != null) {
+      return pooled;
+    }
+    if (CIGAR_POOL.size() < CIGAR_POOL_LIMIT) {
+      final String previous = CIGAR_POOL.putIfAbsent(cigar, cigar);
+      return previous == null ? cigar : previous;
+    }
+    return cigar;
   }
 
   /**
@@ -228,12 +278,30 @@ public final class VariantAlignmentRecord extends SequenceIdLocusSimple implemen
    * @param record SAM record
    */
   public VariantAlignmentRecord(final SAMRecord record) {
-    this(record, record.getReferenceIndex(), new DefaultMachineErrorChooser(), 0);
+    this(record, record.getReferenceIndex(), new DefaultMachineErrorChooser(), 0, PACKED);
   }
 
   //XXX note we actually modify the contents of mBases in SuperCigarParser.updateReadWithTemplate
+  // (only when the read contains '=', which are never packed, so for packed records a fresh copy is fine)
   public byte[] getRead() {
-    return mBases;
+    return mPacked == null ? mBases : ReadSlab.bases(mPacked, mPackedOffset, mPackedInfo);
+  }
+
+  /**
+   * Get the number of bases in the read, without unpacking it.
+   * @return read length
+   */
+  public int getReadLength() {
+    return mPacked == null ? mBases.length : ReadSlab.length(mPackedInfo);
+  }
+
+  /**
+   * Get a single base of the read, without unpacking it.
+   * @param position position within the read
+   * @return the base
+   */
+  public byte getBase(final int position) {
+    return mPacked == null ? mBases[position] : ReadSlab.base(mPacked, mPackedOffset, mPackedInfo, position);
   }
 
   /**
@@ -241,7 +309,24 @@ public final class VariantAlignmentRecord extends SequenceIdLocusSimple implemen
    * @return quality
    */
   public byte[] getRecalibratedQuality() {
-    return mRecalibratedQuality;
+    return mPacked == null ? mRecalibratedQuality : ReadSlab.qualities(mPacked, mPackedOffset, mPackedInfo);
+  }
+
+  /**
+   * Get the number of recalibrated qualities, without unpacking them.
+   * @return zero if the read has no qualities, otherwise the read length
+   */
+  public int getQualityLength() {
+    return mPacked == null ? mRecalibratedQuality.length : ReadSlab.qualitiesLength(mPackedInfo);
+  }
+
+  /**
+   * Get a single recalibrated quality, without unpacking the qualities.
+   * @param position position within the read
+   * @return the binary phred quality
+   */
+  public byte getQuality(final int position) {
+    return mPacked == null ? mRecalibratedQuality[position] : ReadSlab.quality(mPacked, mPackedOffset, position);
   }
 
   public String getCigar() {
@@ -320,18 +405,35 @@ public final class VariantAlignmentRecord extends SequenceIdLocusSimple implemen
     final CompareHelper helper = new CompareHelper()
       .compare(getStart(), rec.getStart())
       .compare(getCigar(), rec.getCigar())
-      .compare(compare(getRead(), rec.getRead()))
-      .compare(compare(getRecalibratedQuality(), rec.getRecalibratedQuality()));
+      .compare(compareBases(this, rec))
+      .compare(compareQualities(this, rec));
     return helper.result();
   }
 
-  private static int compare(final byte[] a, final byte[] b) {
-    if (a.length != b.length) {
-      return a.length - b.length;
+  // Compare element by element so that packed reads are not unpacked on every comparison
+  private static int compareBases(final VariantAlignmentRecord a, final VariantAlignmentRecord b) {
+    final int length = a.getReadLength();
+    if (length != b.getReadLength()) {
+      return length - b.getReadLength();
+    }
+    for (int k = 0; k < length; ++k) {
+      final int c = a.getBase(k) - b.getBase(k);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return 0;
+  }
+
+  private static int compareQualities(final VariantAlignmentRecord a, final VariantAlignmentRecord b) {
+    final int length = a.getQualityLength();
+    if (length != b.getQualityLength()) {
+      return length - b.getQualityLength();
     }
-    for (int k = 0; k < a.length; ++k) {
-      if (a[k] != b[k]) {
-        return a[k] - b[k];
+    for (int k = 0; k < length; ++k) {
+      final int c = a.getQuality(k) - b.getQuality(k);
+      if (c != 0) {
+        return c;
       }
     }
     return 0;
@@ -392,11 +494,11 @@ public final class VariantAlignmentRecord extends SequenceIdLocusSimple implemen
     if (mq != 0) {
       return mq;
     }
-    final int r = compare(var.getRead(), getRead());
+    final int r = compareBases(var, this);
     if (r != 0) {
       return r;
     }
-    final int q = compare(var.getRecalibratedQuality(), getRecalibratedQuality());
+    final int q = compareQualities(var, this);
     if (q != 0) {
       return q;
     }
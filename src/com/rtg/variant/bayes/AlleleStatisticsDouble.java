@@ -11,6 +11,8 @@
  */
 package com.rtg.variant.bayes;
 
+import java.util.Arrays;
+
 import com.rtg.util.MathUtils;
 
 /**
@@ -130,6 +132,16 @@ public class AlleleStatisticsDouble extends AlleleStatistics<AlleleStatisticsDou
     return MathUtils.hoeffdingPhred(trials, observed, unmatedProbability);
   }
 
+  @Override
+  public void reset() {
+    Arrays.fill(mCountsForwards, 0);
+    Arrays.fill(mCountsBackwards, 0);
+    Arrays.fill(mCountsMated, 0);
+    Arrays.fill(mCountsUnmated, 0);
+    Arrays.fill(mErrors, 0);
+    Arrays.fill(mQualityProduct, 0);
+  }
+
   @Override
   public AlleleStatisticsDouble remap(Description newDescription, int[] mapping) {
     final AlleleStatisticsDouble newCounts = new AlleleStatisticsDouble(newDescription);
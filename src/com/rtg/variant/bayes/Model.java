@@ -182,6 +182,16 @@ public class Model<D extends Description> extends IntegralAbstract implements Mo
     }
   }
 
+  /**
+   * Return this model to the state it was in when constructed, so it can be reused for
+   * another position with the same hypotheses.
+   */
+  public void reset() {
+    Arrays.fill(mPosteriors, arithmetic().one());
+    mStatistics.reset();
+    mFrozen = false;
+  }
+
   protected void incrementStatistics(EvidenceInterface distribution) {
     mStatistics.increment(distribution, mHypotheses.reference());
   }
@@ -27,4 +27,12 @@ public interface ReferenceBasedFactory<D> {
    */
   D make(int ref);
 
+  /**
+   * Hand back an object made by this factory once nothing refers to it any longer, so that it
+   * may be reused by a later call to <code>make</code>. By default it is left for the garbage collector.
+   * @param obj the object no longer in use.
+   */
+  default void release(D obj) {
+  }
+
 }
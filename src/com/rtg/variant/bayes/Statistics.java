@@ -275,6 +275,18 @@ public abstract class Statistics<T extends AlleleStatistics<T>> implements Clone
     mCounts = counts;
   }
 
+  /**
+   * Clear all counts so this can be reused for another position.
+   * Subclasses with their own counts must extend this.
+   */
+  public void reset() {
+    mNonRefCount = 0;
+    mCountLeft = 0;
+    mCountRight = 0;
+    mCountUnmapped = 0;
+    mCounts.reset();
+  }
+
   @Override
   public String toString() {
     // only used for debugging
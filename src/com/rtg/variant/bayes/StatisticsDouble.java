@@ -73,6 +73,16 @@ public class StatisticsDouble extends Statistics<AlleleStatisticsDouble> {
     return 1.0;
   }
 
+  @Override
+  public void reset() {
+    super.reset();
+    mAmbiguous = 0;
+    mTotalCoverage = 0;
+    mTotalError = 0;
+    mMatedCount = 0;
+    mUnmatedCount = 0;
+  }
+
   @Override
   protected double unmatedProbability() {
     final double total = mMatedCount + mUnmatedCount;
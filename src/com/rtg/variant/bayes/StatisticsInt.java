@@ -61,6 +61,16 @@ public class StatisticsInt extends Statistics<AlleleStatisticsInt> {
     mTotalError += errorIncrement;
   }
 
+  @Override
+  public void reset() {
+    super.reset();
+    mAmbiguous = 0;
+    mTotalCoverage = 0;
+    mTotalError = 0;
+    mMatedCount = 0;
+    mUnmatedCount = 0;
+  }
+
   @Override
   protected double unmatedProbability() {
     final double total = mMatedCount + mUnmatedCount;
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.bayes.complex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.rtg.variant.realign.AlignmentEnvironment;
+import com.rtg.variant.realign.RealignParams;
+
+/**
+ * Remembers the all-paths scores of a read against every hypothesis of a complex region, so that
+ * reads with identical bases, qualities and placement are only aligned once.
+ * Intended to be used for a single complex region and is not thread safe.
+ */
+public final class ComplexScoreCache {
+
+  static final class Key {
+    private final byte[] mRead;
+    private final double[] mQuality;
+    private final int mTemplateStart;
+    private final int mReadStart;
+    private final int mMaxShift;
+    private final RealignParams mParams;
+    private final DescriptionComplex mDescription;
+    private final int mHash;
+
+    Key(AlignmentEnvironment se, int templateStart, int readStart, int maxShift, RealignParams params, DescriptionComplex description) {
+      final int length = se.subsequenceLength();
+      mRead = new byte[length];
+      mQuality = new double[length];
+      for (int i = 0; i < length; ++i) {
+        mRead[i] = se.base(i);
+        mQuality[i] = se.quality(i);
+      }
+      mTemplateStart = templateStart;
+      mReadStart = readStart;
+      mMaxShift = maxShift;
+      mParams = params;
+      mDescription = description;
+      int hash = Arrays.hashCode(mRead);
+      hash = 31 * hash + Arrays.hashCode(mQuality);
+      hash = 31 * hash + mTemplateStart;
+      hash = 31 * hash + mReadStart;
+      hash = 31 * hash + mMaxShift;
+      mHash = hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return mHash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      final Key that = (Key) obj;
+      // parameters and description are compared by identity, they are shared by all reads of a region
+      return mHash == that.mHash
+        && mTemplateStart == that.mTemplateStart
+        && mReadStart == that.mReadStart
+        && mMaxShift == that.mMaxShift
+        && mParams == that.mParams
+        && mDescription == that.mDescription
+        && Arrays.equals(mRead, that.mRead)
+        && Arrays.equals(mQuality, that.mQuality);
+    }
+  }
+
+  private final int mMaxEntries;
+  private final HashMap<Key, double[]> mScores = new HashMap<>();
+  private long mHits = 0;
+  private long mMisses = 0;
+  private long mUncached = 0;
+
+  /**
+   * @param maxEntries maximum number of reads whose scores are retained.
+   */
+  public ComplexScoreCache(int maxEntries) {
+    mMaxEntries = maxEntries;
+  }
+
+  /**
+   * Look up the scores for a read.
+   * @param key identifies the read and how it is placed against the hypotheses.
+   * @return the natural log all-paths score for each hypothesis, or null if the read has not been seen.
+   */
+  double[] get(Key key) {
+    final double[] res = mScores.get(key);
+    if (res == null) {
+      ++mMisses;
+    } else {
+      ++mHits;
+    }
+    return res;
+  }
+
+  /**
+   * Remember the scores for a read, unless the cache is already full.
+   * @param key identifies the read and how it is placed against the hypotheses.
+   * @param scoresLn the natural log all-paths score for each hypothesis.
+   */
+  void put(Key key, double[] scoresLn) {
+    if (mScores.size() < mMaxEntries) {
+      mScores.put(key, scoresLn);
+    } else {
+      ++mUncached;
+    }
+  }
+
+  /**
+   * @return number of reads whose scores were found in the cache.
+   */
+  public long hits() {
+    return mHits;
+  }
+
+  /**
+   * @return number of reads that had to be aligned.
+   */
+  public long misses() {
+    return mMisses;
+  }
+
+  /**
+   * @return number of reads that were aligned but not retained because the cache was full.
+   */
+  public long uncached() {
+    return mUncached;
+  }
+
+  /**
+   * @return number of reads whose scores are currently retained.
+   */
+  public int size() {
+    return mScores.size();
+  }
+
+  @Override
+  public String toString() {
+    return "ComplexScoreCache size=" + size() + " hits=" + mHits + " misses=" + mMisses + " uncached=" + mUncached;
+  }
+}
@@ -38,6 +38,7 @@ import com.rtg.variant.realign.RealignParams;
 import com.rtg.variant.realign.RealignParamsGenome;
 import com.rtg.variant.realign.ScoreFastUnderflow;
 import com.rtg.variant.realign.ScoreMatrix;
+import com.rtg.variant.realign.ScoreTotalFastUnderflow;
 import com.rtg.variant.util.arithmetic.PossibilityArithmetic;
 
 /**
@@ -78,7 +79,10 @@ public class ComplexTemplate extends SequenceNameLocusSimple {
   }
 
   private static AllPaths initScoreFastUnderflow(RealignParams params) {
-    if (HOTSPOT_HACK) {
+    if (EvidenceComplex.TOTAL_ONLY_ALLPATHS) {
+      // only the total is used here, and these kernels do not share a bi-morphic base class with the CG matrices
+      return new ScoreTotalFastUnderflow(params);
+    } else if (HOTSPOT_HACK) {
       try {
         return SCORE_FAST_CONSTRUCTOR.newInstance(params);
       } catch (final IllegalArgumentException | InvocationTargetException | IllegalAccessException | InstantiationException e) {
@@ -38,6 +38,7 @@ import com.rtg.variant.realign.InvertCgTemplateEnvironment;
 import com.rtg.variant.realign.RealignParams;
 import com.rtg.variant.realign.ScoreFastUnderflow;
 import com.rtg.variant.realign.ScoreFastUnderflowCG;
+import com.rtg.variant.realign.ScoreTotalFastUnderflow;
 import com.rtg.variant.util.arithmetic.PossibilityArithmetic;
 
 /**
@@ -54,6 +55,9 @@ public class EvidenceComplex extends Evidence {
   // If true, CG allpaths realignment should use the full reconstructed read, otherwise use the flattened representation
   static final boolean CG_ALLPATHS = GlobalFlags.getBooleanValue(CoreGlobalFlags.COMPLEX_CALLER_UNROLL_CG_FLAG);
 
+  // If true, non-CG allpaths realignment only computes the total score rather than the full matrix
+  static final boolean TOTAL_ONLY_ALLPATHS = GlobalFlags.getBooleanValue(CoreGlobalFlags.COMPLEX_CALLER_TOTAL_ONLY_ALLPATHS);
+
   static {
     SCORE_INTERFACE_MEMO = new ScoreInterfaceMemo();
   }
@@ -62,6 +66,9 @@ public class EvidenceComplex extends Evidence {
     if (params.machineType() != null && params.machineType().isCG() && CG_ALLPATHS) {
       return new ScoreFastUnderflowCG(params);
     }
+    if (TOTAL_ONLY_ALLPATHS) {
+      return new ScoreTotalFastUnderflow(params);
+    }
     return new ScoreFastUnderflow(params);
   }
 
@@ -109,6 +116,18 @@ public class EvidenceComplex extends Evidence {
    * @param chooser machine error chooser
    */
   public EvidenceComplex(HypothesesPrior<DescriptionComplex> hypotheses, AlignmentMatch match, ComplexTemplate reference, VariantParams params, MachineErrorChooserInterface chooser) {
+    this(hypotheses, match, reference, params, chooser, null);
+  }
+
+  /**
+   * @param hypotheses description of the underlying hypotheses.
+   * @param match Match object to get distribution for
+   * @param reference complex reference
+   * @param params variant params
+   * @param chooser machine error chooser
+   * @param cache scores of previous reads against the same hypotheses and reference, may be null.
+   */
+  public EvidenceComplex(HypothesesPrior<DescriptionComplex> hypotheses, AlignmentMatch match, ComplexTemplate reference, VariantParams params, MachineErrorChooserInterface chooser, ComplexScoreCache cache) {
     super(hypotheses.description(), match.mapError());
     mHypotheses = hypotheses;
     mReference = hypotheses.reference();
@@ -167,25 +186,40 @@ public class EvidenceComplex extends Evidence {
     assert adjust >= 0;
 
     final int maxShift = maxShift0 + adjust;
+    final ComplexScoreCache.Key key = cache == null || cg ? null : new ComplexScoreCache.Key(se, se.start() - softClipStartOffset, newStart - softClipStartOffset, maxShift, me, hypotheses.description());
+    final double[] cachedLn = key == null ? null : cache.get(key);
+    final double[] scoreLn = key == null || cachedLn != null ? null : new double[size];
     final double[] logScore = new double[size];
     double sum = mArithmetic.zero();
     for (int i = 0; i < size; ++i) {
-      //TODO put in fast delta scoring for non-CG case.
-      final String replace = description().name(i);
-      final AlignmentEnvironment temEnv = new AlignmentEnvironmentGenomeSubstitution(se.start() - softClipStartOffset, 0 /* doesn't matter */, reference, DNA.stringDNAtoByte(replace));
-      final EnvironmentCombined envTmp = new EnvironmentCombined(se, newStart - softClipStartOffset, maxShift, temEnv);
-      final Environment env;
-      if (cg && se.isInverted()) {
-        env = new InvertCgTemplateEnvironment(envTmp, me.machineType());
+      final double poss;
+      if (cachedLn != null) {
+        poss = mArithmetic.ln2Poss(cachedLn[i]);
       } else {
-        env = envTmp;
+        //TODO put in fast delta scoring for non-CG case.
+        final String replace = description().name(i);
+        final AlignmentEnvironment temEnv = new AlignmentEnvironmentGenomeSubstitution(se.start() - softClipStartOffset, 0 /* doesn't matter */, reference, DNA.stringDNAtoByte(replace));
+        final EnvironmentCombined envTmp = new EnvironmentCombined(se, newStart - softClipStartOffset, maxShift, temEnv);
+        final Environment env;
+        if (cg && se.isInverted()) {
+          env = new InvertCgTemplateEnvironment(envTmp, me.machineType());
+        } else {
+          env = envTmp;
+        }
+        sm.setEnv(env);
+        final double ln = sm.totalScoreLn();
+        if (scoreLn != null) {
+          scoreLn[i] = ln;
+        }
+        poss = mArithmetic.ln2Poss(ln);
       }
-      sm.setEnv(env);
-      final double poss = mArithmetic.ln2Poss(sm.totalScoreLn());
       //System.err.println("Read match=" + match.readString() + " Hyp i=" + i + " name=" + hypotheses.description().name(i) + " : unnorm score=" + mArithmetic.poss2Ln(poss) + " scorematrix=\n" + sm.toString());
       logScore[i] = poss;
       sum = mArithmetic.add(sum, poss);
     }
+    if (scoreLn != null) {
+      cache.put(key, scoreLn);
+    }
 
     // Normalize, and determine readHyp
     mLogSum = mArithmetic.poss2Ln(sum);
@@ -18,6 +18,7 @@ import com.rtg.variant.realign.AllPaths;
 import com.rtg.variant.realign.RealignParams;
 import com.rtg.variant.realign.ScoreFastUnderflow;
 import com.rtg.variant.realign.ScoreFastUnderflowCG;
+import com.rtg.variant.realign.ScoreTotalFastUnderflow;
 
 /**
  * Keep singleton score interfaces per read group and CG flag.
@@ -39,7 +40,7 @@ public final class ScoreInterfaceMemo implements ScoreInterfaceMemoInterface {
     } else {
       s = mCache.get(params);
       if (s == null) {
-        s = new ScoreFastUnderflow(params);
+        s = EvidenceComplex.TOTAL_ONLY_ALLPATHS ? new ScoreTotalFastUnderflow(params) : new ScoreFastUnderflow(params);
         mCache.put(params, s);
       }
     }
@@ -236,7 +236,7 @@ public class AlignmentRecordMatcher {
     final String rs = mMatchString.toString();
     final AlignmentMatch match = new AlignmentMatch(mVariantAlignmentRecord, chooser, rs, quality, params.qDefault(), 0, rs.length(), VariantUtils.readScoreFromAlignmentRecord(mVariantAlignmentRecord, params), !mLeftN, !mRightN);
     match.setBasesLeftOfMatch(startInRead);
-    match.setBasesRightOfMatch(mVariantAlignmentRecord.getRead().length - endReadPos);
+    match.setBasesRightOfMatch(mRead.length - endReadPos);
     parse(this::startMatch, Integer.MAX_VALUE, false);
     match.setSoftClipLeft(mSoftClippedStart);
     match.setSoftClipRight(mSoftClippedEnd);
@@ -21,6 +21,7 @@ import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.launcher.globals.CoreGlobalFlags;
 import com.rtg.mode.DnaUtils;
 import com.rtg.reference.Ploidy;
+import com.rtg.sam.CircularBufferMultifileSinglePassReaderWindow;
 import com.rtg.sam.ReaderWindow;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.variant.Variant;
@@ -32,6 +33,7 @@ import com.rtg.variant.VariantParams;
 import com.rtg.variant.VariantSample;
 import com.rtg.variant.bayes.ModelInterface;
 import com.rtg.variant.bayes.ModelNone;
+import com.rtg.variant.bayes.complex.ComplexScoreCache;
 import com.rtg.variant.bayes.complex.ComplexTemplate;
 import com.rtg.variant.bayes.complex.DescriptionComplex;
 import com.rtg.variant.bayes.complex.EvidenceComplex;
@@ -58,9 +60,14 @@ final class ComplexCaller {
 
   private static final int MAX_HYPOTHESES = (int) Math.sqrt(Integer.MAX_VALUE);
 
+  // Maximum number of distinct reads per region whose scores are remembered for identical reads.
+  private static final int SCORE_CACHE_SIZE = GlobalFlags.getIntegerValue(CoreGlobalFlags.COMPLEX_CALLER_SCORE_CACHE_SIZE);
+
   private int mExcessCoverageCount = 0;
   private int mNoHypothesesCount = 0;
   private int mExcessHypothesesCount = 0;
+  private long mScoreCacheHits = 0;
+  private long mScoreCacheMisses = 0;
 
   private final VariantParams mParams;
   private final AbstractJointCallerConfiguration mConfig;
@@ -96,23 +103,30 @@ final class ComplexCaller {
           it = tribble.recordsOverlap(startOfRegion, endOfRegion);
         }
         final List<AlignmentMatch> matches = MultisampleUtils.intersectSet(startOfRegion, endOfRegion, it, mConfig.getMachineErrorChooser(), mParams);
+        // Exact depth including any records the window has tossed, when it is counting coverage
+        final int coverage = tribble instanceof CircularBufferMultifileSinglePassReaderWindow ? ((CircularBufferMultifileSinglePassReaderWindow<?>) tribble).maxCoverage(startOfRegion, endOfRegion) : -1;
 
         // Create the complex hypotheses
-        final HaploidDiploidHypotheses<HypothesesPrior<DescriptionComplex>> hyp = makeComplexHypotheses(region, cot, matches, calls);
+        final HaploidDiploidHypotheses<HypothesesPrior<DescriptionComplex>> hyp = makeComplexHypotheses(region, cot, matches, coverage, calls);
         if (hyp == null) { // Couldn't create suitable hypotheses, makeComplexHypotheses will have updated calls and region appropriately
           continue;
         }
 
         // Pass evidence to correct models
         final List<ModelInterface<?>> models = mConfig.getModelComplex(hyp, cot);
+        final ComplexScoreCache cache = SCORE_CACHE_SIZE > 0 ? new ComplexScoreCache(SCORE_CACHE_SIZE) : null;
         for (final AlignmentMatch match : matches) {
           final int genome = (numSamples == 1) ? 0 : match.alignmentRecord().getGenome();
           if (!(models.get(genome) instanceof ModelNone)) {
             final HypothesesPrior<DescriptionComplex> hypotheses = models.get(genome).haploid() ? hyp.haploid() : hyp.diploid();
-            final EvidenceComplex evidence = new EvidenceComplex(hypotheses, match, cot, mParams, mConfig.getMachineErrorChooser());
+            final EvidenceComplex evidence = new EvidenceComplex(hypotheses, match, cot, mParams, mConfig.getMachineErrorChooser(), cache);
             models.get(genome).increment(evidence);
           }
         }
+        if (cache != null) {
+          mScoreCacheHits += cache.hits();
+          mScoreCacheMisses += cache.misses();
+        }
 
 
         // Make the calls
@@ -150,7 +164,7 @@ final class ComplexCaller {
     return calls;
   }
 
-  private HaploidDiploidHypotheses<HypothesesPrior<DescriptionComplex>> makeComplexHypotheses(ComplexRegion region, ComplexTemplate cot, List<AlignmentMatch> matches, ArrayList<Variant> calls) {
+  private HaploidDiploidHypotheses<HypothesesPrior<DescriptionComplex>> makeComplexHypotheses(ComplexRegion region, ComplexTemplate cot, List<AlignmentMatch> matches, int coverage, ArrayList<Variant> calls) {
     final String refName = cot.getSequenceName();
     final int overcoverageShortCircuit = mParams.maxCoverageBypass().thresholdTotal(refName);
     final HwEstimator hwEstimator = new HwEstimator();
@@ -158,7 +172,7 @@ final class ComplexCaller {
     if (matches == null) { // overflow encountered
       // complex SSP is forcing complex calling in over coverage region, mark it as over coverage and continue to next one
       if (mParams.callLevel() == VariantOutputLevel.ALL) {
-        calls.add(makeDummyCall(cot, VariantFilter.COVERAGE.mask(), mParams.maxCoverageBypass().thresholdTotal(refName)));
+        calls.add(makeDummyCall(cot, VariantFilter.COVERAGE.mask(), coverage >= 0 ? coverage : overcoverageShortCircuit));
       }
       ++mExcessCoverageCount;
       region.setType(RegionType.OVERCOVERAGE);
@@ -171,9 +185,10 @@ final class ComplexCaller {
     //}
 
     // If the coverage is too high make a dummy call that indicates over-coverage situation
-    if (matches.size() > overcoverageShortCircuit) {
+    final int depth = Math.max(matches.size(), coverage);
+    if (depth > overcoverageShortCircuit) {
       if (mParams.callLevel() == VariantOutputLevel.ALL) {
-        calls.add(makeDummyCall(cot, VariantFilter.COVERAGE.mask(), matches.size()));
+        calls.add(makeDummyCall(cot, VariantFilter.COVERAGE.mask(), depth));
       }
       ++mExcessCoverageCount;
       region.setType(RegionType.OVERCOVERAGE);
@@ -286,4 +301,18 @@ final class ComplexCaller {
   public int getNoHypothesesCount() {
     return mNoHypothesesCount;
   }
+
+  /**
+   * @return number of reads whose complex scores were reused from an identical read in the same region.
+   */
+  public long getScoreCacheHits() {
+    return mScoreCacheHits;
+  }
+
+  /**
+   * @return number of reads whose complex scores were looked up but had to be computed.
+   */
+  public long getScoreCacheMisses() {
+    return mScoreCacheMisses;
+  }
 }
@@ -58,6 +58,12 @@ public class IndividualSampleProcessor<D extends Description> {
     return mMatcherCurrent.step(start);
   }
 
+  // Hand back a model from step that is not referenced by any call
+  @SuppressWarnings("unchecked")
+  void release(final int start, final ModelInterface<?> model) {
+    mMatcherCurrent.release(start, (ModelInterface<D>) model);
+  }
+
   IndelDetector stepIndel(final int start) {
     return mMatcherIndel.step(start);
   }
@@ -11,8 +11,11 @@
  */
 package com.rtg.variant.bayes.multisample;
 
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -21,13 +24,17 @@ import java.util.Map;
 
 import com.rtg.bed.BedUtils;
 import com.rtg.launcher.ParamsTask;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.reader.ReaderUtils;
 import com.rtg.reader.SequencesReader;
 import com.rtg.reference.Ploidy;
 import com.rtg.reference.SexMemo;
+import com.rtg.sam.CircularBufferMultifileSinglePassReaderWindow;
 import com.rtg.sam.CircularBufferMultifileSinglePassReaderWindowSync;
+import com.rtg.sam.PreloadedRecordIterator;
 import com.rtg.sam.ReaderRecord;
-import com.rtg.sam.ReaderWindow;
+import com.rtg.sam.RecordIterator;
 import com.rtg.sam.SamReadingContext;
 import com.rtg.sam.SamUtils;
 import com.rtg.sam.ThreadedMultifileIteratorWrapper;
@@ -36,13 +43,16 @@ import com.rtg.scheduler.Executor;
 import com.rtg.scheduler.ExecutorRandom;
 import com.rtg.scheduler.ExecutorSequential;
 import com.rtg.scheduler.ExecutorThreaded;
+import com.rtg.scheduler.IndexedJobId;
 import com.rtg.scheduler.Job;
 import com.rtg.scheduler.JobFactory;
 import com.rtg.scheduler.JobStatistics;
 import com.rtg.scheduler.Result;
 import com.rtg.scheduler.Scheduler;
+import com.rtg.scheduler.SchedulerMultiple;
 import com.rtg.scheduler.SchedulerSynchronized;
 import com.rtg.usage.UsageMetric;
+import com.rtg.util.SimpleThreadPool;
 import com.rtg.util.SingletonPopulatorFactory;
 import com.rtg.util.StringUtils;
 import com.rtg.util.diagnostic.Diagnostic;
@@ -57,6 +67,7 @@ import com.rtg.util.intervals.ReferenceRegions;
 import com.rtg.util.intervals.RegionRestriction;
 import com.rtg.util.intervals.StatusInterval;
 import com.rtg.util.machine.MachineType;
+import com.rtg.variant.ThreadingEnvironment;
 import com.rtg.variant.Variant;
 import com.rtg.variant.Variant.VariantFilter;
 import com.rtg.variant.VariantAlignmentRecord;
@@ -96,6 +107,10 @@ import htsjdk.samtools.SAMSequenceRecord;
 public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<VariantParams, V> {
 
   private static final int ION_TORRENT_HYPER_COMPLEX = 21;
+  /** Maximum number of alignments read up front for a sequence processed alongside others */
+  private static final int PRELOAD_LIMIT = 100000;
+  /** Retain no more alignments overlapping any position than are needed to decide the coverage bypass */
+  private static final boolean BOUNDED_READER_WINDOW = GlobalFlags.getBooleanValue(CoreGlobalFlags.VARIANT_BOUNDED_READER_WINDOW);
 
   private static final int MIN_CALLS_FOR_COVERAGE_WARNING = 50; // Only warn for non-trivial datasets
   private static final double COVERAGE_WARNING_THRESHOLD = 1.0;
@@ -113,9 +128,9 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
   private ThreadedMultifileIteratorWrapper<VariantAlignmentRecord> mWrapper;
   private List<SAMSequenceRecord> mSequences;
   private ReferenceRegions mBedFilterRegions;
-  private ParallelProgress mPP = null;
 
   private final JointCallerConfigurator<V> mConfigurator;
+  private int mSequencesInFlight = GlobalFlags.getIntegerValue(CoreGlobalFlags.MULTISAMPLE_SEQUENCES_IN_FLIGHT);
 
   /**
    * @param params command line parameters.
@@ -139,6 +154,14 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
     Diagnostic.developerLog("Genome priors:" + StringUtils.LS + VariantUtils.toGenomePriorProperties(params.genomePriors()));
   }
 
+  /**
+   * Set the maximum number of short sequences processed at once, in place of the global flag.
+   * @param sequencesInFlight maximum number of sequences, 1 to process them one at a time.
+   */
+  void setSequencesInFlight(final int sequencesInFlight) {
+    mSequencesInFlight = sequencesInFlight;
+  }
+
   private Variant stepIndels(String refName, IndividualSampleProcessor<?>[] ssProcessors, int pos) {
     Variant v = null;
     for (IndividualSampleProcessor<?> processor : ssProcessors) {
@@ -153,16 +176,15 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
   private static final byte OVERFLOW = 1;
   private static final byte SKIP = 2;
 
-  private int processNtPositions(List<Variant> calls, MultisampleJointCaller jointCaller, ChunkInfo chunkInfo, byte[] template, ReaderWindow<VariantAlignmentRecord> tribble, int start, int end) throws IOException {
+  private int processNtPositions(List<Variant> calls, MultisampleJointCaller jointCaller, ChunkInfo chunkInfo, byte[] template, CircularBufferMultifileSinglePassReaderWindow<VariantAlignmentRecord> tribble, RangeList<String> rangeList, ParallelProgress progress, int start, int end) throws IOException {
 
     int maxReadLen = 0;
     List<RangeList.RangeData<String>> ranges = null;
     int rangeIndex = 0;
     boolean skipWholeChunk = false;
-    if (mWrapper.context().hasRegions()) {
-      final RangeList<String> currentRangeList = mWrapper.getCurrentRangeList();
-      ranges = currentRangeList.getFullRangeList();
-      rangeIndex = currentRangeList.findFullRangeIndex(start);
+    if (rangeList != null) {
+      ranges = rangeList.getFullRangeList();
+      rangeIndex = rangeList.findFullRangeIndex(start);
       assert rangeIndex < ranges.size();
       final RangeList.RangeData<String> range = ranges.get(rangeIndex);
       skipWholeChunk = range.getMeta() == null && range.isInRange(end);
@@ -202,6 +224,10 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
       }
       if (sawValidRecord) { // Only bother to step and call in models if we saw some evidence
 
+        if (tribble.coverageLimit() > 0) {
+          addCoverageStatuses(statusInterval, tribble, start, end);
+        }
+
         // Add in ranges to the status interval as positions to skip
         if (ranges != null) {
           addRangeStatuses(statusInterval, ranges, rangeIndex, end);
@@ -214,7 +240,7 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
             final int oldpos = pos;
             do {
               for (final IndividualSampleProcessor<?> ssProcessor1 : ssProcessors) {
-                ssProcessor1.step(pos);
+                ssProcessor1.release(pos, ssProcessor1.step(pos));
               }
               for (final IndividualSampleProcessor<?> ssProcessor : ssProcessors) {
                 ssProcessor.stepIndel(pos);
@@ -257,17 +283,45 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
 
               if (variant != null) {
                 calls.add(variant);
+              } else {
+                releaseModels(ssProcessors, models, pos);
               }
+            } else {
+              releaseModels(ssProcessors, models, pos);
             }
             ++pos;
           }
         }
       }
     }
-    mPP.updateProgress(chunkInfo.percent(end));
+    progress.updateProgress(chunkInfo.percent(end));
     return maxReadLen;
   }
 
+  // Models which did not contribute to a call can be reused, calls keep references to the statistics of their models
+  private static void releaseModels(IndividualSampleProcessor<?>[] ssProcessors, List<ModelInterface<?>> models, int pos) {
+    for (int i = 0; i < ssProcessors.length; ++i) {
+      ssProcessors[i].release(pos, models.get(i));
+    }
+  }
+
+  // Sets the status of any positions within the interval to OVERFLOW if more records overlap them than the reader window retains
+  private static void addCoverageStatuses(StatusInterval statusInterval, CircularBufferMultifileSinglePassReaderWindow<?> tribble, int start, int end) {
+    final int limit = tribble.coverageLimit();
+    int pos = start;
+    while (pos < end) {
+      if (tribble.coverage(pos) > limit) {
+        final int overflowStart = pos;
+        do {
+          ++pos;
+        } while (pos < end && tribble.coverage(pos) > limit);
+        statusInterval.add(overflowStart, pos, OVERFLOW);
+      } else {
+        ++pos;
+      }
+    }
+  }
+
   // Sets the status of any positions within the interval to SKIP if they are contained within a no-call range entry (one without metadata)
   private static void addRangeStatuses(StatusInterval statusInterval, List<RangeList.RangeData<String>> ranges, int startIndex, int endPos) {
     for (int rangeIndex = startIndex; rangeIndex < ranges.size(); ++rangeIndex) {
@@ -299,6 +353,10 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
     synchronized (mNoHypothesesLock) {
       mNoHypothesesCount += caller.getNoHypothesesCount();
     }
+    synchronized (mScoreCacheLock) {
+      mScoreCacheHits += caller.getScoreCacheHits();
+      mScoreCacheMisses += caller.getScoreCacheMisses();
+    }
   }
 
   private long mInvalidRecords = 0;
@@ -306,10 +364,14 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
   private long mExcessiveCoverageCount = 0;
   private long mExcessiveHypothesesCount = 0;
   private long mNoHypothesesCount = 0;
+  private long mScoreCacheHits = 0;
+  private long mScoreCacheMisses = 0;
 
   private final Object mExcessiveCoverageLock = new Object();
   private final Object mExcessiveHypothesesLock = new Object();
   private final Object mNoHypothesesLock = new Object();
+  private final Object mScoreCacheLock = new Object();
+  private final Object mOutputLock = new Object();
 
   private class JobFactoryMultiSample extends IntegralAbstract implements JobFactory<JobIdMultisample>, AutoCloseable {
 
@@ -319,11 +381,24 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
     private final byte[] mRefNts;
     private final MultisampleJointCaller mJointCaller;
     private final BedComplexitiesWriter mBed;
+    private final RangeList<String> mRangeList;
+    private final ParallelProgress mProgress;
+    /** Output held back until earlier sequences have been written, null when writing directly */
+    private final List<VcfRecord> mDeferredRecords;
+    private final ByteArrayOutputStream mDeferredBed;
 
     /** Minimum position on reference, either 0 or supplied by restriction */
     private final int mMinimumPosition;
 
-    JobFactoryMultiSample(final ChunkInfo info, final String refName, final byte[] refNts) throws IOException {
+    /**
+     * @param info chunking of the sequence
+     * @param refName name of the sequence
+     * @param refNts nucleotides of the sequence
+     * @param reader source of the alignments for the sequence
+     * @param rangeList ranges within the sequence when calling is restricted to regions, otherwise null
+     * @param deferOutput if true, hold the VCF and BED output until <code>writeDeferred</code> is called
+     */
+    JobFactoryMultiSample(final ChunkInfo info, final String refName, final byte[] refNts, final RecordIterator<VariantAlignmentRecord> reader, final RangeList<String> rangeList, final boolean deferOutput) throws IOException {
       mInfo = info;
       String[] genomeNames = mConfig.getGenomeNames();
       if (genomeNames.length == 1) {
@@ -338,11 +413,20 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
       } else {
         mMinimumPosition = restriction.getStart();
       }
-      mBuffer = new CircularBufferMultifileSinglePassReaderWindowSync<>(mWrapper, pop, mParams.uberHeader().getSequenceIndex(refName), restriction.getStart(), depth);
+      mBuffer = new CircularBufferMultifileSinglePassReaderWindowSync<>(reader, pop, mParams.uberHeader().getSequenceIndex(refName), restriction.getStart(), depth, BOUNDED_READER_WINDOW ? depth : 0);
       mRefName = refName;
       mRefNts = refNts;
       mJointCaller = mConfig.getJointCaller();
-      mBed = new BedComplexitiesWriter(mBedOut, refName, info.start());
+      mRangeList = rangeList;
+      mProgress = new ParallelProgress(refName);
+      if (deferOutput) {
+        mDeferredRecords = new ArrayList<>();
+        mDeferredBed = new ByteArrayOutputStream();
+      } else {
+        mDeferredRecords = null;
+        mDeferredBed = null;
+      }
+      mBed = new BedComplexitiesWriter(deferOutput ? mDeferredBed : mBedOut, refName, info.start());
     }
 
     @Override
@@ -350,10 +434,25 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
       mTossedRecords += mBuffer.getTossedRecordCount();
       mBed.finish();
       mBuffer.close();
-      mPP.close();
+      mProgress.close();
       mJointCaller.endOfSequence();
     }
 
+    /**
+     * Write any output that was held back, must only be called once all earlier sequences have been written.
+     * @throws IOException if an I/O error occurs.
+     */
+    void writeDeferred() throws IOException {
+      if (mDeferredRecords != null) {
+        for (final VcfRecord record : mDeferredRecords) {
+          mOut.write(record);
+        }
+        mDeferredRecords.clear();
+        mDeferredBed.writeTo(mBedOut);
+        mDeferredBed.reset();
+      }
+    }
+
     @Override
     public boolean integrity() {
       Exam.assertTrue(mInfo.numberChunks() > 0);
@@ -419,7 +518,7 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
         final int start = id().time() * mInfo.chunkSize() + mInfo.start();
         final int end = Math.min(start + mInfo.chunkSize(), mInfo.end());
         List<Variant> calls = new ArrayList<>();
-        final int maxReadLen = processNtPositions(calls, mJointCaller, mInfo, mRefNts, mBuffer, start, end);
+        final int maxReadLen = processNtPositions(calls, mJointCaller, mInfo, mRefNts, mBuffer, mRangeList, mProgress, start, end);
         final boolean simpleRepeats = mParams.simpleRepeatExtension() && !mParams.ionTorrent();
         final RegionRestriction forcedComplexRegion = mParams.forceComplexRegion();
         if (forcedComplexRegion != null) {
@@ -559,21 +658,27 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
       public Result run() throws IOException {
         final List<Variant> filtered = getList(mArguments[1].result(0));
         if (filtered != null) {
-          for (final Variant v : filtered) {
-            final VcfRecord record = mFormatter.makeVcfRecord(v);
-            for (final VcfAnnotator annot : mAnnotators) {
-              annot.annotate(record);
-            }
-            boolean keep = true;
-            for (final VcfFilter filter : mFilters) {
-              if (!filter.accept(record)) {
-                keep = false;
-                break;
+          synchronized (mOutputLock) { // annotators, filters and statistics are shared when several sequences are in flight
+            for (final Variant v : filtered) {
+              final VcfRecord record = mFormatter.makeVcfRecord(v);
+              for (final VcfAnnotator annot : mAnnotators) {
+                annot.annotate(record);
+              }
+              boolean keep = true;
+              for (final VcfFilter filter : mFilters) {
+                if (!filter.accept(record)) {
+                  keep = false;
+                  break;
+                }
+              }
+              if (keep) {
+                mStatistics.tallyVariant(mVcfHeader, record);
+                if (mDeferredRecords == null) {
+                  mOut.write(record);
+                } else {
+                  mDeferredRecords.add(record);
+                }
               }
-            }
-            if (keep) {
-              mStatistics.tallyVariant(mVcfHeader, record);
-              mOut.write(record);
             }
           }
         }
@@ -626,12 +731,12 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
     return result;
   }
 
-  private void processAnEntireSequence(final String refName, final byte[] refNts) throws IOException {
-    mPP = new ParallelProgress(refName);
+  // Chunking for the current sequence of the wrapper, or null if the sequence is not to be called
+  private ChunkInfo chunkInfo(final String refName, final byte[] refNts) {
     final Ploidy ploidy = mSexMemo.getRealPloidy(mParams.sex(), refName);
     if (!mConfig.handlesPloidy(ploidy)) {
       Diagnostic.userLog(ploidy + " sequence " + refName + " not supported in this caller");
-      return;
+      return null;
     }
     Diagnostic.userLog("Sequence " + refName + " filter on maximum per-sample coverage is " + mParams.maxCoverageFilter().thresholdSingle(refName));
     Diagnostic.userLog("Sequence " + refName + " extreme coverage bypass level is "
@@ -648,9 +753,23 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
       Diagnostic.warning("Sequence length disparity between reference SDF and SAM headers for sequence " + refName + ". Clipping end position to available SDF sequence length (" + refNts.length + ")");
       endPos = refNts.length;
     }
-    final ChunkInfo info = new ChunkInfo(refNts.length, refName, mParams.chunkSize(), startPos, endPos, mParams.execThreads(), mParams.maxReadLength());
+    return new ChunkInfo(refNts.length, refName, mParams.chunkSize(), startPos, endPos, mParams.execThreads(), mParams.maxReadLength());
+  }
+
+  private RangeList<String> currentRangeList() {
+    return mWrapper.context().hasRegions() ? mWrapper.getCurrentRangeList() : null;
+  }
+
+  private void processAnEntireSequence(final String refName, final byte[] refNts) throws IOException {
+    final ChunkInfo info = chunkInfo(refName, refNts);
+    if (info != null) {
+      processAnEntireSequence(info, refName, refNts, mWrapper);
+    }
+  }
+
+  private void processAnEntireSequence(final ChunkInfo info, final String refName, final byte[] refNts, final RecordIterator<VariantAlignmentRecord> reader) throws IOException {
     final DependenciesMultiSample depen = new DependenciesMultiSample(info.numberChunks());
-    try (final JobFactoryMultiSample jobFac = new JobFactoryMultiSample(info, refName, refNts)) {
+    try (final JobFactoryMultiSample jobFac = new JobFactoryMultiSample(info, refName, refNts, reader, currentRangeList(), false)) {
       final EventList<JobIdMultisample> eventList = new EventListMultiSample<>();
       final Scheduler<JobIdMultisample> sched = new SchedulerSynchronized<>(depen, jobFac, eventList, null, mJobStatistics, mParams.threadingLookAhead());
       //final Scheduler<JobIdMultisample> sched = new SchedulerSynchronized<>(depen, jobFac, eventList, System.err, mJobStatistics, mParams.threadingLookAhead());
@@ -688,6 +807,111 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
     return exec;
   }
 
+  /**
+   * Runs several short sequences at once on a single executor, so that sequences with fewer chunks
+   * than there are threads do not leave threads idle. The alignments for each such sequence are read
+   * up front and its output is held back until all the earlier sequences have been written, so the
+   * output is the same as when sequences are processed one at a time.
+   */
+  private final class SequenceRunner implements Closeable {
+
+    private final class InFlight {
+      private final int mIndex;
+      private final JobFactoryMultiSample mFactory;
+
+      InFlight(final int index, final JobFactoryMultiSample factory) {
+        mIndex = index;
+        mFactory = factory;
+      }
+    }
+
+    private final int mMaxInFlight;
+    private final SchedulerMultiple<JobIdMultisample> mScheduler = new SchedulerMultiple<>();
+    private final SimpleThreadPool mPool = new SimpleThreadPool(1, "MultisampleSequences", false);
+    private final ArrayDeque<InFlight> mInFlight = new ArrayDeque<>();
+    private boolean mClosed = false;
+
+    SequenceRunner(final int maxInFlight) {
+      mMaxInFlight = maxInFlight;
+      final Executor<IndexedJobId<JobIdMultisample>> exec = new ExecutorThreaded<>(mScheduler, mParams.execThreads());
+      Diagnostic.developerLog("Processing up to " + maxInFlight + " short sequences at once, parallel " + mParams.execThreads());
+      mPool.execute(() -> {
+        try {
+          exec.run();
+        } finally {
+          mScheduler.executorFinished();
+        }
+      });
+    }
+
+    /**
+     * Process the current sequence of the wrapper, which must have alignments.
+     * @param refName name of the sequence
+     * @param refNts nucleotides of the sequence
+     * @throws IOException if an I/O error occurs.
+     */
+    void process(final String refName, final byte[] refNts) throws IOException {
+      final ChunkInfo info = chunkInfo(refName, refNts);
+      if (info == null) {
+        return;
+      }
+      if (info.numberChunks() >= mParams.execThreads()) {
+        // Enough chunks to keep all the threads busy on its own
+        drain(0);
+        processAnEntireSequence(info, refName, refNts, mWrapper);
+        return;
+      }
+      final List<VariantAlignmentRecord> records = new ArrayList<>();
+      while (mWrapper.hasNext() && records.size() < PRELOAD_LIMIT) {
+        records.add(mWrapper.next());
+      }
+      if (mWrapper.hasNext()) {
+        // Too many alignments to hold in memory, the rest are read as the sequence is processed
+        drain(0);
+        processAnEntireSequence(info, refName, refNts, new PreloadedRecordIterator<>(records, mWrapper, true));
+        return;
+      }
+      drain(mMaxInFlight - 1);
+      final JobFactoryMultiSample jobFac = new JobFactoryMultiSample(info, refName, refNts, new PreloadedRecordIterator<>(records, mWrapper, false), currentRangeList(), true);
+      final Scheduler<JobIdMultisample> sched = new SchedulerSynchronized<>(new DependenciesMultiSample(info.numberChunks()), jobFac, new EventListMultiSample<>(), null, mJobStatistics, mParams.threadingLookAhead());
+      Diagnostic.developerLog("Processing " + refName + " with " + records.size() + " preloaded records");
+      mInFlight.add(new InFlight(mScheduler.add(sched), jobFac));
+    }
+
+    /**
+     * Wait for the earliest sequences to finish and write their output until no more than <code>maxInFlight</code> remain.
+     */
+    private void drain(final int maxInFlight) throws IOException {
+      while (mInFlight.size() > maxInFlight) {
+        final InFlight head = mInFlight.remove();
+        if (!mScheduler.await(head.mIndex)) {
+          close(); // rethrows any failure from the executor
+          throw new IllegalStateException("Processing of sequences stopped before " + head.mFactory.mRefName + " was complete");
+        }
+        head.mFactory.close();
+        head.mFactory.writeDeferred();
+      }
+    }
+
+    /**
+     * Wait for all the sequences to finish and write their output.
+     * @throws IOException if an I/O error occurs.
+     */
+    void finish() throws IOException {
+      drain(0);
+      close();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!mClosed) {
+        mClosed = true;
+        mScheduler.close();
+        mPool.terminate();
+      }
+    }
+  }
+
   private void logRecordCounts() {
     mUsageMetric.incrementMetric(mWrapper.getTotalNucleotides());
     final long invalidRecords = mInvalidRecords + mWrapper.getInvalidRecordsCount();
@@ -773,28 +997,38 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
       SamUtils.checkUberHeaderAgainstReference(mReferenceSequences, mParams.uberHeader(), !mParams.ignoreIncompatibleSamHeaders());
       init();
       final Map<String, Long> sequenceNameMap = ReaderUtils.getSequenceNameMap(mReferenceSequences);
-      for (final SAMSequenceRecord r : mSequences) {
-        final String sequenceName = r.getSequenceName(); //mReferenceSequences.name(l);
-        // Only process this sequence if we are doing them all, or if it is
-        // in the restriction specified by the user
-        if (!mWrapper.context().hasRegions() || mWrapper.context().referenceRanges().containsSequence(sequenceName)) {
-          mWrapper.setSequenceId(r.getSequenceIndex());
-          if (mWrapper.hasNext()) {
-            if (!sequenceNameMap.containsKey(sequenceName)) { //this means our SDF does not have reference
-              throw new NoTalkbackSlimException("Reference SDF does not contain sequence '" + sequenceName + "'");
+      try (final SequenceRunner runner = mSequencesInFlight > 1 && mParams.threadingEnvironment() == ThreadingEnvironment.PARALLEL ? new SequenceRunner(mSequencesInFlight) : null) {
+        for (final SAMSequenceRecord r : mSequences) {
+          final String sequenceName = r.getSequenceName(); //mReferenceSequences.name(l);
+          // Only process this sequence if we are doing them all, or if it is
+          // in the restriction specified by the user
+          if (!mWrapper.context().hasRegions() || mWrapper.context().referenceRanges().containsSequence(sequenceName)) {
+            mWrapper.setSequenceId(r.getSequenceIndex());
+            if (mWrapper.hasNext()) {
+              if (!sequenceNameMap.containsKey(sequenceName)) { //this means our SDF does not have reference
+                throw new NoTalkbackSlimException("Reference SDF does not contain sequence '" + sequenceName + "'");
+              }
+              final long sdfSeqId = sequenceNameMap.get(sequenceName);
+              final int sequenceLength = mReferenceSequences.length(sdfSeqId);
+              final byte[] sequenceNt = new byte[sequenceLength];
+              mReferenceSequences.read(sdfSeqId, sequenceNt);
+              if (runner == null) {
+                processAnEntireSequence(sequenceName, sequenceNt);
+              } else {
+                runner.process(sequenceName, sequenceNt);
+              }
             }
-            final long sdfSeqId = sequenceNameMap.get(sequenceName);
-            final int sequenceLength = mReferenceSequences.length(sdfSeqId);
-            final byte[] sequenceNt = new byte[sequenceLength];
-            mReferenceSequences.read(sdfSeqId, sequenceNt);
-            processAnEntireSequence(sequenceName, sequenceNt);
           }
         }
+        if (runner != null) {
+          runner.finish();
+        }
       }
       logRecordCounts();
       mStatistics.setExcessiveCoverageCount(mExcessiveCoverageCount);
       mStatistics.setExcessiveHypothesesCount(mExcessiveHypothesesCount);
       mStatistics.setNoHypothesesCount(mNoHypothesesCount);
+      Diagnostic.developerLog("Complex score cache: " + mScoreCacheHits + " hits, " + mScoreCacheMisses + " misses");
 
       final long totalCalls = mStatistics.getTotalFiltered() + mStatistics.getTotalPassed();
       final double excessCoverageFraction = 100.0 * mExcessiveCoverageCount / totalCalls;
@@ -52,6 +52,7 @@ public class FamilyPosterior extends AbstractFamilyPosterior {
   static final boolean TERMINATE = true;
   static final boolean SQUARE_FIRST = true;
   static final boolean ENABLE_SORTED_HYPOTHESES = GlobalFlags.getBooleanValue(CoreGlobalFlags.FAMILY_CALLER_SORTED_HYPOTHESES);
+  static final boolean ENABLE_TRANSMISSION_TABLES = GlobalFlags.getBooleanValue(CoreGlobalFlags.FAMILY_CALLER_TRANSMISSION_TABLES);
   private static final boolean FIRST_HYP_FULLY = true;
 
   double[] mFatherMarginal;
@@ -64,8 +65,16 @@ public class FamilyPosterior extends AbstractFamilyPosterior {
   protected double mNonIdentity = Double.NEGATIVE_INFINITY;
   protected double mIdentity = Double.NEGATIVE_INFINITY;
   private final double mContraryProbabilityLn;
+  /** Transmission probabilities for each child */
+  protected final MendelianAlleleProbability[] mChildMendelian;
+  /** Precomputed transmission probabilities for each child, null entries where no table is available */
+  protected final MendelianTransmissionTable[] mChildTransmission;
 
   FamilyPosterior(Family family, GenomePriorParams params, List<ModelInterface<?>> models, HaploidDiploidHypotheses<?> hypotheses) {
+    this(family, params, models, hypotheses, ENABLE_TRANSMISSION_TABLES);
+  }
+
+  FamilyPosterior(Family family, GenomePriorParams params, List<ModelInterface<?>> models, HaploidDiploidHypotheses<?> hypotheses, boolean transmissionTables) {
     super(family, params, models, hypotheses);
     Code maximalCode = null;
     for (final ModelInterface<?> m : models) {
@@ -77,6 +86,8 @@ public class FamilyPosterior extends AbstractFamilyPosterior {
     mMaximalCode = maximalCode;
 
     mContraryProbabilityLn = Math.log(params.contraryProbability());
+    mChildMendelian = new MendelianAlleleProbability[mChildren.size()];
+    mChildTransmission = new MendelianTransmissionTable[mChildren.size()];
 
     if (mHypothesesFatherSize == 0 && mHypothesesMotherSize == 0) {
       mBest.add(null); // father
@@ -86,6 +97,7 @@ public class FamilyPosterior extends AbstractFamilyPosterior {
       }
       mEqual = true;
     } else {
+      initTransmission(transmissionTables);
       boolean anyDenovo = false;
       // Because calculating a de novo marginal is slow (observed 40% slowdown)
       // we only want to do it in the case that we actually think there may be
@@ -147,6 +159,17 @@ public class FamilyPosterior extends AbstractFamilyPosterior {
   }
 
 
+  private void initTransmission(boolean transmissionTables) {
+    for (int i = 0; i < mChildren.size(); ++i) {
+      final Hypotheses<?> childHypotheses = mHypotheses.get(mChildren.get(i));
+      // All the references should be the same, so just use the child's since we have it
+      mChildMendelian[i] = MendelianAlleleProbabilityFactory.COMBINED.getMendelianAlleleProbability(mFatherPloidy, mMotherPloidy, childHypotheses.ploidy(), mLogDenovoRefPrior, mLogDenovoNonrefPrior, childHypotheses.reference());
+      if (transmissionTables) {
+        mChildTransmission[i] = MendelianTransmissionTable.getTable(mFatherPloidy, mMotherPloidy, childHypotheses.ploidy(), mMaximalCode, mHypothesesFatherSize, mHypothesesMotherSize, childHypotheses.size(), mLogDenovoRefPrior, mLogDenovoNonrefPrior);
+      }
+    }
+  }
+
   static int bestHypothesis(HypothesisScore best) {
     return best == null ? MISSING_HYPOTHESIS : best.hypothesis();
   }
@@ -609,10 +632,8 @@ public class FamilyPosterior extends AbstractFamilyPosterior {
       }
     } else {
       final ModelInterface<?> child = mChildren.get(childCount);
-      final Hypotheses<?> childHypotheses = mHypotheses.get(child);
-      final int childHypothesesSize = childHypotheses.size();
-      // All the references should be the same, so just use the child's since we have it
-      final MendelianAlleleProbability map = MendelianAlleleProbabilityFactory.COMBINED.getMendelianAlleleProbability(mFatherPloidy, mMotherPloidy, childHypotheses.ploidy(), mLogDenovoRefPrior, mLogDenovoNonrefPrior, child.reference());
+      final int childHypothesesSize = mHypotheses.get(child).size();
+      final MendelianAlleleProbability map = mChildMendelian[childCount];
       if (childHypothesesSize == 0) {
         //near as I can tell this will always be zero currently. MISSING_HYPOTHESIS is ignored
         final double prior = map.probabilityLn(mMaximalCode, father, mother, MISSING_HYPOTHESIS);
@@ -652,9 +673,10 @@ public class FamilyPosterior extends AbstractFamilyPosterior {
   }
 
   final boolean isDenovo(int father, int mother, int childId, int childHypothesis) {
-    final ModelInterface<?> childModel = mChildren.get(childId);
-    final Hypotheses<?> hypotheses = mHypotheses.get(childModel);
-    final MendelianAlleleProbability al = MendelianAlleleProbabilityFactory.COMBINED.getMendelianAlleleProbability(mFatherPloidy, mMotherPloidy, hypotheses.ploidy(), mLogDenovoRefPrior, mLogDenovoNonrefPrior, hypotheses.reference());
-    return al.isDenovo(mMaximalCode, father, mother, childHypothesis);
+    final MendelianTransmissionTable table = mChildTransmission[childId];
+    if (table != null && childHypothesis != MISSING_HYPOTHESIS) {
+      return table.isDenovo(father, mother, childHypothesis);
+    }
+    return mChildMendelian[childId].isDenovo(mMaximalCode, father, mother, childHypothesis);
   }
 }
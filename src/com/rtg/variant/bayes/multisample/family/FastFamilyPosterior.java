@@ -11,12 +11,10 @@
  */
 package com.rtg.variant.bayes.multisample.family;
 
-import java.util.Arrays;
 import java.util.List;
 
 import com.rtg.relation.Family;
 import com.rtg.variant.GenomePriorParams;
-import com.rtg.variant.bayes.Hypotheses;
 import com.rtg.variant.bayes.ModelInterface;
 import com.rtg.variant.bayes.multisample.HaploidDiploidHypotheses;
 import com.rtg.variant.util.VariantUtils;
@@ -30,6 +28,10 @@ public final class FastFamilyPosterior extends FamilyPosterior {
     super(family, params, models, hypotheses);
   }
 
+  FastFamilyPosterior(Family family, GenomePriorParams params, List<ModelInterface<?>> models, HaploidDiploidHypotheses<?> hypotheses, boolean transmissionTables) {
+    super(family, params, models, hypotheses, transmissionTables);
+  }
+
   @Override
   double calculateMarginals(double marginal, int father, int mother) {
     final int children = mChildren.size();
@@ -38,16 +40,24 @@ public final class FastFamilyPosterior extends FamilyPosterior {
 
     for (int i = 0; i < children; ++i) {
       final ModelInterface<?> child = mChildren.get(i);
-      final Hypotheses<?> childHyp = mHypotheses.get(child);
-      // All the references should be the same, so just use the child's since we have it
-      final MendelianAlleleProbability map = MendelianAlleleProbabilityFactory.COMBINED.getMendelianAlleleProbability(mFatherPloidy, mMotherPloidy, childHyp.ploidy(), mLogDenovoRefPrior, mLogDenovoNonrefPrior, childHyp.reference());
-      rh[i] = new double[mChildren.get(i).size()];
-      Arrays.fill(rh[i], Double.NEGATIVE_INFINITY);
+      rh[i] = new double[child.size()];
+      final double[] rhi = rh[i];
       double ri = Double.NEGATIVE_INFINITY;
-      for (int j = 0; j < rh[i].length; ++j) {
-        final double mendelian = map.probabilityLn(mMaximalCode, father, mother, j);
-        rh[i][j] = child.posteriorLn0(j) + mendelian + contraryEvidenceAdjustment(father, mother, j);
-        ri = VariantUtils.logSumApproximation(ri, rh[i][j]);
+      final MendelianTransmissionTable table = mChildTransmission[i];
+      if (table != null) {
+        final double[] mendelian = table.probabilities();
+        final int offset = table.offset(father, mother, mHypotheses.get(child).reference());
+        for (int j = 0; j < rhi.length; ++j) {
+          rhi[j] = child.posteriorLn0(j) + mendelian[offset + j] + contraryEvidenceAdjustment(father, mother, j);
+          ri = VariantUtils.logSumApproximation(ri, rhi[j]);
+        }
+      } else {
+        final MendelianAlleleProbability map = mChildMendelian[i];
+        for (int j = 0; j < rhi.length; ++j) {
+          final double mendelian = map.probabilityLn(mMaximalCode, father, mother, j);
+          rhi[j] = child.posteriorLn0(j) + mendelian + contraryEvidenceAdjustment(father, mother, j);
+          ri = VariantUtils.logSumApproximation(ri, rhi[j]);
+        }
       }
       r[i] = ri;
     }
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.bayes.multisample.family;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.reference.Ploidy;
+import com.rtg.variant.bayes.Code;
+import com.rtg.variant.bayes.Hypotheses;
+
+/**
+ * Dense table of the combined Mendelian and de novo transmission probabilities (as given by
+ * <code>MendelianAlleleProbabilityFactory.COMBINED</code>) of every child hypothesis, for every pair of
+ * parent hypotheses. The child probabilities for one pair of parents are contiguous, so the marginal
+ * calculation for a child can run along a flat array instead of calling the probability classes per cell.
+ *
+ * Tables are shared between sites and threads, and are keyed on the ploidy of the parents and child,
+ * the code and hypothesis counts, and the de novo priors. The reference hypothesis only affects the
+ * de novo prior when both parents have the reference hypothesis, so those rows are held separately
+ * rather than keeping a table per reference. The cache is bounded by the total number of entries, and the
+ * least recently used tables are dropped when a new table would exceed it.
+ */
+@TestClass("com.rtg.variant.bayes.multisample.family.MendelianTransmissionTableTest")
+public final class MendelianTransmissionTable {
+
+  /** Largest number of entries in a single table, larger configurations use the probability classes directly. */
+  static final int MAX_TABLE_ENTRIES = 1 << 18;
+
+  /** Largest total number of entries over all cached tables, least recently used tables are dropped beyond this. */
+  static final long MAX_CACHED_ENTRIES = 1L << 23;
+
+  /** Used as the reference when building the rows where the reference de novo prior does not apply. */
+  private static final int NOT_A_HYPOTHESIS = Integer.MIN_VALUE;
+
+  private static final TableCache CACHE = new TableCache(MAX_CACHED_ENTRIES);
+
+  private static final class Key {
+    private final Ploidy mFatherPloidy;
+    private final Ploidy mMotherPloidy;
+    private final Ploidy mChildPloidy;
+    private final Class<?> mCodeClass;
+    private final int mCodeSize;
+    private final int mCodeRangeSize;
+    private final int mFatherSize;
+    private final int mMotherSize;
+    private final int mChildSize;
+    private final double mLogRefDenovoPrior;
+    private final double mLogNonRefDenovoPrior;
+
+    Key(Ploidy father, Ploidy mother, Ploidy child, Code code, int fatherSize, int motherSize, int childSize, double logRefDenovoPrior, double logNonRefDenovoPrior) {
+      mFatherPloidy = father;
+      mMotherPloidy = mother;
+      mChildPloidy = child;
+      mCodeClass = code.getClass();
+      mCodeSize = code.size();
+      mCodeRangeSize = code.rangeSize();
+      mFatherSize = fatherSize;
+      mMotherSize = motherSize;
+      mChildSize = childSize;
+      mLogRefDenovoPrior = logRefDenovoPrior;
+      mLogNonRefDenovoPrior = logNonRefDenovoPrior;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      final Key that = (Key) obj;
+      return mFatherPloidy == that.mFatherPloidy
+        && mMotherPloidy == that.mMotherPloidy
+        && mChildPloidy == that.mChildPloidy
+        && mCodeClass == that.mCodeClass
+        && mCodeSize == that.mCodeSize
+        && mCodeRangeSize == that.mCodeRangeSize
+        && mFatherSize == that.mFatherSize
+        && mMotherSize == that.mMotherSize
+        && mChildSize == that.mChildSize
+        && Double.doubleToLongBits(mLogRefDenovoPrior) == Double.doubleToLongBits(that.mLogRefDenovoPrior)
+        && Double.doubleToLongBits(mLogNonRefDenovoPrior) == Double.doubleToLongBits(that.mLogNonRefDenovoPrior);
+    }
+
+    @Override
+    public int hashCode() {
+      int h = mFatherPloidy.hashCode();
+      h = 31 * h + mMotherPloidy.hashCode();
+      h = 31 * h + mChildPloidy.hashCode();
+      h = 31 * h + mCodeClass.hashCode();
+      h = 31 * h + mCodeSize;
+      h = 31 * h + mCodeRangeSize;
+      h = 31 * h + mFatherSize;
+      h = 31 * h + mMotherSize;
+      h = 31 * h + mChildSize;
+      h = 31 * h + Double.hashCode(mLogRefDenovoPrior);
+      h = 31 * h + Double.hashCode(mLogNonRefDenovoPrior);
+      return h;
+    }
+  }
+
+  /**
+   * Least recently used cache of tables, bounded by the total number of entries in the tables.
+   */
+  static final class TableCache {
+    private final long mMaxEntries;
+    private final LinkedHashMap<Key, MendelianTransmissionTable> mTables = new LinkedHashMap<>(16, 0.75f, true);
+    private long mEntries = 0;
+
+    /**
+     * @param maxEntries largest total number of entries over all cached tables
+     */
+    TableCache(long maxEntries) {
+      mMaxEntries = maxEntries;
+    }
+
+    private synchronized MendelianTransmissionTable get(Key key) {
+      return mTables.get(key);
+    }
+
+    private synchronized MendelianTransmissionTable put(Key key, MendelianTransmissionTable table) {
+      final MendelianTransmissionTable previous = mTables.get(key);
+      if (previous != null) {
+        return previous;
+      }
+      mTables.put(key, table);
+      mEntries += table.mProbabilities.length;
+      final Iterator<Map.Entry<Key, MendelianTransmissionTable>> it = mTables.entrySet().iterator();
+      while (mEntries > mMaxEntries && mTables.size() > 1) {
+        mEntries -= it.next().getValue().mProbabilities.length;
+        it.remove();
+      }
+      return table;
+    }
+
+    /**
+     * @return the number of tables held
+     */
+    synchronized int size() {
+      return mTables.size();
+    }
+
+    /**
+     * @return the total number of entries over all tables held
+     */
+    synchronized long entries() {
+      return mEntries;
+    }
+  }
+
+  /**
+   * Get the table for a configuration, building it the first time it is requested.
+   * @param father ploidy of father
+   * @param mother ploidy of mother
+   * @param child ploidy of child
+   * @param code code used to interpret the hypotheses of all family members
+   * @param fatherSize number of father hypotheses
+   * @param motherSize number of mother hypotheses
+   * @param childSize number of child hypotheses
+   * @param logRefDenovoPrior prior for de novo mutations when parents are ref
+   * @param logNonRefDenovoPrior prior for de novo mutations when parents are not ref
+   * @return the table, or null if the table would be too large to hold
+   */
+  static MendelianTransmissionTable getTable(Ploidy father, Ploidy mother, Ploidy child, Code code, int fatherSize, int motherSize, int childSize, double logRefDenovoPrior, double logNonRefDenovoPrior) {
+    return getTable(CACHE, father, mother, child, code, fatherSize, motherSize, childSize, logRefDenovoPrior, logNonRefDenovoPrior);
+  }
+
+  /**
+   * Get the table for a configuration from the given cache, building it if the cache does not hold it.
+   * @param cache holds previously built tables
+   * @see #getTable(Ploidy, Ploidy, Ploidy, Code, int, int, int, double, double)
+   */
+  static MendelianTransmissionTable getTable(TableCache cache, Ploidy father, Ploidy mother, Ploidy child, Code code, int fatherSize, int motherSize, int childSize, double logRefDenovoPrior, double logNonRefDenovoPrior) {
+    final Key key = new Key(father, mother, child, code, fatherSize, motherSize, childSize, logRefDenovoPrior, logNonRefDenovoPrior);
+    final MendelianTransmissionTable cached = cache.get(key);
+    if (cached != null) {
+      return cached;
+    }
+    if (entries(father, mother, fatherSize, motherSize, childSize) > MAX_TABLE_ENTRIES) {
+      return null;
+    }
+    return cache.put(key, new MendelianTransmissionTable(father, mother, child, code, fatherSize, motherSize, childSize, logRefDenovoPrior, logNonRefDenovoPrior));
+  }
+
+  private static int parentRows(Ploidy ploidy, int size) {
+    return ploidy == Ploidy.NONE ? 1 : size;
+  }
+
+  private static int referenceRows(Ploidy father, Ploidy mother, int fatherSize, int motherSize) {
+    return father == Ploidy.NONE || mother == Ploidy.NONE ? 0 : Math.min(fatherSize, motherSize);
+  }
+
+  private static long entries(Ploidy father, Ploidy mother, int fatherSize, int motherSize, int childSize) {
+    final long rows = (long) parentRows(father, fatherSize) * parentRows(mother, motherSize) + referenceRows(father, mother, fatherSize, motherSize);
+    return rows * childSize;
+  }
+
+  private final boolean mFatherNone;
+  private final boolean mMotherNone;
+  private final int mMotherRows;
+  private final int mChildSize;
+  private final int mReferenceRowStart;
+  private final int mReferenceRows;
+  private final double[] mProbabilities;
+  private final boolean[] mDenovo;
+
+  private MendelianTransmissionTable(Ploidy father, Ploidy mother, Ploidy child, Code code, int fatherSize, int motherSize, int childSize, double logRefDenovoPrior, double logNonRefDenovoPrior) {
+    mFatherNone = father == Ploidy.NONE;
+    mMotherNone = mother == Ploidy.NONE;
+    final int fatherRows = parentRows(father, fatherSize);
+    mMotherRows = parentRows(mother, motherSize);
+    mChildSize = childSize;
+    mReferenceRowStart = fatherRows * mMotherRows;
+    mReferenceRows = referenceRows(father, mother, fatherSize, motherSize);
+    mProbabilities = new double[(mReferenceRowStart + mReferenceRows) * childSize];
+    mDenovo = new boolean[mReferenceRowStart * childSize];
+    final MendelianAlleleProbability nonRef = MendelianAlleleProbabilityFactory.COMBINED.getMendelianAlleleProbability(father, mother, child, logRefDenovoPrior, logNonRefDenovoPrior, NOT_A_HYPOTHESIS);
+    for (int f = 0; f < fatherRows; ++f) {
+      final int fa = mFatherNone ? FamilyPosterior.MISSING_HYPOTHESIS : f;
+      for (int m = 0; m < mMotherRows; ++m) {
+        final int mo = mMotherNone ? FamilyPosterior.MISSING_HYPOTHESIS : m;
+        final int row = (f * mMotherRows + m) * childSize;
+        for (int c = 0; c < childSize; ++c) {
+          mProbabilities[row + c] = nonRef.probabilityLn(code, fa, mo, c);
+          mDenovo[row + c] = nonRef.isDenovo(code, fa, mo, c);
+        }
+      }
+    }
+    for (int r = 0; r < mReferenceRows; ++r) {
+      final MendelianAlleleProbability ref = MendelianAlleleProbabilityFactory.COMBINED.getMendelianAlleleProbability(father, mother, child, logRefDenovoPrior, logNonRefDenovoPrior, r);
+      final int row = (mReferenceRowStart + r) * childSize;
+      for (int c = 0; c < childSize; ++c) {
+        mProbabilities[row + c] = ref.probabilityLn(code, r, r, c);
+      }
+    }
+  }
+
+  private int parentRow(int father, int mother) {
+    final int f = mFatherNone ? 0 : father;
+    final int m = mMotherNone ? 0 : mother;
+    return f * mMotherRows + m;
+  }
+
+  /**
+   * @param father the hypothesis of the father, <code>MISSING_HYPOTHESIS</code> if the father has no hypotheses.
+   * @param mother the hypothesis of the mother, <code>MISSING_HYPOTHESIS</code> if the mother has no hypotheses.
+   * @param reference the reference hypothesis.
+   * @return the offset in <code>probabilities()</code> of the natural log probabilities of each child hypothesis given the parents.
+   */
+  int offset(int father, int mother, int reference) {
+    if (father == mother && father == reference && reference != Hypotheses.NO_HYPOTHESIS && reference < mReferenceRows) {
+      return (mReferenceRowStart + reference) * mChildSize;
+    }
+    return parentRow(father, mother) * mChildSize;
+  }
+
+  /**
+   * @return the natural log probabilities of all child hypotheses, indexed from <code>offset</code>.
+   */
+  double[] probabilities() {
+    return mProbabilities;
+  }
+
+  /**
+   * @param father the hypothesis of the father, <code>MISSING_HYPOTHESIS</code> if the father has no hypotheses.
+   * @param mother the hypothesis of the mother, <code>MISSING_HYPOTHESIS</code> if the mother has no hypotheses.
+   * @param child the hypothesis of the child.
+   * @param reference the reference hypothesis.
+   * @return the natural log probability of the child hypothesis given the parents.
+   */
+  double probabilityLn(int father, int mother, int child, int reference) {
+    return mProbabilities[offset(father, mother, reference) + child];
+  }
+
+  /**
+   * @param father the hypothesis of the father, <code>MISSING_HYPOTHESIS</code> if the father has no hypotheses.
+   * @param mother the hypothesis of the mother, <code>MISSING_HYPOTHESIS</code> if the mother has no hypotheses.
+   * @param child the hypothesis of the child.
+   * @return true if the child hypothesis requires a de novo mutation given the parents.
+   */
+  boolean isDenovo(int father, int mother, int child) {
+    return mDenovo[parentRow(father, mother) * mChildSize + child];
+  }
+
+  /**
+   * @return the number of child hypotheses in each row.
+   */
+  int childSize() {
+    return mChildSize;
+  }
+
+  @Override
+  public String toString() {
+    return "MendelianTransmissionTable rows=" + (mReferenceRowStart + mReferenceRows) + " childSize=" + mChildSize;
+  }
+}
@@ -29,7 +29,7 @@ public class MultisampleStatistics implements JobStatistics<JobIdMultisample> {
   }
 
   @Override
-  public void increment(JobIdMultisample id, long nanoTime) {
+  public synchronized void increment(JobIdMultisample id, long nanoTime) {
     mSpies[id.type().ordinal()].increment(nanoTime);
   }
 
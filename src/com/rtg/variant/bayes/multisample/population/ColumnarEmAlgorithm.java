@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.bayes.multisample.population;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.variant.bayes.Code;
+import com.rtg.variant.bayes.Description;
+import com.rtg.variant.bayes.Model;
+import com.rtg.variant.bayes.ModelInterface;
+import com.rtg.variant.bayes.ModelNone;
+import com.rtg.variant.bayes.multisample.HaploidDiploidHypotheses;
+import com.rtg.variant.bayes.multisample.HypothesisScores;
+import com.rtg.variant.bayes.multisample.MultisampleJointScorer;
+import com.rtg.variant.bayes.multisample.PriorContainer;
+import com.rtg.variant.bayes.multisample.forwardbackward.BContainer;
+import com.rtg.variant.bayes.snp.HypothesesPrior;
+import com.rtg.variant.util.arithmetic.PossibilityArithmetic;
+
+/**
+ * Same EM iteration as <code>EmAlgorithm</code> with a <code>HwEstimator</code> over singleton calls,
+ * but with the per-sample genotype posteriors copied once into flat arrays (one row per sample,
+ * separately for haploid and diploid samples). Each iteration then only needs the best genotype of
+ * each row under the current priors, rather than building a full score object for every sample.
+ * The scores for the final priors are made by the supplied scorer, so the results are identical.
+ *
+ * Only applies when the scorer makes independent singleton calls (no family caller) and every model is
+ * a plain <code>Model</code> or <code>ModelNone</code>, otherwise this delegates to <code>EmAlgorithm</code>.
+ */
+@TestClass("com.rtg.variant.bayes.multisample.population.ColumnarEmAlgorithmTest")
+public class ColumnarEmAlgorithm implements MultisampleJointScorer {
+
+  private static final int NO_CALL = -1;
+
+  /** Minimum number of rows handed to each task when finding best genotypes in parallel. */
+  private static final int MIN_PARALLEL_ROWS = 64;
+
+  private final MultisampleJointScorer mScorer;
+  private final HwEstimator mEstimator;
+  private final int mMaxIterations;
+  private final int mParallelSamples;
+
+  /**
+   * @param scorer makes the singleton calls for each sample given a set of priors.
+   * @param maxIterations the maximum number of iterations that EM will attempt
+   * @param parallelSamples find best genotypes in parallel at sites with at least this many samples, 0 to never do so.
+   */
+  public ColumnarEmAlgorithm(MultisampleJointScorer scorer, int maxIterations, int parallelSamples) {
+    mScorer = scorer;
+    mEstimator = new HwEstimator(scorer);
+    mMaxIterations = maxIterations < 0 ? EmAlgorithm.DEFAULT_MAX_ITERATIONS : maxIterations;
+    mParallelSamples = parallelSamples;
+  }
+
+  static boolean isColumnar(List<ModelInterface<?>> models) {
+    for (final ModelInterface<?> model : models) {
+      // exact class so that no subclass can have changed how the best hypothesis is chosen
+      if (model.getClass() != Model.class && !(model instanceof ModelNone)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Posteriors of the samples of one ploidy, excluding priors, one row of <code>size</code> per sample.
+   */
+  private static final class Block {
+    final int mSize;
+    final int[] mSamples;
+    final double[] mPosteriors;
+    final int[] mBest;
+
+    Block(List<ModelInterface<?>> models, int[] samples, int count, int size) {
+      mSize = size;
+      mSamples = new int[count];
+      System.arraycopy(samples, 0, mSamples, 0, count);
+      mPosteriors = new double[count * size];
+      mBest = new int[count];
+      for (int k = 0; k < count; ++k) {
+        final ModelInterface<?> model = models.get(mSamples[k]);
+        final int row = k * size;
+        for (int i = 0; i < size; ++i) {
+          mPosteriors[row + i] = model.p(i);
+        }
+      }
+    }
+
+    int rows() {
+      return mSamples.length;
+    }
+
+    /**
+     * Best genotype for a range of rows, choosing exactly as <code>AbstractGenotypeMeasure</code> does.
+     */
+    void best(PossibilityArithmetic arith, double[] priors, int start, int end) {
+      final int size = mSize;
+      final double[] posteriors = mPosteriors;
+      for (int k = start; k < end; ++k) {
+        final int row = k * size;
+        int best = 0;
+        double bestMeasure = arith.multiply(posteriors[row], priors[0]);
+        for (int i = 0; i < size; ++i) {
+          final double measure = arith.multiply(posteriors[row + i], priors[i]);
+          if (arith.gt(measure, bestMeasure)) {
+            best = i;
+            bestMeasure = measure;
+          }
+        }
+        mBest[k] = best;
+      }
+    }
+  }
+
+  private static final class BestTask extends RecursiveAction {
+    private final Block mBlock;
+    private final PossibilityArithmetic mArith;
+    private final double[] mPriors;
+    private final int mStart;
+    private final int mEnd;
+
+    BestTask(Block block, PossibilityArithmetic arith, double[] priors, int start, int end) {
+      mBlock = block;
+      mArith = arith;
+      mPriors = priors;
+      mStart = start;
+      mEnd = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (mEnd - mStart <= MIN_PARALLEL_ROWS) {
+        mBlock.best(mArith, mPriors, mStart, mEnd);
+      } else {
+        final int mid = (mStart + mEnd) >>> 1;
+        invokeAll(new BestTask(mBlock, mArith, mPriors, mStart, mid), new BestTask(mBlock, mArith, mPriors, mid, mEnd));
+      }
+    }
+  }
+
+  private static void best(Block block, PossibilityArithmetic arith, HypothesesPrior<?> hypotheses, boolean parallel) {
+    if (block.rows() == 0) {
+      return;
+    }
+    final double[] priors = new double[block.mSize];
+    for (int i = 0; i < priors.length; ++i) {
+      priors[i] = hypotheses.p(i);
+    }
+    if (parallel) {
+      ForkJoinPool.commonPool().invoke(new BestTask(block, arith, priors, 0, block.rows()));
+    } else {
+      block.best(arith, priors, 0, block.rows());
+    }
+  }
+
+  /**
+   * Calls for the current priors, as a hypothesis per sample, <code>NO_CALL</code> for samples without a model.
+   */
+  private static void calls(Block haploid, Block diploid, int[] calls) {
+    for (int k = 0; k < haploid.rows(); ++k) {
+      calls[haploid.mSamples[k]] = haploid.mBest[k];
+    }
+    for (int k = 0; k < diploid.rows(); ++k) {
+      calls[diploid.mSamples[k]] = diploid.mBest[k];
+    }
+  }
+
+  @Override
+  public <D extends Description, T extends HypothesesPrior<D>> HypothesisScores getBestScores(List<ModelInterface<?>> models, PriorContainer<T> priorContainer) {
+    if (priorContainer.getBs() != null || !isColumnar(models)) {
+      return new EmAlgorithm(mEstimator, mMaxIterations).getBestScores(models, priorContainer);
+    }
+    final HaploidDiploidHypotheses<T> initial = priorContainer.getHypotheses();
+    final int haploidSize = initial.haploid().size();
+    final int diploidSize = initial.diploid().size();
+    final PossibilityArithmetic arith = initial.haploid().arithmetic();
+    final int n = models.size();
+    final int[] haploidSamples = new int[n];
+    final int[] diploidSamples = new int[n];
+    int haploidCount = 0;
+    int diploidCount = 0;
+    for (int s = 0; s < n; ++s) {
+      final ModelInterface<?> model = models.get(s);
+      final T hyp = initial.get(model);
+      if (model instanceof ModelNone) {
+        continue;
+      }
+      if (model.arithmetic() != arith || model.size() != hyp.size() || hyp.size() < 1 || (hyp != initial.haploid() && hyp != initial.diploid())) {
+        return new EmAlgorithm(mEstimator, mMaxIterations).getBestScores(models, priorContainer);
+      }
+      if (hyp == initial.haploid()) {
+        haploidSamples[haploidCount++] = s;
+      } else {
+        diploidSamples[diploidCount++] = s;
+      }
+    }
+    final Block haploid = new Block(models, haploidSamples, haploidCount, haploidSize);
+    final Block diploid = new Block(models, diploidSamples, diploidCount, diploidSize);
+    final boolean parallel = mParallelSamples > 0 && haploidCount + diploidCount >= mParallelSamples;
+    final Code code = initial.diploid().code();
+    final int[] alleleA = new int[diploidSize];
+    final int[] alleleB = new int[diploidSize];
+    for (int i = 0; i < diploidSize; ++i) {
+      alleleA[i] = code.a(i);
+      alleleB[i] = code.bc(i);
+    }
+
+    int[] last = new int[n];
+    int[] next = new int[n];
+    Arrays.fill(last, NO_CALL);
+    Arrays.fill(next, NO_CALL);
+
+    // calls under the initial priors, then priors estimated from those calls
+    best(haploid, arith, initial.haploid(), parallel);
+    best(diploid, arith, initial.diploid(), parallel);
+    calls(haploid, diploid, last);
+    HaploidDiploidHypotheses<HypothesesPrior<D>> lastHypotheses = null;
+    HaploidDiploidHypotheses<HypothesesPrior<D>> nextHypotheses = newPriors(initial, haploid, diploid, alleleA, alleleB);
+    int iterations = 0;
+    while (iterations < mMaxIterations) {
+      best(haploid, arith, nextHypotheses.haploid(), parallel);
+      best(diploid, arith, nextHypotheses.diploid(), parallel);
+      calls(haploid, diploid, next);
+      int difference = 0;
+      for (int s = 0; s < n; ++s) {
+        if (last[s] != next[s]) {
+          ++difference;
+        }
+      }
+      ++iterations;
+      lastHypotheses = nextHypotheses;
+      nextHypotheses = newPriors(lastHypotheses, haploid, diploid, alleleA, alleleB);
+      final int[] t = last;
+      last = next;
+      next = t;
+      if (difference == 0) {
+        break;
+      }
+    }
+    EmAlgorithm.logIterations(iterations, mMaxIterations);
+    if (lastHypotheses == null) {
+      return mScorer.getBestScores(models, priorContainer);
+    }
+    return mScorer.getBestScores(models, new PriorContainer<>(lastHypotheses, null));
+  }
+
+  // As for HwEstimator.estimate, given the best genotype of every sample under the current priors
+  private <D extends Description, T extends HypothesesPrior<D>> HaploidDiploidHypotheses<HypothesesPrior<D>> newPriors(HaploidDiploidHypotheses<T> hypotheses, Block haploid, Block diploid, int[] alleleA, int[] alleleB) {
+    final int[] haploidCounts = new int[hypotheses.haploid().size()];
+    int haploidTotal = 0;
+    final DescriptionCounts dc = hypotheses.getDescriptionCounts();
+    if (dc != null) {
+      for (int i = 0; i < haploidCounts.length; ++i) {
+        haploidCounts[i] += dc.getCount(i);
+      }
+      haploidTotal += dc.getTotalCount();
+    }
+    for (int k = 0; k < haploid.rows(); ++k) {
+      haploidCounts[haploid.mBest[k]]++;
+    }
+    haploidTotal += haploid.rows();
+    for (int k = 0; k < diploid.rows(); ++k) {
+      final int best = diploid.mBest[k];
+      haploidCounts[alleleA[best]]++;
+      haploidCounts[alleleB[best]]++;
+    }
+    haploidTotal += 2 * diploid.rows();
+    return mEstimator.computeNewPriors(hypotheses, haploidCounts, haploidTotal);
+  }
+
+  @Override
+  public BContainer[] makeInitialBs(List<ModelInterface<?>> models) {
+    return null;
+  }
+}
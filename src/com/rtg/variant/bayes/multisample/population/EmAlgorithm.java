@@ -69,6 +69,14 @@ public class EmAlgorithm implements MultisampleJointScorer {
     ITERATION_HIST.increment(itcount);
   }
 
+  static void logIterations(int iterations, int maxIterations) {
+    updateIterationHist(iterations);
+    if (iterations == maxIterations && maxIterations >= ARBITRARY_LOG_TRIGGER) {
+      Diagnostic.userLog("EmAlgorithm exceeded " + maxIterations + " iterations");
+      Diagnostic.developerLog(ITERATION_HIST.toString());
+    }
+  }
+
   private final Estimator mEstimator;
 
   private final int mMaxIterations;
@@ -105,11 +113,7 @@ public class EmAlgorithm implements MultisampleJointScorer {
         break;
       }
     }
-    updateIterationHist(iterations);
-    if (iterations == mMaxIterations && mMaxIterations >= ARBITRARY_LOG_TRIGGER) {
-      Diagnostic.userLog("EmAlgorithm exceeded " + mMaxIterations + " iterations");
-      Diagnostic.developerLog(ITERATION_HIST.toString());
-    }
+    logIterations(iterations, mMaxIterations);
     return last.calls();
   }
 
@@ -15,6 +15,8 @@ package com.rtg.variant.bayes.multisample.population;
 
 import java.util.List;
 
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.util.MathUtils;
 import com.rtg.variant.VariantOutputLevel;
 import com.rtg.variant.VariantParams;
@@ -37,6 +39,9 @@ import com.rtg.variant.bayes.snp.HypothesesPrior;
  */
 public class PopulationCaller extends AbstractMultisampleCaller implements MultisampleJointScorer {
 
+  private static final boolean COLUMNAR_EM = GlobalFlags.getBooleanValue(CoreGlobalFlags.POPULATION_COLUMNAR_EM);
+  private static final int EM_PARALLEL_SAMPLES = GlobalFlags.getIntegerValue(CoreGlobalFlags.POPULATION_EM_PARALLEL_SAMPLES);
+
   private final MultisampleJointScorer mFamilyCaller;
 
   private final VariantParams mParams;
@@ -139,7 +144,13 @@ public class PopulationCaller extends AbstractMultisampleCaller implements Multi
     final HypothesisScores calls;
 
     if (mParams.maxEmIterations() != 0) {
-      calls = new EmAlgorithm(new HwEstimator(this), mParams.maxEmIterations()).getBestScores(models, new PriorContainer<>(hypotheses, bs));
+      final MultisampleJointScorer em;
+      if (COLUMNAR_EM && mFamilyCaller == null) {
+        em = new ColumnarEmAlgorithm(this, mParams.maxEmIterations(), EM_PARALLEL_SAMPLES);
+      } else {
+        em = new EmAlgorithm(new HwEstimator(this), mParams.maxEmIterations());
+      }
+      calls = em.getBestScores(models, new PriorContainer<>(hypotheses, bs));
     } else {
       calls = getBestScores(models, new PriorContainer<>(hypotheses, bs));
     }
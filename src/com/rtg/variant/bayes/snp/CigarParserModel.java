@@ -71,11 +71,13 @@ public class CigarParserModel implements ReadParserInterface {
     final byte[] qualities;
     try {
       // Note that we don't use the SuperCigar for CG here, as the overlaps would be treated as double-evidence (whereas allpaths does the right thing).
-      mParser.setStandardCigar(var.getCigar(), var.getRead(), var.getRead().length);
+      final byte[] read = var.getRead();
+      mParser.setStandardCigar(var.getCigar(), read, read.length);
     } catch (final IllegalArgumentException iae) {
       throw new BadSuperCigarException("Illegal DNA character: " + iae.getMessage());
     }
-    qualities = var.getRecalibratedQuality().length == 0 || mParams.ignoreQualityScores() ? null : var.getRecalibratedQuality();
+    final byte[] recalibrated = var.getRecalibratedQuality();
+    qualities = recalibrated.length == 0 || mParams.ignoreQualityScores() ? null : recalibrated;
 
     mParser.setTemplateStart(var.getStart());
     mParser.setTemplate(templateBytes);
@@ -75,6 +75,16 @@ public class EvidenceMatcher<D extends EvidenceAcceptor> implements MatcherInter
     return mBuffer.step();
   }
 
+  /**
+   * Release an <code>EvidenceAcceptor</code> returned by <code>step</code> that is no longer needed.
+   *
+   * @param ref position in reference the acceptor was returned for
+   * @param acceptor the <code>EvidenceAcceptor</code>
+   */
+  public void release(final int ref, final D acceptor) {
+    mBuffer.release(ref, acceptor);
+  }
+
   @Override
   public String toString() {
     return "Matcher:" + StringUtils.LS + mBuffer.toString();
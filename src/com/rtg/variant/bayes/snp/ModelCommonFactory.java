@@ -12,10 +12,13 @@
 
 package com.rtg.variant.bayes.snp;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.util.integrity.Exam;
 import com.rtg.util.integrity.IntegralAbstract;
 import com.rtg.variant.bayes.AlleleBalanceProbability;
@@ -26,29 +29,74 @@ import com.rtg.variant.bayes.ModelFactory;
 import com.rtg.variant.bayes.ModelInterface;
 
 /**
+ * When model recycling is enabled, models released back to the factory are reset and kept in a per thread pool, so
+ * that positions which do not produce a call do not each leave a model for the garbage collector.
  * @param <H> class of <code>Hypotheses</code>. Needed so <code>ModelCancerFactory</code> can insist on a <code>HypothesesCancer</code>.
  * @param <D> description type
  */
 @TestClass("com.rtg.variant.bayes.snp.ModelSnpFactoryTest")
 public abstract class ModelCommonFactory<D extends Description, H extends Hypotheses<D>> extends IntegralAbstract implements ModelFactory<D, H> {
 
+  /** Maximum number of models pooled per thread for each reference code. */
+  static final int POOL_LIMIT = 4096;
+
+  static final boolean RECYCLE_MODELS = GlobalFlags.getBooleanValue(CoreGlobalFlags.VARIANT_RECYCLE_MODELS);
+
   protected H mHypothesisUnknown = null;
   protected final List<H> mHypothesesCache = new ArrayList<>();
   private final AlleleBalanceProbability mAlleleBalance;
+  // Released models, indexed by reference code + 1 so the unknown hypotheses are at 0, or null when not recycling
+  private final ThreadLocal<List<ArrayDeque<ModelInterface<D>>>> mPool;
 
   /**
    * @param alleleBalance allele balance probability implementation
    */
   protected ModelCommonFactory(AlleleBalanceProbability alleleBalance) {
+    this(alleleBalance, RECYCLE_MODELS);
+  }
+
+  /**
+   * @param alleleBalance allele balance probability implementation
+   * @param recycle true if released models should be reset and handed out again
+   */
+  protected ModelCommonFactory(AlleleBalanceProbability alleleBalance, boolean recycle) {
     mAlleleBalance = alleleBalance;
+    mPool = recycle ? ThreadLocal.withInitial(ArrayList::new) : null;
   }
 
   @Override
   public ModelInterface<D> make(final int ref) {
+    if (mPool != null) {
+      final ArrayDeque<ModelInterface<D>> pool = pool(ref);
+      if (!pool.isEmpty()) {
+        return pool.pop();
+      }
+    }
     final Hypotheses<D> hyp = defaultHypotheses(ref);
     return makeModel(hyp);
   }
 
+  @Override
+  public void release(final ModelInterface<D> model) {
+    final int ref = model.reference();
+    // only models made by this factory can be handed out again
+    if (mPool != null && model instanceof Model && model.hypotheses() == defaultHypotheses(ref)) {
+      final ArrayDeque<ModelInterface<D>> pool = pool(ref);
+      if (pool.size() < POOL_LIMIT) {
+        ((Model<D>) model).reset();
+        pool.push(model);
+      }
+    }
+  }
+
+  private ArrayDeque<ModelInterface<D>> pool(final int ref) {
+    final List<ArrayDeque<ModelInterface<D>>> pools = mPool.get();
+    while (pools.size() <= ref + 1) {
+      pools.add(new ArrayDeque<>());
+    }
+    return pools.get(ref + 1);
+  }
+
   @Override
   public H defaultHypotheses(int ref) {
     //return mHypothesesCache.get(ref);
@@ -28,7 +28,17 @@ public class ModelSnpFactory extends ModelCommonFactory<Description, HypothesesS
    * @param alleleBalance allele balance probability implementation
    */
   public ModelSnpFactory(final GenomePriorParams params, final boolean haploid, final AlleleBalanceProbability alleleBalance) {
-    super(alleleBalance);
+    this(params, haploid, alleleBalance, RECYCLE_MODELS);
+  }
+
+  /**
+   * @param params information about genome used to compute priors.
+   * @param haploid use a haploid set of hypotheses iff true.
+   * @param alleleBalance allele balance probability implementation
+   * @param recycle true if released models should be reset and handed out again
+   */
+  ModelSnpFactory(final GenomePriorParams params, final boolean haploid, final AlleleBalanceProbability alleleBalance, final boolean recycle) {
+    super(alleleBalance, recycle);
     mHypothesisUnknown = new HypothesesSnp(LogApproximatePossibility.SINGLETON, params, haploid, Hypotheses.NO_HYPOTHESIS);
     for (int i = 0; i < DescriptionSnp.SINGLETON.size(); ++i) {
       mHypothesesCache.add(new HypothesesSnp(LogApproximatePossibility.SINGLETON, params, haploid, i));
@@ -96,7 +96,22 @@ public class ReferenceBasedBuffer<D> extends IntegralAbstract {
   protected D make(int index) {
     final int nt = mTemplate[index] - 1;
     assert nt == Hypotheses.NO_HYPOTHESIS || 0 <= nt && nt < 4;
-    return mFactory.make(nt);
+    return factory(index).make(nt);
+  }
+
+  // The factory responsible for objects at the given position on the reference
+  protected ReferenceBasedFactory<D> factory(int index) {
+    return mFactory;
+  }
+
+  /**
+   * Hand an object previously returned by <code>step</code> back to the factory that made it,
+   * once the caller no longer refers to it.
+   * @param index the position the object was returned for.
+   * @param obj the object.
+   */
+  public void release(final int index, final D obj) {
+    factory(index).release(obj);
   }
 
   /**
@@ -36,9 +36,7 @@ public class SwitchingReferenceBasedBuffer<D> extends ReferenceBasedBuffer<D> {
   }
 
   @Override
-  protected D make(int index) {
-    final int nt = mTemplate[index] - 1;
-    assert -1 <= nt && nt < 4;
-    return index < mSwitchPoint ? mFactory.make(nt) : mSecondFactory.make(nt);
+  protected ReferenceBasedFactory<D> factory(int index) {
+    return index < mSwitchPoint ? mFactory : mSecondFactory;
   }
 }
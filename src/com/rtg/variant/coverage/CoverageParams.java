@@ -165,6 +165,15 @@ public final class CoverageParams extends SingleMappedParams {
       return self();
     }
 
+    /**
+     * @param size the number of positions to include when dividing work into chunks.
+     * @return this builder, so calls can be chained.
+     */
+    public CoverageParamsBuilder chunkSize(int size) {
+      mChunkSize = size;
+      return self();
+    }
+
     /**
      * Creates a CoverageParams using the current builder
      * configuration.
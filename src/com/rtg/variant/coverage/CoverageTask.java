@@ -14,12 +14,22 @@ package com.rtg.variant.coverage;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.rtg.launcher.ParamsTask;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.mode.DnaUtils;
 import com.rtg.reader.ReaderUtils;
 import com.rtg.reader.SequencesReader;
@@ -33,6 +43,7 @@ import com.rtg.util.MathUtils;
 import com.rtg.util.Populator;
 import com.rtg.util.SingletonPopulatorFactory;
 import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.diagnostic.NoTalkbackSlimException;
 import com.rtg.util.diagnostic.ParallelProgress;
 import com.rtg.util.diagnostic.Timer;
 import com.rtg.util.intervals.RangeList;
@@ -73,13 +84,30 @@ public class CoverageTask extends ParamsTask<CoverageParams, CoverageStatistics>
 
   private ThreadedMultifileIteratorWrapper<CoverageReaderRecord> mWrapper;
 
+  // state for computing chunks in parallel, the executor is null when chunks are computed sequentially
+  private final boolean mParallelChunks;
+  private ExecutorService mChunkExecutor = null;
+  private final Queue<Future<ChunkCoverage>> mPendingChunks = new ArrayDeque<>();
+  private int mNextChunkToSubmit;
+
   /**
    * @param params parameters for coverage run
    * @param reportStream stream to send summary to
    * @param stats object to collect summary statistics
    */
   public CoverageTask(CoverageParams params, OutputStream reportStream, CoverageStatistics stats) {
+    this(params, reportStream, stats, GlobalFlags.getBooleanValue(CoreGlobalFlags.COVERAGE_PARALLEL_CHUNKS));
+  }
+
+  /**
+   * @param params parameters for coverage run
+   * @param reportStream stream to send summary to
+   * @param stats object to collect summary statistics
+   * @param parallelChunks if true, compute the coverage of several chunks at once
+   */
+  CoverageTask(CoverageParams params, OutputStream reportStream, CoverageStatistics stats, boolean parallelChunks) {
     super(params, reportStream, stats, null);
+    mParallelChunks = parallelChunks;
   }
 
 
@@ -122,6 +150,10 @@ public class CoverageTask extends ParamsTask<CoverageParams, CoverageStatistics>
       final SamReadingContext context = new SamReadingContext(mParams.mapped(), mParams.ioThreads(), mParams.filterParams(), uberHeader, reference);
       final ReferenceRanges<String> ranges = context.referenceRanges();
       mWrapper = new ThreadedMultifileIteratorWrapper<>(context, pf);
+      if (mParallelChunks && mParams.ioThreads() > 1) {
+        Diagnostic.userLog("Computing coverage of chunks in parallel using " + mParams.ioThreads() + " threads");
+        mChunkExecutor = Executors.newFixedThreadPool(mParams.ioThreads());
+      }
       for (final SAMSequenceRecord r : uberHeader.getSequenceDictionary().getSequences()) {
         if (r.getSequenceLength() > 0) {
           final RangeList<String> rs = ranges.get(r.getSequenceName());
@@ -135,6 +167,9 @@ public class CoverageTask extends ParamsTask<CoverageParams, CoverageStatistics>
       if (mWrapper != null) {
         mWrapper.close();
       }
+      if (mChunkExecutor != null) {
+        mChunkExecutor.shutdownNow();
+      }
     }
     recCounts.reportCounts();
     if (mParams.blockCompressed() && mParams.outputIndex()) {
@@ -257,6 +292,11 @@ public class CoverageTask extends ParamsTask<CoverageParams, CoverageStatistics>
 
     } finally {
       mCircularBuffer.close();
+      // chunks beyond the last range may still be queued
+      for (final Future<ChunkCoverage> f : mPendingChunks) {
+        f.cancel(true);
+      }
+      mPendingChunks.clear();
     }
   }
 
@@ -326,10 +366,12 @@ public class CoverageTask extends ParamsTask<CoverageParams, CoverageStatistics>
     mInfo = new ChunkInfo(r.getSequenceLength(), r.getSequenceName(), chunkSize, restrictionStart, restrictionEnd, mParams.execThreads(), 1000);
     if (mCircularBuffer != null) {
       mCircularBuffer.close();
+      mCircularBuffer = null;
     }
 
     final CoverageReaderRecordPopulator populator = new CoverageReaderRecordPopulator(mParams.includeDeletions());
     mCircularBuffer = new CircularBufferMultifileSinglePassReaderWindow<>(mWrapper, populator, r.getSequenceIndex(), mInfo.start(), Integer.MAX_VALUE);
+    mNextChunkToSubmit = 0;
     mChunkCov = null;
     mChunkStart = -1;
     mChunkEnd = -1;
@@ -389,12 +431,9 @@ public class CoverageTask extends ParamsTask<CoverageParams, CoverageStatistics>
   private boolean loadNextChunk() throws IOException {
     if (mChunkNumber < mInfo.numberChunks()) {
       mChunkCovPrev = mChunkCov;
-      mChunkCov = new long[mInfo.chunkSize()];
       if (mParams.tsvOutput()) {
         mIH1Prev = mIH1;
-        mIH1 = new int[mInfo.chunkSize()];
         mIHgt1Prev = mIHgt1;
-        mIHgt1 = new int[mInfo.chunkSize()];
       }
       if (mChunkNumber > 0) {
         mCircularBuffer.flush(mChunkStart, mChunkEnd);
@@ -402,39 +441,131 @@ public class CoverageTask extends ParamsTask<CoverageParams, CoverageStatistics>
       mChunkStart = mChunkNumber * mInfo.chunkSize() + mInfo.start();
       mChunkEnd = Math.min(mChunkStart + mInfo.chunkSize(), mInfo.end());
       mPrevReferenceBytes = mReferenceBytes;
-      if (mReferenceSequenceIndex != null) {
-        mReferenceBytes = new byte[mInfo.chunkSize()];
-        mParams.genome().reader().read(mReferenceSequenceIndex, mReferenceBytes, mChunkStart, mChunkEnd - mChunkStart);
-      }
       ++mChunkNumber;
+      if (mChunkExecutor != null) {
+        final ChunkCoverage chunk = nextParallelChunk();
+        mChunkCov = chunk.mCoverage;
+        mIH1 = chunk.mIH1;
+        mIHgt1 = chunk.mIHgt1;
+        mReferenceBytes = chunk.mReferenceBytes;
+        return true;
+      }
+      mChunkCov = new long[mInfo.chunkSize()];
+      if (mParams.tsvOutput()) {
+        mIH1 = new int[mInfo.chunkSize()];
+        mIHgt1 = new int[mInfo.chunkSize()];
+      }
+      mReferenceBytes = readReference(mChunkStart, mChunkEnd);
       final Iterator<CoverageReaderRecord> it = mCircularBuffer.recordsOverlap(mChunkStart, mChunkEnd);
       while (it.hasNext()) {
         final CoverageReaderRecord crr = it.next();
-        addBitSet(crr.getStart(), crr.getIH(), crr.getCoverageMultiplier(), crr.getCoverageBitSet());
+        addBitSet(crr, mChunkStart, mChunkCov, mIH1, mIHgt1);
       }
       return true;
     }
     return false;
   }
 
-  private void addBitSet(int start, int ih, double multiplier, BitSet coverageBitSet) {
-    for (int j = 0; j < coverageBitSet.length(); ++j) {
-      if (coverageBitSet.get(j)) {
-        final int index = start + j - mChunkStart;
-        if (index >= 0 && index < mChunkCov.length) {
-          mChunkCov[index] += MathUtils.round(multiplier * SCALE);
-          if (mParams.tsvOutput()) {
-            if (ih == 1) {
-              mIH1[index]++;
-            } else {
-              mIHgt1[index]++;
-            }
-          }
+  private byte[] readReference(int chunkStart, int chunkEnd) throws IOException {
+    if (mReferenceSequenceIndex == null) {
+      return mReferenceBytes;
+    }
+    final byte[] referenceBytes = new byte[mInfo.chunkSize()];
+    mParams.genome().reader().read(mReferenceSequenceIndex, referenceBytes, chunkStart, chunkEnd - chunkStart);
+    return referenceBytes;
+  }
+
+  /**
+   * Add the coverage of a record to the arrays for a chunk.
+   * @param crr the record
+   * @param chunkStart position on the reference of the first entry in the arrays
+   * @param coverage scaled coverage for each position
+   * @param ih1 count of <code>IH=1</code> records for each position, or null if not required
+   * @param ihgt1 count of <code>IH&gt;1</code> records for each position, or null if not required
+   */
+  private static void addBitSet(CoverageReaderRecord crr, int chunkStart, long[] coverage, int[] ih1, int[] ihgt1) {
+    final BitSet coverageBitSet = crr.getCoverageBitSet();
+    final long increment = MathUtils.round(crr.getCoverageMultiplier() * SCALE);
+    final int offset = crr.getStart() - chunkStart;
+    final int limit = coverage.length - offset;
+    for (int j = coverageBitSet.nextSetBit(Math.max(0, -offset)); j >= 0 && j < limit; j = coverageBitSet.nextSetBit(j + 1)) {
+      final int index = offset + j;
+      coverage[index] += increment;
+      if (ih1 != null) {
+        if (crr.getIH() == 1) {
+          ih1[index]++;
+        } else {
+          ihgt1[index]++;
         }
       }
     }
   }
 
+  private ChunkCoverage nextParallelChunk() throws IOException {
+    // keep enough chunks queued that every thread has work while this one is being output
+    while (mPendingChunks.size() < 2 * mParams.ioThreads() && mNextChunkToSubmit < mInfo.numberChunks()) {
+      submitChunk(mNextChunkToSubmit++);
+    }
+    try {
+      return mPendingChunks.remove().get();
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    } catch (final InterruptedException e) {
+      throw new NoTalkbackSlimException("Interrupted while computing coverage.");
+    }
+  }
+
+  private void submitChunk(int chunkNumber) throws IOException {
+    final int chunkStart = chunkNumber * mInfo.chunkSize() + mInfo.start();
+    final int chunkEnd = Math.min(chunkStart + mInfo.chunkSize(), mInfo.end());
+    // the reference reader and the record window are not thread safe, so read them here rather than in the job
+    final byte[] referenceBytes = mReferenceSequenceIndex == null ? null : readReference(chunkStart, chunkEnd);
+    final List<CoverageReaderRecord> records = new ArrayList<>();
+    final Iterator<CoverageReaderRecord> it = mCircularBuffer.recordsOverlap(chunkStart, chunkEnd);
+    while (it.hasNext()) {
+      records.add(it.next());
+    }
+    final int chunkSize = mInfo.chunkSize();
+    final boolean ihCounts = mParams.tsvOutput();
+    final Callable<ChunkCoverage> job = () -> computeChunk(records, chunkStart, chunkSize, ihCounts, referenceBytes);
+    mPendingChunks.add(mChunkExecutor.submit(job));
+  }
+
+  /**
+   * Compute the coverage of one chunk from the records overlapping it. The records are taken from the
+   * single pass over the inputs, so a record spanning a chunk boundary is read and counted once and
+   * contributes only to the positions within each chunk.
+   */
+  private static ChunkCoverage computeChunk(List<CoverageReaderRecord> records, int chunkStart, int chunkSize, boolean ihCounts, byte[] referenceBytes) {
+    final ChunkCoverage chunk = new ChunkCoverage(chunkSize, ihCounts, referenceBytes);
+    for (final CoverageReaderRecord crr : records) {
+      addBitSet(crr, chunkStart, chunk.mCoverage, chunk.mIH1, chunk.mIHgt1);
+    }
+    return chunk;
+  }
+
+  /** Coverage computed for one chunk of a sequence. */
+  private static final class ChunkCoverage {
+    private final long[] mCoverage;
+    private final int[] mIH1;
+    private final int[] mIHgt1;
+    private final byte[] mReferenceBytes;
+
+    ChunkCoverage(int chunkSize, boolean ihCounts, byte[] referenceBytes) {
+      mCoverage = new long[chunkSize];
+      mIH1 = ihCounts ? new int[chunkSize] : null;
+      mIHgt1 = ihCounts ? new int[chunkSize] : null;
+      mReferenceBytes = referenceBytes;
+    }
+  }
+
 
   private static final class CoverageReaderRecordPopulator implements Populator<CoverageReaderRecord> {
     final boolean mIncludeDeletions;
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.realign;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.variant.util.arithmetic.PossibilityArithmetic;
+
+/**
+ * Calculates the same total probability as the forward <code>ScoreMatrix</code>, but keeps only
+ * two rows of the banded matrix, since only the final row is needed for the total.
+ *
+ * The read, template and per-position match probabilities are copied out of the environment
+ * once per <code>setEnv</code>, and subclasses fill in the rows with the arithmetic of one
+ * particular possibility representation written out directly, rather than through
+ * <code>PossibilityArithmetic</code> calls for every cell.
+ */
+@TestClass("com.rtg.variant.realign.ScoreTotalFastUnderflowTest")
+public abstract class AbstractScoreTotal implements AllPaths {
+
+  protected final PossibilityArithmetic mArith;
+
+  // some constant/parameter probabilities, with the same values as in AbstractAllPaths.
+  protected final double mOneInFourPoss;
+  protected final double mDeleteOpenPoss;
+  protected final double mDeleteExtendPoss;
+  protected final double mInsertOpenPoss;
+  protected final double mInsertExtendPoss;
+  protected final double mOneMinusDeleteExtendPoss;
+  protected final double mOneMinusInsertExtendPoss;
+  protected final double mOneMinusDeleteInsertOpenPoss;
+  protected final double mDeleteStartPoss;
+  protected final double mMatchStartPoss;
+  private final double mMatchPoss;
+  private final double mMisMatchPoss;
+
+  /** Number of rows of the matrix less one, that is the read length */
+  protected int mLength = -1;
+
+  /** Width of each row of the band */
+  protected int mWidth = -1;
+
+  /** Read nucleotides */
+  protected byte[] mRead = new byte[0];
+
+  /** Template nucleotides, the cell at column <code>j</code> of (one-based) row <code>i</code> uses <code>mTemplate[i - 1 + j]</code> */
+  protected byte[] mTemplate = new byte[0];
+
+  /** For each read position, the possibility of the read nucleotide given the same template nucleotide */
+  protected double[] mSamePoss = new double[0];
+
+  /** For each read position, the possibility of the read nucleotide given a different template nucleotide */
+  protected double[] mDifferentPoss = new double[0];
+
+  // the current and previous rows of the three matrices
+  protected double[] mMatch = new double[0];
+  protected double[] mInsert = new double[0];
+  protected double[] mDelete = new double[0];
+  protected double[] mPrevMatch = new double[0];
+  protected double[] mPrevInsert = new double[0];
+  protected double[] mPrevDelete = new double[0];
+
+  /** Total over the final row, as a possibility */
+  protected double mTotal;
+
+  /**
+   * @param arith helper object used for the per-read calculations, must match the representation used by the subclass.
+   * @param params the machine error model and related parameters.
+   */
+  protected AbstractScoreTotal(final PossibilityArithmetic arith, final RealignParams params) {
+    mArith = arith;
+    mOneInFourPoss = mArith.prob2Poss(0.25);
+    mMatchPoss = mArith.ln2Poss(params.matchLn());
+    mMisMatchPoss = mArith.ln2Poss(params.misMatchLn());
+    final double delOpen = Math.exp(params.deleteOpenLn());
+    mDeleteOpenPoss = mArith.ln2Poss(params.deleteOpenLn());
+    mDeleteExtendPoss = mArith.ln2Poss(params.deleteExtendLn());
+    mInsertOpenPoss = mArith.ln2Poss(params.insertOpenLn());
+    mInsertExtendPoss = mArith.ln2Poss(params.insertExtendLn());
+    mOneMinusDeleteExtendPoss = mArith.prob2Poss(1.0 - Math.exp(params.deleteExtendLn()));
+    mOneMinusInsertExtendPoss = mArith.prob2Poss(1.0 - Math.exp(params.insertExtendLn()));
+    mOneMinusDeleteInsertOpenPoss = mArith.prob2Poss(1.0 - delOpen - Math.exp(params.insertOpenLn()));
+    mDeleteStartPoss = mArith.multiply(mArith.prob2Poss(delOpen), mArith.prob2Poss(1.0));
+    mMatchStartPoss = mArith.prob2Poss(1.0 - delOpen);
+  }
+
+  @Override
+  public PossibilityArithmetic arithmetic() {
+    return mArith;
+  }
+
+  @Override
+  public void setEnv(final Environment env) {
+    final int maxShift = env.maxShift();
+    final int width = 2 * maxShift + 1;
+    final int length = env.readLength();
+    if (length > mRead.length) {
+      mRead = new byte[length];
+      mSamePoss = new double[length];
+      mDifferentPoss = new double[length];
+    }
+    if (width > mMatch.length) {
+      mMatch = new double[width];
+      mInsert = new double[width];
+      mDelete = new double[width];
+      mPrevMatch = new double[width];
+      mPrevInsert = new double[width];
+      mPrevDelete = new double[width];
+    }
+    final int templateLength = length + width - 1;
+    if (templateLength > mTemplate.length) {
+      mTemplate = new byte[templateLength];
+    }
+    mLength = length;
+    mWidth = width;
+    for (int k = 0; k < templateLength; ++k) {
+      mTemplate[k] = env.template(k - maxShift);
+    }
+    for (int i = 0; i < length; ++i) {
+      final byte re = env.read(i);
+      mRead[i] = re;
+      if (re == 0) {
+        mSamePoss[i] = mOneInFourPoss;
+        mDifferentPoss[i] = mOneInFourPoss;
+      } else {
+        // as for AbstractAllPaths.matchEqTe
+        final double q = env.quality(i);
+        final double q3 = q / 3.0;
+        mSamePoss[i] = mArith.add(mArith.multiply(mMatchPoss, mArith.prob2Poss(1.0 - q)), mArith.multiply(mMisMatchPoss, mArith.prob2Poss(q3)));
+        mDifferentPoss[i] = mArith.add(mArith.multiply(mMatchPoss, mArith.prob2Poss(q3)), mArith.multiply(mMisMatchPoss, mArith.prob2Poss((1.0 - q3) / 3.0)));
+      }
+    }
+    calculateTotal();
+  }
+
+  /**
+   * Swap the current and previous rows.
+   */
+  protected final void swapRows() {
+    double[] t = mPrevMatch;
+    mPrevMatch = mMatch;
+    mMatch = t;
+    t = mPrevInsert;
+    mPrevInsert = mInsert;
+    mInsert = t;
+    t = mPrevDelete;
+    mPrevDelete = mDelete;
+    mDelete = t;
+  }
+
+  /**
+   * Fill in the rows of the matrix and set <code>mTotal</code>.
+   */
+  protected abstract void calculateTotal();
+
+  @Override
+  public final double totalScoreLn() {
+    return mArith.poss2Ln(mTotal);
+  }
+
+  @Override
+  public final double totalScore() {
+    return mArith.poss2Prob(mTotal);
+  }
+
+  @Override
+  public final double total() {
+    return mTotal;
+  }
+
+  @Override
+  public final boolean underflow() {
+    return mArith.underflow(mTotal);
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + " length=" + mLength + " width=" + mWidth + " total=" + mTotal;
+  }
+}
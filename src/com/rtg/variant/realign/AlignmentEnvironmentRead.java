@@ -76,7 +76,7 @@ public final class AlignmentEnvironmentRead extends AbstractAlignmentEnvironment
   }
 
   private static double[] alignmentRecordToQuality(VariantAlignmentRecord sam, VariantParams params) {
-    return alignmentRecordToQuality(sam, params, 0, sam.getRead().length);
+    return alignmentRecordToQuality(sam, params, 0, sam.getReadLength());
   }
 
   @Override
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+
+package com.rtg.variant.realign;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.variant.util.arithmetic.PossibilityArithmetic;
+import com.rtg.variant.util.arithmetic.SimplePossibility;
+
+/**
+ * Same totals as <code>ScoreFastUnderflow</code> but only keeps the rows needed for the total score,
+ * for use where the matrix itself is never inspected.
+ */
+@TestClass("com.rtg.variant.realign.ScoreTotalFastUnderflowTest")
+public class ScoreTotalFastUnderflow extends AbstractAllPathsFastUnderflow {
+
+  /**
+   * @param params the machine error model and related parameters.
+   */
+  public ScoreTotalFastUnderflow(RealignParams params) {
+    super(params);
+  }
+
+  @Override
+  protected AllPaths makeMatrix(PossibilityArithmetic arith, RealignParams params) {
+    if (arith == SimplePossibility.SINGLETON) {
+      return new ScoreTotalSimple(params);
+    }
+    return new ScoreTotalLogApproximate(params);
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.realign;
+
+import static com.rtg.variant.util.VariantUtils.logSumApproximation;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.variant.util.arithmetic.LogApproximatePossibility;
+
+/**
+ * Total probability of the forward matrix using <code>LogApproximatePossibility</code> (natural logs,
+ * with sums done by the approximation in <code>VariantUtils</code>).
+ */
+@TestClass("com.rtg.variant.realign.ScoreTotalFastUnderflowTest")
+public final class ScoreTotalLogApproximate extends AbstractScoreTotal {
+
+  private static final double ZERO = Double.NEGATIVE_INFINITY;
+
+  /**
+   * @param params the machine error model and related parameters.
+   */
+  public ScoreTotalLogApproximate(final RealignParams params) {
+    super(LogApproximatePossibility.SINGLETON, params);
+  }
+
+  @Override
+  protected void calculateTotal() {
+    final int width = mWidth;
+    final double oneInFour = mOneInFourPoss;
+    final double deleteOpen = mDeleteOpenPoss;
+    final double deleteExtend = mDeleteExtendPoss;
+    final double insertOpen = mInsertOpenPoss;
+    final double insertExtend = mInsertExtendPoss;
+    final double fromDelete = mOneMinusDeleteExtendPoss;
+    final double fromMatch = mOneMinusDeleteInsertOpenPoss;
+    final double fromInsert = mOneMinusInsertExtendPoss;
+    for (int j = 0; j < width; ++j) {
+      mMatch[j] = mMatchStartPoss;
+      mInsert[j] = ZERO;
+      mDelete[j] = mDeleteStartPoss;
+    }
+    for (int i = 1; i <= mLength; ++i) {
+      swapRows();
+      final double[] pm = mPrevMatch;
+      final double[] pi = mPrevInsert;
+      final double[] pd = mPrevDelete;
+      final double[] cm = mMatch;
+      final double[] ci = mInsert;
+      final double[] cd = mDelete;
+      final byte re = mRead[i - 1];
+      final double same = mSamePoss[i - 1];
+      final double different = mDifferentPoss[i - 1];
+      final int templateBase = i - 1;
+      final boolean lastRow = i == mLength;
+      for (int j = 0; j < width; ++j) {
+        cd[j] = j + 1 == width ? ZERO : logSumApproximation(deleteExtend + pd[j + 1], deleteOpen + pm[j + 1]) + oneInFour;
+        final byte te = mTemplate[templateBase + j];
+        final double eq = te == 0 ? oneInFour : te == re ? same : different;
+        cm[j] = logSumApproximation(logSumApproximation(pd[j] + fromDelete, pm[j] + fromMatch), pi[j] + fromInsert) + eq;
+        ci[j] = lastRow || j == 0 ? ZERO : logSumApproximation(insertExtend + ci[j - 1], insertOpen + cm[j - 1]);
+      }
+    }
+    double sum = ZERO;
+    for (int j = width - 1; j >= 0; --j) {
+      sum = logSumApproximation(sum, logSumApproximation(mDelete[j], mMatch[j]));
+    }
+    mTotal = sum;
+  }
+}
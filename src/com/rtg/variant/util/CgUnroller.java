@@ -77,7 +77,7 @@ public final class CgUnroller {
       return null;
     }
 
-    final byte[] samRead = Arrays.copyOf(rec.getRead(), rec.getRead().length);
+    final byte[] samRead = Arrays.copyOf(rec.getRead(), rec.getReadLength());
     final byte[] samQualities = rec.getRecalibratedQuality(); // Convert this function to work natively in raw qualities
     final boolean hasQuality = samQualities.length != 0;
     final int samLength = samRead.length;
@@ -126,7 +126,7 @@ public final class CgUnroller {
       if (!v1 && expandedRead.length != CgUtils.CG2_RAW_READ_LENGTH && expandedRead.length != CgUtils.CG2_PADDED_LENGTH) {
         return null;
       }
-      if (rec.getRead().length != expandedRead.length
+      if (rec.getReadLength() != expandedRead.length
         && (overlapWidth <= 0
         //          || samLength + overlapWidth != CG_RAW_READ_LENGTH   NOT necessarily true - deletes in the overlap region change this.
         || middle == -1)) {
@@ -19,7 +19,7 @@ import junit.framework.TestCase;
  */
 public class AlignerModeTest extends TestCase {
   public void test() {
-    TestUtils.testEnum(AlignerMode.class, "[AUTO, TABLE, GENERAL]");
+    TestUtils.testEnum(AlignerMode.class, "[AUTO, TABLE, GENERAL, BANDED]");
   }
 
 }
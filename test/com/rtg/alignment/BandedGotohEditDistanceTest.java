@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.alignment;
+
+import com.rtg.mode.DnaUtils;
+import com.rtg.util.PortableRandom;
+
+/**
+ */
+public class BandedGotohEditDistanceTest extends AbstractUnidirectionalEditDistanceTest {
+
+  @Override
+  protected UnidirectionalEditDistance getEditDistanceInstance(int gapOpenPenalty, int gapExtendPenalty, int substitutionPenalty, int unknownsPenalty) {
+    return new BandedGotohEditDistance(gapOpenPenalty, gapExtendPenalty, substitutionPenalty, unknownsPenalty);
+  }
+
+  public void testDeletionWithinBand() {
+    final UnidirectionalEditDistance ed = getEditDistanceInstance(19, 1, 9, 5);
+    final byte[] r = DnaUtils.encodeString("gtttttgttta    gtgctgacatgactgacgatcgatgctagctgatcgaca".replaceAll(" ", ""));
+    final byte[] t = DnaUtils.encodeString("gtttttgtttacgatgtgctgacatgactgacgatcgatgctagctgatcgaca");
+
+    int[] actions = ed.calculateEditDistance(r, r.length, t, 0, 30, 4, false);
+    assertEquals(23, actions[ActionsHelper.ALIGNMENT_SCORE_INDEX]);
+    assertEquals(0, actions[ActionsHelper.TEMPLATE_START_INDEX]);
+    assertEquals("===========DDDD=======================================", ActionsHelper.toString(actions));
+
+    // the deletion leaves the band
+    actions = ed.calculateEditDistance(r, r.length, t, 0, 100, 3, false);
+    assertEquals(Integer.MAX_VALUE, actions[ActionsHelper.ALIGNMENT_SCORE_INDEX]);
+    assertEquals(0, actions[ActionsHelper.TEMPLATE_START_INDEX]);
+  }
+
+  public void testShiftedStart() {
+    final UnidirectionalEditDistance ed = getEditDistanceInstance(19, 1, 9, 5);
+    final byte[] r = DnaUtils.encodeString("acgtacgtaaggccttacgtgg");
+    final byte[] t = DnaUtils.encodeString("ttttttttttttttttacgtacgtaaggccttacgtggttttttttttttt");
+
+    int[] actions = ed.calculateEditDistance(r, r.length, t, 13, 0, 3, false);
+    assertEquals(0, actions[ActionsHelper.ALIGNMENT_SCORE_INDEX]);
+    assertEquals(16, actions[ActionsHelper.TEMPLATE_START_INDEX]);
+
+    actions = ed.calculateEditDistance(r, r.length, t, 13, 100, 2, false);
+    assertEquals(Integer.MAX_VALUE, actions[ActionsHelper.ALIGNMENT_SCORE_INDEX]);
+    assertEquals(13, actions[ActionsHelper.TEMPLATE_START_INDEX]);
+  }
+
+  public void testFixedEnds() {
+    final UnidirectionalEditDistance ed = getEditDistanceInstance(19, 1, 9, 5);
+    final byte[] r = DnaUtils.encodeString("ccacgtacgtaagcgcttacgtgg");
+    final byte[] t = DnaUtils.encodeString("ttttacgtacgtaaggccttacgtggtttt");
+
+    int[] actions = ed.calculateEditDistanceFixedBoth(r, 2, 22, t, 4, 24, 100, 2);
+    assertEquals(18, actions[ActionsHelper.ALIGNMENT_SCORE_INDEX]);
+    assertEquals(4, actions[ActionsHelper.TEMPLATE_START_INDEX]);
+    assertEquals("===========XX=======", ActionsHelper.toString(actions));
+
+    // template end is too far from the read end
+    actions = ed.calculateEditDistanceFixedBoth(r, 2, 22, t, 4, 27, 100, 2);
+    assertEquals(Integer.MAX_VALUE, actions[ActionsHelper.ALIGNMENT_SCORE_INDEX]);
+
+    actions = ed.calculateEditDistanceFixedStart(r, 2, 22, t, 4, 100, 2);
+    assertEquals(18, actions[ActionsHelper.ALIGNMENT_SCORE_INDEX]);
+    assertEquals(4, actions[ActionsHelper.TEMPLATE_START_INDEX]);
+
+    actions = ed.calculateEditDistanceFixedEnd(r, 2, 22, t, 5, 24, 100, 2);
+    assertEquals(18, actions[ActionsHelper.ALIGNMENT_SCORE_INDEX]);
+    assertEquals(4, actions[ActionsHelper.TEMPLATE_START_INDEX]);
+
+    actions = ed.calculateEditDistanceFixedBoth(r, 2, 22, t, 4, 24, 17, 2);
+    assertEquals(Integer.MAX_VALUE, actions[ActionsHelper.ALIGNMENT_SCORE_INDEX]);
+  }
+
+  private static int maxOffset(int[] actions, int zeroBasedStart) {
+    int templatePos = actions[ActionsHelper.TEMPLATE_START_INDEX] - zeroBasedStart;
+    int readPos = 0;
+    int max = 0;
+    final ActionsHelper.CommandIterator it = ActionsHelper.iterator(actions);
+    while (it.hasNext()) {
+      final int cmd = it.next();
+      if (cmd != ActionsHelper.DELETION_FROM_REFERENCE) {
+        ++readPos;
+      }
+      if (cmd != ActionsHelper.INSERTION_INTO_REFERENCE) {
+        ++templatePos;
+      }
+      max = Math.max(max, Math.abs(templatePos - readPos));
+    }
+    return max;
+  }
+
+  public void testAgreesWithGotoh() {
+    final PortableRandom random = new PortableRandom(3);
+    final UnidirectionalEditDistance banded = getEditDistanceInstance(19, 1, 9, 5);
+    final UnidirectionalEditDistance gotoh = new GotohEditDistance(19, 1, 9, 5, false);
+    int same = 0;
+    for (int k = 0; k < 2000; ++k) {
+      final byte[] template = new byte[300];
+      for (int i = 0; i < template.length; ++i) {
+        template[i] = (byte) (1 + random.nextInt(4));
+      }
+      final int rlen = 30 + random.nextInt(200);
+      final int start = 10 + random.nextInt(template.length - rlen - 20);
+      final byte[] read = new byte[rlen];
+      int t = start;
+      for (int i = 0; i < rlen; ++i) {
+        final int p = random.nextInt(100);
+        if (p < 2) {
+          t += 1 + random.nextInt(3); // deletion
+        } else if (p < 4) {
+          read[i] = (byte) (1 + random.nextInt(4)); // insertion
+          continue;
+        }
+        read[i] = p >= 97 || t >= template.length ? (byte) (1 + random.nextInt(4)) : template[t];
+        ++t;
+      }
+      final int maxShift = 1 + random.nextInt(10);
+      final int zeroBasedStart = start + random.nextInt(5) - 2;
+      final int maxScore = random.nextInt(150);
+      final int[] b = banded.calculateEditDistance(read, rlen, template, zeroBasedStart, maxScore, maxShift, false).clone();
+      final int[] g = gotoh.calculateEditDistance(read, rlen, template, zeroBasedStart, maxScore, maxShift, false);
+      final int bScore = b[ActionsHelper.ALIGNMENT_SCORE_INDEX];
+      final int gScore = g[ActionsHelper.ALIGNMENT_SCORE_INDEX];
+      if (bScore != Integer.MAX_VALUE) {
+        assertTrue(bScore <= maxScore);
+        assertTrue(maxOffset(b, zeroBasedStart) <= maxShift);
+      }
+      if (gScore != Integer.MAX_VALUE && maxOffset(g, zeroBasedStart) <= maxShift) {
+        // any alignment the full matrix finds within the band is found by the banded aligner
+        assertEquals(gScore, bScore);
+        ++same;
+      }
+    }
+    assertTrue(same > 100);
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.alignment;
+
+import com.rtg.mode.DNA;
+import com.rtg.mode.DnaUtils;
+import com.rtg.ngs.NgsParams;
+import com.rtg.ngs.NgsParamsBuilder;
+import com.rtg.util.PortableRandom;
+
+/**
+ */
+public class BitParallelEditDistanceTest extends AbstractUnidirectionalEditDistanceTest {
+
+  @Override
+  protected UnidirectionalEditDistance getEditDistanceInstance(int gapOpenPenalty, int gapExtendPenalty, int substitutionPenalty, int unknownsPenalty) {
+    return new BitParallelEditDistance(gapOpenPenalty, gapExtendPenalty, substitutionPenalty);
+  }
+
+  public void testMaxEdits() {
+    final BitParallelEditDistance ed = new BitParallelEditDistance(19, 1, 9);
+    assertEquals(0, ed.maxEdits(0));
+    assertEquals(0, ed.maxEdits(8));
+    assertEquals(1, ed.maxEdits(10));
+    assertEquals(2, ed.maxEdits(19));
+    assertEquals(2, ed.maxEdits(20));
+    assertEquals(2, ed.maxEdits(21));
+    assertEquals(3, ed.maxEdits(22));
+    assertEquals(Integer.MAX_VALUE - 19, ed.maxEdits(Integer.MAX_VALUE));
+  }
+
+  public void testIsApplicable() {
+    assertTrue(BitParallelEditDistance.isApplicable(new NgsParamsBuilder().substitutionPenalty(9).gapOpenPenalty(19).gapExtendPenalty(1).unknownsPenalty(5).create()));
+    assertFalse(BitParallelEditDistance.isApplicable(new NgsParamsBuilder().substitutionPenalty(9).gapOpenPenalty(19).gapExtendPenalty(0).unknownsPenalty(5).create()));
+    assertFalse(BitParallelEditDistance.isApplicable(new NgsParamsBuilder().substitutionPenalty(0).gapOpenPenalty(19).gapExtendPenalty(1).unknownsPenalty(5).create()));
+  }
+
+  public void testRejects() {
+    final byte[] read = DnaUtils.encodeString("acgtacgtacgtacgtacgt");
+    final byte[] template = DnaUtils.encodeString("ttttttttttttttttttttttttttttttttttttttttttttttttttt");
+    final UnidirectionalEditDistance ed = new BitParallelEditDistance(1, 1, 1);
+    final int[] actions = ed.calculateEditDistance(read, read.length, template, 15, 10, 5, false);
+    assertNotNull(actions);
+    assertEquals(Integer.MAX_VALUE, actions[ActionsHelper.ALIGNMENT_SCORE_INDEX]);
+    assertEquals(15, actions[ActionsHelper.TEMPLATE_START_INDEX]);
+    assertEquals(ActionsHelper.ACTIONS_START_INDEX, actions.length);
+  }
+
+  public void testAcceptsShifted() {
+    final byte[] read = DnaUtils.encodeString("acgtacgtaaggccttacgt");
+    final byte[] template = DnaUtils.encodeString("ttttttttttttttttacgtacgtaaggccttacgtttttttttttttt");
+    final UnidirectionalEditDistance ed = new BitParallelEditDistance(1, 1, 1);
+    // read actually starts at 16
+    assertNull(ed.calculateEditDistance(read, read.length, template, 13, 0, 2, false));
+    // a shift of 3 is outside the region considered for a max shift of 1
+    assertNotNull(ed.calculateEditDistance(read, read.length, template, 13, 0, 1, false));
+  }
+
+  public void testUnknownsMatch() {
+    final byte[] read = DnaUtils.encodeString("acgtnnnnacgt");
+    final byte[] template = DnaUtils.encodeString("acgtacgtacgt");
+    final UnidirectionalEditDistance ed = new BitParallelEditDistance(1, 1, 1);
+    assertNull(ed.calculateEditDistance(read, read.length, template, 0, 0, 0, false));
+    // off the end of the template
+    assertNull(ed.calculateEditDistance(read, read.length, template, 4, 0, 0, false));
+  }
+
+  public void testLongReadsPassedOn() {
+    final byte[] read = new byte[BitParallelEditDistance.MAX_READ_LENGTH + 1];
+    final byte[] template = new byte[read.length];
+    for (int i = 0; i < read.length; ++i) {
+      read[i] = (byte) DNA.A.ordinal();
+      template[i] = (byte) DNA.C.ordinal();
+    }
+    final UnidirectionalEditDistance ed = new BitParallelEditDistance(1, 1, 1);
+    assertNull(ed.calculateEditDistance(read, read.length, template, 0, 0, 0, false));
+    assertNotNull(ed.calculateEditDistance(read, read.length - 1, template, 0, 0, 0, false));
+  }
+
+  private static boolean matches(int r, int t) {
+    return r == DNA.N.ordinal() || t == DNA.N.ordinal() || r == t;
+  }
+
+  private static int naiveDistance(byte[] read, int rlen, byte[] template, int start, int end) {
+    int[] prev = new int[rlen + 1];
+    int[] curr = new int[rlen + 1];
+    for (int i = 0; i <= rlen; ++i) {
+      prev[i] = i;
+    }
+    int best = rlen;
+    for (int tPos = start; tPos < end; ++tPos) {
+      final int t = tPos >= 0 && tPos < template.length ? template[tPos] : DNA.N.ordinal();
+      curr[0] = 0;
+      for (int i = 1; i <= rlen; ++i) {
+        final int diag = prev[i - 1] + (matches(read[i - 1], t) ? 0 : 1);
+        curr[i] = Math.min(diag, Math.min(prev[i], curr[i - 1]) + 1);
+      }
+      best = Math.min(best, curr[rlen]);
+      final int[] tmp = prev;
+      prev = curr;
+      curr = tmp;
+    }
+    return best;
+  }
+
+  private static byte[] mutate(PortableRandom random, byte[] template, int start, int length) {
+    final byte[] read = new byte[length];
+    int t = start;
+    for (int i = 0; i < length; ++i) {
+      final double p = random.nextDouble();
+      if (p < 0.03) {
+        ++t; // deletion
+      } else if (p < 0.06) {
+        read[i] = (byte) (1 + random.nextInt(4)); // insertion
+        continue;
+      }
+      if (p > 0.92 || t >= template.length) {
+        read[i] = (byte) random.nextInt(5);
+      } else {
+        read[i] = template[t];
+      }
+      ++t;
+    }
+    return read;
+  }
+
+  public void testAgainstNaive() {
+    final PortableRandom random = new PortableRandom(42);
+    final BitParallelEditDistance ed = new BitParallelEditDistance(1, 1, 1);
+    for (int k = 0; k < 2000; ++k) {
+      final byte[] template = new byte[50 + random.nextInt(300)];
+      for (int i = 0; i < template.length; ++i) {
+        template[i] = (byte) (random.nextInt(20) == 0 ? 0 : 1 + random.nextInt(4));
+      }
+      final int rlen = 1 + random.nextInt(BitParallelEditDistance.MAX_READ_LENGTH);
+      final byte[] read = mutate(random, template, random.nextInt(template.length), rlen);
+      final int start = random.nextInt(template.length) - 10;
+      final int end = start + 1 + random.nextInt(rlen + 20);
+      final int dist = naiveDistance(read, rlen, template, start, end);
+      final int maxEdits = random.nextInt(rlen);
+      assertEquals(dist > maxEdits, ed.exceeds(read, rlen, template, start, end, maxEdits));
+      if (dist < rlen) {
+        assertFalse(ed.exceeds(read, rlen, template, start, end, dist));
+        if (dist > 0) {
+          assertTrue(ed.exceeds(read, rlen, template, start, end, dist - 1));
+        }
+      }
+    }
+  }
+
+  public void testNeverRejectsGotohAlignment() {
+    final NgsParams params = new NgsParamsBuilder().substitutionPenalty(9).gapOpenPenalty(19).gapExtendPenalty(1).unknownsPenalty(5).create();
+    final PortableRandom random = new PortableRandom(17);
+    final BitParallelEditDistance filter = new BitParallelEditDistance(params);
+    final GotohEditDistance gotoh = new GotohEditDistance(params);
+    int rejected = 0;
+    for (int k = 0; k < 500; ++k) {
+      final byte[] template = new byte[400];
+      for (int i = 0; i < template.length; ++i) {
+        template[i] = (byte) (1 + random.nextInt(4));
+      }
+      final int rlen = 20 + random.nextInt(200);
+      final int zbs = random.nextInt(template.length - rlen);
+      final byte[] read = mutate(random, template, Math.max(0, zbs + random.nextInt(7) - 3), rlen);
+      final int maxScore = random.nextInt(80);
+      final int maxShift = random.nextInt(8);
+      final int[] res = filter.calculateEditDistance(read, rlen, template, zbs, maxScore, maxShift, false);
+      if (res != null) {
+        ++rejected;
+        assertEquals(Integer.MAX_VALUE, res[ActionsHelper.ALIGNMENT_SCORE_INDEX]);
+        final int[] actions = gotoh.calculateEditDistance(read, rlen, template, zbs, maxScore, maxShift, false);
+        assertTrue(actions == null || actions[ActionsHelper.ALIGNMENT_SCORE_INDEX] > maxScore);
+      }
+    }
+    assertTrue(rejected > 0);
+  }
+}
@@ -297,6 +297,17 @@ public class EditDistanceFactoryTest extends TestCase {
     assertEquals(18, actions[ActionsHelper.ALIGNMENT_SCORE_INDEX]);
   }
 
+  public void testAlignerChainBanded() {
+    // Banded general purpose aligner, the two inserts are well within the band
+    final SAMReadGroupRecord readgroup = new SAMReadGroupRecord("foo");
+    readgroup.setPlatform("ILLUMINA");
+    final NgsParams params = getNgsParams(readgroup, AlignerMode.BANDED);
+
+    final int[] actions = alignerChainTestRead(params);
+    assertEquals(10, actions[ActionsHelper.TEMPLATE_START_INDEX]);
+    assertEquals(18, actions[ActionsHelper.ALIGNMENT_SCORE_INDEX]);
+  }
+
   public void testAlignerChainAutoNotIllumina() {
     // Auto aligner selection shouldn't pick the illumina one
     final SAMReadGroupRecord readgroup = new SAMReadGroupRecord("foo");
@@ -97,6 +97,27 @@ public class AsyncKmerIterableTest extends TestCase {
     }
   }
 
+  public void testCountAll() throws IOException {
+    final List<ReadPairSource> sources = new ArrayList<>();
+    sources.add(new ReadPairSource(ReaderTestUtils.getReaderDnaMemory(">a" + LS + "ACGTT" + LS + ">b" + LS + "AGGT" + LS)));
+    sources.add(new ReadPairSource(ReaderTestUtils.getReaderDnaMemory(">c" + LS + "TTTT" + LS + ">d" + LS + "TTNTT" + LS + ">e" + LS + "AACGT" + LS)));
+    try {
+      final KmerCountTable table = new KmerCountTable(4, 3);
+      try (AsyncKmerIterable iterable = new AsyncKmerIterable(sources, StringKmer.factory(), 4)) {
+        iterable.countAll(table, 3);
+      }
+      assertEquals(4, table.size());
+      assertEquals(2, table.count(table.find(KmerHashA.kmerToHashMin(new StringKmer("ACGT")))));
+      assertEquals(2, table.count(table.find(KmerHashA.kmerToHashMin(new StringKmer("CGTT")))));
+      assertEquals(1, table.count(table.find(KmerHashA.kmerToHashMin(new StringKmer("AGGT")))));
+      assertEquals(1, table.count(table.find(KmerHashA.kmerToHashMin(new StringKmer("TTTT")))));
+    } finally {
+      for (ReadPairSource source : sources) {
+        source.close();
+      }
+    }
+  }
+
   public void testThreadAssasination() throws IOException {
     final ReadPairSource source = new DeadlyReadPairSource();
     try {
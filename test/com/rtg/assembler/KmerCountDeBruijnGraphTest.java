@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.assembler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rtg.util.PortableRandom;
+import com.rtg.util.diagnostic.Diagnostic;
+
+/**
+ */
+public class KmerCountDeBruijnGraphTest extends AbstractDeBruijnGraphTest {
+
+  @Override
+  DeBruijnGraph getDeBruijnGraph(final KmerMockFactory kit, long size, int kMerSize) {
+    return new KmerCountDeBruijnGraph(kit, kMerSize, 2);
+  }
+
+  public void testAddContains() {
+    aTest(4, 5, "AAAAA", "AAACC", "ATACC");
+  }
+
+  public void testAddContainsBig() {
+    final int kmerSize = 35;
+    final String sNot = big("AAAAA", kmerSize);
+    final String s0 = big("AAACC", kmerSize);
+    final String s1 = big("ATACC", kmerSize);
+    aTest(64, kmerSize, sNot, s0, s1);
+  }
+
+  public void testSameAsLowK() {
+    Diagnostic.setLogStream();
+    final PortableRandom random = new PortableRandom(5);
+    final String[] kmers = new String[500];
+    for (int i = 0; i < kmers.length; ++i) {
+      final StringBuilder sb = new StringBuilder();
+      for (int j = 0; j < 7; ++j) {
+        sb.append("ACGT".charAt(random.nextInt(4)));
+      }
+      kmers[i] = sb.toString();
+    }
+    final KmerMockFactory kit = new KmerMockFactory(kmers);
+    final DeBruijnGraph expected = new LowKDeBruijnGraph(kit, kmers.length, 7);
+    final DeBruijnGraph actual = getDeBruijnGraph(kit, kmers.length, 7);
+    final List<String> expectedKmers = new ArrayList<>();
+    for (final Kmer k : expected) {
+      expectedKmers.add(k.toString() + " " + expected.frequency(k));
+    }
+    final List<String> actualKmers = new ArrayList<>();
+    for (final Kmer k : actual) {
+      actualKmers.add(k.toString() + " " + actual.frequency(k));
+    }
+    assertEquals(expectedKmers, actualKmers);
+  }
+}
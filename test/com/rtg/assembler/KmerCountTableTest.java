@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.assembler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.rtg.mode.DnaUtils;
+import com.rtg.util.PortableRandom;
+import com.rtg.util.diagnostic.Diagnostic;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class KmerCountTableTest extends TestCase {
+
+  @Override
+  public void setUp() {
+    Diagnostic.setLogStream();
+  }
+
+  private static String random(final PortableRandom random, final int length) {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < length; ++i) {
+      sb.append("ACGT".charAt(random.nextInt(4)));
+    }
+    return sb.toString();
+  }
+
+  private static String key(final long[] key) {
+    final StringBuilder sb = new StringBuilder();
+    for (final long word : key) {
+      sb.append(word).append(' ');
+    }
+    return sb.toString();
+  }
+
+  // Count k-mers the slow way, with the packing used by the existing graphs
+  private static Map<String, Integer> expected(final List<String> reads, final int kmerSize) {
+    final Map<String, Integer> counts = new HashMap<>();
+    for (final String read : reads) {
+      for (final String part : read.split("N")) {
+        for (int i = 0; i + kmerSize <= part.length(); ++i) {
+          counts.merge(key(KmerHashA.kmerToHashMin(new StringKmer(part.substring(i, i + kmerSize)))), 1, Integer::sum);
+        }
+      }
+    }
+    return counts;
+  }
+
+  private static void check(final Map<String, Integer> expected, final KmerCountTable table) {
+    assertEquals(expected.size(), table.size());
+    final int[] slots = table.sortedSlots();
+    assertEquals(expected.size(), slots.length);
+    for (int i = 0; i < slots.length; ++i) {
+      final long[] key = table.key(slots[i]);
+      assertEquals(expected.get(key(key)), Integer.valueOf(table.count(slots[i])));
+      assertEquals(slots[i], table.find(key));
+      if (i > 0) {
+        assertTrue(KmerCountTable.compare(table.key(slots[i - 1]), key) < 0);
+      }
+    }
+  }
+
+  private void checkReads(final int kmerSize) {
+    final PortableRandom random = new PortableRandom(kmerSize);
+    final List<String> reads = new ArrayList<>();
+    for (int i = 0; i < 200; ++i) {
+      final String read = random(random, 20 + random.nextInt(100));
+      reads.add(read);
+      reads.add(DnaUtils.reverseComplement(read));
+      reads.add(read.substring(0, 10) + "N" + read.substring(11));
+    }
+    final KmerCountTable table = new KmerCountTable(kmerSize, 1);
+    for (final String read : reads) {
+      table.add(DnaUtils.encodeString(read));
+    }
+    check(expected(reads, kmerSize), table);
+  }
+
+  public void testReads() {
+    checkReads(5);
+    checkReads(31);
+    checkReads(32);
+    checkReads(33);
+    checkReads(40);
+    checkReads(64);
+  }
+
+  public void testCounts() {
+    final KmerCountTable table = new KmerCountTable(4, 1);
+    table.add(DnaUtils.encodeString("AAAAANAAAATTTT"));
+    assertEquals(3, table.size());
+    assertEquals(4, table.count(table.find(KmerHashA.kmerToHashMin(new StringKmer("AAAA")))));
+    assertEquals(2, table.count(table.find(KmerHashA.kmerToHashMin(new StringKmer("ATTT")))));
+    assertEquals(1, table.count(table.find(KmerHashA.kmerToHashMin(new StringKmer("AATT")))));
+    assertEquals(-1, table.find(KmerHashA.kmerToHashMin(new StringKmer("ACGT"))));
+    table.add(KmerHashA.kmerToHashMin(new StringKmer("ACGT")));
+    assertEquals(4, table.size());
+    assertEquals(1, table.count(table.find(KmerHashA.kmerToHashMin(new StringKmer("ACGT")))));
+    table.add(DnaUtils.encodeString("NNN"));
+    table.add(new byte[0]);
+    assertEquals(4, table.size());
+  }
+
+  public void testGrow() {
+    final KmerCountTable table = new KmerCountTable(12, 1);
+    final int capacity = table.capacity();
+    final PortableRandom random = new PortableRandom(3);
+    final List<String> reads = new ArrayList<>();
+    for (int i = 0; i < 1000; ++i) {
+      final String read = random(random, 150);
+      reads.add(read);
+      table.add(DnaUtils.encodeString(read));
+    }
+    assertTrue(table.capacity() > capacity);
+    assertTrue(table.size() <= table.capacity() * 3L / 4);
+    check(expected(reads, 12), table);
+  }
+
+  public void testConcurrent() throws InterruptedException {
+    final int threads = 4;
+    final PortableRandom random = new PortableRandom(7);
+    final List<String> reads = new ArrayList<>();
+    for (int i = 0; i < 4000; ++i) {
+      // Plenty of repeats so that threads contend for the same k-mers
+      reads.add(random.nextInt(4) == 0 ? "ACGTACGTACGTTTGACCA" : random(random, 100));
+    }
+    final KmerCountTable table = new KmerCountTable(21, threads);
+    final Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; ++t) {
+      final int start = t;
+      workers[t] = new Thread(() -> {
+        for (int i = start; i < reads.size(); i += threads) {
+          table.add(DnaUtils.encodeString(reads.get(i)));
+        }
+      });
+      workers[t].start();
+    }
+    for (final Thread worker : workers) {
+      worker.join();
+    }
+    check(expected(reads, 21), table);
+  }
+
+  public void testCompare() {
+    assertEquals(0, KmerCountTable.compare(new long[] {1, 2}, new long[] {1, 2}));
+    assertTrue(KmerCountTable.compare(new long[] {5, 1}, new long[] {1, 2}) < 0);
+    assertTrue(KmerCountTable.compare(new long[] {1, -1}, new long[] {5, 2}) > 0);
+  }
+
+  public void testBadKmerSize() {
+    try {
+      new KmerCountTable(0, 1);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("kmerSize=0", e.getMessage());
+    }
+  }
+}
@@ -19,6 +19,7 @@ import java.util.List;
 
 import com.rtg.index.IndexBase.IndexState;
 import com.rtg.index.params.CreateParams;
+import com.rtg.util.PortableRandom;
 
 /**
  */
@@ -199,4 +200,112 @@ public class IndexCompressedTest extends AbstractIndexTest {
       assertEquals(73, countIndex.getHash(30));
     }
   }
+
+  private static IndexCompressed build(final int hashBits, final long[] hashes, final boolean singlePass) {
+    final IndexCompressed index = new IndexCompressed(new CreateParams(hashes.length, hashBits, hashBits, 31, true, true, false, false), new FixedRepeatFrequencyFilterMethod(3), 2);
+    if (singlePass) {
+      index.singlePass();
+    }
+    for (int pass = 0; pass < (singlePass ? 1 : 2); ++pass) {
+      for (int i = 0; i < hashes.length; ++i) {
+        index.add(hashes[i], i);
+      }
+      index.freeze();
+    }
+    return index;
+  }
+
+  private void checkSinglePass(final int hashBits) throws IOException {
+    final PortableRandom r = new PortableRandom(3);
+    final long mask = hashBits == 64 ? -1L : (1L << hashBits) - 1;
+    final long[] hashes = new long[2000];
+    for (int i = 0; i < hashes.length; ++i) {
+      hashes[i] = i % 3 == 0 && i > 0 ? hashes[r.nextInt(i)] : r.nextLong() & mask;
+    }
+    final IndexCompressed twoPass = build(hashBits, hashes, false);
+    final IndexCompressed singlePass = build(hashBits, hashes, true);
+    assertEquals(IndexState.FROZEN, singlePass.mState);
+    assertTrue(singlePass.globalIntegrity());
+    assertEquals(twoPass.numberEntries(), singlePass.numberEntries());
+    assertEquals(twoPass.numberHashes(), singlePass.numberHashes());
+    final TestFinder expected = new TestFinder();
+    twoPass.scan(expected);
+    final TestFinder actual = new TestFinder();
+    singlePass.scan(actual);
+    assertEquals(expected.mHash, actual.mHash);
+    assertEquals(expected.mValue, actual.mValue);
+    assertEquals(twoPass.toString(), singlePass.toString());
+  }
+
+  public final void testSinglePass() throws IOException {
+    checkSinglePass(20);
+    checkSinglePass(64);
+  }
+
+  public final void testSinglePassErrors() {
+    final IndexCompressed index = (IndexCompressed) getIndex(10L, 16, Integer.MAX_VALUE);
+    index.add(1, 1);
+    index.freeze();
+    try {
+      index.singlePass();
+      fail();
+    } catch (final IllegalStateException e) {
+      assertEquals("Single pass must be selected before anything is added", e.getMessage());
+    }
+    final IndexCompressed wide = new IndexCompressed(new CreateParams(10L, 80, 80, 31, true, true, false, false), new UnfilteredFilterMethod(), 1);
+    try {
+      wide.singlePass();
+      fail();
+    } catch (final UnsupportedOperationException e) {
+      assertEquals("Single pass not supported for hashes of 80 bits", e.getMessage());
+    }
+    final IndexCompressed small = (IndexCompressed) getIndex(2L, 16, Integer.MAX_VALUE);
+    small.singlePass();
+    small.add(1, 1);
+    small.add(1, 1);
+    try {
+      small.add(1, 1);
+      fail();
+    } catch (final RuntimeException e) {
+      assertEquals("Too many items pre-added:3 > 2", e.getMessage());
+    }
+  }
+
+  private void checkRadixSort(final int hashBits, final int threads) throws IOException {
+    final PortableRandom r = new PortableRandom(5);
+    final long mask = hashBits == 64 ? -1L : (1L << hashBits) - 1;
+    final long[] hashes = new long[3000];
+    for (int i = 0; i < hashes.length; ++i) {
+      hashes[i] = i % 3 == 0 && i > 0 ? hashes[r.nextInt(i)] : r.nextLong() & mask;
+    }
+    final IndexCompressed expected = build(hashBits, hashes, false);
+    final IndexCompressed radix = new IndexCompressed(new CreateParams(hashes.length, hashBits, hashBits, 31, true, true, false, false), new FixedRepeatFrequencyFilterMethod(3), threads);
+    radix.radixSort();
+    for (int pass = 0; pass < 2; ++pass) {
+      for (int i = 0; i < hashes.length; ++i) {
+        radix.add(hashes[i], i);
+      }
+      radix.freeze();
+    }
+    assertTrue(radix.globalIntegrity());
+    assertEquals(expected.toString(), radix.toString());
+    final TestFinder exp = new TestFinder();
+    expected.scan(exp);
+    final TestFinder actual = new TestFinder();
+    radix.scan(actual);
+    assertEquals(exp.mHash, actual.mHash);
+    // values sharing a hash may be in a different order
+    final List<Long> expValues = new ArrayList<>(exp.mValue);
+    final List<Long> actualValues = new ArrayList<>(actual.mValue);
+    expValues.sort(null);
+    actualValues.sort(null);
+    assertEquals(expValues, actualValues);
+  }
+
+  public final void testRadixSort() throws IOException {
+    checkRadixSort(20, 1);
+    checkRadixSort(20, 4);
+    checkRadixSort(64, 1);
+    checkRadixSort(64, 4);
+  }
 }
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+import static com.rtg.util.StringUtils.LS;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.rtg.index.params.CreateParams;
+import com.rtg.util.PortableRandom;
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.io.TestDirectory;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class IndexFileTest extends TestCase {
+
+  @Override
+  public void setUp() {
+    Diagnostic.setLogStream();
+  }
+
+  private static IndexCompressed build(final int hashBits, final long[] hashes, final int threshold) {
+    final CreateParams params = new CreateParams(hashes.length, hashBits, hashBits, 31, true, true, false, false);
+    final IndexCompressed index = new IndexCompressed(params, new FixedRepeatFrequencyFilterMethod(threshold), 1);
+    for (int pass = 0; pass < 2; ++pass) {
+      for (int i = 0; i < hashes.length; ++i) {
+        index.add(hashes[i], i);
+      }
+      index.freeze();
+    }
+    return index;
+  }
+
+  private static long[] hashes(final int hashBits, final int number) {
+    final PortableRandom r = new PortableRandom(42);
+    final long mask = hashBits == 64 ? -1L : (1L << hashBits) - 1;
+    final long[] hashes = new long[number];
+    for (int i = 0; i < number; ++i) {
+      // include some repeats so that multiple values share a hash
+      hashes[i] = i % 5 == 0 && i > 0 ? hashes[i - 3] : r.nextLong() & mask;
+    }
+    return hashes;
+  }
+
+  private static List<Long> search(final Index index, final long hash) throws IOException {
+    final List<Long> found = new ArrayList<>();
+    index.search(hash, new Finder() {
+      @Override
+      public boolean found(final long id) {
+        found.add(id);
+        return true;
+      }
+    });
+    return found;
+  }
+
+  private static List<Long> scan(final Index index) throws IOException {
+    final List<Long> found = new ArrayList<>();
+    index.scan((hash, value) -> {
+      found.add(hash);
+      found.add(value);
+    });
+    return found;
+  }
+
+  private void checkSame(final Index expected, final Index actual, final long[] hashes) throws IOException {
+    assertEquals(expected.numberEntries(), actual.numberEntries());
+    assertEquals(expected.numberHashes(), actual.numberHashes());
+    assertEquals(expected.getInitialHashes(), actual.getInitialHashes());
+    assertEquals(expected.maxHashCount(), actual.maxHashCount());
+    final long[] probes = new long[2 * hashes.length];
+    for (int i = 0; i < hashes.length; ++i) {
+      probes[2 * i] = hashes[i];
+      probes[2 * i + 1] = hashes[i] ^ 1; // mostly misses
+    }
+    for (final long hash : probes) {
+      assertEquals(search(expected, hash), search(actual, hash));
+      assertEquals(expected.count(hash), actual.count(hash));
+      assertEquals(expected.contains(hash), actual.contains(hash));
+      final long first = expected.first(hash);
+      assertEquals(first, actual.first(hash));
+      if (first >= 0) {
+        assertEquals(hash, actual.getHash(first));
+        assertEquals(expected.getValue(first), actual.getValue(first));
+      }
+    }
+    assertEquals(scan(expected), scan(actual));
+    final SparseFrequencyHistogram expectedHistogram = expected.getSparseFrequencyHistogram();
+    final SparseFrequencyHistogram actualHistogram = actual.getSparseFrequencyHistogram();
+    assertEquals(expectedHistogram.length(), actualHistogram.length());
+    for (int i = 0; i < expectedHistogram.length(); ++i) {
+      assertEquals(expectedHistogram.getFrequency(i), actualHistogram.getFrequency(i));
+      assertEquals(expectedHistogram.getCount(i), actualHistogram.getCount(i));
+    }
+  }
+
+  private void checkRoundTrip(final int hashBits, final int number, final int threshold) throws IOException {
+    final long[] hashes = hashes(hashBits, number);
+    final IndexCompressed index = build(hashBits, hashes, threshold);
+    try (final TestDirectory dir = new TestDirectory("indexfile")) {
+      final File file = new File(dir, "reads.idx");
+      final String description = "reads.sdf-id=1234" + LS + "hash-bits=" + hashBits + LS;
+      IndexFile.save(file, new IndexSet(new Index[] {index, index}), description);
+      assertTrue(IndexFile.isCompatible(file, 2, description));
+      assertFalse(IndexFile.isCompatible(file, 1, description));
+      assertFalse(IndexFile.isCompatible(file, 2, "reads.sdf-id=1235" + LS + "hash-bits=" + hashBits + LS));
+      assertFalse(IndexFile.isCompatible(file, 2, "reads.sdf-id=1234" + LS));
+      final IndexSet loaded = IndexFile.load(file);
+      assertEquals(2, loaded.size());
+      for (int i = 0; i < loaded.size(); ++i) {
+        final Index mapped = loaded.get(i);
+        assertTrue(mapped instanceof IndexMapped);
+        assertTrue(((IndexMapped) mapped).globalIntegrity());
+        checkSame(index, mapped, hashes);
+      }
+    }
+  }
+
+  public void testSmallHashes() throws IOException {
+    checkRoundTrip(12, 200, Integer.MAX_VALUE);
+  }
+
+  public void testFilteredHashes() throws IOException {
+    checkRoundTrip(20, 1000, 1);
+  }
+
+  public void testFullHashes() throws IOException {
+    checkRoundTrip(64, 1000, 1000);
+  }
+
+  public void testEmpty() throws IOException {
+    final IndexCompressed index = build(16, new long[0], 10);
+    try (final TestDirectory dir = new TestDirectory("indexfile")) {
+      final File file = new File(dir, "reads.idx");
+      IndexFile.save(file, new IndexSet(new Index[] {index}), "");
+      final Index mapped = IndexFile.load(file).get(0);
+      assertEquals(0, mapped.numberEntries());
+      assertFalse(mapped.contains(7));
+      assertEquals(0, scan(mapped).size());
+    }
+  }
+
+  public void testExtended() throws IOException {
+    final CreateParams params = new CreateParams(10, 67, 67, 31, true, true, false, false);
+    final IndexCompressed index = new IndexCompressed(params, new UnfilteredFilterMethod(), 1);
+    final long[][] hashes = {{5, 1}, {5, 1}, {Long.MAX_VALUE, 7}, {-3, 0}, {42, 3}};
+    for (int pass = 0; pass < 2; ++pass) {
+      for (int i = 0; i < hashes.length; ++i) {
+        index.add(hashes[i], i);
+      }
+      index.freeze();
+    }
+    try (final TestDirectory dir = new TestDirectory("indexfile")) {
+      final File file = new File(dir, "reads.idx");
+      IndexFile.save(file, new IndexSet(new Index[] {index}), "ext");
+      final IndexExtended mapped = (IndexExtended) IndexFile.load(file).get(0);
+      for (final long[] hash : hashes) {
+        assertTrue(mapped.contains(hash));
+        final long first = mapped.first(hash);
+        assertEquals(index.first(hash), first);
+        assertTrue(Arrays.equals(hash, mapped.getHashExtended(first)));
+      }
+      assertFalse(mapped.contains(new long[] {5, 2}));
+      final List<String> expected = new ArrayList<>();
+      index.scanAll((hash, value) -> expected.add(Arrays.toString(hash) + ":" + value));
+      final List<String> actual = new ArrayList<>();
+      mapped.scanAll((hash, value) -> actual.add(Arrays.toString(hash) + ":" + value));
+      assertEquals(expected, actual);
+    }
+  }
+
+  public void testReadOnly() throws IOException {
+    final IndexCompressed index = build(16, new long[] {1, 2, 3}, 10);
+    try (final TestDirectory dir = new TestDirectory("indexfile")) {
+      final File file = new File(dir, "reads.idx");
+      IndexFile.save(file, new IndexSet(new Index[] {index}), "");
+      final Index mapped = IndexFile.load(file).get(0);
+      try {
+        mapped.add(4, 4);
+        fail();
+      } catch (final IllegalStateException e) {
+        // expected
+      }
+      try {
+        mapped.freeze();
+        fail();
+      } catch (final IllegalStateException e) {
+        assertEquals("Index closed twice", e.getMessage());
+      }
+    }
+  }
+
+  public void testDifference() {
+    final String saved = "reads.sdf-id=1234" + LS + "word-size=18" + LS + "compress-hashes=true" + LS;
+    assertNull(IndexFile.difference(saved, saved));
+    assertNull(IndexFile.difference(saved, "reads.sdf-id=1234\nword-size=18\ncompress-hashes=true"));
+    assertEquals("word-size: saved 18, current 20", IndexFile.difference(saved, "reads.sdf-id=1234" + LS + "word-size=20" + LS + "compress-hashes=true" + LS));
+    assertEquals("step-size: saved null, current 1", IndexFile.difference(saved, saved + "step-size=1" + LS));
+    assertEquals("compress-hashes: saved true, current null", IndexFile.difference(saved, "reads.sdf-id=1234" + LS + "word-size=18" + LS));
+  }
+
+  public void testBadFile() throws IOException {
+    try (final TestDirectory dir = new TestDirectory("indexfile")) {
+      final File file = new File(dir, "reads.idx");
+      assertFalse(IndexFile.isCompatible(file, 1, ""));
+      FileUtils.stringToFile("not an index file at all", file);
+      assertFalse(IndexFile.isCompatible(file, 1, ""));
+      try {
+        IndexFile.load(file);
+        fail();
+      } catch (final IOException e) {
+        assertTrue(e.getMessage().contains("is not an index file"));
+      }
+    }
+  }
+
+  public void testUnfrozen() throws IOException {
+    final CreateParams params = new CreateParams(10, 16, 16, 31, true, true, false, false);
+    final IndexCompressed index = new IndexCompressed(params, new UnfilteredFilterMethod(), 1);
+    try (final TestDirectory dir = new TestDirectory("indexfile")) {
+      IndexFile.save(new File(dir, "reads.idx"), new IndexSet(new Index[] {index}), "");
+      fail();
+    } catch (final IllegalStateException e) {
+      assertEquals("Index must be frozen before saving", e.getMessage());
+    }
+  }
+}
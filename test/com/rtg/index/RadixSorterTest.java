@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+import java.util.Arrays;
+
+import com.rtg.util.PortableRandom;
+import com.rtg.util.array.ArrayHandle;
+import com.rtg.util.array.ArrayType;
+import com.rtg.util.array.ExtensibleIndex;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class RadixSorterTest extends TestCase {
+
+  private static ExtensibleIndex create(final long length) {
+    return new ArrayHandle(ArrayType.bestForBitsAndSafeFromWordTearing(Long.SIZE), length).createUnsigned();
+  }
+
+  private static long[] hashes(final int bits, final int length, final long seed) {
+    final PortableRandom r = new PortableRandom(seed);
+    final long mask = bits == Long.SIZE ? -1L : (1L << bits) - 1;
+    final long[] hashes = new long[length];
+    for (int i = 0; i < length; ++i) {
+      // include plenty of repeated hashes
+      hashes[i] = i % 4 == 0 && i > 0 ? hashes[r.nextInt(i)] : r.nextLong() & mask;
+    }
+    return hashes;
+  }
+
+  private void check(final int bits, final int length, final int threads) {
+    final long[] expected = hashes(bits, length, bits * 31 + length);
+    final ExtensibleIndex hash = create(length);
+    final ExtensibleIndex value = create(length);
+    for (int i = 0; i < length; ++i) {
+      hash.set(i, expected[i]);
+      value.set(i, i);
+    }
+    RadixSorter.sort(hash, value, bits, length, threads);
+    final long[] original = expected.clone();
+    Arrays.sort(expected);
+    final boolean[] seen = new boolean[length];
+    for (int i = 0; i < length; ++i) {
+      assertEquals(expected[i], hash.get(i));
+      final int v = (int) value.get(i);
+      assertFalse(seen[v]);
+      seen[v] = true;
+      assertEquals(original[v], hash.get(i));
+    }
+  }
+
+  public void testSort() {
+    for (final int bits : new int[] {1, 7, 20, 33, 64}) {
+      check(bits, 0, 1);
+      check(bits, 1, 1);
+      check(bits, 30, 1);
+      check(bits, 1000, 1);
+      check(bits, 1000, 4);
+    }
+  }
+
+  public void testSortLarge() {
+    check(20, RadixSorter.COPY_LIMIT * 3, 1);
+    check(40, RadixSorter.COPY_LIMIT * 3, 3);
+    check(64, RadixSorter.COPY_LIMIT * 3, 4);
+  }
+
+  public void testSortRange() {
+    final ExtensibleIndex hash = create(10);
+    final ExtensibleIndex value = create(10);
+    final long[] h = {9, 8, 7, 6, 5, 4, 3, 2, 1, 0};
+    for (int i = 0; i < h.length; ++i) {
+      hash.set(i, h[i]);
+      value.set(i, i);
+    }
+    new RadixSorter(hash, value, 4).sort(2, 5);
+    final long[] expHash = {9, 8, 3, 4, 5, 6, 7, 2, 1, 0};
+    final long[] expValue = {0, 1, 6, 5, 4, 3, 2, 7, 8, 9};
+    for (int i = 0; i < h.length; ++i) {
+      assertEquals(expHash[i], hash.get(i));
+      assertEquals(expValue[i], value.get(i));
+    }
+  }
+
+  public void testBalance() {
+    // buckets 0..5 have sizes 1, 0, 10, 1, 1, 1
+    final long[] starts = {0, 1, 1, 11, 12, 13, 14};
+    assertEquals("[0, 3, 3, 6]", Arrays.toString(RadixSorter.balance(b -> starts[(int) b], 0, 6, 3)));
+    assertEquals("[0, 6]", Arrays.toString(RadixSorter.balance(b -> starts[(int) b], 0, 6, 1)));
+    assertEquals("[2, 3, 3, 4]", Arrays.toString(RadixSorter.balance(b -> starts[(int) b], 2, 4, 3)));
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index.hash.ngs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.rtg.launcher.HashingRegion;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class TemplateChunkSchedulerTest extends TestCase {
+
+  public void testSplitsCoverRegions() throws IOException {
+    final int[] lengths = {100000, 30000};
+    final HashingRegion[] initial = {
+      new HashingRegion(0, 0, 0, 60000, 0, 60010),
+      new HashingRegion(0, 60000, 1, 30000, 59990, 30000),
+    };
+    final List<HashingRegion> searched = Collections.synchronizedList(new ArrayList<HashingRegion>());
+    final TemplateChunkScheduler scheduler = new TemplateChunkScheduler(4, lengths, 1000, 10, (region, name) -> () -> searched.add(region));
+    scheduler.run(initial);
+    assertTrue(searched.size() > initial.length);
+    Collections.sort(searched);
+    long total = 0;
+    HashingRegion last = null;
+    for (final HashingRegion region : searched) {
+      total += region.length(lengths);
+      assertTrue(region.length(lengths) >= 1000);
+      if (last != null) {
+        // chunks are contiguous, allowing for a boundary at the end of a sequence
+        if (last.getEndClipPosition() == lengths[(int) last.getEnd()]) {
+          assertTrue(region.getStart() == last.getEnd() + 1 && region.getStartClipPosition() == 0 || region.getStart() == last.getEnd() && region.getStartClipPosition() == last.getEndClipPosition());
+        } else {
+          assertEquals(last.getEnd(), region.getStart());
+          assertEquals(last.getEndClipPosition(), region.getStartClipPosition());
+        }
+      }
+      last = region;
+    }
+    assertEquals(130000, total);
+    assertEquals(searched.size(), scheduler.timings().size());
+    assertTrue(scheduler.report(0).startsWith("Search chunks " + searched.size() + " from 130000 bases"));
+  }
+
+  public void testSingleThreadDoesNotSplit() throws IOException {
+    final int[] lengths = {100000};
+    final List<HashingRegion> searched = Collections.synchronizedList(new ArrayList<HashingRegion>());
+    new TemplateChunkScheduler(1, lengths, 1000, 10, (region, name) -> () -> searched.add(region)).run(new HashingRegion[] {new HashingRegion(0, 0, 0, 100000, 0, 100000)});
+    assertEquals(1, searched.size());
+  }
+
+  public void testIOException() {
+    final int[] lengths = {100000};
+    final TemplateChunkScheduler scheduler = new TemplateChunkScheduler(2, lengths, 1000, 10, (region, name) -> () -> {
+      throw new IOException("chunk " + name);
+    });
+    try {
+      scheduler.run(new HashingRegion[] {new HashingRegion(0, 0, 0, 1500, 0, 1500)});
+      fail();
+    } catch (final IOException e) {
+      assertEquals("chunk 0", e.getMessage());
+    }
+  }
+
+  public void testFailureWaitsForRunningChunks() {
+    final int[] lengths = {100000};
+    final AtomicInteger running = new AtomicInteger();
+    final TemplateChunkScheduler scheduler = new TemplateChunkScheduler(4, lengths, 1000, 10, (region, name) -> () -> {
+      running.incrementAndGet();
+      try {
+        if (!name.contains("2")) {
+          throw new IOException("chunk " + name);
+        }
+        try {
+          Thread.sleep(200);
+        } catch (final InterruptedException e) {
+          // finish early
+        }
+      } finally {
+        running.decrementAndGet();
+      }
+    });
+    try {
+      scheduler.run(new HashingRegion[] {new HashingRegion(0, 0, 0, 100000, 0, 100000)});
+      fail();
+    } catch (final IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("chunk 0.1"));
+    }
+    assertEquals(0, running.get());
+  }
+}
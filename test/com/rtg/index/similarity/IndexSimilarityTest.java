@@ -14,6 +14,7 @@ package com.rtg.index.similarity;
 import com.rtg.index.FixedRepeatFrequencyFilterMethod;
 import com.rtg.index.Index;
 import com.rtg.index.params.CreateParams;
+import com.rtg.util.PortableRandom;
 import com.rtg.util.StringUtils;
 import com.rtg.util.diagnostic.Diagnostic;
 
@@ -110,4 +111,40 @@ public class IndexSimilarityTest extends TestCase {
           expected);
   }
 
+  private void checkParallel(final boolean singleton) {
+    final int numSequences = 150;
+    final PortableRandom random = new PortableRandom(3);
+    final long[] hashes = new long[5000];
+    final int[] ids = new int[hashes.length];
+    for (int i = 0; i < hashes.length; ++i) {
+      hashes[i] = random.nextInt(400);
+      ids[i] = random.nextInt(numSequences);
+    }
+    final CreateParams params = new CreateParams(hashes.length, 32, 32, 31, true, true, false, false);
+    final IndexSimilarity index = new IndexSimilarity(params, new FixedRepeatFrequencyFilterMethod(1000), singleton, 1);
+    add(index, hashes, ids);
+    index.freeze();
+    add(index, hashes, ids);
+    index.freeze();
+    final SimilarityMatrix expected = index.similarity(numSequences);
+    for (final int threads : new int[] {2, 3, 8}) {
+      final SimilarityMatrix actual = index.similarity(numSequences, threads);
+      actual.globalIntegrity();
+      for (int i = 0; i < numSequences; ++i) {
+        for (int j = 0; j <= i; ++j) {
+          assertEquals(expected.get(i, j), actual.get(i, j));
+        }
+      }
+    }
+    assertTrue(expected.get(0, 1) > 0);
+  }
+
+  public final void testParallel() {
+    checkParallel(false);
+  }
+
+  public final void testParallelSingleton() {
+    checkParallel(true);
+  }
+
 }
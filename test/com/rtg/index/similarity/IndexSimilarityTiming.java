@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index.similarity;
+
+import java.io.PrintStream;
+
+import com.rtg.index.UnfilteredFilterMethod;
+import com.rtg.index.params.CreateParams;
+import com.rtg.util.PortableRandom;
+import com.rtg.util.Utils;
+import com.rtg.util.diagnostic.Diagnostic;
+
+/**
+ * Time the accumulation of the similarity matrix over synthetic sample sets of increasing size,
+ * single threaded and with increasing numbers of threads.
+ */
+public final class IndexSimilarityTiming {
+
+  private IndexSimilarityTiming() { }
+
+  private static final int HASHES_PER_SEQUENCE = 2000;
+
+  // Each sequence draws its hashes from a shared pool so that every pair of sequences has some in common
+  private static IndexSimilarity index(final int sequences, final PortableRandom random) {
+    final int pool = 20 * HASHES_PER_SEQUENCE;
+    final long[] hashes = new long[sequences * HASHES_PER_SEQUENCE];
+    for (int i = 0; i < hashes.length; ++i) {
+      hashes[i] = random.nextInt(pool);
+    }
+    final CreateParams params = new CreateParams(hashes.length, 32, 32, 31, true, true, false, false);
+    final IndexSimilarity index = new IndexSimilarity(params, new UnfilteredFilterMethod(), false, 1);
+    for (int pass = 0; pass < 2; ++pass) {
+      for (int i = 0; i < hashes.length; ++i) {
+        index.add(hashes[i], i / HASHES_PER_SEQUENCE);
+      }
+      index.freeze();
+    }
+    return index;
+  }
+
+  private static void time(final IndexSimilarity index, final int sequences, final int threads, final PrintStream ps) {
+    final long t0 = System.nanoTime();
+    final SimilarityMatrix matrix = index.similarity(sequences, threads);
+    final long t1 = System.nanoTime();
+    ps.println("sequences=" + sequences + " threads=" + threads + " " + Utils.realFormat((t1 - t0) / 1.0e9, 3) + "s (" + Utils.realFormat(matrix.get(0, 1), 0) + ")");
+  }
+
+  /**
+   * @param args command line arguments ignored.
+   */
+  public static void main(String[] args) {
+    Diagnostic.setLogStream();
+    final int cores = Runtime.getRuntime().availableProcessors();
+    final PortableRandom random = new PortableRandom(1);
+    for (final int sequences : new int[] {250, 500, 1000, 2000, 4000}) {
+      final IndexSimilarity index = index(sequences, random);
+      for (int i = 0; i < 3; ++i) {
+        for (int threads = 1; threads <= cores; threads *= 2) {
+          time(index, sequences, threads, System.err);
+        }
+      }
+    }
+  }
+
+}
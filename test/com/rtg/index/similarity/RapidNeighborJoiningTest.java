@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index.similarity;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.rtg.util.PortableRandom;
+import com.rtg.util.diagnostic.Diagnostic;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class RapidNeighborJoiningTest extends TestCase {
+
+  @Override
+  public void setUp() {
+    Diagnostic.setLogStream();
+  }
+
+  private static List<String> names(final int n) {
+    final List<String> names = new ArrayList<>();
+    for (int i = 0; i < n; ++i) {
+      names.add("s" + i);
+    }
+    return names;
+  }
+
+  private static String newick(final BinaryTree tree) throws IOException {
+    final StringWriter out = new StringWriter();
+    tree.newick(out);
+    return out.toString();
+  }
+
+  public void testIndex() {
+    assertEquals(0, RapidNeighborJoining.size(1));
+    assertEquals(6, RapidNeighborJoining.size(4));
+    assertEquals(0, RapidNeighborJoining.index(1, 0));
+    assertEquals(5, RapidNeighborJoining.index(2, 3));
+    assertEquals(5, RapidNeighborJoining.index(3, 2));
+  }
+
+  public void testSort() {
+    final PortableRandom random = new PortableRandom(7);
+    final int n = 1000;
+    final int[] ids = new int[n];
+    final double[] keys = new double[n];
+    final double[] original = new double[n];
+    for (int i = 0; i < n; ++i) {
+      ids[i] = i;
+      keys[i] = random.nextInt(50) / 7.0;
+      original[i] = keys[i];
+    }
+    RapidNeighborJoining.sort(ids, keys, 0, n);
+    final boolean[] seen = new boolean[n];
+    for (int i = 0; i < n; ++i) {
+      assertEquals(original[ids[i]], keys[i]);
+      assertFalse(seen[ids[i]]);
+      seen[ids[i]] = true;
+      if (i > 0) {
+        assertTrue(keys[i - 1] <= keys[i]);
+      }
+    }
+  }
+
+  public void testWikiExample() throws IOException {
+    final double[] d = {7, 11, 6, 14, 9, 7};
+    final BinaryTree tree = new RapidNeighborJoining(new PortableRandom(23), Arrays.asList("A", "B", "C", "D"), d).neighborJoin();
+    final ArrayList<ArrayList<Double>> dl = NeighborJoiningTest.buildList(new double[][] {{}, {7}, {11, 6}, {14, 9, 7}});
+    final BinaryTree expected = new NeighborJoining(23).neighborJoin(Arrays.asList("A", "B", "C", "D"), dl);
+    assertEquals(newick(expected), newick(tree));
+    assertEquals(expected.toString(), tree.toString());
+  }
+
+  public void testEmpty() {
+    assertNull(new RapidNeighborJoining(new PortableRandom(1), names(0), new double[0]).neighborJoin());
+    assertEquals("s0", new RapidNeighborJoining(new PortableRandom(1), names(1), new double[0]).neighborJoin().getLabel());
+    try {
+      new RapidNeighborJoining(new PortableRandom(1), names(3), new double[2]);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public void testSameAsOriginal() throws IOException {
+    final PortableRandom random = new PortableRandom(17);
+    final int n = 300;
+    final SimilarityMatrix matrix = new SimilarityMatrix(n);
+    for (int i = 0; i < n; ++i) {
+      matrix.set(i, i, 1000 + random.nextInt(1000));
+      for (int j = 0; j < i; ++j) {
+        matrix.set(i, j, random.nextInt(1000));
+      }
+    }
+    final double[] d = NeighborJoining.makeTriangle(matrix);
+    final ArrayList<ArrayList<Double>> dl = NeighborJoining.makeArray(matrix);
+    int k = 0;
+    for (int i = 0; i < n; ++i) {
+      for (int j = 0; j < i; ++j) {
+        assertEquals(dl.get(i).get(j), d[k++]);
+      }
+    }
+    final BinaryTree expected = new NeighborJoining(42).neighborJoin(names(n), dl);
+    final BinaryTree actual = new RapidNeighborJoining(new PortableRandom(42), names(n), d).neighborJoin();
+    assertEquals(newick(expected), newick(actual));
+  }
+
+  public void testTies() {
+    final int n = 40;
+    final double[] d = new double[(int) RapidNeighborJoining.size(n)];
+    Arrays.fill(d, 1.0);
+    final String first = new RapidNeighborJoining(new PortableRandom(5), names(n), d.clone()).neighborJoin().toString();
+    assertEquals(first, new RapidNeighborJoining(new PortableRandom(5), names(n), d.clone()).neighborJoin().toString());
+    assertFalse(first.equals(new RapidNeighborJoining(new PortableRandom(6), names(n), d.clone()).neighborJoin().toString()));
+  }
+}
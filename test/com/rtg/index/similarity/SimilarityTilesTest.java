@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index.similarity;
+
+import com.rtg.util.PortableRandom;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class SimilarityTilesTest extends TestCase {
+
+  public void test() {
+    final SimilarityTiles tiles = new SimilarityTiles(200);
+    assertEquals(4, tiles.tileRows());
+    assertEquals(0, tiles.allocated());
+    tiles.increment(3, 150, 2.0);
+    tiles.increment(150, 3, 1.0);
+    tiles.increment(199, 199, 4.0);
+    assertEquals(3.0, tiles.get(3, 150));
+    assertEquals(3.0, tiles.get(150, 3));
+    assertEquals(4.0, tiles.get(199, 199));
+    assertEquals(0.0, tiles.get(3, 149));
+    assertEquals(0.0, tiles.get(100, 100));
+    assertEquals(2, tiles.allocated());
+  }
+
+  public void testAddTo() {
+    final int n = 150;
+    final PortableRandom random = new PortableRandom(5);
+    final SimilarityTiles tiles = new SimilarityTiles(n);
+    final SimilarityMatrix expected = new SimilarityMatrix(n);
+    final SimilarityMatrix actual = new SimilarityMatrix(n);
+    for (int k = 0; k < 2000; ++k) {
+      final int a = random.nextInt(n);
+      final int b = random.nextInt(n);
+      final double v = 1 + random.nextInt(5);
+      tiles.increment(a, b, v);
+      expected.increment(a, b, v);
+      actual.increment(a, b, 1.0);
+      expected.increment(a, b, 1.0);
+    }
+    for (int r = tiles.tileRows() - 1; r >= 0; --r) {
+      tiles.addTo(actual, r);
+    }
+    for (int i = 0; i < n; ++i) {
+      for (int j = 0; j < n; ++j) {
+        assertEquals(expected.get(i, j), actual.get(i, j));
+        assertEquals(tiles.get(i, j), tiles.get(j, i));
+      }
+    }
+  }
+}
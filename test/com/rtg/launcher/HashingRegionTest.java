@@ -624,6 +624,44 @@ public class HashingRegionTest extends TestCase {
       assertEquals(expRegion[i].getEndPaddedPosition(), excluded.get(i).getEndPaddedPosition());
     }
   }
-}
 
+  public void testLength() {
+    final int[] lengths = {100, 50, 30};
+    assertEquals(170, new HashingRegion(0, 10, 2, 30, 0, 30).length(lengths));
+    assertEquals(20, new HashingRegion(1, 10, 1, 30, 5, 35).length(lengths));
+    assertEquals(150, new HashingRegion(0, 2).length(lengths));
+    assertEquals(180, HashingRegion.NONE.length(lengths));
+  }
+
+  public void testSplit() {
+    final int[] lengths = {100, 50, 30};
+    final HashingRegion[] halves = new HashingRegion(0, 10, 2, 30, 0, 30).split(lengths, 10, 5);
+    assertEquals(2, halves.length);
+    assertEquals("[(0:10), (0:95)]", halves[0].toString());
+    assertEquals(0, halves[0].getStartPaddedPosition());
+    assertEquals(100, halves[0].getEndPaddedPosition());
+    assertEquals("[(0:95), (2:30)]", halves[1].toString());
+    assertEquals(90, halves[1].getStartPaddedPosition());
+    assertEquals(30, halves[1].getEndPaddedPosition());
+    assertEquals(85, halves[0].length(lengths));
+    assertEquals(85, halves[1].length(lengths));
+  }
+
+  public void testSplitAtSequenceEnd() {
+    final int[] lengths = {100, 50};
+    final HashingRegion[] halves = new HashingRegion(0, 50, 1, 50, 45, 50).split(lengths, 10, 5);
+    assertEquals("[(0:50), (0:100)]", halves[0].toString());
+    assertEquals(45, halves[0].getStartPaddedPosition());
+    assertEquals(100, halves[0].getEndPaddedPosition());
+    assertEquals("[(1:0), (1:50)]", halves[1].toString());
+    assertEquals(0, halves[1].getStartPaddedPosition());
+    assertEquals(50, halves[1].getEndPaddedPosition());
+  }
 
+  public void testSplitTooSmall() {
+    final int[] lengths = {100, 50};
+    assertNull(new HashingRegion(0, 50, 1, 50, 45, 50).split(lengths, 60, 5));
+    assertNull(new HashingRegion(0, 2).split(lengths, 10, 5));
+    assertNull(HashingRegion.NONE.split(lengths, 10, 5));
+  }
+}
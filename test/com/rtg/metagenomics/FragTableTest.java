@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class FragTableTest extends TestCase {
+
+  public void test() {
+    final FragTable table = new FragTable();
+    assertEquals(0, table.size());
+    table.add(new int[] {1, 42, 7}, new int[] {2, 1, 9}, 2, 3, 1);
+    table.add(new int[] {1, 42}, new int[] {2, 1}, 2, 3, 1);
+    table.add(new int[] {0}, new int[] {1}, 1, 1, 1);
+    table.add(new int[] {1, 42}, new int[] {1, 2}, 2, 3, 1);
+    assertEquals(3, table.size());
+    final Frag[] frags = table.toArray();
+    assertEquals(3, frags.length);
+    assertEquals("  0:1 {1}", frags[0].toString());
+    assertEquals("  1:1  42:2 {1}", frags[1].toString());
+    assertEquals("  1:2  42:1 {2}", frags[2].toString());
+    frags[2].globalIntegrity();
+  }
+
+  public void testAddAll() {
+    final FragTable a = new FragTable();
+    final FragTable b = new FragTable();
+    for (int k = 0; k < 5000; ++k) {
+      a.add(new int[] {k % 700, 1000}, new int[] {1, 1}, 2, 2, 1);
+      b.add(new int[] {k % 300}, new int[] {k / 300 % 2 + 1}, 1, k / 300 % 2 + 1, 2);
+    }
+    assertEquals(700, a.size());
+    assertEquals(600, b.size());
+    a.addAll(b);
+    assertEquals(1300, a.size());
+    final Frag[] frags = a.toArray();
+    int total = 0;
+    for (int k = 1; k < frags.length; ++k) {
+      assertTrue(Frag.compareContents(frags[k - 1], frags[k]) < 0);
+    }
+    for (final Frag f : frags) {
+      total += f.multiplicity();
+    }
+    assertEquals(5000 + 2 * 5000, total);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.rtg.util.PortableRandom;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class HitStoreTest extends TestCase {
+
+  public void testSmall() throws IOException {
+    final HitStore store = new HitStore(1);
+    store.add(5, 3);
+    store.add(-7, 1);
+    store.add(5, 1);
+    store.add(5, 3);
+    store.add(Long.MIN_VALUE, 1);
+    store.add(-7, 3);
+    store.add(-7, 1);
+    store.add(5, 3);
+    assertEquals(3, store.reads());
+    assertEquals(8, store.hits());
+    final Frag[] frags = store.collapse(2).toArray();
+    assertEquals(3, frags.length);
+    assertEquals("  1:1 {1}", frags[0].toString());
+    assertEquals("  1:1  3:3 {1}", frags[1].toString());
+    assertEquals("  1:2  3:1 {1}", frags[2].toString());
+  }
+
+  // Compare with collapsing boxed lists of hits, as was done before
+  public void testSameAsLists() throws IOException {
+    final PortableRandom r = new PortableRandom(3);
+    final HitStore store = new HitStore();
+    final Map<Long, List<Integer>> hits = new HashMap<>();
+    for (int k = 0; k < 100000; ++k) {
+      final long readId = r.nextInt(30000) * 1000003L;
+      final int species = r.nextInt(r.nextBoolean() ? 3 : 50);
+      store.add(readId, species);
+      hits.computeIfAbsent(readId, id -> new ArrayList<>()).add(species);
+    }
+    assertEquals(hits.size(), store.reads());
+    assertEquals(100000, store.hits());
+    final FragTable expected = new FragTable();
+    for (final List<Integer> g : hits.values()) {
+      Collections.sort(g);
+      expected.add(new Frag(g));
+    }
+    final Frag[] frags = expected.toArray();
+    for (final int threads : new int[] {1, 4}) {
+      final Frag[] actual = store.collapse(threads).toArray();
+      assertEquals(frags.length, actual.length);
+      for (int k = 0; k < frags.length; ++k) {
+        assertTrue(frags[k].identical(actual[k]));
+      }
+    }
+  }
+}
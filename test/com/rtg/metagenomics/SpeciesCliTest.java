@@ -211,11 +211,6 @@ public class SpeciesCliTest extends AbstractParamsCliTest<SpeciesParams> {
     }
   }
 
-  public void testMyInteger() {
-    final SpeciesTask.MyInteger mi = new SpeciesTask.MyInteger();
-    assertEquals(1, mi.mValue);
-  }
-
   public void testgetRenameMapFail() throws IOException {
     final File dir = FileUtils.createTempDir("speceiscli", "renamemap");
     final String seq = ">test name" + LS + "acgtacgtgtg" + LS + ">test2 fullname" + LS + "catactgctatgac" + LS;
@@ -24,6 +24,7 @@ import com.rtg.launcher.MockSequenceParams;
 import com.rtg.metagenomics.SpeciesParams.SpeciesParamsBuilder;
 import com.rtg.metagenomics.matrix.Matrix;
 import com.rtg.metagenomics.matrix.MatrixSimple;
+import com.rtg.metagenomics.matrix.MatrixSparseSymmetric;
 import com.rtg.metagenomics.matrix.Vector;
 import com.rtg.mode.SequenceMode;
 import com.rtg.reader.ReaderTestUtils;
@@ -32,6 +33,7 @@ import com.rtg.reader.SequencesReader;
 import com.rtg.reader.SequencesReaderFactory;
 import com.rtg.taxonomy.Taxonomy;
 import com.rtg.usage.UsageMetric;
+import com.rtg.util.PortableRandom;
 import com.rtg.util.TestUtils;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.diagnostic.NoTalkbackSlimException;
@@ -301,6 +303,18 @@ public class SpeciesTest extends TestCase {
     for (int i = 0; i < n; ++i) {
       assertEquals(stdDev[i], Math.sqrt(actual.get(i)), 1e-6);
     }
+    final MatrixSparseSymmetric sparse = new MatrixSparseSymmetric(n);
+    for (int i = 0; i < n; ++i) {
+      for (int j = 0; j <= i; ++j) {
+        if (hessian.get(i, j) != 0) {
+          sparse.set(i, j, hessian.get(i, j));
+        }
+      }
+    }
+    final Vector iterative = Species.variance(Species.makeFlatMembership(n), info, r, sparse);
+    for (int i = 0; i < n; ++i) {
+      assertEquals(stdDev[i], Math.sqrt(iterative.get(i)), 1e-6);
+    }
   }
 
   public void testStdDevRotated() {
@@ -318,6 +332,72 @@ public class SpeciesTest extends TestCase {
     final double x = Math.sqrt(1.0 / (2.0 * a) + 1.0 / (2.0 * b));
     checkStdDev(hessian, x, x);
   }
+  // Iterative variances from the sparse Hessian agree with those from the eigendecomposition
+  public void testIterativeVariance() {
+    final PortableRandom random = new PortableRandom(7);
+    final int n = 40;
+    final SpeciesMap sm = new SpeciesMap();
+    final long[] genomeLengths = new long[n];
+    for (int i = 0; i < n; ++i) {
+      sm.id(i);
+      genomeLengths[i] = 1000 + random.nextInt(5000);
+    }
+    final Frag[] frags = new Frag[300];
+    for (int k = 0; k < frags.length; ++k) {
+      final ArrayList<Integer> l = new ArrayList<>();
+      final int first = random.nextInt(n);
+      l.add(first);
+      if (random.nextBoolean()) {
+        l.add(Math.min(n - 1, first + 1 + random.nextInt(3)));
+      }
+      frags[k] = new Frag(l);
+      frags[k].setMultiplicity(1 + random.nextInt(20));
+    }
+    final BlockInfo info = new BlockInfo(42, null, frags, sm, genomeLengths, false);
+    final Species species = new Species(info);
+    final Vector r = species.solve(10).getR();
+    final int[][] membersOf = Species.makeFlatMembership(n);
+    membersOf[0] = new int[] {0, 3, 4, 5, 17}; // as for a clade
+    membersOf[1] = new int[0];
+    final Vector dense = Species.variance(membersOf, info, r, species.hessian(r).toJama().eig());
+    final MatrixSparseSymmetric sparse = new MatrixSparseSymmetric(n);
+    species.hessian(r, sparse);
+    final Vector iterative = Species.variance(membersOf, info, r, sparse);
+    assertEquals(n, iterative.size());
+    assertEquals(0.0, iterative.get(1));
+    for (int j = 0; j < n; ++j) {
+      assertEquals(dense.get(j), iterative.get(j), 1e-8 * dense.get(j));
+    }
+  }
+
+  // A non-positive diagonal entry only makes the variance infinite for taxa whose solve reaches it
+  public void testIterativeVarianceNotPositiveDefinite() {
+    final int n = 3;
+    final SpeciesMap sm = new SpeciesMap();
+    final long[] genomeLengths = new long[n];
+    final Vector r = new Vector(n);
+    for (int i = 0; i < n; ++i) {
+      sm.id(i);
+      genomeLengths[i] = 5;
+      r.set(i, 1.0);
+    }
+    final BlockInfo info = new BlockInfo(42, null, new Frag[0], sm, genomeLengths, false);
+    final MatrixSparseSymmetric sparse = new MatrixSparseSymmetric(n);
+    sparse.set(0, 0, 2.0);
+    sparse.set(1, 0, 1.0);
+    sparse.set(1, 1, 2.0);
+    sparse.set(2, 2, 0.0);
+    final Vector iterative = Species.variance(Species.makeFlatMembership(n), info, r, sparse);
+    assertEquals(2.0 / 3.0, iterative.get(0), 1e-10);
+    assertEquals(2.0 / 3.0, iterative.get(1), 1e-10);
+    assertEquals(Double.POSITIVE_INFINITY, iterative.get(2));
+    final int[][] membersOf = {{0, 1}, {1, 2}, {}};
+    final Vector clades = Species.variance(membersOf, info, r, sparse);
+    assertEquals(2.0 / 3.0, clades.get(0), 1e-10);
+    assertEquals(Double.POSITIVE_INFINITY, clades.get(1));
+    assertEquals(0.0, clades.get(2));
+  }
+
   static final String BROKEN_TAXONOMY = ""
       + "#RTG taxonomy version 1.0" + LS
       + "#taxID\tparentID\trank\tname" + LS
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics.matrix;
+
+import static com.rtg.util.StringUtils.LS;
+
+import com.rtg.util.PortableRandom;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class MatrixSparseSymmetricTest extends TestCase {
+
+  public void test() {
+    final MatrixSparseSymmetric ma = new MatrixSparseSymmetric(3);
+    assertTrue(ma.isSymmetric());
+    assertEquals(3, ma.size());
+    assertEquals(0, ma.nonZeroCount());
+    ma.set(0, 0, 1.0);
+    ma.set(0, 2, 2.0);
+    ma.incr(2, 0, 2.5);
+    ma.incr(1, 1, 3.0);
+    final String exp = ""
+      + "[0]  1.0000" + LS
+      + "[1]  0.0000  3.0000" + LS
+      + "[2]  4.5000  0.0000  0.0000" + LS
+      ;
+    assertEquals(exp, ma.toString());
+    assertEquals(4.5, ma.get(0, 2));
+    assertEquals(4.5, ma.get(2, 0));
+    assertEquals(0.0, ma.get(1, 2));
+    assertEquals(3, ma.nonZeroCount());
+    final Vector v = ma.multiply(new Vector(new double[] {1.0, 2.0, 3.0}));
+    assertEquals(1.0 + 3 * 4.5, v.get(0));
+    assertEquals(6.0, v.get(1));
+    assertEquals(4.5, v.get(2));
+  }
+
+  public void testSameAsDense() {
+    final PortableRandom random = new PortableRandom(11);
+    final int n = 50;
+    final MatrixSparseSymmetric sparse = new MatrixSparseSymmetric(n);
+    final MatrixSymmetric dense = new MatrixSymmetric(n);
+    for (int k = 0; k < 1000; ++k) {
+      final int i = random.nextInt(n);
+      final int j = random.nextInt(n);
+      final double x = random.nextDouble();
+      sparse.incr(i, j, x);
+      dense.incr(i, j, x);
+    }
+    final Vector x = new Vector(n);
+    for (int i = 0; i < n; ++i) {
+      x.set(i, random.nextDouble());
+      for (int j = 0; j < n; ++j) {
+        assertEquals(dense.get(i, j), sparse.get(i, j));
+      }
+    }
+    final Vector expected = MatrixUtils.multiply(dense, x);
+    final Vector actual = sparse.multiply(x);
+    for (int i = 0; i < n; ++i) {
+      assertEquals(expected.get(i), actual.get(i), 1e-10);
+    }
+  }
+}
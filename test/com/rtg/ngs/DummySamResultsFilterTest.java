@@ -17,6 +17,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
 import java.util.zip.GZIPOutputStream;
 
 import com.rtg.bed.BedUtils;
@@ -24,6 +26,7 @@ import com.rtg.calibrate.CalibratorTest;
 import com.rtg.mode.SequenceType;
 import com.rtg.ngs.blocking.MapQScoringReadBlocker;
 import com.rtg.ngs.tempstage.BinaryTempFileRecord;
+import com.rtg.ngs.tempstage.TempRecordReader;
 import com.rtg.ngs.tempstage.TempRecordWriter;
 import com.rtg.ngs.tempstage.TempRecordWriterNio;
 import com.rtg.pairedend.ReadStatusListener;
@@ -403,4 +406,44 @@ public class DummySamResultsFilterTest extends TestCase {
       assertEquals(expected, CalibratorTest.stripVersion(FileUtils.fileToString(calFile)));
     }
   }
+
+  private static void writeTempRecord(OutputStream out, int referenceId) throws IOException {
+    try (TempRecordWriter trw = new TempRecordWriterNio(out)) {
+      final BinaryTempFileRecord rec = new BinaryTempFileRecord(false, false, false, false);
+      rec.setCigarString("4=".getBytes());
+      rec.setMdString(new byte[0]);
+      rec.setReadId(1);
+      rec.setReferenceId(referenceId);
+      rec.setStartPosition(1);
+      trw.writeRecord(rec);
+    }
+  }
+
+  private static void checkTempRecord(File file, boolean gzip, int referenceId) throws IOException {
+    try (TempRecordReader reader = AbstractSamResultsFilter.openTempFile(file, new TempRecordReader.RecordFactory(false, false, false, false), gzip)) {
+      final BinaryTempFileRecord rec = reader.readRecord();
+      assertNotNull(rec);
+      assertEquals(referenceId, rec.getReferenceId());
+      assertEquals(1, rec.getReadId());
+      assertNull(reader.readRecord());
+    }
+  }
+
+  public void testOpenTempFile() throws IOException {
+    try (final TestDirectory dir = new TestDirectory()) {
+      // the little endian id 35615 starts with the same bytes as the gzip magic number
+      final int id = 35615;
+      final File plain = new File(dir, "plain");
+      writeTempRecord(new FileOutputStream(plain), id);
+      final byte[] start = Files.readAllBytes(plain.toPath());
+      if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+        assertEquals(0x1f, start[0] & 0xff);
+        assertEquals(0x8b, start[1] & 0xff);
+      }
+      checkTempRecord(plain, false, id);
+      final File gzipped = new File(dir, "gzipped.gz");
+      writeTempRecord(FileUtils.createOutputStream(gzipped, true, false), id);
+      checkTempRecord(gzipped, true, id);
+    }
+  }
 }
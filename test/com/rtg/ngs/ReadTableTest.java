@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.test.FileHelper;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class ReadTableTest extends TestCase {
+
+  private void check(final ReadTable table, final int width) {
+    final long max = width == 8 ? -1L : (1L << (8 * width)) - 1;
+    assertEquals(100, table.length());
+    assertTrue(table.bytes() >= 100 * width);
+    for (long i = 0; i < table.length(); ++i) {
+      assertEquals(0, table.get(i));
+    }
+    for (long i = 0; i < table.length(); ++i) {
+      table.set(i, i * 0x0123456789ABCDEFL);
+    }
+    for (long i = 0; i < table.length(); ++i) {
+      assertEquals(i * 0x0123456789ABCDEFL & max, table.get(i));
+    }
+    table.set(7, -1);
+    assertEquals(max, table.get(7));
+    assertEquals(6 * 0x0123456789ABCDEFL & max, table.get(6));
+    assertEquals(8 * 0x0123456789ABCDEFL & max, table.get(8));
+  }
+
+  public void testStorage() {
+    for (final ReadTable.Storage storage : ReadTable.Storage.values()) {
+      for (final int width : new int[] {1, 2, 4, 8}) {
+        check(ReadTable.create(100, width, storage), width);
+      }
+    }
+    assertEquals(ReadTable.Storage.HEAP, ReadTable.storage());
+  }
+
+  public void testSegments() throws IOException {
+    final File dir = FileUtils.createTempDir("readtable", "segments");
+    try {
+      for (final int width : new int[] {1, 2, 4, 8}) {
+        // 16 byte segments, so most tables span several
+        check(new OffHeapReadTable(100, width, null, 4), width);
+        final File file = new File(dir, "table" + width);
+        check(new OffHeapReadTable(100, width, file, 4), width);
+        assertFalse(file.exists());
+      }
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
+
+  public void testBadWidth() {
+    for (final ReadTable.Storage storage : ReadTable.Storage.values()) {
+      try {
+        ReadTable.create(10, 3, storage);
+        fail();
+      } catch (final IllegalArgumentException e) {
+        assertEquals("Invalid width:3", e.getMessage());
+      }
+    }
+  }
+}
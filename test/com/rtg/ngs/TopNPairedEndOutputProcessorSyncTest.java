@@ -168,6 +168,18 @@ public class TopNPairedEndOutputProcessorSyncTest extends AbstractPairedEndOutpu
     }
   }
 
+  public void testTempFileSuffix() throws IOException, InvalidParamsException {
+    try (TestDirectory tempDir = new TestDirectory()) {
+      // a compressed final output must not rename uncompressed temp files
+      final NgsParams params = getDefaultBuilder(tempDir, true, getOutputFilter(), null).create();
+      final String plain = TopNPairedEndOutputProcessorSync.determineTempFile(params, 0, false).getName();
+      assertTrue(plain, plain.startsWith(AbstractMapOutputProcessor.TEMP_SAM_ALIGNMENT_NAME + "0"));
+      assertFalse(plain, plain.contains(FileUtils.GZ_SUFFIX));
+      final String gzipped = TopNPairedEndOutputProcessorSync.determineTempFile(params, 1, true).getName();
+      assertTrue(gzipped, gzipped.startsWith(AbstractMapOutputProcessor.TEMP_SAM_ALIGNMENT_NAME + "1" + FileUtils.GZ_SUFFIX));
+    }
+  }
+
   private static final String BED = ""
       + "t\t50\t200\tfail"
       ;
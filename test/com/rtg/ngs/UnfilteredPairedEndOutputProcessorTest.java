@@ -77,17 +77,33 @@ public class UnfilteredPairedEndOutputProcessorTest extends AbstractPairedEndOut
     checkUnmated(null);
   }
 
+  public void testUnmatedStreaming() throws Exception {
+    final File tmp = FileUtils.createTempDir("topnsync", "clone");
+    try {
+      checkUnmated(tmp, true);
+      for (final File dir : new File[] {tmp, new File(mDir, "hitDir")}) {
+        assertEquals(0, dir.list((d, name) -> name.contains("TEMP_SAM")).length);
+      }
+    } finally {
+      assertTrue(FileHelper.deleteAll(tmp));
+    }
+  }
+
+  public void checkUnmated(final File tempDir) throws Exception {
+    checkUnmated(tempDir, false);
+  }
+
   /**
    * Test of threadClone method, of class PairedEndOutputProcessorSync.
    */
-  public void checkUnmated(final File tempDir) throws Exception {
+  public void checkUnmated(final File tempDir, final boolean streaming) throws Exception {
     final ByteArrayOutputStream logBytes = new ByteArrayOutputStream();
     try (PrintStream log = new PrintStream(logBytes)) {
       Diagnostic.setLogStream(log);
       final int numThreads = 4;
       final SimpleThreadPool stp = new SimpleThreadPool(numThreads, "TestUnmated", true);
       final NgsParams params = getDefaultBuilder(tempDir, false, OutputFilter.SAM_UNFILTERED, null).numberThreads(numThreads).create();
-      try (UnfilteredPairedEndOutputProcessor sync = new UnfilteredPairedEndOutputProcessor(params, null, true)) {
+      try (UnfilteredPairedEndOutputProcessor sync = new UnfilteredPairedEndOutputProcessor(params, null, true, streaming)) {
         for (int i = 0; i < numThreads; ++i) {
           final long padding = params.calculateThreadPadding();
           final long start = i * MAX_COORD / numThreads;
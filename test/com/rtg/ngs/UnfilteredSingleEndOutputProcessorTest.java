@@ -135,6 +135,30 @@ public class UnfilteredSingleEndOutputProcessorTest extends AbstractTest {
 //      Diagnostic.setLogStream();
   }
 
+  public void testStreaming() throws Exception {
+    try (MemoryPrintStream log = new MemoryPrintStream()) {
+      Diagnostic.setLogStream(log.printStream());
+      try (NgsParams param = getDefaultBuilder(READS).create()) {
+        final UnfilteredSingleEndOutputProcessor suop = new UnfilteredSingleEndOutputProcessor(param, null, true, true);
+        try {
+          suop.process(0, "F", 0, 1, 0, 0);
+          suop.finish();
+          final String outStr = IOUtils.readAll(new File(param.outputParams().directory(), "alignments.sam"));
+          assertTrue(outStr, outStr.startsWith("@") && outStr.contains("@SQ\tSN:t\t"));
+          assertTrue(outStr, outStr.contains("r1\t0\tt\t1\t255\t20=\t*\t0\t0\tTGCAAGACAAGAGGGCCTCC\t*\tAS:i:0\tNM:i:0"));
+          assertEquals(1, outStr.split("\tAS:i:").length - 1);
+          assertTrue(new File(param.outputParams().directory(), "unmapped.sam").isFile());
+          assertTrue(suop.mUnmappedTracker.getStatus(0, ReadStatusTracker.UNMATED_FIRST));
+          assertEquals(0, param.outputParams().directory().list((dir, name) -> name.contains("TEMP_SAM")).length);
+        } finally {
+          suop.close();
+        }
+      }
+    } finally {
+      Diagnostic.setLogStream();
+    }
+  }
+
   public void testNoSamSDF() throws Exception {
     final ByteArrayOutputStream log = new ByteArrayOutputStream();
     try (NgsParams param = getDefaultBuilder(true, null, false, READS).create()) {
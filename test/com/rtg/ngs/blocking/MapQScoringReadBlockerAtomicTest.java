@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs.blocking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ */
+public class MapQScoringReadBlockerAtomicTest extends MapQScoringReadBlockerTest {
+
+  @Override
+  protected String expectedToString() {
+    return "ScoringReadBlockerAtomic";
+  }
+
+  @Override
+  protected String expectedDiagnosticString() {
+    return "multithreaded blocked pairings";
+  }
+
+  @Override
+  protected MapQScoringReadBlocker getScoringReadBlocker(final int count, final int threshold) {
+    return new MapQScoringReadBlockerAtomic(count, threshold);
+  }
+
+  public void testSameAsUnsynchronized() {
+    final MapQScoringReadBlocker expected = new MapQScoringReadBlocker(5, 10);
+    final MapQScoringReadBlocker actual = getScoringReadBlocker(5, 10);
+    final int[] scores = {300, 255, 40, 40, 17, 40, 17, 17, 3, 256, 17, 2, 3, 3, 0, 0, 1};
+    for (int i = 0; i < scores.length; ++i) {
+      final int r = i % 5;
+      assertEquals(expected.increment(r, scores[i]), actual.increment(r, scores[i]));
+      for (int k = 0; k < 5; ++k) {
+        assertEquals(expected.getScore1(k), actual.getScore1(k));
+        assertEquals(expected.getScore2(k), actual.getScore2(k));
+        assertEquals(expected.getCount1(k), actual.getCount1(k));
+        assertEquals(expected.getCount2(k), actual.getCount2(k));
+        assertEquals(expected.getMapQ(k), actual.getMapQ(k));
+        assertEquals(expected.getTerminationScore(k), actual.getTerminationScore(k));
+        assertEquals(expected.isBlocked(k), actual.isBlocked(k));
+        assertEquals(expected.isBlocked1(k, 17), actual.isBlocked1(k, 17));
+        assertEquals(expected.isBlocked2(k, 40), actual.isBlocked2(k, 40));
+      }
+    }
+    assertTrue(actual == actual.readOnly());
+  }
+
+  public void testThreads() throws InterruptedException {
+    final int reads = 16;
+    final MapQScoringReadBlocker b = getScoringReadBlocker(reads, 255);
+    final List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; ++t) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 5000; ++i) {
+            for (int r = 0; r < reads; ++r) {
+              b.increment(r, 10 + (i & 1));
+            }
+          }
+        }
+      });
+    }
+    for (final Thread t : threads) {
+      t.start();
+    }
+    for (final Thread t : threads) {
+      t.join();
+    }
+    for (int r = 0; r < reads; ++r) {
+      assertEquals(10, b.getScore1(r));
+      assertEquals(11, b.getScore2(r));
+      assertEquals(10000, b.getCount1(r));
+      assertEquals(10000, b.getCount2(r));
+    }
+  }
+}
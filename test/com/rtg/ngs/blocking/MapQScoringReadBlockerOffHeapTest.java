@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs.blocking;
+
+import com.rtg.ngs.ReadTable;
+
+/**
+ */
+public class MapQScoringReadBlockerOffHeapTest extends MapQScoringReadBlockerAtomicTest {
+
+  @Override
+  protected String expectedToString() {
+    return "ScoringReadBlockerOffHeap";
+  }
+
+  @Override
+  protected MapQScoringReadBlocker getScoringReadBlocker(final int count, final int threshold) {
+    return new MapQScoringReadBlockerOffHeap(count, threshold, ReadTable.Storage.DIRECT);
+  }
+
+  public void testMapped() {
+    final MapQScoringReadBlocker b = new MapQScoringReadBlockerOffHeap(3, 5, ReadTable.Storage.MAPPED);
+    assertEquals(255, b.getScore1(2));
+    assertEquals(1, b.increment(2, 7));
+    assertEquals(2, b.increment(2, 7));
+    assertEquals(-1, b.increment(2, 9));
+    assertEquals(7, b.getScore1(2));
+    assertEquals(9, b.getScore2(2));
+    assertEquals(2, b.getCount1(2));
+    assertEquals(1, b.getCount2(2));
+    assertEquals(0, b.getCount1(1));
+  }
+}
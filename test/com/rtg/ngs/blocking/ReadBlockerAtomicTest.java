@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs.blocking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class
+ */
+public class ReadBlockerAtomicTest extends ReadBlockerTest {
+
+  @Override
+  ReadBlocker getReadBlocker(int reads, int threshold) {
+    return new ReadBlockerAtomic(reads, threshold, "test-atomic");
+  }
+
+  @Override
+  protected String expectedPairingsString() {
+    return "test-atomic";
+  }
+
+  public void testNeighbours() {
+    final ReadBlocker b = getReadBlocker(3, -1);
+    for (int i = 0; i < 65536; ++i) {
+      b.increment(1);
+    }
+    b.increment(0);
+    b.increment(2);
+    assertEquals(1, b.getCount(0));
+    assertEquals(65535, b.getCount(1));
+    assertEquals(1, b.getCount(2));
+    assertFalse(b.isBlocked(1));
+    b.reset(1);
+    assertEquals(1, b.getCount(0));
+    assertEquals(0, b.getCount(1));
+    b.reset(0);
+    assertEquals(0, b.getCount(0));
+    assertTrue(b == b.readOnly());
+  }
+
+  public void testThreads() throws InterruptedException {
+    final int reads = 64;
+    final ReadBlocker b = getReadBlocker(reads, 60000);
+    final List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; ++t) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; ++i) {
+            for (int r = 0; r < reads; ++r) {
+              b.increment(r);
+            }
+          }
+        }
+      });
+    }
+    for (final Thread t : threads) {
+      t.start();
+    }
+    for (final Thread t : threads) {
+      t.join();
+    }
+    for (int r = 0; r < reads; ++r) {
+      assertEquals(40000, b.getCount(r));
+    }
+  }
+}
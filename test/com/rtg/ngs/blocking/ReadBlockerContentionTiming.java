@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs.blocking;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rtg.util.PortableRandom;
+import com.rtg.util.Utils;
+
+/**
+ * Time concurrent updates of the synchronized and compare and set read blockers
+ * as the number of threads grows.
+ */
+public final class ReadBlockerContentionTiming {
+
+  private ReadBlockerContentionTiming() { }
+
+  private static final int READS = 1 << 20;
+  private static final int UPDATES = 1 << 22;
+
+  private interface Updater {
+    void update(int read, int score);
+  }
+
+  private static int[] reads(final PortableRandom random) {
+    final int[] reads = new int[UPDATES];
+    for (int i = 0; i < reads.length; ++i) {
+      // Skew towards a small set of repetitive reads, as happens in practice
+      reads[i] = random.nextInt(4) == 0 ? random.nextInt(64) : random.nextInt(READS);
+    }
+    return reads;
+  }
+
+  private static void time(final String label, final Updater updater, final int[] reads, final int threads, final PrintStream ps) throws InterruptedException {
+    final List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; ++t) {
+      final int offset = t;
+      workers.add(new Thread() {
+        @Override
+        public void run() {
+          for (int i = offset; i < reads.length; i += threads) {
+            updater.update(reads[i], reads[i] & 31);
+          }
+        }
+      });
+    }
+    final long t0 = System.nanoTime();
+    for (final Thread t : workers) {
+      t.start();
+    }
+    for (final Thread t : workers) {
+      t.join();
+    }
+    final long t1 = System.nanoTime();
+    ps.println(label + " threads=" + threads + " " + Utils.realFormat((t1 - t0) / (double) reads.length, 2) + "ns per update");
+  }
+
+  /**
+   * @param args command line arguments ignored.
+   * @throws InterruptedException if interrupted.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    final int[] reads = reads(new PortableRandom(1));
+    final int maxThreads = Runtime.getRuntime().availableProcessors();
+    for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+      for (int i = 0; i < 3; ++i) {
+        final ReadBlocker sync = new ReadBlockerSync(READS, 255, "sync");
+        time("ReadBlockerSync", (r, s) -> sync.increment(r), reads, threads, System.err);
+        final ReadBlocker atomic = new ReadBlockerAtomic(READS, 255, "atomic");
+        time("ReadBlockerAtomic", (r, s) -> atomic.increment(r), reads, threads, System.err);
+        final MapQScoringReadBlocker scoringSync = new MapQScoringReadBlockerSynch(READS, 255);
+        time("MapQScoringReadBlockerSynch", scoringSync::increment, reads, threads, System.err);
+        final MapQScoringReadBlocker scoringAtomic = new MapQScoringReadBlockerAtomic(READS, 255);
+        time("MapQScoringReadBlockerAtomic", scoringAtomic::increment, reads, threads, System.err);
+      }
+    }
+  }
+}
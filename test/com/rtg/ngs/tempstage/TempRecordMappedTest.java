@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs.tempstage;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import com.rtg.util.io.TestDirectory;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class TempRecordMappedTest extends TestCase {
+
+  private static TempRecordReader.RecordFactory factory() {
+    return new TempRecordReader.RecordFactory(true, true, true, true);
+  }
+
+  private static File write(final File dir, final int records) throws IOException {
+    final File file = new File(dir, "temp");
+    try (TempRecordWriter wr = new TempRecordWriterNio(new FileOutputStream(file))) {
+      for (int i = 0; i < records; ++i) {
+        final BinaryTempFileRecord rec = new BinaryTempFileRecord(true, true, true, true);
+        rec.setStartPosition(i);
+        rec.setReadDeltaString("foo".getBytes());
+        rec.setCgReadString("bar".getBytes());
+        rec.setSuperCigarString("bang".getBytes());
+        rec.setAlignmentScore(1);
+        rec.setCigarString((i % 2 == 0 ? "baz" : "bazz").getBytes());
+        rec.setMdString("moo".getBytes());
+        rec.setNumberMismatches(1);
+        rec.setReadId(7 + i);
+        rec.setReferenceId(10);
+        rec.setSamFlags((byte) 30);
+        rec.setComboScore(4);
+        rec.setMatePosition(90);
+        rec.setTemplateLength(100);
+        rec.setUnfilteredMated(i % 3 == 0);
+        wr.writeRecord(rec);
+      }
+    }
+    return file;
+  }
+
+  private void check(final TempRecordReader reader, final int records) throws IOException {
+    for (int i = 0; i < records; ++i) {
+      final BinaryTempFileRecord rec = reader.readRecord();
+      assertNotNull(rec);
+      assertEquals(i, rec.getStartPosition());
+      assertEquals("foo", new String(rec.getReadDeltaString()));
+      assertEquals("bar", new String(rec.getCgReadString()));
+      assertEquals("bang", new String(rec.getSuperCigarString()));
+      assertEquals(1, rec.getAlignmentScore());
+      assertEquals(i % 2 == 0 ? "baz" : "bazz", new String(rec.getCigarString()));
+      assertEquals("moo", new String(rec.getMdString()));
+      assertEquals(7 + i, rec.getReadId());
+      assertEquals(10, rec.getReferenceId());
+      assertEquals(30, rec.getSamFlags());
+      assertEquals(4, rec.getComboScore());
+      assertEquals(90, rec.getMatePosition());
+      assertEquals(100, rec.getTemplateLength());
+      assertEquals(i % 3 == 0, rec.isUnfilteredMated());
+    }
+    assertNull(reader.readRecord());
+  }
+
+  public void testReadWrite() throws IOException {
+    try (final TestDirectory dir = new TestDirectory()) {
+      final File file = write(dir, 30);
+      try (TempRecordReader reader = new TempRecordReaderMapped(file, factory())) {
+        check(reader, 30);
+      }
+    }
+  }
+
+  public void testSmallWindow() throws IOException {
+    try (final TestDirectory dir = new TestDirectory()) {
+      final File file = write(dir, 30);
+      // records cross the window boundaries
+      try (TempRecordReader reader = new TempRecordReaderMapped(file, factory(), 100)) {
+        check(reader, 30);
+      }
+      try (TempRecordReader reader = new TempRecordReaderMapped(file, factory(), 50)) {
+        reader.readRecord();
+        fail();
+      } catch (final IOException e) {
+        assertEquals("Temp file record is larger than the mapped window of 50 bytes", e.getMessage());
+      }
+    }
+  }
+
+  public void testFlyweight() throws IOException {
+    try (final TestDirectory dir = new TestDirectory()) {
+      final File file = write(dir, 2);
+      try (TempRecordReader reader = new TempRecordReaderMapped(file, factory())) {
+        assertTrue(reader.readRecord() == reader.readRecord());
+      }
+    }
+  }
+
+  public void testTruncated() throws IOException {
+    try (final TestDirectory dir = new TestDirectory()) {
+      final File file = write(dir, 3);
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.setLength(file.length() - 10);
+      }
+      try (TempRecordReader reader = new TempRecordReaderMapped(file, factory())) {
+        reader.readRecord();
+        reader.readRecord();
+        reader.readRecord();
+        fail();
+      } catch (final EOFException e) {
+        assertEquals("Unexpected end of temp file", e.getMessage());
+      }
+    }
+  }
+}
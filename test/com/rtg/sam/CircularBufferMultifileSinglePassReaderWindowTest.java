@@ -419,4 +419,87 @@ public class CircularBufferMultifileSinglePassReaderWindowTest extends TestCase
       it.close();
     }
   }
+
+  private CircularBufferMultifileSinglePassReaderWindow<VariantAlignmentRecord> coverageBuffer(final RecordIterator<VariantAlignmentRecord> it, final VariantAlignmentRecordPopulator pop, final int maxCoverage) {
+    return new CircularBufferMultifileSinglePassReaderWindow<>(it, pop, 0, 0, Integer.MAX_VALUE, maxCoverage);
+  }
+
+  public void testCoverageLimit() throws IOException {
+    final File[] samFiles = {new File(mDir, "samFile1460.sam.gz")};
+    final File[] tbiFiles = {new File(mDir, "samFile1460.sam.gz.tbi")};
+    FileHelper.resourceToFile("com/rtg/sam/resources/readerWindow1.sam.gz", samFiles[0]);
+    FileHelper.resourceToFile("com/rtg/sam/resources/readerWindow1.sam.gz.tbi", tbiFiles[0]);
+    final VariantAlignmentRecordPopulator pop = new VariantAlignmentRecordPopulator(new DefaultMachineErrorChooser(), 0, "a", "b", "c");
+    final SamRegionRestriction region = new SamRegionRestriction("simulatedSequence1", 0, 1000);
+    final int[] coverage = new int[1000];
+    int total = 0;
+    final RecordIterator<VariantAlignmentRecord> it = defaultIterator(Arrays.asList(samFiles), new SamFilterParamsBuilder().restriction(region).create(), pop);
+    final CircularBufferMultifileSinglePassReaderWindow<VariantAlignmentRecord> buf = coverageBuffer(it, pop, 1000);
+    try {
+      for (final Iterator<VariantAlignmentRecord> it2 = buf.recordsOverlap(0, 1000); it2.hasNext();) {
+        final VariantAlignmentRecord rec = it2.next();
+        assertFalse(rec.isOverflow());
+        for (int p = rec.getStart(); p < Math.min(1000, rec.getStart() + rec.getLength()); ++p) {
+          ++coverage[p];
+        }
+        ++total;
+      }
+      for (int p = 0; p < 1000; ++p) {
+        assertEquals(coverage[p], buf.coverage(p));
+      }
+      assertEquals(0, buf.getTossedRecordCount());
+    } finally {
+      buf.close();
+      it.close();
+    }
+
+    final RecordIterator<VariantAlignmentRecord> itb = defaultIterator(Arrays.asList(samFiles), new SamFilterParamsBuilder().restriction(region).create(), pop);
+    final CircularBufferMultifileSinglePassReaderWindow<VariantAlignmentRecord> bounded = coverageBuffer(itb, pop, 1);
+    try {
+      int retained = 0;
+      int overflow = 0;
+      assertEquals(1, bounded.coverageLimit());
+      for (final Iterator<VariantAlignmentRecord> it2 = bounded.recordsOverlap(0, 1000); it2.hasNext();) {
+        final VariantAlignmentRecord rec = it2.next();
+        if (rec.isOverflow()) {
+          // Only the start position is discarded, the positions the tossed records overlap stand on their own coverage
+          assertEquals(1, rec.getLength());
+          assertTrue(bounded.coverage(rec.getStart()) > 1);
+          ++overflow;
+        } else {
+          ++retained;
+        }
+      }
+      // Depth counts are exact even though most records have been tossed
+      int max = 0;
+      for (int p = 0; p < 1000; ++p) {
+        assertEquals(coverage[p], bounded.coverage(p));
+        max = Math.max(max, coverage[p]);
+      }
+      assertEquals(max, bounded.maxCoverage(0, 1000));
+      assertEquals(coverage[10], bounded.maxCoverage(10, 10));
+      assertEquals(overflow > 0, bounded.getTossedRecordCount() > 0);
+      assertEquals(total, retained + bounded.getTossedRecordCount());
+      bounded.flush(0, 1000);
+      for (int p = 0; p < bounded.flushedTo(); ++p) {
+        assertEquals(0, bounded.coverage(p));
+      }
+    } finally {
+      bounded.close();
+      itb.close();
+    }
+  }
+
+  public void testCoverageNotCounted() throws IOException {
+    final CircularBufferMultifileSinglePassReaderWindow<VariantAlignmentRecord> buf = new CircularBufferMultifileSinglePassReaderWindow<>(null, null, 0, 0, Integer.MAX_VALUE);
+    assertEquals(-1, buf.coverage(0));
+    assertEquals(-1, buf.maxCoverage(0, 10));
+    assertEquals(0, buf.coverageLimit());
+    try {
+      final CircularBufferMultifileSinglePassReaderWindow<VariantAlignmentRecord> bad = new CircularBufferMultifileSinglePassReaderWindow<>(null, null, 0, 0, Integer.MAX_VALUE, -1);
+      fail(bad.toString());
+    } catch (final IllegalArgumentException e) {
+      assertEquals("Coverage limit must not be negative: -1", e.getMessage());
+    }
+  }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.scheduler;
+
+import java.io.IOException;
+
+import com.rtg.scheduler.example.DependenciesExample;
+import com.rtg.scheduler.example.ExampleJobId;
+import com.rtg.scheduler.example.JobFactoryExample;
+import com.rtg.scheduler.example.JobType;
+import com.rtg.util.SimpleThreadPool;
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.variant.bayes.multisample.multithread.EventListMultiSample;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class SchedulerMultipleTest extends TestCase {
+
+  private static final String EXPECTED_BED_2 = "1:BED(0:BED(null, 0:DANGLING(null, 0:INCR())), 1:DANGLING(0:INCR(), 1:INCR()))";
+
+  private static Scheduler<ExampleJobId> scheduler(final JobFactoryExample factory, final int chunks) {
+    return new SchedulerSynchronized<>(new DependenciesExample(chunks), factory, new EventListMultiSample<>(), null, null, 2);
+  }
+
+  private static String sequentialOut(final int chunks) throws IOException {
+    final JobFactoryExample factory = new JobFactoryExample(chunks);
+    new ExecutorSequential<>(scheduler(factory, chunks)).run();
+    return factory.out().toString();
+  }
+
+  public void testAllAddedBeforeRunning() throws IOException {
+    Diagnostic.setLogStream();
+    final SchedulerMultiple<ExampleJobId> sch = new SchedulerMultiple<>();
+    final JobFactoryExample[] factories = new JobFactoryExample[4];
+    for (int i = 0; i < factories.length; ++i) {
+      factories[i] = new JobFactoryExample(2 + i);
+      assertEquals(i, sch.add(scheduler(factories[i], 2 + i)));
+    }
+    sch.close();
+    new ExecutorThreaded<>(sch, 5).run();
+    assertTrue(sch.checkEmpty());
+    for (int i = 0; i < factories.length; ++i) {
+      assertTrue(sch.await(i));
+      assertEquals(sequentialOut(2 + i), factories[i].out().toString());
+    }
+    assertEquals(EXPECTED_BED_2, factories[0].bed().toString());
+  }
+
+  public void testAddWhileRunning() throws IOException {
+    Diagnostic.setLogStream();
+    final SchedulerMultiple<ExampleJobId> sch = new SchedulerMultiple<>();
+    final SimpleThreadPool pool = new SimpleThreadPool(1, "SchedulerMultipleTest", false);
+    pool.execute(() -> {
+      try {
+        new ExecutorThreaded<>(sch, 3).run();
+      } finally {
+        sch.executorFinished();
+      }
+    });
+    // executor waits for work rather than finishing
+    for (int i = 0; i < 3; ++i) {
+      final JobFactoryExample factory = new JobFactoryExample(3);
+      final int index = sch.add(scheduler(factory, 3));
+      assertTrue(sch.await(index));
+      assertEquals(sequentialOut(3), factory.out().toString());
+    }
+    sch.close();
+    pool.terminate();
+    assertTrue(sch.checkEmpty());
+  }
+
+  public void testExecutorFinished() {
+    final SchedulerMultiple<ExampleJobId> sch = new SchedulerMultiple<>();
+    final int index = sch.add(scheduler(new JobFactoryExample(2), 2));
+    sch.executorFinished();
+    assertFalse(sch.await(index));
+    sch.close();
+    try {
+      sch.add(scheduler(new JobFactoryExample(2), 2));
+      fail();
+    } catch (final IllegalStateException e) {
+      assertEquals("Scheduler has been closed", e.getMessage());
+    }
+  }
+
+  public void testLookAhead() throws IOException {
+    Diagnostic.setLogStream();
+    final SchedulerMultiple<ExampleJobId> sch = new SchedulerMultiple<>();
+    assertEquals(0, sch.lookAhead().total());
+    final Scheduler<ExampleJobId> first = scheduler(new JobFactoryExample(2), 2);
+    final Scheduler<ExampleJobId> second = new SchedulerSynchronized<>(new DependenciesExample(3), new JobFactoryExample(3), new EventListMultiSample<>(), null, null, 5);
+    final int a = sch.add(first);
+    sch.add(second);
+    assertTrue(first.lookAhead() == sch.lookAhead());
+    sch.close();
+    new ExecutorSequential<>(sch).run();
+    assertTrue(sch.await(a));
+    // every scheduler has completed
+    assertEquals(0, sch.lookAhead().total());
+    assertEquals(0, sch.lookAhead().lookAhead());
+  }
+
+  public void testIndexedJobId() {
+    final IndexedJobId<ExampleJobId> a = new IndexedJobId<>(0, new ExampleJobId(3, 2, JobType.INCR));
+    final IndexedJobId<ExampleJobId> b = new IndexedJobId<>(1, new ExampleJobId(3, 0, JobType.INCR));
+    final IndexedJobId<ExampleJobId> c = new IndexedJobId<>(1, new ExampleJobId(3, 0, JobType.INCR));
+    assertTrue(a.compareTo(b) < 0);
+    assertTrue(b.compareTo(a) > 0);
+    assertEquals(0, b.compareTo(c));
+    assertEquals(b, c);
+    assertEquals(b.hashCode(), c.hashCode());
+    assertFalse(a.equals(b));
+    assertEquals(2, a.time());
+    assertEquals(1, b.index());
+    assertEquals("0/2:INCR", a.toString());
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant;
+
+import java.util.Arrays;
+
+import com.rtg.util.PortableRandom;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class ReadSlabTest extends TestCase {
+
+  private static byte[] random(final PortableRandom r, final int length, final int range) {
+    final byte[] res = new byte[length];
+    for (int i = 0; i < length; ++i) {
+      res[i] = (byte) r.nextInt(range);
+    }
+    return res;
+  }
+
+  public void testPackable() {
+    assertTrue(ReadSlab.packable(new byte[] {0, 1, 2, 3, 4}));
+    assertTrue(ReadSlab.packable(new byte[0]));
+    assertFalse(ReadSlab.packable(new byte[] {1, '=', 2}));
+    assertFalse(ReadSlab.packable(new byte[] {5}));
+    assertFalse(ReadSlab.packable(new byte[] {-1}));
+  }
+
+  public void testInfo() {
+    final int info = ReadSlab.info(new byte[] {1, 2, 3, 4, 1}, new byte[0]);
+    assertEquals(5, ReadSlab.length(info));
+    assertEquals(2, ReadSlab.size(info));
+    final int infoN = ReadSlab.info(new byte[] {1, 2, 3, 4, 0}, new byte[5]);
+    assertEquals(5, ReadSlab.length(infoN));
+    assertEquals(5 + 2 + 1, ReadSlab.size(infoN));
+  }
+
+  public void testRoundTrip() {
+    final PortableRandom r = new PortableRandom(42);
+    final ReadSlab slab = new ReadSlab(100);
+    byte[] previous = null;
+    int slabs = 0;
+    for (int k = 0; k < 200; ++k) {
+      final int length = r.nextInt(40);
+      final byte[] bases = random(r, length, r.nextBoolean() ? 5 : 4);
+      final byte[] qualities = r.nextBoolean() ? random(r, length, 64) : new byte[0];
+      final int info = ReadSlab.info(bases, qualities);
+      final int offset = slab.pack(info, bases, qualities);
+      final byte[] data = slab.slab();
+      if (data != previous) {
+        ++slabs;
+        previous = data;
+      }
+      assertTrue(offset + ReadSlab.size(info) <= data.length);
+      assertEquals(length, ReadSlab.length(info));
+      assertTrue(Arrays.equals(bases, ReadSlab.bases(data, offset, info)));
+      assertTrue(Arrays.equals(qualities, ReadSlab.qualities(data, offset, info)));
+      assertEquals(qualities.length, ReadSlab.qualitiesLength(info));
+      for (int i = 0; i < length; ++i) {
+        assertEquals(bases[i], ReadSlab.base(data, offset, info, i));
+      }
+      for (int i = 0; i < qualities.length; ++i) {
+        assertEquals(qualities[i], ReadSlab.quality(data, offset, i));
+      }
+    }
+    assertTrue(slabs > 1);
+  }
+
+  public void testLargerThanSlab() {
+    final ReadSlab slab = new ReadSlab(8);
+    final byte[] bases = {1, 2, 3, 4, 0, 1, 2, 3, 4, 0, 1, 2};
+    final byte[] qualities = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12};
+    final int info = ReadSlab.info(bases, qualities);
+    final int offset = slab.pack(info, bases, qualities);
+    assertEquals(0, offset);
+    assertEquals(ReadSlab.size(info), slab.slab().length);
+    assertTrue(Arrays.equals(bases, ReadSlab.bases(slab.slab(), offset, info)));
+    assertTrue(Arrays.equals(qualities, ReadSlab.qualities(slab.slab(), offset, info)));
+  }
+}
@@ -11,6 +11,8 @@
  */
 package com.rtg.variant;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.Arrays;
 
 import com.rtg.mode.DnaUtils;
@@ -23,6 +25,7 @@ import com.rtg.util.TestUtils;
 import com.rtg.util.machine.MachineType;
 import com.rtg.variant.realign.RealignParams;
 
+import htsjdk.samtools.BAMRecordCodec;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.SAMRecord;
@@ -444,4 +447,115 @@ public class VariantAlignmentRecordTest extends TestCase {
     assertEquals('N', DnaUtils.getBase(r.getRead()[5]));
     assertEquals('N', DnaUtils.getBase(r.getRead()[15]));
   }
+
+  private static SAMRecord bamRoundTrip(final SAMRecord rec) {
+    final BAMRecordCodec codec = new BAMRecordCodec(rec.getHeader());
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.setOutputStream(out);
+    codec.encode(rec);
+    codec.setInputStream(new ByteArrayInputStream(out.toByteArray()));
+    return codec.decode();
+  }
+
+  private static void checkFields(final AlignmentFields expected, final AlignmentFields actual) {
+    assertNotNull(actual);
+    assertEquals(expected.mSequenceId, actual.mSequenceId);
+    assertEquals(expected.mStart, actual.mStart);
+    assertEquals(expected.mEnd, actual.mEnd);
+    assertEquals(expected.mFlags, actual.mFlags);
+    assertEquals(expected.mMappingQuality, actual.mMappingQuality);
+    assertTrue(Arrays.equals(expected.mBases, actual.mBases));
+    assertTrue(Arrays.equals(expected.mQualities, actual.mQualities));
+    assertEquals(expected.mCigar, actual.mCigar);
+    assertEquals(expected.mReadGroup, actual.mReadGroup);
+    assertEquals(expected.mNhOrIh, actual.mNhOrIh);
+    assertEquals(expected.mAlignmentScore, actual.mAlignmentScore);
+    assertEquals(expected.mSuperCigar, actual.mSuperCigar);
+    assertEquals(expected.mOverlapQuality, actual.mOverlapQuality);
+    assertEquals(expected.mSuperCigarOverlapQuality, actual.mSuperCigarOverlapQuality);
+    assertEquals(expected.mOverlapBases, actual.mOverlapBases);
+    assertEquals(expected.mOverlapInstructions, actual.mOverlapInstructions);
+    assertEquals(expected.mReadDelta, actual.mReadDelta);
+    assertEquals(expected.mMateSequenceId, actual.mMateSequenceId);
+    assertEquals(expected.mFragmentLength, actual.mFragmentLength);
+  }
+
+  public void testBinaryDecode() {
+    final String read = "GGGGGGGGGGGGGGGGGGGGGGGGGGG";
+    final byte[] q = new byte[read.length()];
+    Arrays.fill(q, (byte) 10);
+    q[3] = 30;
+    final String xq = FastaUtils.rawToAsciiString(new byte[]  {27, 28});
+    final SAMRecord rec = getCgSAMRecord(read, "AA", "27=", "19=2B10=", q, xq, false, true);
+    rec.getHeader().addSequence(new SAMSequenceRecord("seq0", 1000));
+    rec.getHeader().addReadGroup(new SAMReadGroupRecord(CG2_READ_GROUP_ID));
+    rec.setReadName("r0");
+    rec.setReferenceIndex(0);
+    rec.setReadString("ACGTNACGT=ACGTACGTACGTACGTA");
+    rec.setAttribute(SamUtils.ATTRIBUTE_ALIGNMENT_SCORE, 3);
+    rec.setAttribute(SamUtils.CG_READ_DELTA, "T");
+    final SAMRecord bam = bamRoundTrip(rec);
+    assertNull(AlignmentFields.fromBinary(rec));
+    checkFields(AlignmentFields.fromRecord(rec), AlignmentFields.fromBinary(bam));
+    final MachineErrorChooserInterface chooser = getMachineCycleCalibrator();
+    assertEquals(0, new VariantAlignmentRecord(rec, 0, chooser, 0).valueCompareTo(new VariantAlignmentRecord(bam, 0, chooser, 0)));
+  }
+
+  public void testBinaryDecodeUnmappedNoQualities() {
+    final SAMFileHeader header = new SAMFileHeader();
+    header.addSequence(new SAMSequenceRecord("seq0", 1000));
+    final SAMRecord rec = new SAMRecord(header);
+    rec.setReadName("r0");
+    rec.setReadString("TATTC");
+    rec.setReadUnmappedFlag(true);
+    rec.setReferenceIndex(0);
+    rec.setAlignmentStart(42);
+    rec.setAttribute("IH", 4);
+    final SAMRecord bam = bamRoundTrip(rec);
+    final AlignmentFields fields = AlignmentFields.fromBinary(bam);
+    checkFields(AlignmentFields.fromRecord(rec), fields);
+    assertEquals(46, fields.mEnd);
+    assertEquals(Integer.valueOf(4), fields.mNhOrIh);
+  }
+
+  private static void checkPacked(final SAMRecord rec, final boolean expectPacked) {
+    final VariantAlignmentRecord plain = new VariantAlignmentRecord(rec, 0, new DefaultMachineErrorChooser(), 20, false);
+    final VariantAlignmentRecord packed = new VariantAlignmentRecord(rec, 0, new DefaultMachineErrorChooser(), 20, true);
+    assertEquals(0, plain.valueCompareTo(packed));
+    assertTrue(Arrays.equals(plain.getRead(), packed.getRead()));
+    assertTrue(Arrays.equals(plain.getRecalibratedQuality(), packed.getRecalibratedQuality()));
+    assertEquals(plain.getReadLength(), packed.getReadLength());
+    for (int i = 0; i < plain.getReadLength(); ++i) {
+      assertEquals(plain.getRead()[i], packed.getBase(i));
+    }
+    assertEquals(plain.getRecalibratedQuality().length, packed.getQualityLength());
+    for (int i = 0; i < plain.getQualityLength(); ++i) {
+      assertEquals(plain.getRecalibratedQuality()[i], packed.getQuality(i));
+    }
+    assertEquals(0, plain.disambiguateDuplicate(packed));
+    assertEquals(plain.toString(), packed.toString());
+    // Packed reads are copied on access, unpacked ones are not
+    assertEquals(!expectPacked, packed.getRead() == packed.getRead());
+  }
+
+  public void testPacked() {
+    final byte[] q = new byte[12];
+    Arrays.fill(q, (byte) 30);
+    q[3] = 10;
+    final SAMRecord rec = getSAMRecord("ACGTNACGTTGA", "12M", q, true);
+    checkPacked(rec, true);
+    rec.setBaseQualities(SAMRecord.NULL_QUALS);
+    checkPacked(rec, true);
+    rec.setReadString("ACG=NACGTTGA");
+    rec.setBaseQualities(q);
+    checkPacked(rec, false);
+  }
+
+  public void testPackedCigarShared() {
+    final byte[] q = new byte[4];
+    final VariantAlignmentRecord a = new VariantAlignmentRecord(getSAMRecord("ACGT", "2M1I1M", q, true), 0, new DefaultMachineErrorChooser(), 0, true);
+    final VariantAlignmentRecord b = new VariantAlignmentRecord(getSAMRecord("TGCA", "2M1I1M", q, true), 0, new DefaultMachineErrorChooser(), 0, true);
+    assertEquals("2M1I1M", a.getCigar());
+    assertTrue(a.getCigar() == b.getCigar());
+  }
 }
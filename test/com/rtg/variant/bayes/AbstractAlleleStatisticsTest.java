@@ -50,6 +50,16 @@ public abstract class AbstractAlleleStatisticsTest<T extends AlleleStatistics<T>
     TestUtils.containsAll(cn.toString(), " [0]  0  0.000 [1]  1  0.501 [2]  0  0.000 [3]  0  0.000");
   }
 
+  public void testReset() {
+    final T cn = getAlleleStatistics(DescriptionSnp.SINGLETON);
+    incrementAlleleStatistics(cn, di(1, 3, 0.0));
+    incrementAlleleStatistics(cn, di(2, 3, 0.0));
+    cn.reset();
+    TestUtils.containsAll(cn.toString(), " [0]  0  0.000 [1]  0  0.000 [2]  0  0.000 [3]  0  0.000");
+    incrementAlleleStatistics(cn, di(1, 3, 0.0));
+    TestUtils.containsAll(cn.toString(), " [0]  0  0.000 [1]  1  0.501 [2]  0  0.000 [3]  0  0.000");
+  }
+
   EvidenceInterface di(final int read, final int score, double r) {
     return new EvidenceQ(DescriptionSnp.SINGLETON, read, 0, 0, r, VariantUtils.phredToProb(score), true, false, false, false);
   }
@@ -134,6 +134,25 @@ public abstract class AbstractStatisticsTest extends TestCase {
     assertEquals((double) 0, sample.getCorrection());
   }
 
+  public void testReset() {
+    final VariantOutputOptions params = VariantParams.builder().create();
+    final Hypotheses<DescriptionCommon> hy = new MockHypotheses(0, false);
+    final Statistics<?> ss = getStatistics(hy.description());
+    incrementStatistics(ss, hy, di(1, 10, 0.6, true, true, false));
+    incrementStatistics(ss, hy, di(2, 10, 0.0, false, true, true));
+    ss.reset();
+    assertEquals(0, ss.coverage());
+    assertEquals(0, ss.nonRefCount());
+    assertEquals(0, ss.ambiguousCount());
+    assertEquals(0.0, ss.totalError());
+    assertEquals(null, ss.ambiguityRatio());
+    assertEquals(0.0, ss.counts().count(1));
+    assertFalse(ss.ambiguous(params));
+    incrementStatistics(ss, hy, di(1, 10, 0.0, true, false, false));
+    assertEquals(1, ss.coverage());
+    assertEquals(1, ss.nonRefCount());
+  }
+
   //nonRef and also reset followed by increment
   public void test1() {
     final Hypotheses<DescriptionCommon> hy = new MockHypotheses(0, false);
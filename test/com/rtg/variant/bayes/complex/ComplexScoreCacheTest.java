@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.bayes.complex;
+
+import com.rtg.mode.DnaUtils;
+import com.rtg.variant.realign.AlignmentEnvironment;
+import com.rtg.variant.realign.AlignmentEnvironmentGenome;
+import com.rtg.variant.realign.RealignParams;
+import com.rtg.variant.realign.RealignParamsGenome;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class ComplexScoreCacheTest extends TestCase {
+
+  private static final byte[] TEMPLATE = DnaUtils.encodeString("acgtacgtacgtttacga");
+
+  private static ComplexScoreCache.Key key(int start, int end, int readStart, int maxShift, RealignParams params, DescriptionComplex description) {
+    final AlignmentEnvironment se = new AlignmentEnvironmentGenome(start, end, TEMPLATE);
+    return new ComplexScoreCache.Key(se, 10, readStart, maxShift, params, description);
+  }
+
+  public void testKey() {
+    final RealignParams params = RealignParamsGenome.SINGLETON;
+    final ComplexScoreCache.Key k = key(0, 8, 0, 3, params, null);
+    assertEquals(k, key(0, 8, 0, 3, params, null));
+    assertEquals(k.hashCode(), key(0, 8, 0, 3, params, null).hashCode());
+    assertEquals(k, key(4, 12, 0, 3, params, null)); // same bases
+    assertFalse(k.equals(key(0, 8, 1, 3, params, null)));
+    assertFalse(k.equals(key(0, 8, 0, 4, params, null)));
+    assertFalse(k.equals(key(1, 9, 0, 3, params, null)));
+    assertFalse(k.equals(key(0, 7, 0, 3, params, null)));
+    assertFalse(k.equals(null));
+  }
+
+  public void testBounded() {
+    final RealignParams params = RealignParamsGenome.SINGLETON;
+    final ComplexScoreCache cache = new ComplexScoreCache(2);
+    final ComplexScoreCache.Key k0 = key(0, 8, 0, 3, params, null);
+    final ComplexScoreCache.Key k1 = key(1, 9, 0, 3, params, null);
+    final ComplexScoreCache.Key k2 = key(2, 10, 0, 3, params, null);
+    assertNull(cache.get(k0));
+    cache.put(k0, new double[] {-1.0});
+    cache.put(k1, new double[] {-2.0});
+    cache.put(k2, new double[] {-3.0});
+    assertEquals(2, cache.size());
+    assertEquals(-1.0, cache.get(key(4, 12, 0, 3, params, null))[0]);
+    assertEquals(-2.0, cache.get(k1)[0]);
+    assertNull(cache.get(k2));
+    assertEquals(2, cache.hits());
+    assertEquals(2, cache.misses());
+    assertEquals(1, cache.uncached());
+    assertEquals("ComplexScoreCache size=2 hits=2 misses=2 uncached=1", cache.toString());
+  }
+}
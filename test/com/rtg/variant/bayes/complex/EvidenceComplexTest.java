@@ -127,6 +127,37 @@ public class EvidenceComplexTest extends TestCase {
         );
   }
 
+  public void testScoreCacheGivesSameEvidence() {
+    final AlignmentMatch mA = HypothesesComplexTest.match("A", 5);
+    final AlignmentMatch mTT = HypothesesComplexTest.match("TT", 5);
+
+    final ArrayList<AlignmentMatch> ml = new ArrayList<>();
+    for (int i = 0; i < 20; ++i) {
+      ml.add(mA);
+      ml.add(mTT);
+    }
+    final MachineErrorChooserInterface ch = new DefaultMachineErrorChooser(getErrors());
+    final VariantParams vp = new VariantParamsBuilder().defaultQuality(20).callLevel(VariantOutputLevel.ALL).create();
+    HypothesesComplexTest.COMPLEX_TEMPLATE.setComplexContext(HypothesesComplex.createComplexDescription(ml, HypothesesComplexTest.COMPLEX_TEMPLATE, null, vp.pruneHypotheses(), vp.maxComplexHypotheses()), LogPossibility.SINGLETON);
+    final HypothesesComplex hyp = HypothesesComplex.makeComplexHypotheses(HypothesesComplexTest.COMPLEX_TEMPLATE, false, vp);
+    final ComplexScoreCache cache = new ComplexScoreCache(1);
+    for (final AlignmentMatch match : ml) {
+      final EvidenceComplex plain = new EvidenceComplex(hyp, match, HypothesesComplexTest.COMPLEX_TEMPLATE, vp, ch);
+      final EvidenceComplex cached = new EvidenceComplex(hyp, match, HypothesesComplexTest.COMPLEX_TEMPLATE, vp, ch, cache);
+      assertEquals(plain.sumLn(), cached.sumLn());
+      assertEquals(plain.pe(), cached.pe());
+      assertEquals(plain.read(), cached.read());
+      for (int i = 0; i < hyp.size(); ++i) {
+        assertEquals(plain.probability(i), cached.probability(i));
+      }
+    }
+    // only the first distinct read is retained
+    assertEquals(1, cache.size());
+    assertEquals(19, cache.hits());
+    assertEquals(21, cache.misses());
+    assertEquals(20, cache.uncached());
+  }
+
   public void testObviousSingleNtInsertionMatchesHomoCall() throws Exception {
     final SAMRecord samA = new SAMRecord(null);
     samA.setAlignmentStart(1);
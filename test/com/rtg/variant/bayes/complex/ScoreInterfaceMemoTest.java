@@ -18,8 +18,8 @@ import com.rtg.variant.MachineErrorParamsBuilder;
 import com.rtg.variant.realign.AllPaths;
 import com.rtg.variant.realign.RealignParams;
 import com.rtg.variant.realign.RealignParamsImplementation;
-import com.rtg.variant.realign.ScoreFastUnderflow;
 import com.rtg.variant.realign.ScoreFastUnderflowCG;
+import com.rtg.variant.realign.ScoreTotalFastUnderflow;
 
 import junit.framework.TestCase;
 
@@ -33,11 +33,11 @@ public class ScoreInterfaceMemoTest extends TestCase {
     final RealignParams me = new RealignParamsImplementation(builder.create());
     final RealignParams me2 = new RealignParamsImplementation(builder.create());
     final AllPaths s1 = memo.getScoreInterface(me);
-    assertTrue(s1 instanceof ScoreFastUnderflow);
+    assertTrue(s1 instanceof ScoreTotalFastUnderflow);
     assertTrue(s1 == memo.getScoreInterface(me));
 
     final AllPaths s2 = memo.getScoreInterface(me2);
-    assertTrue(s2 instanceof ScoreFastUnderflow);
+    assertTrue(s2 instanceof ScoreTotalFastUnderflow);
     assertFalse(s1 == s2);
 
     final MachineErrorParams complete = builder.errors("complete").create();
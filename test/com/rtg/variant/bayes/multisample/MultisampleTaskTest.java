@@ -42,6 +42,7 @@ import com.rtg.tabix.UnindexableDataException;
 import com.rtg.usage.UsageMetric;
 import com.rtg.util.HtmlReportHelper;
 import com.rtg.util.InvalidParamsException;
+import com.rtg.util.StringUtils;
 import com.rtg.util.TestUtils;
 import com.rtg.util.Utils;
 import com.rtg.util.diagnostic.Diagnostic;
@@ -51,10 +52,12 @@ import com.rtg.util.test.BgzipFileHelper;
 import com.rtg.util.test.FileHelper;
 import com.rtg.variant.GenomePriorParams;
 import com.rtg.variant.StaticThreshold;
+import com.rtg.variant.ThreadingEnvironment;
 import com.rtg.variant.VariantParams;
 import com.rtg.variant.VariantParamsBuilder;
 import com.rtg.variant.bayes.multisample.population.PopulationCallerConfiguration;
 import com.rtg.variant.bayes.multisample.population.PopulationNanoTest;
+import com.rtg.variant.bayes.multisample.singleton.SingletonCallerConfiguration;
 import com.rtg.variant.bayes.multisample.singleton.SingletonCli;
 import com.rtg.vcf.VariantStatistics;
 
@@ -220,6 +223,77 @@ public class MultisampleTaskTest extends AbstractNanoTest {
   }
 
   // Leverage the population caller nano regression code to test indel triggering
+  private static final String[] SHORT_SEQUENCES = {
+    "ACGTTGCAAGTCCGATAGCTTACGGATCAT",
+    "TTGACCGTAGGCATCGATTCAGGCTAACGT",
+    "GCATTACGGTCAAGCTTGACCATGGATCCA",
+    "CAGGTACTTGCAACGTGCATCGGATTACAG",
+  };
+
+  private static final int SNP_POSITION = 15; // one based
+
+  private static String shortSequencesSam() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("@HD\tVN:1.0\tSO:coordinate").append(LS);
+    for (int i = 0; i < SHORT_SEQUENCES.length; ++i) {
+      sb.append("@SQ\tSN:g").append(i + 1).append("\tLN:").append(SHORT_SEQUENCES[i].length()).append(LS);
+    }
+    sb.append("@RG\tID:RG1\tSM:TEST\tPL:ILLUMINA").append(LS);
+    for (int i = 0; i < SHORT_SEQUENCES.length; ++i) {
+      for (int pos = 2; pos < 8; ++pos) {
+        final char[] read = SHORT_SEQUENCES[i].substring(pos - 1, pos + 19).toCharArray();
+        final int snp = SNP_POSITION - pos;
+        read[snp] = read[snp] == 'A' ? 'C' : 'A';
+        sb.append("r").append(i).append("_").append(pos).append("\t0\tg").append(i + 1).append("\t").append(pos).append("\t255\t20M\t*\t0\t0\t")
+          .append(read).append("\tIIIIIIIIIIIIIIIIIIII\tAS:i:1\tNM:i:1\tIH:i:1\tRG:Z:RG1").append(LS);
+      }
+    }
+    return sb.toString();
+  }
+
+  private String callShortSequences(final File input, final File templ, final File outDir, final int sequencesInFlight) throws IOException {
+    final ArrayList<File> mapped = new ArrayList<>();
+    mapped.add(new File(input, "alignments.sam.gz"));
+    final VariantParams p = getBuilder()
+      .threadingEnvironment(ThreadingEnvironment.PARALLEL)
+      .execThreads(4)
+      .mapped(mapped)
+      .genome(SequenceParams.builder().directory(templ).mode(SequenceMode.UNIDIRECTIONAL).create().readerParams())
+      .outputParams(new OutputParams(outDir, false, false))
+      .genomePriors(GenomePriorParams.builder().contraryProbability(1).create())
+      .maxCoverageFilter(new StaticThreshold(100))
+      .uberHeader(SamUtils.getUberHeader(null, mapped, false, null))
+      .create();
+    try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+      final MultisampleTask<VariantStatistics> task = new MultisampleTask<>(p, new SingletonCallerConfiguration.Configurator(), bos, new VariantStatistics(null), new UsageMetric());
+      task.setSequencesInFlight(sequencesInFlight);
+      task.exec();
+    }
+    return StringUtils.grepMinusV(FileUtils.fileToString(p.vcfFile()), "^##");
+  }
+
+  // Processing several short sequences at once gives exactly the output of processing them one at a time
+  public void testSequencesInFlight() throws IOException, UnindexableDataException, InvalidParamsException {
+    Diagnostic.setLogStream();
+    try (final TestDirectory input = new TestDirectory("variance_in");
+         final TestDirectory output = new TestDirectory("variance_out")) {
+      final File samFile = new File(input, "alignments.sam.gz");
+      FileHelper.stringToGzFile(shortSequencesSam(), samFile);
+      new TabixIndexer(samFile, new File(input, "alignments.sam.gz.tbi")).saveSamIndex();
+      final StringBuilder ref = new StringBuilder();
+      for (int i = 0; i < SHORT_SEQUENCES.length; ++i) {
+        ref.append(">g").append(i + 1).append(LS).append(SHORT_SEQUENCES[i]).append(LS);
+      }
+      final File templ = ReaderTestUtils.getDNADir(ref.toString(), new File(input, "template"));
+      final String sequential = callShortSequences(input, templ, new File(output, "sequential"), 1);
+      for (int i = 0; i < SHORT_SEQUENCES.length; ++i) {
+        TestUtils.containsAll(sequential, "g" + (i + 1) + "\t" + SNP_POSITION + "\t");
+      }
+      assertEquals(sequential, callShortSequences(input, templ, new File(output, "inflight2"), 2));
+      assertEquals(sequential, callShortSequences(input, templ, new File(output, "inflight8"), 8));
+    }
+  }
+
   public void testIndelTriggering() throws Exception {
     final String testName = "indel_triggering_fraction";
     final String sam = FileHelper.resourceToString(RESOURCE_DIR + testName + ".sam");
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.bayes.multisample.family;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rtg.relation.Family;
+import com.rtg.util.InvalidParamsException;
+import com.rtg.util.PortableRandom;
+import com.rtg.util.Utils;
+import com.rtg.variant.GenomePriorParams;
+import com.rtg.variant.GenomePriorParamsBuilder;
+import com.rtg.variant.bayes.Description;
+import com.rtg.variant.bayes.Model;
+import com.rtg.variant.bayes.ModelInterface;
+import com.rtg.variant.bayes.NoAlleleBalance;
+import com.rtg.variant.bayes.multisample.HaploidDiploidHypotheses;
+import com.rtg.variant.bayes.snp.DescriptionSnp;
+import com.rtg.variant.bayes.snp.EvidenceQ;
+import com.rtg.variant.bayes.snp.HypothesesNone;
+import com.rtg.variant.bayes.snp.HypothesesPrior;
+import com.rtg.variant.bayes.snp.HypothesesSnp;
+import com.rtg.variant.bayes.snp.StatisticsSnp;
+import com.rtg.variant.util.arithmetic.SimplePossibility;
+
+/**
+ * Time the family posterior calculation as the pedigree grows from a quad to twenty members,
+ * with and without the precomputed transmission tables.
+ */
+public final class FamilyPosteriorTiming {
+
+  private FamilyPosteriorTiming() { }
+
+  private static final int SITES = 200;
+
+  private static ModelInterface<?> model(final HypothesesPrior<Description> hypotheses, final int a, final int b, final int coverage, final PortableRandom random) {
+    final ModelInterface<?> model = new Model<>(hypotheses, new StatisticsSnp(hypotheses.description()), new NoAlleleBalance());
+    for (int i = 0; i < coverage; ++i) {
+      model.increment(new EvidenceQ(DescriptionSnp.SINGLETON, random.nextBoolean() ? a : b, 0, 0, 0.05, 0.02, true, false, false, false));
+    }
+    model.freeze();
+    return model;
+  }
+
+  // Random sites, mostly Mendelian consistent, with the occasional de novo child
+  private static List<List<ModelInterface<?>>> sites(final HypothesesPrior<Description> hypotheses, final int children, final PortableRandom random) {
+    final List<List<ModelInterface<?>>> sites = new ArrayList<>();
+    for (int s = 0; s < SITES; ++s) {
+      final List<ModelInterface<?>> models = new ArrayList<>();
+      final boolean variant = random.nextInt(4) == 0;
+      final int fa = 0;
+      final int fb = variant ? random.nextInt(4) : 0;
+      final int ma = 0;
+      final int mb = variant ? random.nextInt(4) : 0;
+      models.add(model(hypotheses, fa, fb, 5 + random.nextInt(30), random));
+      models.add(model(hypotheses, ma, mb, 5 + random.nextInt(30), random));
+      for (int c = 0; c < children; ++c) {
+        final int ca = random.nextBoolean() ? fa : fb;
+        final int cb = random.nextInt(100) == 0 ? random.nextInt(4) : random.nextBoolean() ? ma : mb;
+        models.add(model(hypotheses, ca, cb, 5 + random.nextInt(30), random));
+      }
+      sites.add(models);
+    }
+    return sites;
+  }
+
+  private static void time(final String label, final Family family, final GenomePriorParams priors, final HaploidDiploidHypotheses<HypothesesPrior<Description>> hdh, final List<List<ModelInterface<?>>> sites, final boolean tables, final int iter, final PrintStream ps) {
+    double sum = 0;
+    final long t0 = System.nanoTime();
+    for (int l = 0; l < iter; ++l) {
+      for (final List<ModelInterface<?>> models : sites) {
+        sum += new FastFamilyPosterior(family, priors, models, hdh, tables).getNonIdentityPosterior();
+      }
+    }
+    final long t1 = System.nanoTime();
+    final double t = (t1 - t0) / (1000.0 * iter * sites.size());
+    ps.println(label + " " + Utils.realFormat(t, 2) + "us per site (" + Utils.realFormat(sum, 1) + ")");
+  }
+
+  /**
+   * @param args command line arguments ignored.
+   * @throws InvalidParamsException if the priors are invalid.
+   */
+  public static void main(String[] args) throws InvalidParamsException {
+    final GenomePriorParams priors = new GenomePriorParamsBuilder().create();
+    final HypothesesPrior<Description> hypotheses = new HypothesesSnp(SimplePossibility.SINGLETON, priors, false, 0);
+    final HaploidDiploidHypotheses<HypothesesPrior<Description>> hdh = new HaploidDiploidHypotheses<>(HypothesesNone.SINGLETON, null, hypotheses);
+    final PortableRandom random = new PortableRandom(1);
+    for (final int children : new int[] {2, 4, 8, 12, 18}) {
+      final String[] names = new String[children];
+      for (int c = 0; c < children; ++c) {
+        names[c] = "c" + c;
+      }
+      final Family family = FamilyCallerTest.makeFamily("f", "m", names);
+      final List<List<ModelInterface<?>>> sites = sites(hypotheses, children, random);
+      for (int i = 0; i < 3; ++i) {
+        time("members=" + (children + 2) + " direct", family, priors, hdh, sites, false, 20, System.err);
+        time("members=" + (children + 2) + " tables", family, priors, hdh, sites, true, 20, System.err);
+      }
+    }
+  }
+
+}
@@ -29,6 +29,8 @@ import com.rtg.variant.bayes.snp.DescriptionSnp;
 import com.rtg.variant.bayes.snp.EvidenceQ;
 import com.rtg.variant.bayes.snp.HypothesesNone;
 import com.rtg.variant.bayes.snp.HypothesesPrior;
+import com.rtg.variant.bayes.snp.HypothesesSnp;
+import com.rtg.variant.util.arithmetic.SimplePossibility;
 
 /**
  */
@@ -165,4 +167,51 @@ public class FastFamilyPosteriorTest extends FamilyPosteriorTest {
       assertEquals(basePosterior, incremental.getNonIdentityPosterior(), 0.0000001);
     }
   }
+
+  private static void checkSame(HypothesisScore expected, HypothesisScore actual) {
+    if (expected == null) {
+      assertNull(actual);
+      return;
+    }
+    assertEquals(expected.hypothesis(), actual.hypothesis());
+    assertEquals(expected.genotypeMeasure().bestPosterior(), actual.genotypeMeasure().bestPosterior());
+    assertEquals(expected.isDeNovo(), actual.isDeNovo());
+    assertEquals(expected.getDeNovoPosterior(), actual.getDeNovoPosterior());
+  }
+
+  public void testTransmissionTablesSameAsDirect() throws Exception {
+    final GenomePriorParams priors = new GenomePriorParamsBuilder().denovoRef(0.0002).denovoNonRef(0.00002).contraryProbability(0.01).create();
+    mHypotheses = new HypothesesSnp(SimplePossibility.SINGLETON, priors, false, 0);
+    final PortableRandom r = new PortableRandom(3);
+    for (int k = 0; k < 20; ++k) {
+      final int numChildren = 1 + r.nextInt(18);
+      final List<ModelInterface<?>> models = new ArrayList<>();
+      final String[] children = new String[numChildren];
+      for (int m = 0; m < numChildren + 2; ++m) {
+        final ModelInterface<?> model = getModel();
+        final int a = r.nextInt(4);
+        final int b = r.nextInt(4);
+        final int count = r.nextInt(15);
+        for (int i = 0; i < count; ++i) {
+          model.increment(new EvidenceQ(DescriptionSnp.SINGLETON, r.nextBoolean() ? a : b, 0, 0, 0.1, 0.05 * r.nextDouble(), true, false, false, false));
+        }
+        model.freeze();
+        models.add(model);
+        if (m >= Family.FIRST_CHILD_INDEX) {
+          children[m - Family.FIRST_CHILD_INDEX] = "c" + m;
+        }
+      }
+      final Family family = FamilyCallerTest.makeFamily("f", "m", children);
+      final HaploidDiploidHypotheses<HypothesesPrior<Description>> hdh = new HaploidDiploidHypotheses<>(HypothesesNone.SINGLETON, null, mHypotheses);
+      final AbstractFamilyPosterior direct = new FastFamilyPosterior(family, priors, models, hdh, false);
+      final AbstractFamilyPosterior tables = new FastFamilyPosterior(family, priors, models, hdh, true);
+      assertEquals(direct.getNonIdentityPosterior(), tables.getNonIdentityPosterior());
+      assertEquals(direct.isInteresting(), tables.isInteresting());
+      checkSame(direct.bestFather(), tables.bestFather());
+      checkSame(direct.bestMother(), tables.bestMother());
+      for (int i = 0; i < numChildren; ++i) {
+        checkSame(direct.bestChild(i), tables.bestChild(i));
+      }
+    }
+  }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.bayes.multisample.family;
+
+import com.rtg.reference.Ploidy;
+import com.rtg.variant.bayes.Code;
+import com.rtg.variant.bayes.CodeDiploid;
+import com.rtg.variant.bayes.CodeHaploid;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class MendelianTransmissionTableTest extends TestCase {
+
+  private static final double REF_PRIOR = Math.log(0.0002);
+  private static final double NON_REF_PRIOR = Math.log(0.00002);
+
+  private static int size(Ploidy ploidy, int alleles) {
+    switch (ploidy) {
+      case NONE:
+        return 0;
+      case HAPLOID:
+        return alleles;
+      default:
+        return alleles * (alleles + 1) / 2;
+    }
+  }
+
+  private static int[] hypotheses(Ploidy ploidy, int size) {
+    if (ploidy == Ploidy.NONE) {
+      return new int[] {FamilyPosterior.MISSING_HYPOTHESIS};
+    }
+    final int[] res = new int[size];
+    for (int i = 0; i < size; ++i) {
+      res[i] = i;
+    }
+    return res;
+  }
+
+  private void check(Ploidy father, Ploidy mother, Ploidy child, int alleles, double refPrior, double nonRefPrior) {
+    final boolean diploid = father == Ploidy.DIPLOID || mother == Ploidy.DIPLOID || child == Ploidy.DIPLOID;
+    final Code code = diploid ? new CodeDiploid(alleles) : new CodeHaploid(alleles);
+    final int fatherSize = size(father, alleles);
+    final int motherSize = size(mother, alleles);
+    final int childSize = size(child, alleles);
+    final MendelianTransmissionTable table = MendelianTransmissionTable.getTable(father, mother, child, code, fatherSize, motherSize, childSize, refPrior, nonRefPrior);
+    assertNotNull(table);
+    assertTrue(table == MendelianTransmissionTable.getTable(father, mother, child, code, fatherSize, motherSize, childSize, refPrior, nonRefPrior));
+    assertEquals(childSize, table.childSize());
+    for (int ref = 0; ref < code.rangeSize(); ++ref) {
+      final MendelianAlleleProbability expected = MendelianAlleleProbabilityFactory.COMBINED.getMendelianAlleleProbability(father, mother, child, refPrior, nonRefPrior, ref);
+      for (final int fa : hypotheses(father, fatherSize)) {
+        for (final int mo : hypotheses(mother, motherSize)) {
+          final double[] probabilities = table.probabilities();
+          final int offset = table.offset(fa, mo, ref);
+          for (int ch = 0; ch < childSize; ++ch) {
+            final String id = father + " " + mother + " " + child + " ref=" + ref + " " + fa + " " + mo + " " + ch;
+            assertEquals(id, expected.probabilityLn(code, fa, mo, ch), probabilities[offset + ch]);
+            assertEquals(id, expected.probabilityLn(code, fa, mo, ch), table.probabilityLn(fa, mo, ch, ref));
+            assertEquals(id, expected.isDenovo(code, fa, mo, ch), table.isDenovo(fa, mo, ch));
+          }
+        }
+      }
+    }
+  }
+
+  private void checkAll(double refPrior, double nonRefPrior) {
+    for (int alleles = 1; alleles <= 5; ++alleles) {
+      check(Ploidy.NONE, Ploidy.HAPLOID, Ploidy.NONE, alleles, refPrior, nonRefPrior);
+      check(Ploidy.NONE, Ploidy.HAPLOID, Ploidy.HAPLOID, alleles, refPrior, nonRefPrior);
+      check(Ploidy.HAPLOID, Ploidy.NONE, Ploidy.NONE, alleles, refPrior, nonRefPrior);
+      check(Ploidy.HAPLOID, Ploidy.NONE, Ploidy.HAPLOID, alleles, refPrior, nonRefPrior);
+      check(Ploidy.HAPLOID, Ploidy.HAPLOID, Ploidy.HAPLOID, alleles, refPrior, nonRefPrior);
+      check(Ploidy.HAPLOID, Ploidy.HAPLOID, Ploidy.DIPLOID, alleles, refPrior, nonRefPrior);
+      check(Ploidy.HAPLOID, Ploidy.DIPLOID, Ploidy.HAPLOID, alleles, refPrior, nonRefPrior);
+      check(Ploidy.HAPLOID, Ploidy.DIPLOID, Ploidy.DIPLOID, alleles, refPrior, nonRefPrior);
+      check(Ploidy.DIPLOID, Ploidy.HAPLOID, Ploidy.HAPLOID, alleles, refPrior, nonRefPrior);
+      check(Ploidy.DIPLOID, Ploidy.HAPLOID, Ploidy.DIPLOID, alleles, refPrior, nonRefPrior);
+      check(Ploidy.DIPLOID, Ploidy.DIPLOID, Ploidy.DIPLOID, alleles, refPrior, nonRefPrior);
+    }
+  }
+
+  public void testSameAsCombined() {
+    checkAll(REF_PRIOR, NON_REF_PRIOR);
+  }
+
+  public void testSameAsCombinedNoDenovo() {
+    checkAll(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+  }
+
+  public void testKeyedOnPriors() {
+    final Code code = new CodeDiploid(4);
+    final MendelianTransmissionTable a = MendelianTransmissionTable.getTable(Ploidy.DIPLOID, Ploidy.DIPLOID, Ploidy.DIPLOID, code, 10, 10, 10, REF_PRIOR, NON_REF_PRIOR);
+    final MendelianTransmissionTable b = MendelianTransmissionTable.getTable(Ploidy.DIPLOID, Ploidy.DIPLOID, Ploidy.DIPLOID, code, 10, 10, 10, REF_PRIOR, REF_PRIOR);
+    assertFalse(a == b);
+    final int fa = code.code(1, 1);
+    final int ch = code.code(1, 2);
+    assertEquals(NON_REF_PRIOR + Math.log(1.0 / 6), a.probabilityLn(fa, fa, ch, 0), 1e-10);
+    assertEquals(REF_PRIOR + Math.log(1.0 / 6), a.probabilityLn(fa, fa, ch, 1), 1e-10);
+    assertEquals(REF_PRIOR + Math.log(1.0 / 6), b.probabilityLn(fa, fa, ch, 0), 1e-10);
+    assertTrue(a.isDenovo(fa, fa, ch));
+    assertFalse(a.isDenovo(fa, fa, fa));
+    assertEquals("MendelianTransmissionTable rows=110 childSize=10", a.toString());
+  }
+
+  public void testTooLarge() {
+    // 36 alleles gives 666 diploid hypotheses, far more than a table is allowed to hold
+    final Code code = new CodeDiploid(36);
+    assertNull(MendelianTransmissionTable.getTable(Ploidy.DIPLOID, Ploidy.DIPLOID, Ploidy.DIPLOID, code, 666, 666, 666, REF_PRIOR, NON_REF_PRIOR));
+  }
+
+  public void testLeastRecentlyUsedDropped() {
+    // each table has 110 rows of 10 children, so the cache holds two of them
+    final MendelianTransmissionTable.TableCache cache = new MendelianTransmissionTable.TableCache(2200);
+    final Code code = new CodeDiploid(4);
+    final MendelianTransmissionTable a = MendelianTransmissionTable.getTable(cache, Ploidy.DIPLOID, Ploidy.DIPLOID, Ploidy.DIPLOID, code, 10, 10, 10, REF_PRIOR, NON_REF_PRIOR);
+    final MendelianTransmissionTable b = MendelianTransmissionTable.getTable(cache, Ploidy.DIPLOID, Ploidy.DIPLOID, Ploidy.DIPLOID, code, 10, 10, 10, REF_PRIOR, REF_PRIOR);
+    assertEquals(2, cache.size());
+    assertEquals(2200, cache.entries());
+    assertTrue(a == MendelianTransmissionTable.getTable(cache, Ploidy.DIPLOID, Ploidy.DIPLOID, Ploidy.DIPLOID, code, 10, 10, 10, REF_PRIOR, NON_REF_PRIOR));
+    final MendelianTransmissionTable c = MendelianTransmissionTable.getTable(cache, Ploidy.DIPLOID, Ploidy.DIPLOID, Ploidy.DIPLOID, code, 10, 10, 10, NON_REF_PRIOR, NON_REF_PRIOR);
+    assertEquals(2, cache.size());
+    assertEquals(2200, cache.entries());
+    assertTrue(a == MendelianTransmissionTable.getTable(cache, Ploidy.DIPLOID, Ploidy.DIPLOID, Ploidy.DIPLOID, code, 10, 10, 10, REF_PRIOR, NON_REF_PRIOR));
+    assertTrue(c == MendelianTransmissionTable.getTable(cache, Ploidy.DIPLOID, Ploidy.DIPLOID, Ploidy.DIPLOID, code, 10, 10, 10, NON_REF_PRIOR, NON_REF_PRIOR));
+    assertFalse(b == MendelianTransmissionTable.getTable(cache, Ploidy.DIPLOID, Ploidy.DIPLOID, Ploidy.DIPLOID, code, 10, 10, 10, REF_PRIOR, REF_PRIOR));
+    assertEquals(2, cache.size());
+  }
+
+  public void testUnsupported() {
+    try {
+      MendelianTransmissionTable.getTable(Ploidy.NONE, Ploidy.NONE, Ploidy.NONE, new CodeHaploid(4), 0, 0, 0, REF_PRIOR, NON_REF_PRIOR);
+      fail();
+    } catch (final UnsupportedOperationException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.bayes.multisample.population;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rtg.util.PortableRandom;
+import com.rtg.variant.GenomePriorParams;
+import com.rtg.variant.VariantParamsBuilder;
+import com.rtg.variant.bayes.Description;
+import com.rtg.variant.bayes.MockModel;
+import com.rtg.variant.bayes.Model;
+import com.rtg.variant.bayes.ModelInterface;
+import com.rtg.variant.bayes.ModelNone;
+import com.rtg.variant.bayes.NoAlleleBalance;
+import com.rtg.variant.bayes.multisample.HaploidDiploidHypotheses;
+import com.rtg.variant.bayes.multisample.HypothesisScore;
+import com.rtg.variant.bayes.multisample.HypothesisScores;
+import com.rtg.variant.bayes.multisample.MultisampleJointScorer;
+import com.rtg.variant.bayes.multisample.PriorContainer;
+import com.rtg.variant.bayes.snp.EvidenceQ;
+import com.rtg.variant.bayes.snp.HypothesesNone;
+import com.rtg.variant.bayes.snp.HypothesesPrior;
+import com.rtg.variant.bayes.snp.HypothesesSnp;
+import com.rtg.variant.bayes.snp.StatisticsSnp;
+import com.rtg.variant.util.arithmetic.LogApproximatePossibility;
+import com.rtg.variant.util.arithmetic.PossibilityArithmetic;
+import com.rtg.variant.util.arithmetic.SimplePossibility;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class ColumnarEmAlgorithmTest extends TestCase {
+
+  private static Model<Description> model(HypothesesPrior<Description> hyp, PortableRandom random, int alt) {
+    final Model<Description> model = new Model<>(hyp, new StatisticsSnp(hyp.description()), new NoAlleleBalance());
+    final int coverage = random.nextInt(12);
+    for (int k = 0; k < coverage; ++k) {
+      final int read = random.nextInt(10) < 3 ? alt : hyp.reference();
+      model.increment(new EvidenceQ(hyp.description(), read, 0, 0, 0.05, 0.01 + random.nextInt(5) * 0.02, true, true, true, false));
+    }
+    model.freeze();
+    return model;
+  }
+
+  private static List<ModelInterface<?>> models(HaploidDiploidHypotheses<HypothesesPrior<Description>> hypotheses, PortableRandom random, int samples) {
+    final List<ModelInterface<?>> models = new ArrayList<>();
+    final int alt = (hypotheses.haploid().reference() + 1 + random.nextInt(3)) % 4;
+    for (int s = 0; s < samples; ++s) {
+      final int type = random.nextInt(10);
+      if (type == 0) {
+        models.add(ModelNone.SINGLETON);
+      } else {
+        models.add(model(type < 3 ? hypotheses.haploid() : hypotheses.diploid(), random, alt));
+      }
+    }
+    return models;
+  }
+
+  private static void checkSame(HypothesisScores expected, HypothesisScores actual) {
+    assertEquals(expected.isInteresting(), actual.isInteresting());
+    assertEquals(expected.getNonIdentityPosterior(), actual.getNonIdentityPosterior());
+    assertNull(actual.getBs());
+    final HypothesisScore[] e = expected.getScores();
+    final HypothesisScore[] a = actual.getScores();
+    assertEquals(e.length, a.length);
+    for (int s = 0; s < e.length; ++s) {
+      if (e[s] == null) {
+        assertNull(a[s]);
+      } else {
+        assertEquals(e[s].hypothesis(), a[s].hypothesis());
+        assertEquals(e[s].posterior(), a[s].posterior());
+        assertEquals(e[s].nonIdentityPosterior(), a[s].nonIdentityPosterior());
+      }
+    }
+  }
+
+  private void checkSameAsEm(PossibilityArithmetic arith, int maxIterations, int parallelSamples) {
+    final PortableRandom random = new PortableRandom(17);
+    final GenomePriorParams params = GenomePriorParams.builder().create();
+    final MultisampleJointScorer caller = new PopulationCaller(new VariantParamsBuilder().create());
+    for (int site = 0; site < 30; ++site) {
+      final int ref = random.nextInt(4);
+      final HaploidDiploidHypotheses<HypothesesPrior<Description>> hypotheses = new HaploidDiploidHypotheses<>(HypothesesNone.SINGLETON,
+        new HypothesesSnp(arith, params, true, ref), new HypothesesSnp(arith, params, false, ref));
+      final List<ModelInterface<?>> models = models(hypotheses, random, 1 + random.nextInt(600));
+      assertTrue(ColumnarEmAlgorithm.isColumnar(models));
+      final HypothesisScores expected = new EmAlgorithm(new HwEstimator(caller), maxIterations).getBestScores(models, new PriorContainer<>(hypotheses, null));
+      final HypothesisScores actual = new ColumnarEmAlgorithm(caller, maxIterations, parallelSamples).getBestScores(models, new PriorContainer<>(hypotheses, null));
+      checkSame(expected, actual);
+    }
+  }
+
+  public void testSameAsEmAlgorithm() {
+    checkSameAsEm(SimplePossibility.SINGLETON, -1, 0);
+    checkSameAsEm(LogApproximatePossibility.SINGLETON, -1, 0);
+    checkSameAsEm(LogApproximatePossibility.SINGLETON, 1, 0);
+    checkSameAsEm(LogApproximatePossibility.SINGLETON, 0, 0);
+  }
+
+  public void testParallel() {
+    checkSameAsEm(LogApproximatePossibility.SINGLETON, -1, 100);
+  }
+
+  public void testFallback() {
+    final GenomePriorParams params = GenomePriorParams.builder().create();
+    final HypothesesSnp haploid = new HypothesesSnp(SimplePossibility.SINGLETON, params, true, 0);
+    final List<ModelInterface<?>> models = new ArrayList<>();
+    models.add(ModelNone.SINGLETON);
+    assertTrue(ColumnarEmAlgorithm.isColumnar(models));
+    models.add(new MockModel<>(haploid, new StatisticsSnp(haploid.description()), null));
+    assertFalse(ColumnarEmAlgorithm.isColumnar(models));
+  }
+}
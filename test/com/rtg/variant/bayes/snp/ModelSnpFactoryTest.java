@@ -13,6 +13,7 @@
 package com.rtg.variant.bayes.snp;
 
 import com.rtg.variant.GenomePriorParams;
+import com.rtg.variant.bayes.Description;
 import com.rtg.variant.bayes.EvidenceInterface;
 import com.rtg.variant.bayes.ModelInterface;
 import com.rtg.variant.bayes.NoAlleleBalance;
@@ -34,6 +35,44 @@ public class ModelSnpFactoryTest extends TestCase {
     mo.increment(di);
   }
 
+  public void testRelease() {
+    final GenomePriorParams params = GenomePriorParams.builder().create();
+    final ModelSnpFactory mf = new ModelSnpFactory(params, false, new NoAlleleBalance(), true);
+    final ModelInterface<Description> mo = mf.make(1);
+    final EvidenceInterface di = new EvidenceQ(DescriptionSnp.SINGLETON, 0, 0, 0, 0.1, 0.1, true, false, false, false);
+    mo.increment(di);
+    mo.freeze();
+    mf.release(mo);
+    // models are only handed out again for the same reference
+    assertNotSame(mo, mf.make(0));
+    final ModelInterface<Description> again = mf.make(1);
+    assertSame(mo, again);
+    assertEquals(0, again.statistics().coverage());
+    final ModelInterface<Description> fresh = mf.make(1);
+    assertNotSame(mo, fresh);
+    for (int i = 0; i < again.size(); ++i) {
+      assertEquals(fresh.p(i), again.p(i));
+    }
+    again.increment(di);
+
+    // models from another factory are not pooled
+    final ModelSnpFactory other = new ModelSnpFactory(params, false, new NoAlleleBalance(), true);
+    other.release(fresh);
+    assertNotSame(fresh, other.make(1));
+  }
+
+  public void testReleaseNotRecycling() {
+    final GenomePriorParams params = GenomePriorParams.builder().create();
+    final ModelSnpFactory mf = new ModelSnpFactory(params, false, new NoAlleleBalance(), false);
+    final ModelInterface<Description> mo = mf.make(1);
+    final EvidenceInterface di = new EvidenceQ(DescriptionSnp.SINGLETON, 0, 0, 0, 0.1, 0.1, true, false, false, false);
+    mo.increment(di);
+    mf.release(mo);
+    // a released model is left alone, so it is safe for a caller to keep using it
+    assertNotSame(mo, mf.make(1));
+    assertEquals(1, mo.statistics().coverage());
+  }
+
   public void testDiploid() {
     final GenomePriorParams params = GenomePriorParams.builder().create();
 
@@ -32,12 +32,21 @@ import static com.rtg.util.StringUtils.LS;
 import static com.rtg.util.StringUtils.TAB;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.rtg.launcher.AbstractCli;
 import com.rtg.launcher.AbstractCliTest;
 import com.rtg.launcher.CommonFlags;
 import com.rtg.launcher.MainResult;
+import com.rtg.launcher.OutputParams;
+import com.rtg.launcher.SequenceParams;
+import com.rtg.mode.SequenceMode;
 import com.rtg.reader.ReaderTestUtils;
+import com.rtg.sam.SamFilterParams;
 import com.rtg.tabix.IndexUtils;
 import com.rtg.tabix.TabixIndexer;
 import com.rtg.util.Environment;
@@ -46,6 +55,7 @@ import com.rtg.util.TestUtils;
 import com.rtg.util.Utils;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.io.FileUtils;
+import com.rtg.util.io.MemoryPrintStream;
 import com.rtg.util.io.TestDirectory;
 import com.rtg.util.test.FileHelper;
 
@@ -437,4 +447,54 @@ public class CoverageTaskTest extends AbstractCliTest {
       mNano.check("covBedRegionNoTemplate.txt", FileUtils.fileToString(summary));
     }
   }
+
+  private static String runCoverage(File dir, File template, List<File> mapped, boolean tsv, int smoothing, boolean parallel) throws IOException {
+    final File output = new File(dir, "out-" + tsv + "-" + smoothing + "-" + parallel);
+    assertTrue(output.mkdir());
+    final CoverageParams params = CoverageParams.builder()
+      .outputParams(new OutputParams(output, false, false))
+      .genome(SequenceParams.builder().directory(template).mode(SequenceMode.UNIDIRECTIONAL).create().readerParams())
+      .mapped(mapped).smoothing(smoothing).tsvOutput(tsv)
+      .ioThreads(3).chunkSize(3).disableHtmlReport(true)
+      .filterParams(SamFilterParams.builder().excludeUnmapped(true).excludeUnplaced(true).create())
+      .create();
+    final MemoryPrintStream log = new MemoryPrintStream();
+    Diagnostic.setLogStream(log.printStream());
+    try {
+      new CoverageTask(params, TestUtils.getNullOutputStream(), new CoverageStatistics(output, true), parallel).run();
+    } finally {
+      Diagnostic.setLogStream();
+    }
+    // the record counts must also agree, records spanning chunk boundaries are only counted once
+    final StringBuilder counts = new StringBuilder();
+    final Matcher m = Pattern.compile("[0-9]+ records [^\n]*").matcher(log.toString());
+    while (m.find()) {
+      counts.append(m.group()).append(LS);
+    }
+    return FileUtils.fileToString(params.outFile()).replaceAll("#.*" + LS, "") + counts;
+  }
+
+  private static void checkParallelChunks(String refSeq, String... sams) throws IOException {
+    Diagnostic.setLogStream();
+    try (final TestDirectory tmpDir = new TestDirectory()) {
+      final File template = ReaderTestUtils.getDNADir(refSeq, new File(tmpDir, "refSeqDir"));
+      final File[] mapped = new File[sams.length];
+      for (int i = 0; i < sams.length; ++i) {
+        mapped[i] = saveSamTabixed(new File(tmpDir, OUT_SAM + i), sams[i]);
+      }
+      for (final boolean tsv : new boolean[] {false, true}) {
+        for (final int smoothing : new int[] {0, 1}) {
+          final String sequential = runCoverage(tmpDir, template, Arrays.asList(mapped), tsv, smoothing, false);
+          assertEquals(sequential, runCoverage(tmpDir, template, Arrays.asList(mapped), tsv, smoothing, true));
+        }
+      }
+    }
+  }
+
+  public void testParallelChunks() throws Exception {
+    checkParallelChunks(REF_SEQS_M, SAM_M);
+    checkParallelChunks(REF_SEQS, SAM_CIGAR1);
+    checkParallelChunks(REF_SEQS, SAM9);
+    checkParallelChunks(REF_SEQS, IN3SAM3HEADER + OK0 + OK4, IN3SAM3HEADER + OK1 + OK3, IN3SAM3HEADER + OK2 + OK5);
+  }
 }
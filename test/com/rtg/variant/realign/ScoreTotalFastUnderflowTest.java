@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.realign;
+
+import com.rtg.util.PortableRandom;
+import com.rtg.util.integrity.Exam;
+import com.rtg.variant.realign.ScoreMatrixTest.MockRealignParams;
+import com.rtg.variant.util.arithmetic.LogApproximatePossibility;
+import com.rtg.variant.util.arithmetic.SimplePossibility;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class ScoreTotalFastUnderflowTest extends TestCase {
+
+  private static Environment randomEnv(final PortableRandom random, final int maxShift, final int length) {
+    final byte[] template = new byte[length + 20];
+    for (int i = 0; i < template.length; ++i) {
+      template[i] = (byte) random.nextInt(5);
+    }
+    final byte[] read = new byte[length];
+    final double[] quality = new double[length];
+    for (int i = 0; i < length; ++i) {
+      // mostly copied from the template so that the totals are not all tiny
+      read[i] = random.nextInt(10) == 0 ? (byte) random.nextInt(5) : template[i + 10];
+      quality[i] = Math.pow(10.0, -(2 + random.nextInt(40)) / 10.0);
+    }
+    final Environment env = new EnvironmentImplementation(maxShift, template, 10 + random.nextInt(3) - 1, read, quality);
+    Exam.integrity(env);
+    return env;
+  }
+
+  public void testSameAsScoreMatrix() {
+    final PortableRandom random = new PortableRandom(42);
+    final MockRealignParams params = new MockRealignParams();
+    final AllPaths simple = new ScoreTotalSimple(params);
+    final AllPaths log = new ScoreTotalLogApproximate(params);
+    final AllPaths simpleMatrix = new ScoreMatrix(SimplePossibility.SINGLETON, params);
+    final AllPaths logMatrix = new ScoreMatrix(LogApproximatePossibility.SINGLETON, params);
+    for (int k = 0; k < 500; ++k) {
+      // sizes vary so that the row arrays get reused with stale values beyond the current width
+      final Environment env = randomEnv(random, random.nextInt(8), 1 + random.nextInt(60));
+      simple.setEnv(env);
+      simpleMatrix.setEnv(env);
+      assertEquals(simpleMatrix.total(), simple.total());
+      assertEquals(simpleMatrix.totalScoreLn(), simple.totalScoreLn());
+      assertEquals(simpleMatrix.underflow(), simple.underflow());
+      log.setEnv(env);
+      logMatrix.setEnv(env);
+      assertEquals(logMatrix.total(), log.total());
+      assertEquals(logMatrix.totalScoreLn(), log.totalScoreLn());
+      assertEquals(simple.totalScoreLn(), log.totalScoreLn(), 1e-3);
+    }
+  }
+
+  public void testUnderflow() {
+    final ScoreFastUnderflowTest underflowTest = new ScoreFastUnderflowTest();
+    final Environment env = underflowTest.envUnderflow();
+    final MockRealignParams params = new MockRealignParams();
+    final AllPaths simple = new ScoreTotalSimple(params);
+    simple.setEnv(env);
+    assertTrue(simple.underflow());
+    assertTrue(simple.arithmetic() == SimplePossibility.SINGLETON);
+
+    final AllPaths score = new ScoreTotalFastUnderflow(params);
+    score.setEnv(env);
+    Exam.globalIntegrity(score);
+    assertFalse(score.underflow());
+    assertTrue(score.arithmetic() == LogApproximatePossibility.SINGLETON);
+    final AllPaths expected = new ScoreFastUnderflow(params);
+    expected.setEnv(env);
+    assertEquals(expected.totalScoreLn(), score.totalScoreLn());
+    assertEquals(-750.22187, score.totalScoreLn(), 0.001);
+  }
+
+  public void testToString() {
+    final AllPaths simple = new ScoreTotalSimple(new MockRealignParams());
+    final ScoreFastUnderflowTest underflowTest = new ScoreFastUnderflowTest();
+    simple.setEnv(underflowTest.env());
+    assertTrue(simple.toString().startsWith("ScoreTotalSimple length=8 width=5 total="));
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.realign;
+
+import java.io.PrintStream;
+
+import com.rtg.util.PortableRandom;
+import com.rtg.util.Utils;
+import com.rtg.variant.realign.ScoreMatrixTest.MockRealignParams;
+
+/**
+ * Time all-paths scoring of read against hypothesis pairs, for the full matrix and the total only versions.
+ */
+public final class ScoreTotalTiming {
+
+  private ScoreTotalTiming() { }
+
+  private static Environment[] environments(final int count, final int readLength, final int maxShift) {
+    final PortableRandom random = new PortableRandom(1);
+    final Environment[] envs = new Environment[count];
+    for (int k = 0; k < count; ++k) {
+      final byte[] template = new byte[readLength + 2 * maxShift + 20];
+      for (int i = 0; i < template.length; ++i) {
+        template[i] = (byte) (1 + random.nextInt(4));
+      }
+      final byte[] read = new byte[readLength];
+      final double[] quality = new double[readLength];
+      for (int i = 0; i < readLength; ++i) {
+        read[i] = random.nextInt(50) == 0 ? (byte) (1 + random.nextInt(4)) : template[i + maxShift + 10];
+        quality[i] = 0.001;
+      }
+      envs[k] = new EnvironmentImplementation(maxShift, template, maxShift + 10, read, quality);
+    }
+    return envs;
+  }
+
+  private static void time(final String label, final AllPaths score, final Environment[] envs, final int iter, final PrintStream ps) {
+    double sum = 0;
+    final long t0 = System.nanoTime();
+    for (int l = 0; l < iter; ++l) {
+      for (final Environment env : envs) {
+        score.setEnv(env);
+        sum += score.totalScoreLn();
+      }
+    }
+    final long t1 = System.nanoTime();
+    final double t = (t1 - t0) / (double) (iter * envs.length);
+    ps.println(label + " " + Utils.realFormat(t, 1) + "ns per read/hypothesis pair (" + Utils.realFormat(sum, 1) + ")");
+  }
+
+  /**
+   * @param args command line arguments ignored.
+   */
+  public static void main(String[] args) {
+    final RealignParams params = new MockRealignParams();
+    final Environment[] envs = environments(1000, 100, 7);
+    for (int i = 0; i < 3; ++i) {
+      time("ScoreFastUnderflow     ", new ScoreFastUnderflow(params), envs, 200, System.err);
+      time("ScoreTotalFastUnderflow", new ScoreTotalFastUnderflow(params), envs, 200, System.err);
+    }
+  }
+
+}